@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.trace.CaptureRecorder;
+
+/**
+ * The cost of capturing one operation, with 1 and 8 client threads capturing to the same file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CaptureBenchmark
+{
+	@State(Scope.Thread)
+	public static class Capture
+	{
+		CaptureRecorder recorder;
+		CaptureRecorder.Log log;
+		HashMap<String,ByteIterator> values;
+		long st;
+
+		@Setup
+		public void setup() throws IOException
+		{
+			//the writer keeps up with several gigabytes a second, which a real file might not
+			recorder=CaptureRecorder.open(new File("/dev/null"),CaptureRecorder.DEFAULT_BUFFER_SIZE);
+			log=recorder.log();
+
+			//one field of workload a's update
+			values=new HashMap<String,ByteIterator>();
+			values.put("field4",new RandomByteIterator(100));
+		}
+
+		@TearDown
+		public void tearDown() throws IOException
+		{
+			log.flush();
+			recorder.release();
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void read1Thread(Capture c)
+	{
+		c.st+=1000;
+		c.log.read(c.st,c.st+250000,0,"usertable","user6284781860667377211",null);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void update1Thread(Capture c)
+	{
+		c.st+=1000;
+		c.log.lengths(c.values);
+		c.log.update(c.st,c.st+250000,0,"usertable","user6284781860667377211",c.values);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void update8Threads(Capture c)
+	{
+		c.st+=1000;
+		c.log.lengths(c.values);
+		c.log.update(c.st,c.st+250000,0,"usertable","user6284781860667377211",c.values);
+	}
+}
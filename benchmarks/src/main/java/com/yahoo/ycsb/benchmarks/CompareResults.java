@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Compares a JMH JSON report (-rf json) with a baseline report from the same machine, and fails if any
+ * benchmark got slower.
+ * 
+ * A benchmark has regressed if its score is worse than the baseline's by more than the allowed percentage,
+ * and by more than the two scores' error margins together, so that noise alone doesn't fail the comparison.
+ * Benchmarks that are only in one of the reports are listed but don't fail it.
+ * 
+ * Usage: CompareResults baseline.json current.json [max regression percent, default 10]
+ */
+public class CompareResults
+{
+	public static final double MAX_REGRESSION_PERCENT_DEFAULT=10;
+
+	/**
+	 * The score of one benchmark, with one set of parameters.
+	 */
+	static class Score
+	{
+		final double score;
+		final double error;
+		final String unit;
+		final boolean higherisbetter;
+
+		Score(double score, double error, String unit, boolean higherisbetter)
+		{
+			this.score=score;
+			this.error=error;
+			this.unit=unit;
+			this.higherisbetter=higherisbetter;
+		}
+	}
+
+	/**
+	 * Read a JMH JSON report into a map from benchmark name, parameters and thread count to its score.
+	 */
+	static Map<String,Score> read(File file) throws IOException
+	{
+		Map<String,Score> scores=new LinkedHashMap<String,Score>();
+		for (JsonNode run : new ObjectMapper().readTree(file))
+		{
+			StringBuilder name=new StringBuilder(run.get("benchmark").getTextValue());
+			JsonNode params=run.get("params");
+			if (params!=null)
+			{
+				for (Iterator<Map.Entry<String,JsonNode>> it=params.getFields(); it.hasNext(); )
+				{
+					Map.Entry<String,JsonNode> param=it.next();
+					name.append(' ').append(param.getKey()).append('=').append(param.getValue().getTextValue());
+				}
+			}
+			name.append(" threads=").append(run.get("threads").getIntValue());
+
+			JsonNode metric=run.get("primaryMetric");
+			double error=metric.get("scoreError").isNumber() ? metric.get("scoreError").getDoubleValue() : 0;
+			//only throughput is better when higher; average, sample and single shot times are better when lower
+			boolean higherisbetter=run.get("mode").getTextValue().equals("thrpt");
+			scores.put(name.toString(),new Score(metric.get("score").getDoubleValue(),error,metric.get("scoreUnit").getTextValue(),higherisbetter));
+		}
+		return scores;
+	}
+
+	/**
+	 * Print the comparison of every benchmark in the two reports, and return the number of regressions.
+	 */
+	static int compare(Map<String,Score> baseline, Map<String,Score> current, double maxregressionpercent)
+	{
+		int regressions=0;
+		for (Map.Entry<String,Score> entry : current.entrySet())
+		{
+			Score now=entry.getValue();
+			Score then=baseline.get(entry.getKey());
+			if (then==null)
+			{
+				System.out.println("NEW        "+entry.getKey()+": "+now.score+" "+now.unit);
+				continue;
+			}
+
+			double worse=now.higherisbetter ? then.score-now.score : now.score-then.score;
+			double percent=then.score==0 ? 0 : 100*worse/then.score;
+			boolean regressed=(percent>maxregressionpercent) && (worse>then.error+now.error);
+			if (regressed)
+			{
+				regressions++;
+			}
+			System.out.println((regressed ? "REGRESSION " : "ok         ")+entry.getKey()+": "+then.score+" -> "+now.score+" "+now.unit+
+					" ("+String.format("%+.1f",then.score==0 ? 0 : 100*(now.score-then.score)/then.score)+"%)");
+		}
+		for (String name : baseline.keySet())
+		{
+			if (!current.containsKey(name))
+			{
+				System.out.println("MISSING    "+name);
+			}
+		}
+		return regressions;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if ( (args.length<2) || (args.length>3) )
+		{
+			System.out.println("Usage: CompareResults baseline.json current.json [max regression percent, default "+MAX_REGRESSION_PERCENT_DEFAULT+"]");
+			System.exit(2);
+		}
+		double maxregressionpercent=args.length==3 ? Double.parseDouble(args[2]) : MAX_REGRESSION_PERCENT_DEFAULT;
+
+		int regressions=compare(read(new File(args[0])),read(new File(args[1])),maxregressionpercent);
+		if (regressions>0)
+		{
+			System.out.println(regressions+" benchmark(s) regressed by more than "+maxregressionpercent+"%");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * The client's overhead per operation: one CoreWorkload transaction, including choosing the operation,
+ * key and values and measuring the call, against a BasicDB that does nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CoreWorkloadBenchmark
+{
+	/**
+	 * The workload, shared by all the client threads as in Client.
+	 */
+	@State(Scope.Benchmark)
+	public static class Workload
+	{
+		@Param({"uniform","zipfian","latest"})
+		String requestdistribution;
+
+		Properties props;
+		CoreWorkload workload;
+
+		@Setup
+		public void setup() throws WorkloadException
+		{
+			//workload a
+			props=new Properties();
+			props.setProperty("recordcount","1000000");
+			props.setProperty("operationcount","100000000");
+			props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY,"0.5");
+			props.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY,"0.5");
+			props.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY,requestdistribution);
+			props.setProperty(BasicDB.VERBOSE,"false");
+			Measurements.setProperties(props);
+
+			workload=new CoreWorkload();
+			workload.init(props);
+		}
+	}
+
+	/**
+	 * One client thread's DB and workload state.
+	 */
+	@State(Scope.Thread)
+	public static class Client
+	{
+		DB db;
+		Object threadstate;
+
+		@Setup
+		public void setup(Workload w) throws DBException, WorkloadException
+		{
+			BasicDB basicdb=new BasicDB();
+			basicdb.setProperties(w.props);
+			db=new DBWrapper(basicdb);
+			db.init();
+			threadstate=w.workload.initThread(w.props,0,1);
+		}
+
+		@TearDown
+		public void teardown() throws DBException
+		{
+			db.cleanup();
+		}
+	}
+
+	@Benchmark
+	public boolean doTransaction(Workload w, Client c)
+	{
+		return w.workload.doTransaction(c.db,c.threadstate);
+	}
+}
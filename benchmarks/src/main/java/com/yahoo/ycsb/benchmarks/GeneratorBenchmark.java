@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.GrowingScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+/**
+ * The cost of drawing one value from the generators every operation uses to choose its key, its
+ * type and its values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class GeneratorBenchmark
+{
+	/**
+	 * The generators are shared by all the client threads, as in CoreWorkload.
+	 */
+	@State(Scope.Benchmark)
+	public static class Generators
+	{
+		ZipfianGenerator zipfian;
+		ScrambledZipfianGenerator scrambledzipfian;
+		GrowingScrambledZipfianGenerator growingzipfian;
+		DiscreteGenerator operations;
+
+		@Setup
+		public void setup()
+		{
+			zipfian=new ZipfianGenerator(1000000);
+			scrambledzipfian=new ScrambledZipfianGenerator(1000000);
+			growingzipfian=new GrowingScrambledZipfianGenerator(new CounterGenerator(1000000),1000000);
+
+			//the operation mix of workload a, plus two operations it doesn't use
+			operations=new DiscreteGenerator();
+			operations.addValue(0.5,"READ");
+			operations.addValue(0.5,"UPDATE");
+			operations.addValue(0,"INSERT");
+			operations.addValue(0,"SCAN");
+		}
+	}
+
+	/**
+	 * Per-thread inputs, so that hashing and value generation don't work on constants.
+	 */
+	@State(Scope.Thread)
+	public static class Inputs
+	{
+		long counter;
+		RandomByteIterator value;
+		byte[] buffer;
+
+		@Setup
+		public void setup()
+		{
+			value=new RandomByteIterator(100);
+			buffer=new byte[100];
+		}
+	}
+
+	@Benchmark
+	public long zipfianNextLong(Generators g)
+	{
+		return g.zipfian.nextLong();
+	}
+
+	@Benchmark
+	public long scrambledZipfianNextLong(Generators g)
+	{
+		return g.scrambledzipfian.nextLong();
+	}
+
+	@Benchmark
+	public long growingScrambledZipfianNextLong(Generators g)
+	{
+		return g.growingzipfian.nextLong();
+	}
+
+	@Benchmark
+	public String discreteNextString(Generators g)
+	{
+		return g.operations.nextString();
+	}
+
+	@Benchmark
+	public int discreteNextIndex(Generators g)
+	{
+		return g.operations.nextIndex();
+	}
+
+	@Benchmark
+	public long fnvHash64(Inputs in)
+	{
+		return Utils.FNVhash64(in.counter++);
+	}
+
+	/**
+	 * Fill one 100 byte field, the default field length.
+	 */
+	@Benchmark
+	public int randomByteIteratorNextBuf(Inputs in)
+	{
+		in.value.reset(in.buffer.length);
+		return in.value.nextBuf(in.buffer,0);
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * The cost of recording one latency, with 1, 8 and 64 client threads recording at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class MeasurementsBenchmark
+{
+	@State(Scope.Benchmark)
+	public static class Shared
+	{
+		@Param({"histogram","hdrhistogram","timeseries"})
+		String measurementtype;
+
+		Measurements measurements;
+
+		@Setup
+		public void setup()
+		{
+			Properties p=new Properties();
+			p.setProperty("measurementtype",measurementtype);
+			Measurements.setProperties(p);
+			measurements=new Measurements(p);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Latency
+	{
+		int latency;
+
+		/**
+		 * Latencies from 0 to 1023us, so that more than one bucket is used.
+		 */
+		int next()
+		{
+			latency=(latency+7)&1023;
+			return latency;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void measure1Thread(Shared s, Latency l)
+	{
+		s.measurements.measure("READ",l.next());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void measure8Threads(Shared s, Latency l)
+	{
+		s.measurements.measure("READ",l.next());
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void measure64Threads(Shared s, Latency l)
+	{
+		s.measurements.measure("READ",l.next());
+	}
+}
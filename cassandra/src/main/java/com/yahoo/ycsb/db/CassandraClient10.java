@@ -264,6 +264,121 @@ public class CassandraClient10 extends DB
 
   }
 
+  /**
+   * Read several records from the database with one multiget_slice call. Like
+   * read(), this does not report rows without columns as "not found"; they are
+   * just left out of results.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          A HashMap from record key to the field/value pairs of that record
+   * @return Zero on success, a non-zero error code on error
+   */
+  public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String, HashMap<String, ByteIterator>> results)
+  {
+    if (!_table.equals(table)) {
+      try
+      {
+        client.set_keyspace(table);
+        _table = table;
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        return Error;
+      }
+    }
+
+    for (int i = 0; i < OperationRetries; i++)
+    {
+
+      try
+      {
+        SlicePredicate predicate;
+        if (fields == null)
+        {
+          predicate = new SlicePredicate().setSlice_range(new SliceRange(emptyByteBuffer, emptyByteBuffer, false, 1000000));
+
+        } else {
+          ArrayList<ByteBuffer> fieldlist = new ArrayList<ByteBuffer>(fields.size());
+          for (String s : fields)
+          {
+            fieldlist.add(ByteBuffer.wrap(s.getBytes("UTF-8")));
+          }
+
+          predicate = new SlicePredicate().setColumn_names(fieldlist);
+        }
+
+        ArrayList<ByteBuffer> keylist = new ArrayList<ByteBuffer>(keys.size());
+        for (String key : keys)
+        {
+          keylist.add(ByteBuffer.wrap(key.getBytes("UTF-8")));
+        }
+
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = client.multiget_slice(keylist, parent, predicate, ConsistencyLevel.ONE);
+
+        Column column;
+        String name;
+        ByteIterator value;
+        for (int k = 0; k < keys.size(); k++)
+        {
+          List<ColumnOrSuperColumn> row = rows.get(keylist.get(k));
+          if (row == null || row.isEmpty())
+          {
+            continue;
+          }
+
+          if (_debug)
+          {
+            System.out.print("Reading key: " + keys.get(k));
+          }
+
+          HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+          for (ColumnOrSuperColumn oneresult : row)
+          {
+            column = oneresult.column;
+            name = new String(column.name.array(), column.name.position()+column.name.arrayOffset(), column.name.remaining());
+            value = new ByteArrayByteIterator(column.value.array(), column.value.position()+column.value.arrayOffset(), column.value.remaining());
+
+            result.put(name,value);
+
+            if (_debug)
+            {
+              System.out.print("(" + name + "=" + value + ")");
+            }
+          }
+          results.put(keys.get(k), result);
+
+          if (_debug)
+          {
+            System.out.println();
+          }
+        }
+
+        return Ok;
+      } catch (Exception e)
+      {
+        errorexception = e;
+      }
+
+      try
+      {
+        Thread.sleep(500);
+      } catch (InterruptedException e)
+      {
+      }
+    }
+    errorexception.printStackTrace();
+    errorexception.printStackTrace(System.out);
+    return Error;
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value
    * pair from the result will be stored in a HashMap.
@@ -473,6 +588,112 @@ public class CassandraClient10 extends DB
     return Error;
   }
 
+  /**
+   * Insert several records in the database with one batch_mutate call, which
+   * carries the mutations for all the keys.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to insert.
+   * @param values
+   *          A HashMap of field/value pairs to insert for each key, in the same
+   *          order as the keys
+   * @return Zero on success, a non-zero error code on error
+   */
+  public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values)
+  {
+    if (!_table.equals(table)) {
+      try
+      {
+        client.set_keyspace(table);
+        _table = table;
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        return Error;
+      }
+    }
+
+    if (keys.isEmpty())
+    {
+      return Ok;
+    }
+
+    for (int i = 0; i < OperationRetries; i++)
+    {
+      if (_debug)
+      {
+        System.out.println("Inserting " + keys.size() + " keys, starting at: " + keys.get(0));
+      }
+
+      try
+      {
+        Map<ByteBuffer, Map<String, List<Mutation>>> batch = new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
+
+        Column col;
+        ColumnOrSuperColumn column;
+        for (int k = 0; k < keys.size(); k++)
+        {
+          List<Mutation> keyMutations = new ArrayList<Mutation>(values.get(k).size());
+          for (Map.Entry<String, ByteIterator> entry : values.get(k).entrySet())
+          {
+            col = new Column();
+            col.setName(ByteBuffer.wrap(entry.getKey().getBytes("UTF-8")));
+            col.setValue(ByteBuffer.wrap(entry.getValue().toArray()));
+            col.setTimestamp(System.currentTimeMillis());
+
+            column = new ColumnOrSuperColumn();
+            column.setColumn(col);
+
+            keyMutations.add(new Mutation().setColumn_or_supercolumn(column));
+          }
+
+          Map<String, List<Mutation>> keyMutationMap = new HashMap<String, List<Mutation>>();
+          keyMutationMap.put(column_family, keyMutations);
+          batch.put(ByteBuffer.wrap(keys.get(k).getBytes("UTF-8")), keyMutationMap);
+        }
+
+        client.batch_mutate(batch, ConsistencyLevel.ONE);
+
+        return Ok;
+      } catch (Exception e)
+      {
+        errorexception = e;
+      }
+      try
+      {
+        Thread.sleep(500);
+      } catch (InterruptedException e)
+      {
+      }
+    }
+
+    errorexception.printStackTrace();
+    errorexception.printStackTrace(System.out);
+    return Error;
+  }
+
+  /**
+   * Update several records in the database with one batch_mutate call. As for
+   * a single record, an update is the same as an insert.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to write.
+   * @param values
+   *          A HashMap of field/value pairs to update for each key, in the same
+   *          order as the keys
+   * @return Zero on success, a non-zero error code on error
+   */
+  public int batchUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values)
+  {
+    return batchInsert(table, keys, values);
+  }
+
   /**
    * Delete a record from the database.
    *
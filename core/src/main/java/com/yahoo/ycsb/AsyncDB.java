@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A layer for accessing a database without blocking the calling thread. Each operation
+ * is started by the call and reports its return code to a callback when it completes,
+ * so a single client thread can keep many operations in flight.
+ * 
+ * Like DB, each client thread is given its own instance, which is constructed with a
+ * no-argument constructor and initialized by init(). Bindings that only have a blocking
+ * client can be run asynchronously with BlockingAsyncDB instead of implementing this class.
+ * 
+ * The return codes passed to the callbacks have the same meaning as those returned by DB.
+ */
+public abstract class AsyncDB
+{
+	/**
+	 * Receives the return code of an operation when it completes.
+	 */
+	public interface Callback
+	{
+		/**
+		 * Called exactly once per operation, from any thread (including the one that started
+		 * the operation, e.g. if it fails immediately). Must not block.
+		 * 
+		 * @param result Zero on success, a non-zero error code on error or "not found".
+		 */
+		void completed(int result);
+	}
+
+	/**
+	 * Properties for configuring this DB.
+	 */
+	Properties _p=new Properties();
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_p=p;
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _p;
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+	}
+
+	/**
+	 * Cleanup any state for this DB. Called once per DB instance, after all operations have completed.
+	 */
+	public void cleanup() throws DBException
+	{
+	}
+
+	/**
+	 * Start reading a record from the database. Each field/value pair from the result will be stored in
+	 * the HashMap before the callback is called.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap of field/value pairs for the result
+	 * @param callback Receives the return code of the read
+	 */
+	public abstract void read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result, Callback callback);
+
+	/**
+	 * Start a range scan for a set of records in the database. Each field/value pair from the result will be stored in
+	 * the Vector before the callback is called.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @param callback Receives the return code of the scan
+	 */
+	public abstract void scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result, Callback callback);
+
+	/**
+	 * Start updating a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key, overwriting any existing values with the same field name.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @param callback Receives the return code of the update
+	 */
+	public abstract void update(String table, String key, HashMap<String,ByteIterator> values, Callback callback);
+
+	/**
+	 * Start inserting a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param callback Receives the return code of the insert
+	 */
+	public abstract void insert(String table, String key, HashMap<String,ByteIterator> values, Callback callback);
+
+	/**
+	 * Start deleting a record from the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @param callback Receives the return code of the delete
+	 */
+	public abstract void delete(String table, String key, Callback callback);
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Semaphore;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Presents an AsyncDB to a workload as a DB, keeping up to a fixed number of operations in flight.
+ * 
+ * Each call starts the operation and returns as soon as it has been handed to the AsyncDB, blocking
+ * only while the maximum number of operations are outstanding. Since the result is not known yet, calls
+ * return 0; the real return codes are counted when the operations complete. Workloads that depend on the
+ * result of an operation (e.g. the read in a read-modify-write) therefore only see it complete after
+ * the call returns, and their own timings of such compound operations measure only the time to start them.
+ * 
+ * Since the workload may reuse the arguments of a call as soon as it returns, values are copied before
+ * being handed to the AsyncDB, and reads and scans store their results in containers of their own, which
+ * the workload never sees.
+ * 
+ * Latencies are measured like in DBWrapper, but from the start of the call until the callback: the service
+ * time starts once the operation is handed to the AsyncDB, the response time (with a target) starts at the
+ * intended start time and therefore includes waiting for an outstanding operation to complete.
+ * 
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>asyncdb.outstanding</b>: the number of operations each client thread keeps in flight (default: 0, which runs
+ * DB bindings with blocking calls; AsyncDB bindings always keep at least one operation in flight)
+ * </ul>
+ */
+public class AsyncDBWrapper extends DB
+{
+	public static final String OUTSTANDING_PROPERTY="asyncdb.outstanding";
+
+	/**
+	 * Records the latency and return code of one operation, runs what the caller asked to run on completion, and frees
+	 * its slot.
+	 */
+	class Completion implements AsyncDB.Callback
+	{
+		final String _op;
+		final String _responseop;
+		final long _st;
+		final long _intendedst;
+		Runnable _then;
+
+		Completion(String op, String responseop, long st, long intendedst)
+		{
+			_op=op;
+			_responseop=responseop;
+			_st=st;
+			_intendedst=intendedst;
+		}
+
+		public void completed(int result)
+		{
+			long en=System.nanoTime();
+			try
+			{
+				DBWrapper.measure(_measurements,_op,_responseop,result,_st,en,_intendedst);
+				if (_then!=null)
+				{
+					_then.run();
+				}
+			}
+			finally
+			{
+				_outstanding.release();
+			}
+		}
+	}
+
+	final AsyncDB _db;
+	final int _maxoutstanding;
+	final Semaphore _outstanding;
+	final Measurements _measurements;
+
+	public AsyncDBWrapper(AsyncDB db, int maxoutstanding)
+	{
+		_db=db;
+		_maxoutstanding=maxoutstanding;
+		_outstanding=new Semaphore(maxoutstanding);
+		_measurements=Measurements.getMeasurements();
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	/**
+	 * Wait for the outstanding operations to complete, then cleanup any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+		_outstanding.acquireUninterruptibly(_maxoutstanding);
+		try
+		{
+			_db.cleanup();
+		}
+		finally
+		{
+			_outstanding.release(_maxoutstanding);
+		}
+	}
+
+	/**
+	 * Wait for a free slot, then return the callback for an operation starting now.
+	 */
+	Completion start(String op, String responseop)
+	{
+		long intendedst=_measurements.getIntendedStartTimeNs();
+		_outstanding.acquireUninterruptibly();
+		return new Completion(op,responseop,System.nanoTime(),intendedst);
+	}
+
+	/**
+	 * Copy the values of a write, reading each ByteIterator into an array.
+	 */
+	static HashMap<String,ByteIterator> copy(HashMap<String,ByteIterator> values)
+	{
+		HashMap<String,ByteIterator> copy=new HashMap<String,ByteIterator>();
+		for (Map.Entry<String,ByteIterator> entry : values.entrySet())
+		{
+			copy.put(entry.getKey(),new ByteArrayByteIterator(entry.getValue().toArray()));
+		}
+		return copy;
+	}
+
+	/**
+	 * Start reading a record from the database. The result is discarded, since the caller may reuse its HashMap
+	 * before the read completes.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result Not used
+	 * @return Zero, since the result is not known yet
+	 */
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		_db.read(table,key,fields,new HashMap<String,ByteIterator>(),start(DBWrapper.READ,DBWrapper.READ_RESPONSE));
+		return 0;
+	}
+
+	/**
+	 * Start a range scan for a set of records in the database. The result is discarded, since the caller may reuse its Vector
+	 * before the scan completes.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result Not used
+	 * @return Zero, since the result is not known yet
+	 */
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		_db.scan(table,startkey,recordcount,fields,new Vector<HashMap<String,ByteIterator>>(),start(DBWrapper.SCAN,DBWrapper.SCAN_RESPONSE));
+		return 0;
+	}
+
+	/**
+	 * Start updating a record in the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return Zero, since the result is not known yet
+	 */
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		_db.update(table,key,copy(values),start(DBWrapper.UPDATE,DBWrapper.UPDATE_RESPONSE));
+		return 0;
+	}
+
+	/**
+	 * Start inserting a record in the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @return Zero, since the result is not known yet
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return insert(table,key,values,null);
+	}
+
+	/**
+	 * Start inserting a record in the database, and run a task once the insert has completed, whether it succeeded
+	 * or not. The task runs on the thread that completes the insert, before cleanup() may return.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param then The task to run on completion, or null
+	 * @return Zero, since the result is not known yet
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, Runnable then)
+	{
+		Completion completion=start(DBWrapper.INSERT,DBWrapper.INSERT_RESPONSE);
+		completion._then=then;
+		_db.insert(table,key,copy(values),completion);
+		return 0;
+	}
+
+	/**
+	 * Start deleting a record from the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @return Zero, since the result is not known yet
+	 */
+	public int delete(String table, String key)
+	{
+		_db.delete(table,key,start(DBWrapper.DELETE,DBWrapper.DELETE_RESPONSE));
+		return 0;
+	}
+}
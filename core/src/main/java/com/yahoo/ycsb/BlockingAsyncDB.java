@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs a blocking DB binding asynchronously on a pool of threads, so that existing bindings
+ * can be used with a client that keeps several operations in flight per thread.
+ * 
+ * Since DB instances are not thread safe, each pool thread gets its own instance of the
+ * binding, which is initialized and cleaned up on that thread, exactly as if it were a client thread.
+ * 
+ * Properties to control the pool:
+ * <UL>
+ * <LI><b>asyncdb.poolsize</b>: the number of threads (and DB instances) per client thread (default: asyncdb.outstanding)
+ * </ul>
+ */
+public class BlockingAsyncDB extends AsyncDB
+{
+	public static final String POOL_SIZE_PROPERTY="asyncdb.poolsize";
+
+	/**
+	 * Passed to the callback if the binding throws an exception.
+	 */
+	public static final int EXCEPTION=-1;
+
+	/**
+	 * An operation waiting for a pool thread.
+	 */
+	static abstract class Request
+	{
+		final Callback _callback;
+
+		Request(Callback callback)
+		{
+			_callback=callback;
+		}
+
+		abstract int execute(DB db);
+	}
+
+	/**
+	 * Tells a pool thread to clean up and exit.
+	 */
+	static final Request STOP=new Request(null)
+	{
+		int execute(DB db)
+		{
+			return 0;
+		}
+	};
+
+	/**
+	 * A pool thread, with its own instance of the binding.
+	 */
+	class Worker extends Thread
+	{
+		final DB _db;
+		final CountDownLatch _initialized;
+		DBException _exception;
+
+		Worker(DB db, CountDownLatch initialized)
+		{
+			_db=db;
+			_initialized=initialized;
+			setDaemon(true);
+		}
+
+		public void run()
+		{
+			try
+			{
+				_db.init();
+			}
+			catch (DBException e)
+			{
+				_exception=e;
+				return;
+			}
+			finally
+			{
+				_initialized.countDown();
+			}
+
+			while (true)
+			{
+				Request r;
+				try
+				{
+					r=_queue.take();
+				}
+				catch (InterruptedException e)
+				{
+					continue;
+				}
+
+				if (r==STOP)
+				{
+					break;
+				}
+
+				int res;
+				try
+				{
+					res=r.execute(_db);
+				}
+				catch (RuntimeException e)
+				{
+					e.printStackTrace();
+					res=EXCEPTION;
+				}
+				try
+				{
+					r._callback.completed(res);
+				}
+				catch (RuntimeException e)
+				{
+					//keep the worker going, or the requests still queued would never complete
+					e.printStackTrace();
+				}
+			}
+
+			try
+			{
+				_db.cleanup();
+			}
+			catch (DBException e)
+			{
+				_exception=e;
+			}
+		}
+	}
+
+	final String _dbname;
+	final BlockingQueue<Request> _queue=new LinkedBlockingQueue<Request>();
+	final Vector<Worker> _workers=new Vector<Worker>();
+
+	/**
+	 * @param dbname The class name of the blocking binding.
+	 */
+	public BlockingAsyncDB(String dbname)
+	{
+		_dbname=dbname;
+	}
+
+	/**
+	 * Start the pool threads and initialize their DB instances.
+	 */
+	public void init() throws DBException
+	{
+		int poolsize=Integer.parseInt(getProperties().getProperty(POOL_SIZE_PROPERTY,
+				getProperties().getProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY,"1")));
+
+		CountDownLatch initialized=new CountDownLatch(poolsize);
+		for (int i=0; i<poolsize; i++)
+		{
+			DB db=DBFactory.loadDB(_dbname,getProperties());
+			if (db==null)
+			{
+				throw new DBException("Unknown DB "+_dbname);
+			}
+			Worker w=new Worker(db,initialized);
+			_workers.add(w);
+			w.start();
+		}
+
+		try
+		{
+			initialized.await();
+		}
+		catch (InterruptedException e)
+		{
+			throw new DBException(e);
+		}
+
+		for (Worker w : _workers)
+		{
+			if (w._exception!=null)
+			{
+				cleanup();
+				throw w._exception;
+			}
+		}
+	}
+
+	/**
+	 * Stop the pool threads once the queued operations are done, and clean up their DB instances.
+	 */
+	public void cleanup() throws DBException
+	{
+		//one each, whichever worker takes it; extra ones left by workers that failed to initialize are harmless
+		for (int i=0; i<_workers.size(); i++)
+		{
+			_queue.add(STOP);
+		}
+
+		DBException exception=null;
+		for (Worker w : _workers)
+		{
+			try
+			{
+				w.join();
+			}
+			catch (InterruptedException e)
+			{
+				throw new DBException(e);
+			}
+			if ( (exception==null) && (w._exception!=null) )
+			{
+				exception=w._exception;
+			}
+		}
+		_workers.clear();
+
+		if (exception!=null)
+		{
+			throw exception;
+		}
+	}
+
+	public void read(final String table, final String key, final Set<String> fields, final HashMap<String,ByteIterator> result, Callback callback)
+	{
+		_queue.add(new Request(callback)
+		{
+			int execute(DB db)
+			{
+				return db.read(table,key,fields,result);
+			}
+		});
+	}
+
+	public void scan(final String table, final String startkey, final int recordcount, final Set<String> fields, final Vector<HashMap<String,ByteIterator>> result, Callback callback)
+	{
+		_queue.add(new Request(callback)
+		{
+			int execute(DB db)
+			{
+				return db.scan(table,startkey,recordcount,fields,result);
+			}
+		});
+	}
+
+	public void update(final String table, final String key, final HashMap<String,ByteIterator> values, Callback callback)
+	{
+		_queue.add(new Request(callback)
+		{
+			int execute(DB db)
+			{
+				return db.update(table,key,values);
+			}
+		});
+	}
+
+	public void insert(final String table, final String key, final HashMap<String,ByteIterator> values, Callback callback)
+	{
+		_queue.add(new Request(callback)
+		{
+			int execute(DB db)
+			{
+				return db.insert(table,key,values);
+			}
+		});
+	}
+
+	public void delete(final String table, final String key, Callback callback)
+	{
+		_queue.add(new Request(callback)
+		{
+			int execute(DB db)
+			{
+				return db.delete(table,key);
+			}
+		});
+	}
+}
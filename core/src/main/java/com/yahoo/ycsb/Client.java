@@ -19,17 +19,26 @@ package com.yahoo.ycsb;
 
 
 import java.io.*;
-import java.text.DecimalFormat;
 import java.util.*;
 
+import com.yahoo.ycsb.arrival.ArrivalProcess;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.live.ConsoleStatus;
+import com.yahoo.ycsb.measurements.live.JmxMetrics;
+import com.yahoo.ycsb.measurements.live.LiveMetricsListener;
+import com.yahoo.ycsb.measurements.live.PrometheusEndpoint;
+import com.yahoo.ycsb.measurements.live.StatusSnapshot;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
 //import org.apache.log4j.BasicConfigurator;
 
 /**
- * A thread to periodically show the status of the experiment, to reassure you that progress is being made.
+ * A thread to periodically report the live metrics of the experiment, to reassure you that progress is being made
+ * and to feed dashboards during long runs.
+ * 
+ * At the end of every interval it counts the operations done by the client threads, collects what each measurement
+ * recorded during the interval, and passes both to the listeners.
  * 
  * @author cooperb
  *
@@ -37,19 +46,20 @@ import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 class StatusThread extends Thread
 {
 	Vector<Thread> _threads;
-	String _label;
-	boolean _standardstatus;
-	
+	Vector<ClientThread> _clients;
+	List<LiveMetricsListener> _listeners;
+
 	/**
-	 * The interval for reporting status.
+	 * The interval for reporting status, in milliseconds.
 	 */
-	public static final long sleeptime=10000;
+	long _intervalms;
 
-	public StatusThread(Vector<Thread> threads, String label, boolean standardstatus)
+	public StatusThread(Vector<Thread> threads, Vector<ClientThread> clients, List<LiveMetricsListener> listeners, long intervalms)
 	{
 		_threads=threads;
-		_label=label;
-		_standardstatus=standardstatus;
+		_clients=clients;
+		_listeners=listeners;
+		_intervalms=intervalms;
 	}
 
 	/**
@@ -68,7 +78,7 @@ class StatusThread extends Thread
 		{
 			alldone=true;
 
-			int totalops=0;
+			long totalops=0;
 
 			//terminate this thread when all the worker threads are done
 			for (Thread t : _threads)
@@ -77,241 +87,58 @@ class StatusThread extends Thread
 				{
 					alldone=false;
 				}
+			}
 
-				ClientThread ct=(ClientThread)t;
+			for (ClientThread ct : _clients)
+			{
 				totalops+=ct.getOpsDone();
 			}
 
 			long en=System.currentTimeMillis();
 
-			long interval=en-st;
-			//double throughput=1000.0*((double)totalops)/((double)interval);
+			StatusSnapshot snapshot=new StatusSnapshot(en-st,en-lasten,totalops,totalops-lasttotalops,Measurements.getMeasurements().getIntervals());
 
-			double curthroughput=1000.0*(((double)(totalops-lasttotalops))/((double)(en-lasten)));
-			
 			lasttotalops=totalops;
 			lasten=en;
-			
-			DecimalFormat d = new DecimalFormat("#.##");
-			
-			if (totalops==0)
-			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
-			}
-			else
-			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
-			}
 
-			if (_standardstatus)
+			for (LiveMetricsListener listener : _listeners)
 			{
-			if (totalops==0)
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
-			}
-			else
-			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
-			}
+				try
+				{
+					listener.update(snapshot);
+				}
+				catch (RuntimeException e)
+				{
+					e.printStackTrace();
+				}
 			}
 
-			try
-			{
-				sleep(sleeptime);
-			}
-			catch (InterruptedException e)
+			if (!alldone)
 			{
-				//do nothing
+				try
+				{
+					sleep(_intervalms);
+				}
+				catch (InterruptedException e)
+				{
+					//do nothing
+				}
 			}
 
 		}
 		while (!alldone);
-	}
-}
 
-/**
- * A thread for executing transactions or data inserts to the database.
- * 
- * @author cooperb
- *
- */
-class ClientThread extends Thread
-{
-	DB _db;
-	boolean _dotransactions;
-	Workload _workload;
-	int _opcount;
-	double _target;
-
-	int _opsdone;
-	int _threadid;
-	int _threadcount;
-	Object _workloadstate;
-	Properties _props;
-
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param db the DB implementation to use
-	 * @param dotransactions true to do transactions, false to insert data
-	 * @param workload the workload to use
-	 * @param threadid the id of this thread 
-	 * @param threadcount the total number of threads 
-	 * @param props the properties defining the experiment
-	 * @param opcount the number of operations (transactions or inserts) to do
-	 * @param targetperthreadperms target number of operations per thread per ms
-	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
-	{
-		//TODO: consider removing threadcount and threadid
-		_db=db;
-		_dotransactions=dotransactions;
-		_workload=workload;
-		_opcount=opcount;
-		_opsdone=0;
-		_target=targetperthreadperms;
-		_threadid=threadid;
-		_threadcount=threadcount;
-		_props=props;
-		//System.out.println("Interval = "+interval);
-	}
-
-	public int getOpsDone()
-	{
-		return _opsdone;
-	}
-
-	public void run()
-	{
-		try
-		{
-			_db.init();
-		}
-		catch (DBException e)
+		for (LiveMetricsListener listener : _listeners)
 		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
-
-		try
-		{
-			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-		}
-		catch (WorkloadException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
-
-		//spread the thread operations out so they don't all hit the DB at the same time
-		try
-		{
-		   //GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-		   //and the sleep() doesn't make sense for granularities < 1 ms anyway
-		   if ( (_target>0) && (_target<=1.0) ) 
-		   {
-		      sleep(Utils.random().nextInt((int)(1.0/_target)));
-		   }
-		}
-		catch (InterruptedException e)
-		{
-		  // do nothing.
-		}
-		
-		try
-		{
-			if (_dotransactions)
+			try
 			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doTransaction(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-
-						}
-					}
-				}
+				listener.close();
 			}
-			else
+			catch (IOException e)
 			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doInsert(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try 
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-						}
-					}
-				}
+				e.printStackTrace();
 			}
 		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			System.exit(0);
-		}
-
-		try
-		{
-			_db.cleanup();
-		}
-		catch (DBException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
 	}
 }
 
@@ -339,14 +166,42 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+	/**
+	 * How long to warm up before measuring: a number of seconds, such as "30s", or of operations, such as
+	 * "100000ops". The warm-up runs at full speed, and its measurements are reported separately.
+	 */
+	public static final String WARMUP_PROPERTY="warmup";
+
+	/**
+	 * The interval between status reports and live metrics updates, in seconds.
+	 */
+	public static final String STATUS_INTERVAL_PROPERTY="status.interval";
+
+	public static final String STATUS_INTERVAL_PROPERTY_DEFAULT="10";
+
+	/**
+	 * Set to true to publish the live metrics as MBeans.
+	 */
+	public static final String METRICS_JMX_PROPERTY="metrics.jmx";
+
+	/**
+	 * A comma separated list of LiveMetricsListener classes to pass the live metrics to.
+	 */
+	public static final String METRICS_LISTENERS_PROPERTY="metrics.listeners";
+
 	public static void usageMessage()
 	{
 		System.out.println("Usage: java com.yahoo.ycsb.Client [options]");
 		System.out.println("Options:");
 		System.out.println("  -threads n: execute using n threads (default: 1) - can also be specified as the \n" +
 				"              \"threadcount\" property using -p");
+		System.out.println("  -threadmodel platform|virtual: run each client on an OS thread (default) or on a\n" +
+				"              virtual thread (Java 21 or later) - can also be specified as the \""+ThreadModel.THREAD_MODEL_PROPERTY+"\"\n" +
+				"              property using -p");
 		System.out.println("  -target n: attempt to do n operations per second (default: unlimited) - can also\n" +
 				"             be specified as the \"target\" property using -p");
+		System.out.println("             The operations are spaced out according to the \""+ArrivalProcess.ARRIVAL_PROCESS_PROPERTY+"\" property:\n" +
+				"             constant (default), poisson, or step/ramp following \""+ArrivalProcess.SCHEDULE_PROPERTY+"\"");
 		System.out.println("  -load:  run the loading phase of the workload");
 		System.out.println("  -t:  run the transactions phase of the workload (default)");
 		System.out.println("  -db dbname: specify the name of the DB to use (default: com.yahoo.ycsb.BasicDB) - \n" +
@@ -356,7 +211,7 @@ public class Client
 		System.out.println("  -p name=value:  specify a property to be passed to the DB and workloads;");
 		System.out.println("                  multiple properties can be specified, and override any");
 		System.out.println("                  values in the propertyfile");
-		System.out.println("  -s:  show status during run (default: no status)");
+		System.out.println("  -s:  show status during run (default: no status), every \""+STATUS_INTERVAL_PROPERTY+"\" seconds (default: 10)");
 		System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
 		System.out.println("");
 		System.out.println("Required properties:");
@@ -365,6 +220,37 @@ public class Client
 		System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
 		System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
+		System.out.println("Or run com.yahoo.ycsb.Coordinator with the same options plus -workers n, which starts n clients,");
+		System.out.println("divides up the work between them, and merges their measurements");
+	}
+
+	/**
+	 * Create and start the live metrics listeners asked for by the properties: the Prometheus endpoint if a port
+	 * is set, the MBeans if they are turned on, and any listener classes named.
+	 */
+	static List<LiveMetricsListener> newLiveMetricsListeners(Properties props) throws Exception
+	{
+		List<LiveMetricsListener> ret=new ArrayList<LiveMetricsListener>();
+		if (props.getProperty(PrometheusEndpoint.PORT_PROPERTY)!=null)
+		{
+			ret.add(new PrometheusEndpoint());
+		}
+		if (Boolean.parseBoolean(props.getProperty(METRICS_JMX_PROPERTY,"false")))
+		{
+			ret.add(new JmxMetrics());
+		}
+		for (String classname : props.getProperty(METRICS_LISTENERS_PROPERTY,"").split(","))
+		{
+			if (classname.trim().length()>0)
+			{
+				ret.add((LiveMetricsListener)Client.class.getClassLoader().loadClass(classname.trim()).newInstance());
+			}
+		}
+		for (LiveMetricsListener listener : ret)
+		{
+			listener.init(props);
+		}
+		return ret;
 	}
 
 	public static boolean checkRequiredProperties(Properties props)
@@ -379,40 +265,50 @@ public class Client
 	}
 
 
+	/**
+	 * Create the exporter named by the "exporter" property, writing to the "exportfile" property's file, or to
+	 * stdout if there is none.
+	 * @throws IOException Failed to open the export file.
+	 */
+	static MeasurementsExporter newExporter(Properties props) throws IOException
+	{
+		// if no destination file is provided the results will be written to stdout
+		OutputStream out;
+		String exportFile = props.getProperty("exportfile");
+		if (exportFile == null)
+		{
+			out = System.out;
+		} else
+		{
+			out = new FileOutputStream(exportFile);
+		}
+
+		// if no exporter is provided the default text one will be used
+		String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+		try
+		{
+			return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+		} catch (Exception e)
+		{
+			System.err.println("Could not find exporter " + exporterStr
+					+ ", will use default text reporter.");
+			e.printStackTrace();
+			return new TextMeasurementsExporter(out);
+		}
+	}
+
 	/**
 	 * Exports the measurements to either sysout or a file using the exporter
 	 * loaded from conf.
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	private static void exportMeasurements(Properties props, long opcount, long runtime)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
 		try
 		{
-			// if no destination file is provided the results will be written to stdout
-			OutputStream out;
-			String exportFile = props.getProperty("exportfile");
-			if (exportFile == null)
-			{
-				out = System.out;
-			} else
-			{
-				out = new FileOutputStream(exportFile);
-			}
-
-			// if no exporter is provided the default text one will be used
-			String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-			try
-			{
-				exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-			} catch (Exception e)
-			{
-				System.err.println("Could not find exporter " + exporterStr
-						+ ", will use default text reporter.");
-				e.printStackTrace();
-				exporter = new TextMeasurementsExporter(out);
-			}
+			exporter = newExporter(props);
 
 			exporter.write("OVERALL", "RunTime(ms)", runtime);
 			double throughput = 1000.0 * ((double) opcount) / ((double) runtime);
@@ -463,6 +359,17 @@ public class Client
 				props.setProperty("threadcount", tcount+"");
 				argindex++;
 			}
+			else if (args[argindex].compareTo("-threadmodel")==0)
+			{
+				argindex++;
+				if (argindex>=args.length)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				props.setProperty(ThreadModel.THREAD_MODEL_PROPERTY, args[argindex]);
+				argindex++;
+			}
 			else if (args[argindex].compareTo("-target")==0)
 			{
 				argindex++;
@@ -610,13 +517,23 @@ public class Client
 		dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
 		target=Integer.parseInt(props.getProperty("target","0"));
 		
-		//compute the target throughput
-		double targetperthreadperms=-1;
-		if (target>0)
+		String threadmodel=props.getProperty(ThreadModel.THREAD_MODEL_PROPERTY,ThreadModel.THREAD_MODEL_PROPERTY_DEFAULT);
+
+		//check the arrival process and thread model before starting anything
+		try
+		{
+			ArrivalProcess.newArrivalProcess(props,target,threadcount);
+			ThreadModel.check(threadmodel);
+			if (props.getProperty(WARMUP_PROPERTY)!=null)
+			{
+				WarmupThread.newWarmupThread(props.getProperty(WARMUP_PROPERTY),null);
+			}
+		}
+		catch (IllegalArgumentException e)
 		{
-			double targetperthread=((double)target)/((double)threadcount);
-			targetperthreadperms=targetperthread/1000.0;
-		}	 
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
 
 		System.out.println("YCSB Client 0.1");
 		System.out.print("Command line:");
@@ -648,6 +565,38 @@ public class Client
 
 		warningthread.start();
 		
+		//set up the live metrics, which need the measurements to keep interval histograms
+		List<LiveMetricsListener> listeners=new ArrayList<LiveMetricsListener>();
+		if (status)
+		{
+			boolean standardstatus=false;
+			if (props.getProperty("measurementtype","").compareTo("timeseries")==0) 
+			{
+				standardstatus=true;
+			}	
+			listeners.add(new ConsoleStatus(label,standardstatus));
+		}
+		CoordinatorLink coordinator=null;
+		try
+		{
+			listeners.addAll(newLiveMetricsListeners(props));
+			if (props.getProperty(Coordinator.ADDRESS_PROPERTY)!=null)
+			{
+				coordinator=new CoordinatorLink();
+				coordinator.init(props);
+				listeners.add(coordinator);
+			}
+		}
+		catch (Exception e)
+		{
+			System.out.println("Could not start the live metrics: "+e);
+			System.exit(0);
+		}
+		if (!listeners.isEmpty() && props.getProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY)==null)
+		{
+			props.setProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY,"true");
+		}
+
 		//set up measurements
 		Measurements.setProperties(props);
 		
@@ -686,24 +635,25 @@ public class Client
 
 		System.err.println("Starting test.");
 
-		int opcount;
+		long opcount;
 		if (dotransactions)
 		{
-			opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+			opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
 		}
 		else
 		{
 			if (props.containsKey(INSERT_COUNT_PROPERTY))
 			{
-				opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+				opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
 			}
 			else
 			{
-				opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
+				opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
 			}
 		}
 
 		Vector<Thread> threads=new Vector<Thread>();
+		Vector<ClientThread> clients=new Vector<ClientThread>();
 
 		for (int threadid=0; threadid<threadcount; threadid++)
 		{
@@ -718,25 +668,44 @@ public class Client
 				System.exit(0);
 			}
 
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
+			ClientThread ct=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,ArrivalProcess.newArrivalProcess(props,target,threadcount));
 
-			threads.add(t);
+			clients.add(ct);
+			threads.add(ThreadModel.newThread(threadmodel,"ClientThread-"+threadid,ct));
 			//t.start();
 		}
 
+		//a coordinated run starts when all of its workers are ready
+		if (coordinator!=null)
+		{
+			try
+			{
+				coordinator.awaitStart();
+			}
+			catch (IOException e)
+			{
+				System.out.println("Could not start the coordinated run: "+e.getMessage());
+				System.exit(1);
+			}
+		}
+
 		StatusThread statusthread=null;
 
-		if (status)
+		if (!listeners.isEmpty())
 		{
-			boolean standardstatus=false;
-			if (props.getProperty("measurementtype","").compareTo("timeseries")==0) 
-			{
-				standardstatus=true;
-			}	
-			statusthread=new StatusThread(threads,label,standardstatus);
+			long intervalms=(long)(Double.parseDouble(props.getProperty(STATUS_INTERVAL_PROPERTY,STATUS_INTERVAL_PROPERTY_DEFAULT))*1000);
+			statusthread=new StatusThread(threads,clients,listeners,intervalms);
 			statusthread.start();
 		}
 
+		WarmupThread warmupthread=null;
+		if (props.getProperty(WARMUP_PROPERTY)!=null)
+		{
+			warmupthread=WarmupThread.newWarmupThread(props.getProperty(WARMUP_PROPERTY),clients);
+			Measurements.getMeasurements().startWarmup();
+			warmupthread.start();
+		}
+
 		long st=System.currentTimeMillis();
 
 		for (Thread t : threads)
@@ -751,29 +720,63 @@ public class Client
       terminator.start();
     }
     
-    int opsDone = 0;
+    long opsDone = 0;
 
 		for (Thread t : threads)
 		{
 			try
 			{
 				t.join();
-				opsDone += ((ClientThread)t).getOpsDone();
 			}
 			catch (InterruptedException e)
 			{
 			}
 		}
 
+		for (ClientThread ct : clients)
+		{
+			opsDone += ct.getOpsDone();
+		}
+
 		long en=System.currentTimeMillis();
+
+		//report the steady state after the warm-up
+		if (warmupthread!=null)
+		{
+			warmupthread.interrupt();
+			try
+			{
+				warmupthread.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+			if (warmupthread.isDone())
+			{
+				st=warmupthread._endms;
+				opsDone-=warmupthread._opsdone;
+			}
+			else
+			{
+				System.err.println("The run ended before the warm-up did, so all its measurements are warm-up ones.");
+			}
+		}
 		
 		if (terminator != null && !terminator.isInterrupted()) {
       terminator.interrupt();
     }
 
-		if (status)
+		if (statusthread!=null)
 		{
+			//let it report the last interval
 			statusthread.interrupt();
+			try
+			{
+				statusthread.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
 		}
 
 		try
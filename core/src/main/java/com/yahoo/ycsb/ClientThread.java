@@ -0,0 +1,214 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.arrival.ArrivalProcess;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread for executing transactions or data inserts to the database.
+ * Runs on a platform or a virtual thread, depending on the thread model.
+ * 
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable
+{
+	DB _db;
+	boolean _dotransactions;
+	Workload _workload;
+	long _opcount;
+	ArrivalProcess _arrivals;
+
+	long _opsdone;
+	int _threadid;
+	int _threadcount;
+	Object _workloadstate;
+	Properties _props;
+	Measurements _measurements;
+
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param db the DB implementation to use
+	 * @param dotransactions true to do transactions, false to insert data
+	 * @param workload the workload to use
+	 * @param threadid the id of this thread 
+	 * @param threadcount the total number of threads 
+	 * @param props the properties defining the experiment
+	 * @param opcount the number of operations (transactions or inserts) to do
+	 * @param arrivals when to start each operation, or null to run as fast as possible
+	 */
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, long opcount, ArrivalProcess arrivals)
+	{
+		//TODO: consider removing threadcount and threadid
+		_db=db;
+		_dotransactions=dotransactions;
+		_workload=workload;
+		_opcount=opcount;
+		_opsdone=0;
+		_arrivals=arrivals;
+		_threadid=threadid;
+		_threadcount=threadcount;
+		_props=props;
+		_measurements=Measurements.getMeasurements();
+		//System.out.println("Interval = "+interval);
+	}
+
+	public long getOpsDone()
+	{
+		return _opsdone;
+	}
+
+	/**
+	 * Wait until the next operation is due, according to the arrival process, and tell
+	 * Measurements when that was. Latencies are then also measured from the time the operation
+	 * should have started, so a stall shows up as the delay it causes to every operation queued
+	 * behind it, and not just as one slow operation (coordinated omission).
+	 * 
+	 * The intended start times are absolute, so when parkNanos() oversleeps (its granularity is
+	 * tens of microseconds on most systems), the following operations are issued without waiting
+	 * until the thread has caught up, and the throughput still averages out to the target.
+	 * 
+	 * @return false if the arrival process has no more operations
+	 */
+	boolean throttleNanos()
+	{
+		if (_arrivals==null)
+		{
+			return true;
+		}
+
+		long intendedstartns=_arrivals.nextIntendedStartNs();
+		if (intendedstartns==ArrivalProcess.NO_MORE_ARRIVALS)
+		{
+			return false;
+		}
+
+		long waitns;
+		while (((waitns=intendedstartns-System.nanoTime())>0) && !_workload.isStopRequested())
+		{
+			LockSupport.parkNanos(waitns);
+		}
+
+		_measurements.setIntendedStartTimeNs(intendedstartns);
+		return true;
+	}
+
+	public void run()
+	{
+		try
+		{
+			_db.init();
+		}
+		catch (DBException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return;
+		}
+
+		try
+		{
+			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return;
+		}
+
+		try
+		{
+			//the arrival process spreads the first operations of the threads out
+			//so they don't all hit the DB at the same time
+			if (_arrivals!=null)
+			{
+				_arrivals.start(System.nanoTime());
+			}
+
+			if (_dotransactions)
+			{
+				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+				{
+					if (!throttleNanos())
+					{
+						break;
+					}
+
+					if (!_workload.doTransaction(_db,_workloadstate))
+					{
+						break;
+					}
+
+					_opsdone++;
+				}
+			}
+			else
+			{
+				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
+				{
+					if (!throttleNanos())
+					{
+						break;
+					}
+
+					if (!_workload.doInsert(_db,_workloadstate))
+					{
+						break;
+					}
+
+					_opsdone++;
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		try
+		{
+			_workload.cleanupThread(_db,_workloadstate);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+
+		try
+		{
+			_db.cleanup();
+		}
+		catch (DBException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return;
+		}
+	}
+}
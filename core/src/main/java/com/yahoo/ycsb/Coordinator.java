@@ -0,0 +1,793 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.yahoo.ycsb.measurements.IntervalLog;
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.exporter.HistogramExporter;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.live.ConsoleStatus;
+import com.yahoo.ycsb.measurements.live.StatusSnapshot;
+
+/**
+ * Runs the load or the transaction phase from several worker JVMs, on this machine or on others, and reports their
+ * merged results.
+ * 
+ * Each worker is a Client, started with the coordinator's command line plus its share of the work: a slice of the
+ * records to insert in the load phase (insertstart and insertcount), or of operationcount in the transaction phase,
+ * and of the target throughput. The workers connect back once their workload is loaded, and all of them start
+ * their threads when the last one is ready. Every status interval, each worker sends the latency histograms of the
+ * interval, so the coordinator reports the percentiles of all the workers' operations together, both live and at
+ * the end, rather than an average of each worker's percentiles.
+ * 
+ * The workers' own output is copied to stderr, prefixed with their number. Remote workers are started with ssh, and
+ * need the same java and classpath as the coordinator. In the transaction phase, each worker inserts its own range of
+ * keys past recordcount, given as its insertstart: a range as long as its share of operationcount, or an even share
+ * of the rest of the keyspace if operationcount is not set.
+ * 
+ * Properties to control the coordinator:
+ * <UL>
+ * <LI><b>coordinator.workers</b>: the number of workers, also given as -workers n (default: 1)
+ * <LI><b>coordinator.hosts</b>: comma separated hosts to start the workers on, in turn (default: localhost)
+ * <LI><b>coordinator.host</b>: the address the workers connect back to (default: localhost, or this machine's name
+ * if any worker is remote)
+ * <LI><b>coordinator.port</b>: the port the workers connect back to (default: any free port)
+ * <LI><b>coordinator.timeout</b>: how long to wait for all the workers to be ready, in seconds (default: 600)
+ * <LI><b>coordinator.jvmargs</b>: space separated JVM options for the workers
+ * <LI><b>coordinator.intervallog</b>: if set, write each worker's intervals to an interval log named after this,
+ * with ".n" appended for worker n, for IntervalLogTool
+ * </UL>
+ * The status interval of the workers is "status.interval", which defaults to 1 second here.
+ */
+public class Coordinator
+{
+	public static final String WORKERS_PROPERTY="coordinator.workers";
+	public static final String HOSTS_PROPERTY="coordinator.hosts";
+	public static final String HOST_PROPERTY="coordinator.host";
+	public static final String PORT_PROPERTY="coordinator.port";
+	public static final String TIMEOUT_PROPERTY="coordinator.timeout";
+	public static final String TIMEOUT_PROPERTY_DEFAULT="600";
+	public static final String JVM_ARGS_PROPERTY="coordinator.jvmargs";
+	public static final String INTERVAL_LOG_PROPERTY="coordinator.intervallog";
+	public static final String STATUS_INTERVAL_PROPERTY_DEFAULT="1";
+
+	static final int HANDSHAKE_TIMEOUT_MS=1000;
+
+	/**
+	 * Set on each worker: the coordinator's host:port, and the number of the worker.
+	 */
+	public static final String ADDRESS_PROPERTY="coordinator.address";
+	public static final String WORKER_PROPERTY="coordinator.worker";
+
+	/**
+	 * One worker JVM and its connection.
+	 */
+	static class Worker
+	{
+		final int id;
+		final String host;
+		final List<String> command;
+		Process process;
+		DataInputStream in;
+		DataOutputStream out;
+		DataOutputStream intervallog;
+
+		//guarded by the coordinator
+		int intervals;
+		boolean done;
+		long totaloperations;
+		Map<String,Map<Integer,Long>> returncodes=new TreeMap<String,Map<Integer,Long>>();
+
+		Worker(int id, String host, List<String> command)
+		{
+			this.id=id;
+			this.host=host;
+			this.command=command;
+		}
+	}
+
+	/**
+	 * The merged intervals of the workers, by interval number.
+	 */
+	static class Window
+	{
+		long intervalms;
+		long operations;
+		Map<String,LogLinearHistogram> latencies=new TreeMap<String,LogLinearHistogram>();
+	}
+
+	final Properties _props;
+	final List<Worker> _workers=new ArrayList<Worker>();
+	final ConsoleStatus _status=new ConsoleStatus("[coordinator]",false);
+
+	//guarded by this
+	long _startms;
+	long _endms;
+	boolean _failed;
+	final Map<String,LogLinearHistogram> _totals=new TreeMap<String,LogLinearHistogram>();
+	final Map<Integer,Window> _windows=new TreeMap<Integer,Window>();
+	int _reported;
+
+	/**
+	 * @param props The properties of the run, from the property files and the command line.
+	 */
+	Coordinator(Properties props)
+	{
+		_props=props;
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.Coordinator [-workers n] [client options]");
+		System.out.println("Runs the Client in n worker JVMs (default: 1), splitting the work between them, and");
+		System.out.println("reports their merged measurements. See Client for the client options.");
+		System.out.println("Properties:");
+		System.out.println("  "+HOSTS_PROPERTY+": comma separated hosts to start the workers on with ssh (default: localhost)");
+		System.out.println("  "+HOST_PROPERTY+", "+PORT_PROPERTY+": the address the workers connect back to");
+		System.out.println("  "+TIMEOUT_PROPERTY+": seconds to wait for the workers to be ready (default: "+TIMEOUT_PROPERTY_DEFAULT+")");
+		System.out.println("  "+JVM_ARGS_PROPERTY+": JVM options for the workers");
+		System.out.println("  "+INTERVAL_LOG_PROPERTY+": write each worker's intervals to this file, with \".n\" appended");
+	}
+
+	public static void main(String[] args)
+	{
+		List<String> clientargs=new ArrayList<String>();
+		Properties fileprops=new Properties();
+		Properties props=new Properties();
+		boolean dotransactions=true;
+		try
+		{
+			for (int argindex=0; argindex<args.length; argindex++)
+			{
+				String arg=args[argindex];
+				if (arg.equals("-workers"))
+				{
+					props.setProperty(WORKERS_PROPERTY,args[++argindex]);
+					continue;
+				}
+				clientargs.add(arg);
+				if (arg.equals("-load"))
+				{
+					dotransactions=false;
+				}
+				else if (arg.equals("-t"))
+				{
+					dotransactions=true;
+				}
+				else if (arg.equals("-target"))
+				{
+					props.setProperty("target",args[++argindex]);
+					clientargs.add(args[argindex]);
+				}
+				else if (arg.equals("-P"))
+				{
+					FileInputStream in=new FileInputStream(args[++argindex]);
+					fileprops.load(in);
+					in.close();
+					clientargs.add(args[argindex]);
+				}
+				else if (arg.equals("-p"))
+				{
+					String property=args[++argindex];
+					int eq=property.indexOf('=');
+					if (eq>0)
+					{
+						props.setProperty(property.substring(0,eq),property.substring(eq+1));
+					}
+					clientargs.add(property);
+				}
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			usageMessage();
+			System.exit(1);
+		}
+		catch (IOException e)
+		{
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+		fileprops.putAll(props);
+
+		Coordinator coordinator=new Coordinator(fileprops);
+		boolean ok=false;
+		try
+		{
+			ok=coordinator.run(clientargs,dotransactions);
+		}
+		catch (Exception e)
+		{
+			System.err.println("The coordinated run failed: "+e);
+			e.printStackTrace();
+		}
+		System.exit(ok ? 0 : 1);
+	}
+
+	/**
+	 * Start the workers, run them, and export the merged measurements.
+	 * 
+	 * @return false if a worker failed.
+	 */
+	boolean run(List<String> clientargs, boolean dotransactions) throws IOException, InterruptedException
+	{
+		int workers=Integer.parseInt(_props.getProperty(WORKERS_PROPERTY,"1"));
+		String[] hosts=_props.getProperty(HOSTS_PROPERTY,"localhost").split(",");
+		boolean remote=false;
+		for (String host : hosts)
+		{
+			remote|=!isLocal(host.trim());
+		}
+		String address=_props.getProperty(HOST_PROPERTY,remote ? InetAddress.getLocalHost().getCanonicalHostName() : "localhost");
+
+		ServerSocket server=new ServerSocket(Integer.parseInt(_props.getProperty(PORT_PROPERTY,"0")));
+		try
+		{
+			List<List<String>> shares=split(clientargs,workers,dotransactions);
+			for (int i=0; i<workers; i++)
+			{
+				List<String> workerargs=shares.get(i);
+				workerargs.add("-p");
+				workerargs.add(ADDRESS_PROPERTY+"="+address+":"+server.getLocalPort());
+				workerargs.add("-p");
+				workerargs.add(WORKER_PROPERTY+"="+i);
+				String host=hosts[i%hosts.length].trim();
+				_workers.add(new Worker(i,host,command(host,workerargs)));
+			}
+
+			for (Worker w : _workers)
+			{
+				start(w);
+			}
+			if (!awaitReady(server))
+			{
+				return false;
+			}
+		}
+		catch (IOException e)
+		{
+			kill();
+			throw e;
+		}
+		finally
+		{
+			server.close();
+		}
+
+		List<Thread> receivers=new ArrayList<Thread>();
+		synchronized (this)
+		{
+			_startms=System.currentTimeMillis();
+		}
+		for (final Worker w : _workers)
+		{
+			w.out.writeByte(CoordinatorLink.START);
+			w.out.flush();
+			Thread t=new Thread("Receiver-"+w.id)
+			{
+				public void run()
+				{
+					receive(w);
+				}
+			};
+			t.start();
+			receivers.add(t);
+		}
+		System.err.println("Started "+workers+" workers.");
+
+		for (Thread t : receivers)
+		{
+			t.join();
+		}
+		for (Worker w : _workers)
+		{
+			int exit=w.process.waitFor();
+			if (exit!=0)
+			{
+				System.err.println("Worker "+w.id+" exited with "+exit);
+				_failed=true;
+			}
+		}
+
+		MeasurementsExporter exporter=Client.newExporter(_props);
+		try
+		{
+			export(exporter);
+		}
+		finally
+		{
+			exporter.close();
+		}
+		return !_failed;
+	}
+
+	static boolean isLocal(String host)
+	{
+		return host.equals("localhost") || host.equals("127.0.0.1") || host.length()==0;
+	}
+
+	/**
+	 * Split the work between the workers: the records to insert in the load phase, the operations and the keys to
+	 * insert in the transaction phase, and the target throughput. The last worker takes what is left over.
+	 * 
+	 * @return The command line of the client of each worker.
+	 */
+	List<List<String>> split(List<String> clientargs, int workers, boolean dotransactions)
+	{
+		List<List<String>> ret=new ArrayList<List<String>>();
+		long target=Long.parseLong(_props.getProperty("target","0"));
+		long insertstart=Long.parseLong(_props.getProperty(Workload.INSERT_START_PROPERTY,"0"));
+		long insertcount=Long.parseLong(_props.getProperty(Client.INSERT_COUNT_PROPERTY,_props.getProperty(Client.RECORD_COUNT_PROPERTY,"0")));
+		long operationcount=Long.parseLong(_props.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+		//in the transaction phase, each worker inserts at most one key per operation, past the loaded records
+		long recordcount=Long.parseLong(_props.getProperty(Client.RECORD_COUNT_PROPERTY,"0"));
+		long transactioninsertstart=Math.max(insertstart,recordcount);
+		long transactioninserts=operationcount>0 ? operationcount/workers : (Long.MAX_VALUE-transactioninsertstart)/workers;
+		for (int i=0; i<workers; i++)
+		{
+			List<String> args=new ArrayList<String>(clientargs);
+			args.add("-p");
+			args.add(Client.STATUS_INTERVAL_PROPERTY+"="+_props.getProperty(Client.STATUS_INTERVAL_PROPERTY,STATUS_INTERVAL_PROPERTY_DEFAULT));
+			if (target>0)
+			{
+				args.add("-p");
+				args.add("target="+share(target,workers,i));
+			}
+			if (!dotransactions)
+			{
+				args.add("-p");
+				args.add(Workload.INSERT_START_PROPERTY+"="+(insertstart+i*(insertcount/workers)));
+				args.add("-p");
+				args.add(Client.INSERT_COUNT_PROPERTY+"="+share(insertcount,workers,i));
+			}
+			else
+			{
+				args.add("-p");
+				args.add(Workload.INSERT_START_PROPERTY+"="+(transactioninsertstart+i*transactioninserts));
+				if (operationcount>0)
+				{
+					args.add("-p");
+					args.add(Client.OPERATION_COUNT_PROPERTY+"="+share(operationcount,workers,i));
+				}
+			}
+			ret.add(args);
+		}
+		return ret;
+	}
+
+	static long share(long total, int workers, int worker)
+	{
+		return worker==workers-1 ? total-(workers-1)*(total/workers) : total/workers;
+	}
+
+	/**
+	 * The command that starts a worker: this JVM's java and classpath, run through ssh on remote hosts.
+	 */
+	List<String> command(String host, List<String> clientargs)
+	{
+		List<String> ret=new ArrayList<String>();
+		ret.add(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java");
+		for (String arg : _props.getProperty(JVM_ARGS_PROPERTY,"").split(" "))
+		{
+			if (arg.length()>0)
+			{
+				ret.add(arg);
+			}
+		}
+		ret.add("-cp");
+		ret.add(System.getProperty("java.class.path"));
+		ret.add(Client.class.getName());
+		ret.addAll(clientargs);
+		if (isLocal(host))
+		{
+			return ret;
+		}
+
+		//ssh runs the command through the remote shell
+		StringBuilder remote=new StringBuilder();
+		for (String arg : ret)
+		{
+			remote.append(" '").append(arg.replace("'","'\\''")).append("'");
+		}
+		List<String> ssh=new ArrayList<String>();
+		ssh.add("ssh");
+		ssh.add(host);
+		ssh.add(remote.toString().trim());
+		return ssh;
+	}
+
+	/**
+	 * Start a worker, copying its output to stderr.
+	 */
+	void start(final Worker w) throws IOException
+	{
+		ProcessBuilder pb=new ProcessBuilder(w.command);
+		pb.redirectErrorStream(true);
+		w.process=pb.start();
+		w.process.getOutputStream().close();
+		Thread pump=new Thread("Output-"+w.id)
+		{
+			public void run()
+			{
+				try
+				{
+					BufferedReader reader=new BufferedReader(new InputStreamReader(w.process.getInputStream()));
+					String line;
+					while ((line=reader.readLine())!=null)
+					{
+						System.err.println("[worker "+w.id+"] "+line);
+					}
+				}
+				catch (IOException e)
+				{
+					//the worker is gone
+				}
+			}
+		};
+		pump.setDaemon(true);
+		pump.start();
+
+		String intervallog=_props.getProperty(INTERVAL_LOG_PROPERTY);
+		if (intervallog!=null)
+		{
+			w.intervallog=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(intervallog+"."+w.id),1<<16));
+			IntervalLog.writeHeader(w.intervallog,System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Accept the connection of each worker, and wait until all of them are ready to start.
+	 * 
+	 * A worker connects before it loads its workload, and says it is ready once it has, so the connections are
+	 * polled until their READY message has arrived, rather than read from. A connection that is not from a worker,
+	 * or never says it is ready, cannot hold up the others, and is closed.
+	 * 
+	 * @return false if a worker exited or the timeout passed first, in which case all the workers are stopped.
+	 */
+	boolean awaitReady(ServerSocket server) throws IOException
+	{
+		long deadline=System.currentTimeMillis()+Long.parseLong(_props.getProperty(TIMEOUT_PROPERTY,TIMEOUT_PROPERTY_DEFAULT))*1000;
+		server.setSoTimeout(100);
+		List<Socket> connecting=new ArrayList<Socket>();
+		try
+		{
+			return awaitReady(server,connecting,deadline);
+		}
+		finally
+		{
+			for (Socket socket : connecting)
+			{
+				socket.close();
+			}
+		}
+	}
+
+	private boolean awaitReady(ServerSocket server, List<Socket> connecting, long deadline) throws IOException
+	{
+		int ready=0;
+		while (ready<_workers.size())
+		{
+			for (Worker w : _workers)
+			{
+				if (exited(w))
+				{
+					System.err.println("Worker "+w.id+" exited before it was ready.");
+					kill();
+					return false;
+				}
+			}
+			if (System.currentTimeMillis()>deadline)
+			{
+				System.err.println("Only "+ready+" of "+_workers.size()+" workers were ready in time.");
+				kill();
+				return false;
+			}
+
+			try
+			{
+				Socket socket=server.accept();
+				socket.setTcpNoDelay(true);
+				connecting.add(socket);
+			}
+			catch (SocketTimeoutException e)
+			{
+			}
+
+			for (Iterator<Socket> i=connecting.iterator(); i.hasNext(); )
+			{
+				Socket socket=i.next();
+				try
+				{
+					//READY and the worker number
+					if (socket.getInputStream().available()<5)
+					{
+						continue;
+					}
+					i.remove();
+					if (handshake(socket))
+					{
+						ready++;
+						continue;
+					}
+				}
+				catch (IOException e)
+				{
+					i.remove();
+				}
+				socket.close();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read the READY message of a connection once it has arrived, and give the connection to its worker.
+	 * 
+	 * @return false if the connection is not from a worker still waiting for its own.
+	 */
+	boolean handshake(Socket socket) throws IOException
+	{
+		//the message has arrived, so this only guards against a connection that stops in the middle of it
+		socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+		DataInputStream in=new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		if (in.read()!=CoordinatorLink.READY)
+		{
+			return false;
+		}
+		int id=in.readInt();
+		if ( (id<0) || (id>=_workers.size()) || (_workers.get(id).in!=null) )
+		{
+			return false;
+		}
+		socket.setSoTimeout(0);
+		Worker w=_workers.get(id);
+		w.in=in;
+		w.out=new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		return true;
+	}
+
+	static boolean exited(Worker w)
+	{
+		try
+		{
+			w.process.exitValue();
+			return true;
+		}
+		catch (IllegalThreadStateException e)
+		{
+			return false;
+		}
+	}
+
+	void kill()
+	{
+		for (Worker w : _workers)
+		{
+			if (w.process!=null)
+			{
+				w.process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Read a worker's intervals until it is done.
+	 */
+	void receive(Worker w)
+	{
+		try
+		{
+			int type;
+			while ((type=w.in.read())==CoordinatorLink.INTERVAL)
+			{
+				interval(w,CoordinatorLink.readSnapshot(w.in));
+			}
+			if (type!=CoordinatorLink.DONE)
+			{
+				throw new EOFException("the connection was closed");
+			}
+			done(w,false);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Lost worker "+w.id+": "+e.getMessage());
+			done(w,true);
+		}
+	}
+
+	/**
+	 * Add a worker's interval to the totals and to the window of the same interval number of the other workers.
+	 */
+	synchronized void interval(Worker w, StatusSnapshot snapshot) throws IOException
+	{
+		long endms=System.currentTimeMillis();
+		w.totaloperations=snapshot.totaloperations;
+
+		Window window=_windows.get(w.intervals);
+		if (window==null)
+		{
+			window=new Window();
+			_windows.put(w.intervals,window);
+		}
+		w.intervals++;
+		window.intervalms=Math.max(window.intervalms,snapshot.intervalms);
+		window.operations+=snapshot.operations;
+
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			w.returncodes.put(m.name,m.returncodes);
+			if ( (m.latencies==null) || (m.latencies.getTotalCount()==0) )
+			{
+				continue;
+			}
+			add(_totals,m.name,m.latencies);
+			add(window.latencies,m.name,m.latencies);
+			if (w.intervallog!=null)
+			{
+				IntervalLog.writeRecord(w.intervallog,m.name,endms-snapshot.intervalms,endms,m.latencies);
+			}
+		}
+		report();
+	}
+
+	static void add(Map<String,LogLinearHistogram> histograms, String name, LogLinearHistogram latencies)
+	{
+		LogLinearHistogram h=histograms.get(name);
+		if (h==null)
+		{
+			h=latencies.copyLayout();
+			histograms.put(name,h);
+		}
+		h.add(latencies);
+	}
+
+	synchronized void done(Worker w, boolean failed)
+	{
+		w.done=true;
+		_failed|=failed;
+		_endms=System.currentTimeMillis();
+		if (w.intervallog!=null)
+		{
+			try
+			{
+				w.intervallog.close();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not write the interval log of worker "+w.id+": "+e);
+			}
+		}
+		report();
+	}
+
+	/**
+	 * Print the status of every window that all the workers still running have sent their interval of.
+	 */
+	synchronized void report()
+	{
+		while (!_windows.isEmpty())
+		{
+			for (Worker w : _workers)
+			{
+				if ( (w.intervals<=_reported) && !w.done )
+				{
+					return;
+				}
+			}
+			Window window=_windows.remove(_reported++);
+			if (window==null)
+			{
+				continue;
+			}
+			long totaloperations=0;
+			for (Worker w : _workers)
+			{
+				totaloperations+=w.totaloperations;
+			}
+			List<IntervalMeasurement> measurements=new ArrayList<IntervalMeasurement>();
+			for (Map.Entry<String,LogLinearHistogram> e : window.latencies.entrySet())
+			{
+				LogLinearHistogram h=e.getValue();
+				measurements.add(new IntervalMeasurement(e.getKey(),h.getTotalCount(),_totals.get(e.getKey()).getTotalCount(),h.getMean(),h,new TreeMap<Integer,Long>()));
+			}
+			_status.update(new StatusSnapshot(System.currentTimeMillis()-_startms,window.intervalms,totaloperations,window.operations,measurements));
+		}
+	}
+
+	/**
+	 * Export the run time and throughput of all the workers together, and the merged latencies and return codes of
+	 * each measurement, with the histograms if "exporthistograms" is true.
+	 */
+	synchronized void export(MeasurementsExporter exporter) throws IOException
+	{
+		long runtime=_endms-_startms;
+		long operations=0;
+		for (Worker w : _workers)
+		{
+			operations+=w.totaloperations;
+		}
+		exporter.write("OVERALL", "RunTime(ms)", runtime);
+		exporter.write("OVERALL", "Throughput(ops/sec)", 1000.0*operations/runtime);
+
+		String[] percentiles=_props.getProperty(OneMeasurementHdrHistogram.PERCENTILES,OneMeasurementHdrHistogram.PERCENTILES_DEFAULT).split(",");
+		boolean exporthistograms=Boolean.parseBoolean(_props.getProperty(Measurements.EXPORT_HISTOGRAMS_PROPERTY,Measurements.EXPORT_HISTOGRAMS_PROPERTY_DEFAULT));
+		for (Map.Entry<String,LogLinearHistogram> e : _totals.entrySet())
+		{
+			String name=e.getKey();
+			LogLinearHistogram h=e.getValue();
+			OneMeasurement.write(exporter, name, "Operations", h.getTotalCount());
+			exporter.write(name, "AverageLatency(us)", h.getMean());
+			OneMeasurement.write(exporter, name, "MinLatency(us)", h.getMin());
+			OneMeasurement.write(exporter, name, "MaxLatency(us)", h.getMax());
+			for (String p : percentiles)
+			{
+				p=p.trim();
+				OneMeasurement.write(exporter, name, p+"thPercentileLatency(us)", h.getValueAtPercentile(Double.parseDouble(p)));
+			}
+			Map<Integer,Long> returncodes=new TreeMap<Integer,Long>();
+			for (Worker w : _workers)
+			{
+				Map<Integer,Long> codes=w.returncodes.get(name);
+				if (codes==null)
+				{
+					continue;
+				}
+				for (Map.Entry<Integer,Long> c : codes.entrySet())
+				{
+					Long count=returncodes.get(c.getKey());
+					returncodes.put(c.getKey(),(count==null ? 0 : count)+c.getValue());
+				}
+			}
+			for (Map.Entry<Integer,Long> c : returncodes.entrySet())
+			{
+				OneMeasurement.write(exporter, name, "Return="+c.getKey(), c.getValue().longValue());
+			}
+			if (exporthistograms && (exporter instanceof HistogramExporter))
+			{
+				((HistogramExporter)exporter).write(name, "Histogram", h);
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+import com.yahoo.ycsb.measurements.live.LiveMetricsListener;
+import com.yahoo.ycsb.measurements.live.StatusSnapshot;
+
+/**
+ * The worker's end of the connection to a Coordinator. The client creates one when it is given the coordinator's
+ * address, waits at the coordinator's barrier before starting its threads, and then sends every status snapshot,
+ * with the latency histograms of the interval, until the run is over.
+ * 
+ * The messages are a type byte followed by:
+ * <ul>
+ * <li>READY: the worker number (int)
+ * <li>START: nothing
+ * <li>INTERVAL: a status snapshot, see writeSnapshot()
+ * <li>DONE: nothing
+ * </ul>
+ */
+public class CoordinatorLink implements LiveMetricsListener
+{
+	static final int READY=1;
+	static final int START=2;
+	static final int INTERVAL=3;
+	static final int DONE=4;
+
+	Socket _socket;
+	DataOutputStream _out;
+	DataInputStream _in;
+	int _worker;
+
+	public void init(Properties props) throws IOException
+	{
+		String address=props.getProperty(Coordinator.ADDRESS_PROPERTY);
+		int colon=address.lastIndexOf(':');
+		if (colon<0)
+		{
+			throw new IOException("Invalid "+Coordinator.ADDRESS_PROPERTY+" \""+address+"\": expected host:port");
+		}
+		_worker=Integer.parseInt(props.getProperty(Coordinator.WORKER_PROPERTY,"0"));
+		_socket=new Socket(address.substring(0,colon),Integer.parseInt(address.substring(colon+1)));
+		_socket.setTcpNoDelay(true);
+		_out=new DataOutputStream(new BufferedOutputStream(_socket.getOutputStream()));
+		_in=new DataInputStream(new BufferedInputStream(_socket.getInputStream()));
+	}
+
+	/**
+	 * Tell the coordinator that this worker is ready, and wait until every worker is.
+	 */
+	public void awaitStart() throws IOException
+	{
+		synchronized (this)
+		{
+			_out.writeByte(READY);
+			_out.writeInt(_worker);
+			_out.flush();
+		}
+		if (_in.read()!=START)
+		{
+			throw new IOException("The coordinator ended the run before it started");
+		}
+	}
+
+	public synchronized void update(StatusSnapshot snapshot)
+	{
+		if (_out==null)
+		{
+			return;
+		}
+		try
+		{
+			_out.writeByte(INTERVAL);
+			writeSnapshot(_out,snapshot);
+			_out.flush();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Lost the connection to the coordinator: "+e);
+			_out=null;
+		}
+	}
+
+	public synchronized void close() throws IOException
+	{
+		if (_out!=null)
+		{
+			_out.writeByte(DONE);
+			_out.flush();
+		}
+		_socket.close();
+	}
+
+	/**
+	 * Write the interval's operations, and for each measurement its operations, latencies and return codes.
+	 * Measurements that keep no latencies are written with an empty histogram.
+	 */
+	static void writeSnapshot(DataOutputStream out, StatusSnapshot snapshot) throws IOException
+	{
+		out.writeLong(snapshot.elapsedms);
+		out.writeLong(snapshot.intervalms);
+		out.writeLong(snapshot.totaloperations);
+		out.writeLong(snapshot.operations);
+		out.writeInt(snapshot.measurements.size());
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			out.writeUTF(m.name);
+			out.writeLong(m.operations);
+			out.writeLong(m.totaloperations);
+			out.writeDouble(m.averagelatency);
+			byte[] encoded=m.latencies==null ? new byte[0] : m.latencies.encode();
+			out.writeInt(encoded.length);
+			out.write(encoded);
+			out.writeInt(m.returncodes.size());
+			for (Map.Entry<Integer,Long> e : m.returncodes.entrySet())
+			{
+				out.writeInt(e.getKey());
+				out.writeLong(e.getValue());
+			}
+		}
+	}
+
+	static StatusSnapshot readSnapshot(DataInputStream in) throws IOException
+	{
+		long elapsedms=in.readLong();
+		long intervalms=in.readLong();
+		long totaloperations=in.readLong();
+		long operations=in.readLong();
+		int n=in.readInt();
+		List<IntervalMeasurement> measurements=new ArrayList<IntervalMeasurement>(n);
+		for (int i=0; i<n; i++)
+		{
+			String name=in.readUTF();
+			long ops=in.readLong();
+			long totalops=in.readLong();
+			double averagelatency=in.readDouble();
+			byte[] encoded=new byte[in.readInt()];
+			in.readFully(encoded);
+			LogLinearHistogram latencies=encoded.length==0 ? null : LogLinearHistogram.decode(encoded);
+			Map<Integer,Long> returncodes=new TreeMap<Integer,Long>();
+			for (int codes=in.readInt(); codes>0; codes--)
+			{
+				returncodes.put(in.readInt(),in.readLong());
+			}
+			measurements.add(new IntervalMeasurement(name,ops,totalops,averagelatency,latencies,returncodes));
+		}
+		return new StatusSnapshot(elapsedms,intervalms,totaloperations,operations,measurements);
+	}
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -40,6 +41,11 @@ import java.util.Vector;
  * to match the database's default semantics, or the semantics of your 
  * target application.  For the sake of comparison between experiments we also 
  * recommend you explain the semantics you chose when presenting performance results.
+ * 
+ * Workloads may reuse the objects they pass in (the values and their ByteIterators, the set of
+ * fields and the result containers) for their next operation, so a DB must not keep any of them
+ * after the call returns; a binding that needs them later has to copy them. The set of fields
+ * must not be modified.
  */
 public abstract class DB
 {
@@ -134,4 +140,82 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Insert several records in the database. Any field/value pairs in each values HashMap will be written into the record
+	 * with the corresponding key. Bindings that can send several records to the database at once should override this;
+	 * by default, the records are inserted one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values A HashMap of field/value pairs to insert for each key, in the same order as the keys
+	 * @return Zero if every record was inserted, otherwise the first non-zero error code.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=insert(table,keys.get(i),values.get(i));
+			if ( (res!=0) && (ret==0) )
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Update several records in the database. Any field/value pairs in each values HashMap will be written into the record
+	 * with the corresponding key, overwriting any existing values with the same field name. Bindings that can send several
+	 * updates to the database at once should override this; by default, the records are updated one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values A HashMap of field/value pairs to update for each key, in the same order as the keys
+	 * @return Zero if every record was updated, otherwise the first non-zero error code.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=update(table,keys.get(i),values.get(i));
+			if ( (res!=0) && (ret==0) )
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Read several records from the database. The field/value pairs of each record that is found will be stored in a HashMap,
+	 * under the record's key in results. Bindings that can fetch several records in one request should override this;
+	 * by default, the records are read one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read, without duplicates.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A HashMap from record key to the field/value pairs of that record
+	 * @return Zero if every record was found, otherwise a non-zero error code.
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String,HashMap<String,ByteIterator>> results)
+	{
+		int ret=0;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			int res=read(table,key,fields,result);
+			if (res==0)
+			{
+				results.put(key,result);
+			}
+			else if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
 }
@@ -24,29 +24,109 @@ import java.util.Properties;
  */
 public class DBFactory
 {
+      /**
+       * Create the DB layer for one client thread. The class may be a DB or an AsyncDB. If the
+       * "asyncdb.outstanding" property is set, a DB is run on a BlockingAsyncDB pool so that the
+       * client thread keeps that many operations in flight. If the "db.lifecycle" property is "pooled",
+       * the client threads share a pool of instances of a DB instead, see PooledDB.
+       */
+      public static DB newDB(String dbname, Properties properties) throws UnknownDBException
+      {
+	 Object instance=loadClass(dbname);
+	 if (instance==null)
+	 {
+	    return null;
+	 }
+
+	 int outstanding=Integer.parseInt(properties.getProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY,"0"));
+
+	 //completions arrive on other threads and out of order, so only blocking calls are captured
+	 if ((instance instanceof AsyncDB || outstanding>0) && properties.getProperty(DBWrapper.CAPTURE_FILE_PROPERTY)!=null)
+	 {
+	    System.out.println(DBWrapper.CAPTURE_FILE_PROPERTY+" cannot be combined with an AsyncDB or "+AsyncDBWrapper.OUTSTANDING_PROPERTY);
+	    return null;
+	 }
+
+	 if (instance instanceof AsyncDB)
+	 {
+	    AsyncDB ret=(AsyncDB)instance;
+	    ret.setProperties(properties);
+	    return new AsyncDBWrapper(ret,Math.max(outstanding,1));
+	 }
+
+	 if (!(instance instanceof DB))
+	 {
+	    System.out.println(dbname+" is neither a DB nor an AsyncDB");
+	    return null;
+	 }
+
+	 String lifecycle=properties.getProperty(PooledDB.LIFECYCLE_PROPERTY,PooledDB.LIFECYCLE_THREAD);
+	 if (lifecycle.equals(PooledDB.LIFECYCLE_POOLED))
+	 {
+	    if (outstanding>0)
+	    {
+	       System.out.println("The "+PooledDB.LIFECYCLE_POOLED+" "+PooledDB.LIFECYCLE_PROPERTY+" cannot be combined with "+AsyncDBWrapper.OUTSTANDING_PROPERTY);
+	       return null;
+	    }
+	    DB ret=new PooledDB(dbname);
+	    ret.setProperties(properties);
+	    return new DBWrapper(ret);
+	 }
+	 else if (!lifecycle.equals(PooledDB.LIFECYCLE_THREAD))
+	 {
+	    System.out.println("Unknown "+PooledDB.LIFECYCLE_PROPERTY+" \""+lifecycle+"\": use "+PooledDB.LIFECYCLE_THREAD+" or "+PooledDB.LIFECYCLE_POOLED);
+	    return null;
+	 }
+
+	 if (outstanding>0)
+	 {
+	    //the pool threads create their own instances
+	    AsyncDB async=new BlockingAsyncDB(dbname);
+	    async.setProperties(properties);
+	    return new AsyncDBWrapper(async,outstanding);
+	 }
+
+	 DB ret=(DB)instance;
+	 ret.setProperties(properties);
+
+	 return new DBWrapper(ret);
+      }
+
+      /**
+       * Create an instance of a blocking DB class, without measurements.
+       * 
+       * @return The DB, or null if the class cannot be loaded or is not a DB.
+       */
+      static DB loadDB(String dbname, Properties properties)
+      {
+	 Object instance=loadClass(dbname);
+	 if (!(instance instanceof DB))
+	 {
+	    return null;
+	 }
+
+	 DB ret=(DB)instance;
+	 ret.setProperties(properties);
+	 return ret;
+      }
+
       @SuppressWarnings("unchecked")
-	public static DB newDB(String dbname, Properties properties) throws UnknownDBException
+      static Object loadClass(String dbname)
       {
 	 ClassLoader classLoader = DBFactory.class.getClassLoader();
 
-	 DB ret=null;
-
 	 try 
 	 {
 	    Class dbclass = classLoader.loadClass(dbname);
 	    //System.out.println("dbclass.getName() = " + dbclass.getName());
 	    
-	    ret=(DB)dbclass.newInstance();
+	    return dbclass.newInstance();
 	 }
 	 catch (Exception e) 
 	 {  
 	    e.printStackTrace();
 	    return null;
 	 }
-	 
-	 ret.setProperties(properties);
-
-	 return new DBWrapper(ret);
       }
       
 }
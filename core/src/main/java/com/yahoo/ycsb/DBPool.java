@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A bounded pool of instances of a blocking DB binding, shared by all the client threads of the process, for
+ * the "pooled" DB lifecycle. Each instance holds the binding's connections, so the pool size bounds the number of
+ * connections, as an application server's connection pool does, however many client threads there are.
+ * 
+ * All the instances are created and initialized by the first client thread to initialize its PooledDB, and
+ * cleaned up by the last one to clean up.
+ */
+class DBPool
+{
+	/**
+	 * Time spent waiting for an instance, recorded when a thread has to wait.
+	 */
+	static final String POOL_WAIT="POOL-WAIT";
+
+	//one pool per binding, while it is in use
+	private static final Map<String,DBPool> pools=new HashMap<String,DBPool>();
+
+	final String _dbname;
+	final Properties _props;
+	final int _size;
+	final BlockingQueue<DB> _idle;
+	final List<DB> _instances=new ArrayList<DB>();
+	final Measurements _measurements;
+
+	//guarded by the pools map
+	int _users;
+
+	DBPool(String dbname, Properties props, int size)
+	{
+		_dbname=dbname;
+		_props=props;
+		_size=size;
+		_idle=new ArrayBlockingQueue<DB>(size);
+		_measurements=Measurements.getMeasurements();
+	}
+
+	/**
+	 * Return the pool of the binding, creating and initializing its instances if this is the first user.
+	 */
+	static DBPool acquire(String dbname, Properties props, int size) throws DBException
+	{
+		synchronized (pools)
+		{
+			DBPool pool=pools.get(dbname);
+			if (pool==null)
+			{
+				pool=new DBPool(dbname,props,size);
+				pool.create();
+				pools.put(dbname,pool);
+			}
+			pool._users++;
+			return pool;
+		}
+	}
+
+	/**
+	 * Stop using the pool, cleaning up its instances if this is the last user.
+	 */
+	void release() throws DBException
+	{
+		synchronized (pools)
+		{
+			if (--_users>0)
+			{
+				return;
+			}
+			pools.remove(_dbname);
+		}
+		DBException first=cleanupInstances();
+		if (first!=null)
+		{
+			throw first;
+		}
+	}
+
+	/**
+	 * Create and initialize the instances. If one fails, the ones already initialized are cleaned up, so that their
+	 * connections are not left open.
+	 */
+	private void create() throws DBException
+	{
+		boolean created=false;
+		try
+		{
+			for (int i=0; i<_size; i++)
+			{
+				DB db=DBFactory.loadDB(_dbname,_props);
+				if (db==null)
+				{
+					throw new DBException(_dbname+" is not a blocking DB binding");
+				}
+				db.init();
+				_instances.add(db);
+				_idle.add(db);
+			}
+			created=true;
+		}
+		finally
+		{
+			if (!created)
+			{
+				cleanupInstances();
+				_instances.clear();
+				_idle.clear();
+			}
+		}
+	}
+
+	/**
+	 * Clean up every instance.
+	 * 
+	 * @return The first exception thrown, or null.
+	 */
+	private DBException cleanupInstances()
+	{
+		DBException first=null;
+		for (DB db : _instances)
+		{
+			try
+			{
+				db.cleanup();
+			}
+			catch (DBException e)
+			{
+				if (first==null)
+				{
+					first=e;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Take an idle instance, waiting for one if they are all in use.
+	 */
+	DB take()
+	{
+		DB db=_idle.poll();
+		if (db!=null)
+		{
+			return db;
+		}
+		long st=System.nanoTime();
+		while (true)
+		{
+			try
+			{
+				db=_idle.take();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				//keep waiting, as a client thread would on a real pool
+			}
+		}
+		_measurements.measure(POOL_WAIT,(int)((System.nanoTime()-st)/1000));
+		return db;
+	}
+
+	void give(DB db)
+	{
+		_idle.add(db);
+	}
+}
@@ -17,20 +17,67 @@
 
 package com.yahoo.ycsb;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.trace.CaptureRecorder;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
+ * 
+ * Each operation's service time (from the call until it returns) is recorded under the operation's
+ * name, e.g. "READ". If the client is throttled to a target throughput, the response time (from when
+ * the operation should have started according to the target, until it returns) is also recorded, under
+ * e.g. "READ-RESPONSE". The difference between the two is the time spent queued behind slow operations.
+ * 
+ * Batches are measured as one operation each, under "BATCH-INSERT", "BATCH-UPDATE" and "MULTIREAD".
+ * 
+ * If the "capturefile" property is set, every operation is also appended to that file by a CaptureRecorder, with
+ * its start time, latency and return code. A batch is captured as one record per key, each with the latency of the
+ * whole batch. Only blocking bindings are captured: DBFactory refuses "capturefile" together with an AsyncDB or
+ * "asyncdb.outstanding".
  */
 public class DBWrapper extends DB
 {
+	public static final String RESPONSE_SUFFIX="-RESPONSE";
+
+	static final String READ="READ";
+	static final String READ_RESPONSE=READ+RESPONSE_SUFFIX;
+	static final String SCAN="SCAN";
+	static final String SCAN_RESPONSE=SCAN+RESPONSE_SUFFIX;
+	static final String UPDATE="UPDATE";
+	static final String UPDATE_RESPONSE=UPDATE+RESPONSE_SUFFIX;
+	static final String INSERT="INSERT";
+	static final String INSERT_RESPONSE=INSERT+RESPONSE_SUFFIX;
+	static final String DELETE="DELETE";
+	static final String DELETE_RESPONSE=DELETE+RESPONSE_SUFFIX;
+	static final String BATCH_INSERT="BATCH-INSERT";
+	static final String BATCH_INSERT_RESPONSE=BATCH_INSERT+RESPONSE_SUFFIX;
+	static final String BATCH_UPDATE="BATCH-UPDATE";
+	static final String BATCH_UPDATE_RESPONSE=BATCH_UPDATE+RESPONSE_SUFFIX;
+	static final String MULTIREAD="MULTIREAD";
+	static final String MULTIREAD_RESPONSE=MULTIREAD+RESPONSE_SUFFIX;
+
+	/**
+	 * The file to capture every operation to. Not set by default.
+	 */
+	public static final String CAPTURE_FILE_PROPERTY="capturefile";
+
+	/**
+	 * The size of each client thread's capture buffer, in bytes.
+	 */
+	public static final String CAPTURE_BUFFER_SIZE_PROPERTY="capturebuffersize";
+
 	DB _db;
 	Measurements _measurements;
+	CaptureRecorder _recorder;
+	CaptureRecorder.Log _capture;
 
 	public DBWrapper(DB db)
 	{
@@ -61,6 +108,21 @@ public class DBWrapper extends DB
 	public void init() throws DBException
 	{
 		_db.init();
+
+		String capturefile=getProperties().getProperty(CAPTURE_FILE_PROPERTY);
+		if (capturefile!=null)
+		{
+			int buffersize=Integer.parseInt(getProperties().getProperty(CAPTURE_BUFFER_SIZE_PROPERTY,""+CaptureRecorder.DEFAULT_BUFFER_SIZE));
+			try
+			{
+				_recorder=CaptureRecorder.open(new File(capturefile),buffersize);
+			}
+			catch (IOException e)
+			{
+				throw new DBException("Could not open capture file "+capturefile,e);
+			}
+			_capture=_recorder.log();
+		}
 	}
 
 	/**
@@ -70,6 +132,42 @@ public class DBWrapper extends DB
 	public void cleanup() throws DBException
 	{
 		_db.cleanup();
+
+		if (_capture!=null)
+		{
+			_capture.flush();
+			_capture=null;
+			try
+			{
+				_recorder.release();
+			}
+			catch (IOException e)
+			{
+				throw new DBException("Could not write capture file",e);
+			}
+		}
+	}
+
+	/**
+	 * Record the service time, the response time if the operation had an intended start time, and the return code.
+	 */
+	void measure(String op, String responseop, int res, long st, long en)
+	{
+		measure(_measurements,op,responseop,res,st,en,_measurements.getIntendedStartTimeNs());
+	}
+
+	/**
+	 * Record the service time, the response time if intendedst is not Measurements.NO_INTENDED_START, and the return code.
+	 * Unlike the instance method, this can be called from a thread other than the one that started the operation.
+	 */
+	static void measure(Measurements measurements, String op, String responseop, int res, long st, long en, long intendedst)
+	{
+		measurements.measure(op,(int)((en-st)/1000));
+		if (intendedst!=Measurements.NO_INTENDED_START)
+		{
+			measurements.measure(responseop,(int)((en-intendedst)/1000));
+		}
+		measurements.reportReturnCode(op,res);
 	}
 
 	/**
@@ -86,8 +184,11 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("READ",(int)((en-st)/1000));
-		_measurements.reportReturnCode("READ",res);
+		measure(READ,READ_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			_capture.read(st,en,res,table,key,fields);
+		}
 		return res;
 	}
 
@@ -106,8 +207,11 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("SCAN",(int)((en-st)/1000));
-		_measurements.reportReturnCode("SCAN",res);
+		measure(SCAN,SCAN_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			_capture.scan(st,en,res,table,startkey,recordcount,fields);
+		}
 		return res;
 	}
 	
@@ -122,11 +226,18 @@ public class DBWrapper extends DB
 	 */
 	public int update(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		if (_capture!=null)
+		{
+			_capture.lengths(values);
+		}
 		long st=System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("UPDATE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("UPDATE",res);
+		measure(UPDATE,UPDATE_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			_capture.update(st,en,res,table,key,values);
+		}
 		return res;
 	}
 
@@ -141,11 +252,18 @@ public class DBWrapper extends DB
 	 */
 	public int insert(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		if (_capture!=null)
+		{
+			_capture.lengths(values);
+		}
 		long st=System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INSERT",res);
+		measure(INSERT,INSERT_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			_capture.insert(st,en,res,table,key,values);
+		}
 		return res;
 	}
 
@@ -161,8 +279,98 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		_measurements.measure("DELETE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("DELETE",res);
+		measure(DELETE,DELETE_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			_capture.delete(st,en,res,table,key);
+		}
+		return res;
+	}
+
+	/**
+	 * Insert several records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values A HashMap of field/value pairs to insert for each key, in the same order as the keys
+	 * @return Zero if every record was inserted, otherwise the first non-zero error code.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		if (_capture!=null)
+		{
+			for (HashMap<String,ByteIterator> v : values)
+			{
+				_capture.lengths(v);
+			}
+		}
+		long st=System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		measure(BATCH_INSERT,BATCH_INSERT_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			for (int i=0; i<keys.size(); i++)
+			{
+				_capture.insert(st,en,res,table,keys.get(i),values.get(i));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Update several records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values A HashMap of field/value pairs to update for each key, in the same order as the keys
+	 * @return Zero if every record was updated, otherwise the first non-zero error code.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		if (_capture!=null)
+		{
+			for (HashMap<String,ByteIterator> v : values)
+			{
+				_capture.lengths(v);
+			}
+		}
+		long st=System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		measure(BATCH_UPDATE,BATCH_UPDATE_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			for (int i=0; i<keys.size(); i++)
+			{
+				_capture.update(st,en,res,table,keys.get(i),values.get(i));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Read several records from the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read, without duplicates.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A HashMap from record key to the field/value pairs of that record
+	 * @return Zero if every record was found, otherwise a non-zero error code.
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String,HashMap<String,ByteIterator>> results)
+	{
+		long st=System.nanoTime();
+		int res=_db.multiRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		measure(MULTIREAD,MULTIREAD_RESPONSE,res,st,en);
+		if (_capture!=null)
+		{
+			for (String key : keys)
+			{
+				_capture.read(st,en,res,table,key,fields);
+			}
+		}
 		return res;
 	}
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * The DB of a client thread in the "pooled" DB lifecycle: each operation takes an instance of the binding from the
+ * process wide DBPool, runs on it, and gives it back. The time spent waiting for an instance is part of the
+ * operation's latency, and is also measured as POOL-WAIT.
+ * 
+ * Properties to control the lifecycle:
+ * <UL>
+ * <LI><b>db.lifecycle</b>: "thread" for an instance of the binding per client thread (default), or "pooled" for
+ * a pool of instances shared by all the client threads
+ * <LI><b>db.poolsize</b>: the number of instances in the pool (default: threadcount)
+ * </ul>
+ */
+public class PooledDB extends DB
+{
+	public static final String LIFECYCLE_PROPERTY="db.lifecycle";
+	public static final String LIFECYCLE_THREAD="thread";
+	public static final String LIFECYCLE_POOLED="pooled";
+
+	public static final String POOL_SIZE_PROPERTY="db.poolsize";
+
+	final String _dbname;
+	DBPool _pool;
+
+	public PooledDB(String dbname)
+	{
+		_dbname=dbname;
+	}
+
+	public void init() throws DBException
+	{
+		int size=Integer.parseInt(getProperties().getProperty(POOL_SIZE_PROPERTY,getProperties().getProperty("threadcount","1")));
+		if (size<1)
+		{
+			throw new DBException(POOL_SIZE_PROPERTY+" must be at least 1");
+		}
+		_pool=DBPool.acquire(_dbname,getProperties(),size);
+	}
+
+	public void cleanup() throws DBException
+	{
+		_pool.release();
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.read(table,key,fields,result);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.scan(table,startkey,recordcount,fields,result);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.update(table,key,values);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.insert(table,key,values);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int delete(String table, String key)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.delete(table,key);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.batchInsert(table,keys,values);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.batchUpdate(table,keys,values);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+
+	public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String,HashMap<String,ByteIterator>> results)
+	{
+		DB db=_pool.take();
+		try
+		{
+			return db.multiRead(table,keys,fields,results);
+		}
+		finally
+		{
+			_pool.give(db);
+		}
+	}
+}
@@ -58,6 +58,16 @@ public class RandomByteIterator extends ByteIterator {
     this.off = 0;
   }
 
+  /**
+   * Start a new random sequence of len bytes, so that one iterator can be reused for many values.
+   */
+  public void reset(long len) {
+    this.len = len;
+    this.bufOff = buf.length;
+    fillBytes();
+    this.off = 0;
+  }
+
   public byte nextByte() {
     fillBytes();
     bufOff++;
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads that run the client loops: either one platform (OS) thread per client,
+ * or one virtual thread per client, which lets a single JVM simulate tens of thousands of
+ * concurrent clients with blocking bindings without the memory cost of as many OS threads.
+ * 
+ * Virtual threads need Java 21 or later. YCSB is built for older Java versions, so they are
+ * created through reflection, and are reported as unsupported on older JVMs.
+ */
+public class ThreadModel
+{
+	public static final String THREAD_MODEL_PROPERTY="threadmodel";
+	public static final String THREAD_MODEL_PROPERTY_DEFAULT="platform";
+
+	public static final String PLATFORM="platform";
+	public static final String VIRTUAL="virtual";
+
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_UNSTARTED;
+	private static final Method IS_VIRTUAL;
+
+	static
+	{
+		Method ofvirtual=null;
+		Method buildername=null;
+		Method builderunstarted=null;
+		Method isvirtual=null;
+		try
+		{
+			Class<?> builder=Class.forName("java.lang.Thread$Builder");
+			ofvirtual=Thread.class.getMethod("ofVirtual");
+			buildername=builder.getMethod("name",String.class);
+			builderunstarted=builder.getMethod("unstarted",Runnable.class);
+			isvirtual=Thread.class.getMethod("isVirtual");
+		}
+		catch (Exception e)
+		{
+			//before Java 21: no virtual threads
+			ofvirtual=null;
+		}
+		OF_VIRTUAL=ofvirtual;
+		BUILDER_NAME=buildername;
+		BUILDER_UNSTARTED=builderunstarted;
+		IS_VIRTUAL=isvirtual;
+	}
+
+	/**
+	 * Return true if this JVM supports virtual threads.
+	 */
+	public static boolean virtualThreadsSupported()
+	{
+		return OF_VIRTUAL!=null;
+	}
+
+	/**
+	 * Check that the thread model is known and supported by this JVM.
+	 * 
+	 * @throws IllegalArgumentException if it is not
+	 */
+	public static void check(String threadmodel)
+	{
+		if (threadmodel.compareTo(VIRTUAL)==0)
+		{
+			if (!virtualThreadsSupported())
+			{
+				throw new IllegalArgumentException("Thread model \""+VIRTUAL+"\" requires Java 21 or later, this is Java "+System.getProperty("java.version"));
+			}
+		}
+		else if (threadmodel.compareTo(PLATFORM)!=0)
+		{
+			throw new IllegalArgumentException("Unknown thread model \""+threadmodel+"\"");
+		}
+	}
+
+	/**
+	 * Create an unstarted thread.
+	 * 
+	 * @param threadmodel "platform" or "virtual"
+	 * @param name The name of the thread
+	 * @param r What the thread runs
+	 * @throws IllegalArgumentException if the thread model is not known, or not supported by this JVM
+	 */
+	public static Thread newThread(String threadmodel, String name, Runnable r)
+	{
+		check(threadmodel);
+		if (threadmodel.compareTo(PLATFORM)==0)
+		{
+			return new Thread(r,name);
+		}
+
+		try
+		{
+			Object builder=OF_VIRTUAL.invoke(null);
+			builder=BUILDER_NAME.invoke(builder,name);
+			return (Thread)BUILDER_UNSTARTED.invoke(builder,r);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalArgumentException("Could not create a virtual thread: "+e);
+		}
+	}
+
+	/**
+	 * Return true if the thread is a virtual thread.
+	 */
+	public static boolean isVirtual(Thread t)
+	{
+		if (IS_VIRTUAL==null)
+		{
+			return false;
+		}
+		try
+		{
+			return (Boolean)IS_VIRTUAL.invoke(t);
+		}
+		catch (Exception e)
+		{
+			return false;
+		}
+	}
+}
@@ -35,6 +35,21 @@ public class Utils
     }
     return ret;
   }
+
+  /**
+   * Return a uniformly distributed long in [0, bound), for bounds that may be too large for Random.nextInt().
+   */
+  public static long random(Random random, long bound) {
+    if (bound <= Integer.MAX_VALUE) {
+      return random.nextInt((int) bound);
+    }
+    long bits, val;
+    do {
+      bits = random.nextLong() >>> 1;
+      val = bits % bound;
+    } while (bits - val + (bound - 1) < 0);
+    return val;
+  }
       /**
        * Generate a random ASCII string of a given length.
        */
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb;
+
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Ends the warm-up at the start of a run, once it has lasted the time or the number of operations given by the
+ * "warmup" property. Until then the measurements go to a separate set, so that JIT compilation, connection setup and
+ * cold caches do not skew the steady state numbers.
+ * 
+ * The warm-up is part of the run: its operations count towards operationcount, and its time towards
+ * maxexecutiontime. The operations are counted every millisecond, so an operation based warm-up may run a few more
+ * operations than asked for.
+ */
+class WarmupThread extends Thread
+{
+	final Vector<ClientThread> _clients;
+	final long _warmupms;
+	final long _warmupops;
+
+	/**
+	 * When the warm-up ended and how many operations it took, or -1 while it lasts. _endms is set last.
+	 */
+	volatile long _endms=-1;
+	volatile long _opsdone=-1;
+
+	/**
+	 * @param warmupms The length of the warm-up in milliseconds, or 0.
+	 * @param warmupops The number of operations in the warm-up, or 0.
+	 */
+	WarmupThread(long warmupms, long warmupops, Vector<ClientThread> clients)
+	{
+		super("Warmup");
+		setDaemon(true);
+		_clients=clients;
+		_warmupms=warmupms;
+		_warmupops=warmupops;
+	}
+
+	/**
+	 * Parse the value of the warmup property: a number of seconds, such as "30" or "30s", or a number of
+	 * operations, such as "100000ops".
+	 * 
+	 * @throws IllegalArgumentException if the value is neither.
+	 */
+	static WarmupThread newWarmupThread(String warmup, Vector<ClientThread> clients)
+	{
+		String value=warmup.trim();
+		try
+		{
+			if (value.endsWith("ops"))
+			{
+				return new WarmupThread(0,Long.parseLong(value.substring(0,value.length()-3).trim()),clients);
+			}
+			if (value.endsWith("s"))
+			{
+				value=value.substring(0,value.length()-1);
+			}
+			return new WarmupThread((long)(Double.parseDouble(value.trim())*1000),0,clients);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Invalid "+Client.WARMUP_PROPERTY+" \""+warmup+"\": give a number of seconds, e.g. 30s, or of operations, e.g. 100000ops");
+		}
+	}
+
+	long opsDone()
+	{
+		long ret=0;
+		for (ClientThread ct : _clients)
+		{
+			ret+=ct.getOpsDone();
+		}
+		return ret;
+	}
+
+	public void run()
+	{
+		long st=System.currentTimeMillis();
+		try
+		{
+			if (_warmupops>0)
+			{
+				while (opsDone()<_warmupops)
+				{
+					sleep(1);
+				}
+			}
+			else
+			{
+				long sleepms;
+				while ((sleepms=st+_warmupms-System.currentTimeMillis())>0)
+				{
+					sleep(sleepms);
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			//the run ended first
+			return;
+		}
+
+		Measurements.getMeasurements().endWarmup();
+		_opsdone=opsDone();
+		_endms=System.currentTimeMillis();
+		System.err.println("Warm-up done after "+(_endms-st)+" ms and "+_opsdone+" operations.");
+	}
+
+	/**
+	 * @return true if the warm-up ended before the run did.
+	 */
+	boolean isDone()
+	{
+		return _endms>=0;
+	}
+}
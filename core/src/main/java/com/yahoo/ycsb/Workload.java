@@ -67,6 +67,15 @@ public abstract class Workload
 	 return null;
       }
       
+      /**
+       * Cleanup any state for a particular client thread. Called once per client thread, after its last
+       * operation and before its DB is cleaned up. Workloads that hold back operations in threadstate, e.g.
+       * to send them to the database in batches, must complete them here.
+       */
+      public void cleanupThread(DB db, Object threadstate) throws WorkloadException
+      {
+      }
+
       /**
        * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
        */
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.arrival;
+
+import java.util.Properties;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Decides when each operation of one client thread should start. Client threads ask for the
+ * intended start time of their next operation, wait (with System.nanoTime() and LockSupport.parkNanos())
+ * until it arrives, and then issue the operation.
+ * 
+ * The schedule is open loop: start times are computed from the start of the run, not from when the
+ * previous operation finished, so a slow operation delays the operations behind it (which is then
+ * visible in the response times) instead of silently lowering the offered load.
+ * 
+ * One instance is created per client thread, so implementations need not be thread safe.
+ * 
+ * Properties to control the arrival process:
+ * <UL>
+ * <LI><b>arrivalprocess</b>: "constant" (evenly spaced operations), "poisson" (exponentially distributed gaps),
+ * "step" or "ramp" (default: constant). The constant and poisson processes run at the "target" throughput and are
+ * only used if a target is set.
+ * <LI><b>arrivalprocess.schedule</b>: for step and ramp, a comma separated list of seconds:opspersec points, e.g.
+ * "0:1000,60:5000,120:5000". A step process holds each throughput until the next point, a ramp process changes
+ * linearly between the points. Both hold the last throughput after the last point; if that is 0, the run ends there.
+ * </ul>
+ */
+public abstract class ArrivalProcess
+{
+	public static final String ARRIVAL_PROCESS_PROPERTY="arrivalprocess";
+	public static final String ARRIVAL_PROCESS_PROPERTY_DEFAULT="constant";
+
+	public static final String SCHEDULE_PROPERTY="arrivalprocess.schedule";
+
+	/**
+	 * Returned by nextIntendedStartNs() when the schedule has no more operations.
+	 */
+	public static final long NO_MORE_ARRIVALS=Long.MAX_VALUE;
+
+	long _startns;
+
+	/**
+	 * Intended start of the next operation, in nanoseconds since _startns. Kept as a double so the
+	 * fractions of a nanosecond do not drift over millions of operations.
+	 */
+	double _nextns;
+
+	/**
+	 * Create the arrival process for one client thread.
+	 * 
+	 * @param p The properties of the run.
+	 * @param target The target throughput of the whole client, in operations per second, or 0 for none.
+	 * @param threadcount The number of client threads that share the target.
+	 * @return The arrival process, or null if the thread should not be throttled.
+	 * @throws IllegalArgumentException if the arrival process is not known or its schedule cannot be parsed.
+	 */
+	public static ArrivalProcess newArrivalProcess(Properties p, double target, int threadcount)
+	{
+		String process=p.getProperty(ARRIVAL_PROCESS_PROPERTY,ARRIVAL_PROCESS_PROPERTY_DEFAULT);
+		if (process.compareTo("constant")==0)
+		{
+			return target>0 ? new ConstantArrivalProcess(target/threadcount) : null;
+		}
+		else if (process.compareTo("poisson")==0)
+		{
+			return target>0 ? new PoissonArrivalProcess(target/threadcount) : null;
+		}
+		else if ( (process.compareTo("step")==0) || (process.compareTo("ramp")==0) )
+		{
+			String schedule=p.getProperty(SCHEDULE_PROPERTY);
+			if (schedule==null)
+			{
+				throw new IllegalArgumentException("Arrival process \""+process+"\" requires the "+SCHEDULE_PROPERTY+" property");
+			}
+			return new ScheduledArrivalProcess(schedule,threadcount,process.compareTo("ramp")==0);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown arrival process \""+process+"\"");
+		}
+	}
+
+	/**
+	 * Start the schedule. The first operation is placed at a random point within the first interval,
+	 * so that the client threads do not all hit the database at the same time.
+	 * 
+	 * @param startns The time (System.nanoTime()) the thread starts issuing operations.
+	 */
+	public void start(long startns)
+	{
+		_startns=startns;
+		double first=intervalNs(0);
+		_nextns=Double.isInfinite(first) ? first : Utils.random().nextDouble()*first;
+	}
+
+	/**
+	 * Return the time (System.nanoTime()) at which the next operation should start, and advance the schedule.
+	 * 
+	 * @return The intended start time, or NO_MORE_ARRIVALS if the schedule has ended.
+	 */
+	public long nextIntendedStartNs()
+	{
+		if (Double.isInfinite(_nextns))
+		{
+			return NO_MORE_ARRIVALS;
+		}
+		long ret=_startns+(long)_nextns;
+		_nextns+=intervalNs(_nextns);
+		return ret;
+	}
+
+	/**
+	 * Return the time from an operation that starts elapsedns nanoseconds into the run until the next one.
+	 * 
+	 * @return The interval in nanoseconds, or positive infinity if there will be no next operation.
+	 */
+	abstract double intervalNs(double elapsedns);
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.arrival;
+
+/**
+ * Evenly spaced operations at a fixed throughput.
+ */
+public class ConstantArrivalProcess extends ArrivalProcess
+{
+	final double _intervalns;
+
+	/**
+	 * @param opspersec The throughput of this thread, in operations per second.
+	 */
+	public ConstantArrivalProcess(double opspersec)
+	{
+		_intervalns=1000000000.0/opspersec;
+	}
+
+	@Override
+	double intervalNs(double elapsedns)
+	{
+		return _intervalns;
+	}
+}
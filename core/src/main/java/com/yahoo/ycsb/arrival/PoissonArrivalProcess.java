@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.arrival;
+
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+
+/**
+ * Operations that arrive independently of each other at a fixed average throughput, i.e. with
+ * exponentially distributed gaps. This is closer to the traffic a service sees from many independent
+ * users than evenly spaced operations, and produces the bursts that evenly spaced operations hide.
+ */
+public class PoissonArrivalProcess extends ArrivalProcess
+{
+	final ExponentialGenerator _intervals;
+
+	/**
+	 * @param opspersec The average throughput of this thread, in operations per second.
+	 */
+	public PoissonArrivalProcess(double opspersec)
+	{
+		_intervals=new ExponentialGenerator(1000000000.0/opspersec);
+	}
+
+	@Override
+	double intervalNs(double elapsedns)
+	{
+		return _intervals.nextLong();
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.arrival;
+
+/**
+ * Operations whose throughput follows a schedule of (time, throughput) points: either
+ * holding each throughput until the next point (step) or changing linearly between the
+ * points (ramp). Useful to find the throughput at which latency degrades within one run.
+ */
+public class ScheduledArrivalProcess extends ArrivalProcess
+{
+	/**
+	 * Start of each segment, in nanoseconds since the start of the run.
+	 */
+	final double[] _timesns;
+
+	/**
+	 * Throughput of this thread at the start of each segment, in operations per nanosecond.
+	 */
+	final double[] _rates;
+
+	final boolean _ramp;
+
+	/**
+	 * @param schedule A comma separated list of seconds:opspersec points for the whole client, with increasing times.
+	 * @param threadcount The number of client threads that share the throughput.
+	 * @param ramp True to change the throughput linearly between points, false to step.
+	 * @throws IllegalArgumentException if the schedule cannot be parsed.
+	 */
+	public ScheduledArrivalProcess(String schedule, int threadcount, boolean ramp)
+	{
+		String[] points=schedule.split(",");
+		double[] timesns=new double[points.length];
+		double[] rates=new double[points.length];
+		_ramp=ramp;
+
+		for (int i=0; i<points.length; i++)
+		{
+			String[] point=points[i].trim().split(":");
+			if (point.length!=2)
+			{
+				throw new IllegalArgumentException("Bad schedule point \""+points[i]+"\", expected seconds:opspersec");
+			}
+			try
+			{
+				timesns[i]=Double.parseDouble(point[0])*1000000000.0;
+				rates[i]=Double.parseDouble(point[1])/threadcount/1000000000.0;
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException("Bad schedule point \""+points[i]+"\", expected seconds:opspersec");
+			}
+			if ( (timesns[i]<0) || (rates[i]<0) || ( (i>0) && (timesns[i]<=timesns[i-1]) ) )
+			{
+				throw new IllegalArgumentException("Bad schedule point \""+points[i]+"\", times must increase and neither may be negative");
+			}
+		}
+
+		if (timesns[0]>0)
+		{
+			// hold the first throughput from the start of the run until the first point
+			_timesns=new double[points.length+1];
+			_rates=new double[points.length+1];
+			_rates[0]=rates[0];
+			System.arraycopy(timesns,0,_timesns,1,points.length);
+			System.arraycopy(rates,0,_rates,1,points.length);
+		}
+		else
+		{
+			_timesns=timesns;
+			_rates=rates;
+		}
+	}
+
+	/**
+	 * Return the throughput of this thread at time t, in operations per nanosecond.
+	 */
+	double rate(int segment, double t)
+	{
+		if ( (!_ramp) || (segment==_timesns.length-1) )
+		{
+			return _rates[segment];
+		}
+		double slope=(_rates[segment+1]-_rates[segment])/(_timesns[segment+1]-_timesns[segment]);
+		return _rates[segment]+slope*(t-_timesns[segment]);
+	}
+
+	/**
+	 * Walk the schedule from elapsedns until exactly one operation's worth of throughput has passed,
+	 * i.e. until the integral of the rate reaches 1.
+	 */
+	@Override
+	double intervalNs(double elapsedns)
+	{
+		double t=elapsedns;
+		double remaining=1;
+		int segment=0;
+		while ( (segment<_timesns.length-1) && (_timesns[segment+1]<=t) )
+		{
+			segment++;
+		}
+
+		while (true)
+		{
+			double r=rate(segment,t);
+			if (segment==_timesns.length-1)
+			{
+				return r>0 ? (t-elapsedns)+remaining/r : Double.POSITIVE_INFINITY;
+			}
+
+			double end=_timesns[segment+1];
+			double rend=_ramp ? _rates[segment+1] : r;
+			double area=(r+rend)/2*(end-t);
+			if (area>=remaining)
+			{
+				double slope=(rend-r)/(end-t);
+				double dt;
+				if (Math.abs(slope)*remaining<1e-12*r*r)
+				{
+					dt=remaining/r;
+				}
+				else
+				{
+					// solve r*dt + slope/2*dt^2 = remaining
+					dt=(Math.sqrt(Math.max(0,r*r+2*slope*remaining))-r)/slope;
+				}
+				return (t-elapsedns)+dt;
+			}
+			remaining-=area;
+			t=end;
+			segment++;
+		}
+	}
+}
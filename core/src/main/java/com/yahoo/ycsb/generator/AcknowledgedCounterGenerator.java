@@ -0,0 +1,309 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A counter for insert keys that only reports a key as the last value once the insert of that key, and of every key
+ * before it, has been acknowledged. Key choosers that use lastLong() as the upper end of the keyspace therefore never pick a
+ * key that is still being inserted.
+ *
+ * To keep inserting threads from contending on one counter, each thread takes a block of consecutive keys at a time and
+ * hands them out on its own. A thread that stops inserting should call release(), so that the rest of its block goes to
+ * other threads instead of holding back the acknowledged limit. A thread that just inserts rarely loses its block instead:
+ * when the limit waits for a key that was never handed out, and the thread holding it has not taken a key since the limit
+ * last waited for it, the rest of its block goes to the next thread that needs a block.
+ *
+ * Acknowledgements are recorded in a window of slots past the acknowledged limit, which grows when keys are acknowledged
+ * further ahead than it reaches. Whichever thread gets the lock advances the limit over the acknowledged slots; the others
+ * just record their key and carry on.
+ */
+public class AcknowledgedCounterGenerator extends CounterGenerator
+{
+	/**
+	 * The default number of keys a thread takes at a time.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE=16;
+
+	/**
+	 * The initial number of slots of the window.
+	 */
+	static final int DEFAULT_WINDOW_SIZE=1<<16;
+
+	/**
+	 * Consecutive keys handed out by one thread. Other threads may take the rest of the block, so keys are taken from it
+	 * atomically.
+	 */
+	static final class Block
+	{
+		final long start;
+		final long end;
+		final AtomicLong next;
+
+		/**
+		 * Whether the owner took a key since the limit last waited for this block.
+		 */
+		volatile boolean used;
+
+		/**
+		 * Whether the block waits in the released queue, where no thread owns it yet.
+		 */
+		volatile boolean queued;
+
+		Block(long start, long end)
+		{
+			this.start=start;
+			this.end=end;
+			next=new AtomicLong(start);
+		}
+	}
+
+	final int blocksize;
+
+	/**
+	 * The block of the calling thread.
+	 */
+	final ThreadLocal<Block> block=new ThreadLocal<Block>()
+	{
+		@Override
+		protected Block initialValue()
+		{
+			return new Block(0,0);
+		}
+	};
+
+	/**
+	 * The blocks that may still have keys to hand out, by their first key.
+	 */
+	final ConcurrentSkipListMap<Long,Block> blocks=new ConcurrentSkipListMap<Long,Block>();
+
+	/**
+	 * Unused parts of blocks, released by threads that stopped inserting or taken from idle threads.
+	 */
+	final ConcurrentLinkedQueue<Block> released=new ConcurrentLinkedQueue<Block>();
+
+	volatile AtomicIntegerArray window;
+	final ReentrantLock lock=new ReentrantLock();
+	volatile long limit;
+
+	/**
+	 * Create a counter that starts at countstart, handing out DEFAULT_BLOCK_SIZE keys at a time to each thread.
+	 */
+	public AcknowledgedCounterGenerator(long countstart)
+	{
+		this(countstart,DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Create a counter that starts at countstart, handing out blocksize keys at a time to each thread.
+	 */
+	public AcknowledgedCounterGenerator(long countstart, int blocksize)
+	{
+		this(countstart,blocksize,DEFAULT_WINDOW_SIZE);
+	}
+
+	AcknowledgedCounterGenerator(long countstart, int blocksize, int windowsize)
+	{
+		super(countstart);
+		this.blocksize=blocksize;
+		window=new AtomicIntegerArray(windowsize);
+		limit=countstart-1;
+	}
+
+	/**
+	 * Return the next key of the calling thread's block, taking a new block if this one is used up.
+	 */
+	@Override
+	public long nextLong()
+	{
+		Block b=block.get();
+		while (true)
+		{
+			long key=b.next.getAndIncrement();
+			if (key<b.end)
+			{
+				if (!b.used)
+				{
+					b.used=true;
+				}
+				return key;
+			}
+			blocks.remove(b.start,b);
+			b=released.poll();
+			if (b!=null)
+			{
+				b.queued=false;
+			}
+			else
+			{
+				long start=counter.getAndAdd(blocksize);
+				b=new Block(start,start+blocksize);
+				blocks.put(start,b);
+			}
+			block.set(b);
+		}
+	}
+
+	/**
+	 * Give the rest of the calling thread's block to the other threads.
+	 */
+	public void release()
+	{
+		take(block.get());
+	}
+
+	/**
+	 * Take the rest of a block, and queue it for the next thread that needs a block.
+	 */
+	void take(Block b)
+	{
+		long from=b.next.getAndSet(b.end);
+		if (from<b.end)
+		{
+			Block rest=new Block(from,b.end);
+			rest.queued=true;
+			blocks.put(from,rest);
+			released.add(rest);
+		}
+		blocks.remove(b.start,b);
+	}
+
+	/**
+	 * Record that the insert of a key returned by nextLong() has completed, whether it succeeded or not.
+	 */
+	public void acknowledge(long value)
+	{
+		AtomicIntegerArray w=window;
+		if (value-limit>w.length())
+		{
+			w=grow(value);
+		}
+		w.set((int)(value&(w.length()-1)),1);
+		//a window that grew since it was read may have copied its slots before this one was set
+		for (AtomicIntegerArray current=window; current!=w; current=window)
+		{
+			w=current;
+			w.set((int)(value&(w.length()-1)),1);
+		}
+
+		//a key acknowledged while another thread holds the lock is picked up by that thread's second look
+		do
+		{
+			if (!lock.tryLock())
+			{
+				return;
+			}
+			try
+			{
+				advance();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			w=window;
+		}
+		while (w.get((int)((limit+1)&(w.length()-1)))==1);
+	}
+
+	/**
+	 * Move the limit over the acknowledged keys past it. If it then waits for a key that was never handed out, take the
+	 * rest of the key's block, unless its owner took a key since the limit last waited for it. Called with the lock held.
+	 */
+	void advance()
+	{
+		AtomicIntegerArray w=window;
+		int mask=w.length()-1;
+		long next=limit+1;
+		while (w.get((int)(next&mask))==1)
+		{
+			w.set((int)(next&mask),0);
+			next++;
+		}
+		limit=next-1;
+
+		Map.Entry<Long,Block> e=blocks.floorEntry(next);
+		if (e!=null)
+		{
+			Block b=e.getValue();
+			if (!b.queued && b.next.get()==next)
+			{
+				if (b.used)
+				{
+					b.used=false;
+				}
+				else
+				{
+					take(b);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Double the window until it reaches the key, and return it.
+	 */
+	AtomicIntegerArray grow(long value)
+	{
+		lock.lock();
+		try
+		{
+			AtomicIntegerArray old=window;
+			int size=old.length();
+			while (value-limit>size)
+			{
+				size<<=1;
+			}
+			if (size==old.length())
+			{
+				return old;
+			}
+			//publish the new window first, so that keys set in the old one after the copy are also set in the new one
+			AtomicIntegerArray w=new AtomicIntegerArray(size);
+			window=w;
+			for (long key=limit+1; key<=limit+old.length(); key++)
+			{
+				if (old.get((int)(key&(old.length()-1)))==1)
+				{
+					w.set((int)(key&(size-1)),1);
+				}
+			}
+			return w;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the largest key such that it and every key before it have been acknowledged.
+	 */
+	@Override
+	public long lastLong()
+	{
+		return limit;
+	}
+}
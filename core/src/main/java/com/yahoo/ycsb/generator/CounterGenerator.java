@@ -17,39 +17,41 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generates a sequence of integers 0, 1, ...
  */
 public class CounterGenerator extends IntegerGenerator
 {
-	final AtomicInteger counter;
+	final AtomicLong counter;
 
 	/**
 	 * Create a counter that starts at countstart
 	 */
-	public CounterGenerator(int countstart)
+	public CounterGenerator(long countstart)
 	{
-		counter=new AtomicInteger(countstart);
-		setLastInt(counter.get()-1);
+		counter=new AtomicLong(countstart);
 	}
 	
 	/**
-	 * If the generator returns numeric (integer) values, return the next value as an int. Default is to return -1, which
-	 * is appropriate for generators that do not return numeric values.
+	 * Return the next value of the counter.
 	 */
-	public int nextInt() 
+	@Override
+	public long nextLong()
 	{
-		int ret = counter.getAndIncrement();
-		setLastInt(ret);
-		return ret;
+		return counter.getAndIncrement();
 	}
+
+	/**
+	 * Return the last value handed out.
+	 */
 	@Override
-	public int lastInt()
+	public long lastLong()
 	{
-	                return counter.get() - 1;
+		return counter.get() - 1;
 	}
+
 	@Override
 	public double mean() {
 		throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
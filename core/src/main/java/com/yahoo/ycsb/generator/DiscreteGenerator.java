@@ -18,13 +18,17 @@
 package com.yahoo.ycsb.generator;
 
 import java.util.Vector;
-import java.util.Random;
 
 import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ * 
+ * Values are drawn with Walker's alias method (in Vose's formulation): adding a value builds a table with,
+ * for each value, the probability of keeping it and an alias to return otherwise, so drawing a value takes
+ * one random number and one table lookup however many values there are. Values are meant to be added before
+ * the generator is shared with other threads.
  */
 public class DiscreteGenerator extends Generator
 {
@@ -40,8 +44,85 @@ public class DiscreteGenerator extends Generator
 		}
 	}
 
+	/**
+	 * The alias table for the values added so far.
+	 */
+	static class AliasTable
+	{
+		final double[] _keep;
+		final int[] _alias;
+		final String[] _values;
+
+		AliasTable(Vector<Pair> pairs)
+		{
+			int n=pairs.size();
+			_keep=new double[n];
+			_alias=new int[n];
+			_values=new String[n];
+
+			double sum=0;
+			for (int i=0; i<n; i++)
+			{
+				sum+=pairs.get(i)._weight;
+				_values[i]=pairs.get(i)._value;
+			}
+
+			//scale the probabilities so that they average 1, then split them into those below and above the average
+			double[] scaled=new double[n];
+			int[] small=new int[n];
+			int[] large=new int[n];
+			int nsmall=0;
+			int nlarge=0;
+			for (int i=0; i<n; i++)
+			{
+				scaled[i]=pairs.get(i)._weight*n/sum;
+				if (scaled[i]<1)
+				{
+					small[nsmall++]=i;
+				}
+				else
+				{
+					large[nlarge++]=i;
+				}
+			}
+
+			//fill each small value's column up to 1 with part of a large value, which may then become small itself
+			while ( (nsmall>0) && (nlarge>0) )
+			{
+				int s=small[--nsmall];
+				int l=large[--nlarge];
+				_keep[s]=scaled[s];
+				_alias[s]=l;
+				scaled[l]=(scaled[l]+scaled[s])-1;
+				if (scaled[l]<1)
+				{
+					small[nsmall++]=l;
+				}
+				else
+				{
+					large[nlarge++]=l;
+				}
+			}
+
+			//whatever is left is 1, up to rounding errors
+			while (nlarge>0)
+			{
+				int l=large[--nlarge];
+				_keep[l]=1;
+				_alias[l]=l;
+			}
+			while (nsmall>0)
+			{
+				int s=small[--nsmall];
+				_keep[s]=1;
+				_alias[s]=s;
+			}
+		}
+	}
+
 	Vector<Pair> _values;
 	String _lastvalue;
+	volatile AliasTable _table;
 
 	public DiscreteGenerator()
 	{
@@ -49,36 +130,39 @@ public class DiscreteGenerator extends Generator
 		_lastvalue=null;
 	}
 
-	/**
-	 * Generate the next string in the distribution.
-	 */
-	public String nextString()
+	AliasTable table()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
-		{
-			sum+=p._weight;
-		}
-
-		double val=Utils.random().nextDouble();
-
-		for (Pair p : _values)
+		AliasTable table=_table;
+		if (table==null)
 		{
-			if (val<p._weight/sum)
-			{
-				return p._value;
-			}
-
-			val-=p._weight/sum;
+			throw new IllegalStateException("DiscreteGenerator has no values with a positive weight");
 		}
+		return table;
+	}
 
-		//should never get here.
-		System.out.println("oops. should not get here.");
+	static int nextIndex(AliasTable table)
+	{
+		int n=table._keep.length;
+		double u=Utils.random().nextDouble()*n;
+		int i=Math.min((int)u,n-1);
+		return (u-i)<table._keep[i] ? i : table._alias[i];
+	}
 
-		System.exit(0);
+	/**
+	 * Generate the index of the next value in the distribution, in the order the values were added.
+	 */
+	public int nextIndex()
+	{
+		return nextIndex(table());
+	}
 
-		return null;
+	/**
+	 * Generate the next string in the distribution.
+	 */
+	public String nextString()
+	{
+		AliasTable table=table();
+		return table._values[nextIndex(table)];
 	}
 
 	/**
@@ -109,6 +193,13 @@ public class DiscreteGenerator extends Generator
 	public void addValue(double weight, String value)
 	{
 		_values.add(new Pair(weight,value));
+
+		double sum=0;
+		for (Pair p : _values)
+		{
+			sum+=p._weight;
+		}
+		_table=sum>0 ? new AliasTable(_values) : null;
 	}
 
 }
@@ -65,24 +65,14 @@ public class ExponentialGenerator extends IntegerGenerator
 	/** 
 	 * Generate the next item. this distribution will be skewed toward lower integers; e.g. 0 will
 	 * be the most popular, 1 the next most popular, etc.
-	 * @param itemcount The number of items in the distribution.
-	 * @return The next item in the sequence.
-	 */
-	@Override
-	public int nextInt()
-	{
-		return (int)nextLong();
-	}
-
-	/**
-	 * Generate the next item as a long.
-	 * 
-	 * @param itemcount The number of items in the distribution.
 	 * @return The next item in the sequence.
 	 */
 	public long nextLong()
 	{
-		return (long) (-Math.log(Utils.random().nextDouble()) / _gamma);
+		//1-nextDouble() is in (0,1], so the log is finite
+		long ret=(long) (-Math.log(1.0-Utils.random().nextDouble()) / _gamma);
+		setLastInt(ret);
+		return ret;
 	}
 
 	@Override
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * A zipfian key chooser for a keyspace that grows while the benchmark runs. Each draw picks a zipfian popularity rank
+ * over the keys that exist right now (as reported by the basis counter), so it never returns a key that hasn't been
+ * inserted yet and never needs to redraw.
+ *
+ * Rank r always maps to the same key, whatever the current keyspace size, so inserting records never changes which of the
+ * existing keys are popular. The first scrambledcount ranks (the records that were loaded before the run) are scattered
+ * across those records with a fixed permutation, in the same spirit as @ScrambledZipfianGenerator; records inserted
+ * during the run join at the tail of the distribution in insertion order.
+ *
+ * The zeta constant is extended incrementally as the keyspace grows (see @ZipfianGenerator), which is cheap since it
+ * grows by a few keys at a time.
+ */
+public class GrowingScrambledZipfianGenerator extends IntegerGenerator
+{
+	/**
+	 * Where consecutive ranks land, as a fraction of the scrambled keyspace. Stepping by the golden ratio spreads the
+	 * hottest keys evenly over the keyspace instead of clustering them.
+	 */
+	static final double STRIDE_FRACTION=0.6180339887498949;
+
+	CounterGenerator _basis;
+	ZipfianGenerator _zipfian;
+	long _scrambledcount;
+	long _stride;
+
+	/**
+	 * Create a generator over the keys up to basis.lastLong(), scattering the popularity of the first scrambledcount of them.
+	 * @param basis The counter that hands out new keys.
+	 * @param scrambledcount The number of keys whose popularity is scattered, usually the number of records loaded.
+	 */
+	public GrowingScrambledZipfianGenerator(CounterGenerator basis, long scrambledcount)
+	{
+		this(basis,scrambledcount,ZipfianGenerator.ZIPFIAN_CONSTANT);
+	}
+
+	/**
+	 * Create a generator over the keys up to basis.lastLong(), scattering the popularity of the first scrambledcount of them.
+	 * @param basis The counter that hands out new keys.
+	 * @param scrambledcount The number of keys whose popularity is scattered, usually the number of records loaded.
+	 * @param zipfianconstant The zipfian constant to use.
+	 */
+	public GrowingScrambledZipfianGenerator(CounterGenerator basis, long scrambledcount, double zipfianconstant)
+	{
+		_basis=basis;
+		_scrambledcount=scrambledcount;
+		_stride=stride(scrambledcount);
+		_zipfian=new ZipfianGenerator(0,Math.max(basis.lastLong(),0),zipfianconstant);
+	}
+
+	/**
+	 * Pick the step of the rank to key permutation: close to STRIDE_FRACTION of n and coprime with n, so that
+	 * rank*stride mod n visits every key below n exactly once.
+	 */
+	static long stride(long n)
+	{
+		if (n<=2)
+		{
+			return 1;
+		}
+		long stride=Math.max((long)(n*STRIDE_FRACTION),1);
+		while (gcd(stride,n)!=1)
+		{
+			stride++;
+		}
+		return stride;
+	}
+
+	static long gcd(long a, long b)
+	{
+		while (b!=0)
+		{
+			long t=a%b;
+			a=b;
+			b=t;
+		}
+		return a;
+	}
+
+	/**
+	 * Compute (a*b) mod m without overflowing, for 0 <= a,b < m.
+	 */
+	static long mulmod(long a, long b, long m)
+	{
+		if (a<=Integer.MAX_VALUE && b<=Integer.MAX_VALUE)
+		{
+			return (a*b)%m;
+		}
+		long ret=0;
+		while (b>0)
+		{
+			if ((b&1)!=0)
+			{
+				ret=ret>=m-a ? ret-(m-a) : ret+a;
+			}
+			a=a>=m-a ? a-(m-a) : a+a;
+			b>>=1;
+		}
+		return ret;
+	}
+
+	/**
+	 * Map a popularity rank to a key number. The mapping doesn't depend on how many keys exist.
+	 */
+	long keyForRank(long rank)
+	{
+		if (rank>=_scrambledcount)
+		{
+			return rank;
+		}
+		return mulmod(rank,_stride,_scrambledcount);
+	}
+
+	/**
+	 * Return the next key number, drawn from the keys that exist now.
+	 */
+	@Override
+	public long nextLong()
+	{
+		long itemcount=_basis.lastLong()+1;
+		long ret=keyForRank(_zipfian.nextLong(Math.max(itemcount,1)));
+		setLastInt(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean() {
+		throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
+	}
+}
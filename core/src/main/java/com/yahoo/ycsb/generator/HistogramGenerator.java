@@ -86,25 +86,25 @@ public class HistogramGenerator extends IntegerGenerator {
 	private void init() {
 		for(int i = 0; i < buckets.length; i++) {
 			area += buckets[i];
-			weighted_area = i * buckets[i];
+			weighted_area += (i+1) * buckets[i];
 		}
 		// calculate average file size
 		mean_size = ((double)block_size) * ((double)weighted_area) / (double)(area);
 	}
 
 	@Override
-	public int nextInt() {
-		int number = Utils.random().nextInt((int)area);
+	public long nextLong() {
+		long number = Utils.random(Utils.random(), area);
 		int i;
 		
 		for(i = 0; i < (buckets.length - 1); i++){
 			number -= buckets[i];
 			if(number <= 0){
-				return (int)((i+1)*block_size);
+				return (i+1)*block_size;
 			}
 		}
 		
-		return (int)(i * block_size);
+		return (i+1) * block_size;
 	}
 
 	@Override
@@ -18,35 +18,44 @@
 package com.yahoo.ycsb.generator;
 
 /**
- * A generator that is capable of generating ints as well as strings
+ * A generator that is capable of generating ints as well as strings. Values are longs, so that they can address keyspaces
+ * of more than 2^31 items; nextInt() and lastInt() are narrowing conveniences for generators known to stay in int range.
  * 
  * @author cooperb
  *
  */
 public abstract class IntegerGenerator extends Generator 
 {
-	int lastint;
+	long lastint;
 	
 	/**
 	 * Set the last value generated. IntegerGenerator subclasses must use this call
 	 * to properly set the last string value, or the lastString() and lastInt() calls won't work.
 	 */
-	protected void setLastInt(int last)
+	protected void setLastInt(long last)
 	{
 		lastint=last;
 	}
 	
 	/**
-	 * Return the next value as an int. When overriding this method, be sure to call setLastString() properly, or the lastString() call won't work.
+	 * Return the next value as a long. When overriding this method, be sure to call setLastInt() properly, or the lastString() call won't work.
 	 */
-	public abstract int nextInt();
+	public abstract long nextLong();
+
+	/**
+	 * Return the next value as an int.
+	 */
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
 	
 	/**
 	 * Generate the next string in the distribution.
 	 */
 	public String nextString()
 	{
-		return ""+nextInt();
+		return ""+nextLong();
 	}
 	
 	/**
@@ -57,7 +66,7 @@ public abstract class IntegerGenerator extends Generator
 	@Override
 	public String lastString()
 	{
-		return ""+lastInt();
+		return ""+lastLong();
 	}
 	
 	/**
@@ -65,6 +74,14 @@ public abstract class IntegerGenerator extends Generator
 	 * IntegerGenerator subclasses always return ints for nextInt() (e.g. not arbitrary strings).
 	 */
 	public int lastInt()
+	{
+		return (int)lastLong();
+	}
+
+	/**
+	 * Return the previous value generated by the distribution, as a long.
+	 */
+	public long lastLong()
 	{
 		return lastint;
 	}
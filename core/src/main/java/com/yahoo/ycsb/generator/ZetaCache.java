@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.generator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A cache of zeta constants for large zipfian distributions, kept in a file so that it survives across runs. Zeta is a sum
+ * over every item, so for a billion items it takes a long time to compute from scratch. Each value computed is appended to
+ * the file with its item count and zipfian constant; later requests for the same (n, theta) read it back, and requests for
+ * a different n start from the closest cached value and add or subtract the terms in between.
+ *
+ * The cache is off until a directory is set with setDirectory(). Item counts below CACHED_ZETA_TERMS are always computed
+ * directly, since that is as quick as reading the file.
+ */
+public class ZetaCache
+{
+	/**
+	 * Zeta for fewer items than this is never cached.
+	 */
+	public static final long CACHED_ZETA_TERMS=1<<24;
+
+	/**
+	 * The name of the cache file in the cache directory.
+	 */
+	public static final String CACHE_FILE="zeta.cache";
+
+	static File directory;
+
+	/**
+	 * Set the directory to keep the cache file in, or null to turn the cache off.
+	 */
+	public static synchronized void setDirectory(File dir)
+	{
+		directory=dir;
+	}
+
+	/**
+	 * Return zeta for n items and zipfian constant theta, from the cache if possible.
+	 * @param n The number of items to compute zeta over.
+	 * @param theta The zipfian constant.
+	 */
+	public static synchronized double zeta(long n, double theta)
+	{
+		if (directory==null || n<CACHED_ZETA_TERMS)
+		{
+			return ZipfianGenerator.zetastatic(n,theta);
+		}
+		return zeta(new File(directory,CACHE_FILE),n,theta);
+	}
+
+	/**
+	 * Return zeta for n items and zipfian constant theta, starting from the closest value in the cache file, and
+	 * add the result to the file.
+	 */
+	static double zeta(File file, long n, double theta)
+	{
+		TreeMap<Long,Double> cached=load(file,theta);
+		Double exact=cached.get(n);
+		if (exact!=null)
+		{
+			return exact;
+		}
+
+		Map.Entry<Long,Double> below=cached.lowerEntry(n);
+		Map.Entry<Long,Double> above=cached.higherEntry(n);
+		double zetan;
+		if (above!=null && (below==null || above.getKey()-n<n-below.getKey()) && above.getKey()-n<n)
+		{
+			zetan=above.getValue()-ZipfianGenerator.zetastatic(n,above.getKey(),theta,0);
+		}
+		else if (below!=null)
+		{
+			zetan=ZipfianGenerator.zetastatic(below.getKey(),n,theta,below.getValue());
+		}
+		else
+		{
+			zetan=ZipfianGenerator.zetastatic(n,theta);
+		}
+		save(file,n,theta,zetan);
+		return zetan;
+	}
+
+	/**
+	 * Read the cached values for theta, keyed by item count. Lines that can't be parsed are skipped, so a line cut
+	 * short by a crash or a concurrent writer doesn't invalidate the rest of the file.
+	 */
+	static TreeMap<Long,Double> load(File file, double theta)
+	{
+		TreeMap<Long,Double> cached=new TreeMap<Long,Double>();
+		if (!file.exists())
+		{
+			return cached;
+		}
+		BufferedReader in=null;
+		try
+		{
+			in=new BufferedReader(new FileReader(file));
+			String line;
+			while ((line=in.readLine())!=null)
+			{
+				String[] parts=line.trim().split(" ");
+				if (parts.length!=3)
+				{
+					continue;
+				}
+				try
+				{
+					if (Double.parseDouble(parts[0])==theta)
+					{
+						cached.put(Long.parseLong(parts[1]),Double.parseDouble(parts[2]));
+					}
+				}
+				catch (NumberFormatException e)
+				{
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("WARNING: Could not read zeta cache "+file+": "+e);
+		}
+		finally
+		{
+			close(in);
+		}
+		return cached;
+	}
+
+	/**
+	 * Append one value to the cache file, as "theta n zeta" on a line of its own.
+	 */
+	static void save(File file, long n, double theta, double zetan)
+	{
+		FileWriter out=null;
+		try
+		{
+			file.getParentFile().mkdirs();
+			out=new FileWriter(file,true);
+			out.write(theta+" "+n+" "+zetan+"\n");
+		}
+		catch (IOException e)
+		{
+			System.err.println("WARNING: Could not write zeta cache "+file+": "+e);
+		}
+		finally
+		{
+			close(out);
+		}
+	}
+
+	static void close(Closeable c)
+	{
+		if (c!=null)
+		{
+			try
+			{
+				c.close();
+			}
+			catch (IOException e)
+			{
+			}
+		}
+	}
+}
@@ -17,7 +17,15 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.yahoo.ycsb.Utils;
 
@@ -33,16 +41,25 @@ import com.yahoo.ycsb.Utils;
  * 
  * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
  * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
+ * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Large sums are split across all processors, and zeta for large item
+ * counts is kept in a @ZetaCache so that later runs can reuse it. Note that if you increase the number of items in the set, we can compute
  * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
  * zeta from scratch, so this can take a long time. 
  *
+ * Growing the item count never blocks other threads: zeta and eta are kept in an immutable snapshot, the thread that sees a larger item count
+ * extends the snapshot it read and publishes the result with a compare-and-set, and everyone else keeps drawing from whichever snapshot they have.
+ *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
 public class ZipfianGenerator extends IntegerGenerator
 {     
 	public static final double ZIPFIAN_CONSTANT=0.99;
 
+	/**
+	 * Sums over fewer terms than this are computed on the calling thread.
+	 */
+	static final long PARALLEL_ZETA_TERMS=1<<20;
+
 	/**
 	 * Number of items.
 	 */
@@ -61,12 +78,12 @@ public class ZipfianGenerator extends IntegerGenerator
 	/**
 	 * Computed parameters for generating the distribution.
 	 */
-	double alpha,zetan,eta,theta,zeta2theta;
+	double alpha,theta,zeta2theta;
 	
 	/**
-	 * The number of items used to compute zetan the last time.
+	 * The zeta and eta values for the largest item count seen so far.
 	 */
-	long countforzeta;
+	final AtomicReference<ZetaState> zeta;
 	
 	/**
 	 * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
@@ -118,7 +135,7 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	public ZipfianGenerator(long min, long max, double _zipfianconstant)
 	{
-		this(min,max,_zipfianconstant,zetastatic(max-min+1,_zipfianconstant));
+		this(min,max,_zipfianconstant,ZetaCache.zeta(max-min+1,_zipfianconstant));
 	}
 	
 	/**
@@ -138,35 +155,36 @@ public class ZipfianGenerator extends IntegerGenerator
 
 		theta=zipfianconstant;
 
-		zeta2theta=zeta(2,theta);
+		zeta2theta=zetastatic(2,theta);
 
 		
 		alpha=1.0/(1.0-theta);
-		//zetan=zeta(items,theta);
-		zetan=_zetan;
-		countforzeta=items;
-		eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
+		zeta=new AtomicReference<ZetaState>(new ZetaState(items,_zetan));
 		
 		//System.out.println("XXXX 3 XXXX");
-		nextInt();
+		nextLong();
 		//System.out.println("XXXX 4 XXXX");
 	}
 	
 	/**************************************************************************/
 	
 	/**
-	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-	 * 
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
+	 * The values of zeta and eta for one item count. Instances are never modified once they are published.
 	 */
-	double zeta(long n, double theta)
+	final class ZetaState
 	{
-		countforzeta=n;
-		return zetastatic(n,theta);
+		final long count;
+		final double zetan;
+		final double eta;
+
+		ZetaState(long _count, double _zetan)
+		{
+			count=_count;
+			zetan=_zetan;
+			eta=(1-Math.pow(2.0/count,1-theta))/(1-zeta2theta/zetan);
+		}
 	}
-	
+
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
 	 * zipfian constant theta. This is a static version of the function which will not remember n.
@@ -180,43 +198,94 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta.
-	 * 
+	 * has n items now but used to have st items. Use the zipfian constant theta.
 	 * @param st The number of items used to compute the last initialsum
 	 * @param n The number of items to compute zeta over.
 	 * @param theta The zipfian constant.
      * @param initialsum The value of zeta we are computing incrementally from.
 	 */
-	double zeta(long st, long n, double theta, double initialsum)
+	static double zetastatic(long st, long n, double theta, double initialsum)
 	{
-		countforzeta=n;
-		return zetastatic(st,n,theta,initialsum);
+		int threads=Runtime.getRuntime().availableProcessors();
+		if (n-st<PARALLEL_ZETA_TERMS || threads<2)
+		{
+			return initialsum+zetaterms(st,n,theta);
+		}
+		return initialsum+zetaparallel(st,n,theta,threads);
 	}
-	
+
 	/**
-	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta. 
-	 * @param st The number of items used to compute the last initialsum
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-     * @param initialsum The value of zeta we are computing incrementally from.
+	 * Sum the zeta terms for items st+1 to n on the calling thread.
 	 */
-	static double zetastatic(long st, long n, double theta, double initialsum)
+	static double zetaterms(long st, long n, double theta)
 	{
-		double sum=initialsum;
+		//compensated (Kahan) summation: over billions of terms, plain summation loses the small terms at the end
+		double sum=0;
+		double compensation=0;
 		for (long i=st; i<n; i++)
 		{
-
-			sum+=1/(Math.pow(i+1,theta));
+			double y=1/(Math.pow(i+1,theta))-compensation;
+			double t=sum+y;
+			compensation=(t-sum)-y;
+			sum=t;
 		}
-		
-		//System.out.println("countforzeta="+countforzeta);
-		
 		return sum;
 	}
 
+	/**
+	 * Sum the zeta terms for items st+1 to n in chunks, on a pool with one thread per processor. The chunk sums are added in order, so
+	 * the result doesn't depend on how the threads are scheduled.
+	 */
+	static double zetaparallel(final long st, final long n, final double theta, int threads)
+	{
+		ExecutorService pool=Executors.newFixedThreadPool(threads,new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t=new Thread(r,"zeta");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try
+		{
+			long chunks=threads*4L;
+			long chunksize=(n-st+chunks-1)/chunks;
+			List<Future<Double>> sums=new ArrayList<Future<Double>>();
+			for (long from=st; from<n; from+=chunksize)
+			{
+				final long chunkstart=from;
+				final long chunkend=Math.min(from+chunksize,n);
+				sums.add(pool.submit(new Callable<Double>()
+				{
+					public Double call()
+					{
+						return zetaterms(chunkstart,chunkend,theta);
+					}
+				}));
+			}
+			double sum=0;
+			for (Future<Double> f : sums)
+			{
+				sum+=f.get();
+			}
+			return sum;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing zeta",e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Failed to compute zeta",e.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
 	/****************************************************************************************/
 	
 	/** 
@@ -240,64 +309,63 @@ public class ZipfianGenerator extends IntegerGenerator
 	{
 		//from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-		if (itemcount!=countforzeta)
+		ZetaState z=zeta.get();
+		if (itemcount>z.count)
 		{
+			//we have added more items. can compute zetan incrementally, which is cheaper
+			z=grow(z,itemcount);
+		}
+		else if ( (itemcount<z.count) && (allowitemcountdecrease) )
+		{
+			//have to start over with zetan
+			//note : for large itemsets, this is very slow. so don't do it!
 
-			//have to recompute zetan and eta, since they depend on itemcount
-			synchronized(this)
-			{
-				if (itemcount>countforzeta)
-				{
-					//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					//we have added more items. can compute zetan incrementally, which is cheaper
-					zetan=zeta(countforzeta,itemcount,theta,zetan);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-				else if ( (itemcount<countforzeta) && (allowitemcountdecrease) )
-				{
-					//have to start over with zetan
-					//note : for large itemsets, this is very slow. so don't do it!
-
-					//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-					//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-					//decreases
-					
-					System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					zetan=zeta(itemcount,theta);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-			}
+			//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
+			//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
+			//decreases
+			
+			System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+z.count+")");
+			
+			z=new ZetaState(itemcount,ZetaCache.zeta(itemcount,theta));
+			zeta.set(z);
 		}
 
 		double u=Utils.random().nextDouble();
-		double uz=u*zetan;
+		double uz=u*z.zetan;
 
+		long ret;
 		if (uz<1.0)
 		{
-			return 0;
+			ret=base;
 		}
-
-		if (uz<1.0+Math.pow(0.5,theta)) 
+		else if (uz<1.0+Math.pow(0.5,theta)) 
 		{
-			return 1;
+			ret=base+1;
 		}
-
-		long ret=base+(long)((itemcount) * Math.pow(eta*u - eta + 1, alpha));
-		setLastInt((int)ret);
+		else
+		{
+			ret=base+(long)((itemcount) * Math.pow(z.eta*u - z.eta + 1, alpha));
+		}
+		setLastInt(ret);
 		return ret;
 	}
 
 	/**
-	 * Return the next value, skewed by the Zipfian distribution. The 0th item will be the most popular, followed by the 1st, followed
-	 * by the 2nd, etc. (Or, if min != 0, the min-th item is the most popular, the min+1th item the next most popular, etc.) If you want the
-	 * popular items scattered throughout the item space, use ScrambledZipfianGenerator instead.
+	 * Extend zeta from the snapshot z to itemcount items and publish the result, unless another thread has
+	 * already published a snapshot for at least as many items. Either way the returned snapshot is exact for itemcount.
 	 */
-	@Override
-	public int nextInt() 
+	ZetaState grow(ZetaState z, long itemcount)
 	{
-		return (int)nextLong(items);
+		ZetaState next=new ZetaState(itemcount,zetastatic(z.count,itemcount,theta,z.zetan));
+		while (!zeta.compareAndSet(z,next))
+		{
+			z=zeta.get();
+			if (z.count>=itemcount)
+			{
+				break;
+			}
+		}
+		return next;
 	}
 
 	/**
@@ -305,6 +373,7 @@ public class ZipfianGenerator extends IntegerGenerator
 	 * by the 2nd, etc. (Or, if min != 0, the min-th item is the most popular, the min+1th item the next most popular, etc.) If you want the
 	 * popular items scattered throughout the item space, use ScrambledZipfianGenerator instead.
 	 */
+	@Override
 	public long nextLong()
 	{
 		return nextLong(items);
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The binary interval log format, written by the "intervallog" measurement and read by IntervalLogReader.
+ *
+ * An interval log is a 20 byte header followed by one record per measurement per interval, in the order the
+ * intervals ended. The header is the MAGIC number, the format VERSION, and the wall clock time in milliseconds when
+ * the log started, as a long, an int and a long. Each record is:
+ *
+ * <ul>
+ * <li>the name of the measurement, such as READ (modified UTF-8, as written by DataOutputStream.writeUTF)
+ * <li>the start and end of the interval, as wall clock times in milliseconds (two longs)
+ * <li>the length of the encoded histogram (int)
+ * <li>the latencies measured during the interval, in microseconds, as encoded by LogLinearHistogram.encode()
+ * </ul>
+ *
+ * Intervals without any operations are not written. All values are big endian.
+ */
+public class IntervalLog
+{
+	/**
+	 * "YCSBHLG1" in ASCII.
+	 */
+	public static final long MAGIC=0x59435342484C4731L;
+
+	public static final int VERSION=1;
+
+	/**
+	 * Write the header of a log that starts at the given wall clock time.
+	 */
+	public static void writeHeader(DataOutputStream out, long startms) throws IOException
+	{
+		out.writeLong(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(startms);
+	}
+
+	/**
+	 * Write the latencies of one measurement during one interval.
+	 */
+	public static void writeRecord(DataOutputStream out, String name, long startms, long endms, LogLinearHistogram latencies) throws IOException
+	{
+		byte[] encoded=latencies.encode();
+		out.writeUTF(name);
+		out.writeLong(startms);
+		out.writeLong(endms);
+		out.writeInt(encoded.length);
+		out.write(encoded);
+	}
+}
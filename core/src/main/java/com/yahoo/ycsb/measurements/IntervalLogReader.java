@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads an interval log, one record at a time. Not thread safe.
+ *
+ * The fields of the current record are public, and are replaced by the next call to next().
+ */
+public class IntervalLogReader
+{
+	final DataInputStream in;
+
+	/**
+	 * The wall clock time in milliseconds when the log started.
+	 */
+	public final long startms;
+
+	public String name;
+
+	public long intervalstartms;
+
+	public long intervalendms;
+
+	public LogLinearHistogram latencies;
+
+	public IntervalLogReader(File file) throws IOException
+	{
+		in=new DataInputStream(new BufferedInputStream(new FileInputStream(file),1<<16));
+		try
+		{
+			if ( (in.readLong()!=IntervalLog.MAGIC) || (in.readInt()!=IntervalLog.VERSION) )
+			{
+				throw new IOException(file+" is not a version "+IntervalLog.VERSION+" interval log");
+			}
+			startms=in.readLong();
+		}
+		catch (IOException e)
+		{
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the next record.
+	 * 
+	 * @return false at the end of the log.
+	 */
+	public boolean next() throws IOException
+	{
+		try
+		{
+			name=in.readUTF();
+		}
+		catch (EOFException e)
+		{
+			return false;
+		}
+		intervalstartms=in.readLong();
+		intervalendms=in.readLong();
+		byte[] encoded=new byte[in.readInt()];
+		in.readFully(encoded);
+		latencies=LogLinearHistogram.decode(encoded);
+		return true;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
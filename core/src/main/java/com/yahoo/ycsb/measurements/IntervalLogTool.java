@@ -0,0 +1,372 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command line tool for the interval logs written by the "intervallog" measurement.
+ *
+ * Both commands read any number of logs, for example one per client, and line their intervals up by wall clock
+ * time. Times on the command line and in the output are in seconds since the earliest log started. Intervals are
+ * selected and grouped into windows by their start time.
+ *
+ * <ul>
+ * <li>percentiles: the count, average and percentiles of each measurement in each window, as CSV, for charts of
+ * percentiles over time. Without -window, one line per measurement for the whole selection.
+ * <li>merge: write the selected intervals to a new log, adding up those of each measurement in each window.
+ * Without -window, the intervals are copied as they are, so merging one log with -start and -end slices it.
+ * </ul>
+ */
+public class IntervalLogTool
+{
+	static final String DEFAULT_PERCENTILES="50,90,99,99.9";
+
+	/**
+	 * The options common to both commands.
+	 */
+	static class Options
+	{
+		double windows=0;
+		double starts=0;
+		double ends=Double.MAX_VALUE;
+		String name=null;
+		String percentiles=DEFAULT_PERCENTILES;
+		List<File> logs=new ArrayList<File>();
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.measurements.IntervalLogTool command [options] ...");
+		System.out.println("Commands:");
+		System.out.println("  percentiles [options] log... - Print the percentiles of each measurement in each window, as CSV");
+		System.out.println("  merge [options] outputlog log... - Merge the logs, adding up the intervals in each window");
+		System.out.println("Options:");
+		System.out.println("  -window seconds: group the intervals into windows of this length (default: the whole run");
+		System.out.println("                   for percentiles, and the original intervals for merge)");
+		System.out.println("  -start seconds: skip the intervals that start before this time (default: 0)");
+		System.out.println("  -end seconds: skip the intervals that start at or after this time (default: the end)");
+		System.out.println("  -name name: only use this measurement, e.g. READ (default: all of them)");
+		System.out.println("  -percentiles list: the percentiles to print (default: "+DEFAULT_PERCENTILES+")");
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length<2)
+		{
+			usageMessage();
+			System.exit(1);
+		}
+
+		Options options=new Options();
+		int argindex=1;
+		try
+		{
+			while ( (argindex<args.length) && args[argindex].startsWith("-") )
+			{
+				String option=args[argindex++];
+				String value=args[argindex++];
+				if (option.equals("-window"))
+				{
+					options.windows=Double.parseDouble(value);
+				}
+				else if (option.equals("-start"))
+				{
+					options.starts=Double.parseDouble(value);
+				}
+				else if (option.equals("-end"))
+				{
+					options.ends=Double.parseDouble(value);
+				}
+				else if (option.equals("-name"))
+				{
+					options.name=value;
+				}
+				else if (option.equals("-percentiles"))
+				{
+					options.percentiles=value;
+				}
+				else
+				{
+					usageMessage();
+					System.exit(1);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			usageMessage();
+			System.exit(1);
+		}
+
+		try
+		{
+			if (args[0].equals("percentiles") && argindex<args.length)
+			{
+				for (int i=argindex; i<args.length; i++)
+				{
+					options.logs.add(new File(args[i]));
+				}
+				percentiles(options,System.out);
+			}
+			else if (args[0].equals("merge") && argindex+1<args.length)
+			{
+				File output=new File(args[argindex]);
+				for (int i=argindex+1; i<args.length; i++)
+				{
+					options.logs.add(new File(args[i]));
+				}
+				merge(options,output);
+			}
+			else
+			{
+				usageMessage();
+				System.exit(1);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Receives the histograms of each window, in time order.
+	 */
+	interface WindowHandler
+	{
+		/**
+		 * @param startms The wall clock start of the window, or of the interval if intervals are passed through.
+		 * @param endms The wall clock end of the window, or of the interval if intervals are passed through.
+		 * @param latencies The latencies of each measurement during the window.
+		 */
+		void window(long startms, long endms, Map<String,LogLinearHistogram> latencies) throws IOException;
+	}
+
+	/**
+	 * @return The wall clock time that times on the command line and in the output are relative to: the start of
+	 * the earliest log.
+	 */
+	static long start(List<File> logs) throws IOException
+	{
+		long startms=Long.MAX_VALUE;
+		for (File log : logs)
+		{
+			IntervalLogReader reader=new IntervalLogReader(log);
+			startms=Math.min(startms,reader.startms);
+			reader.close();
+		}
+		return startms;
+	}
+
+	/**
+	 * Read the logs in step, by interval start time, and hand the selected intervals to the handler. Only one window
+	 * is held in memory at a time.
+	 * 
+	 * @param basems The start of the earliest log.
+	 * @param passthrough Without -window, hand each interval over on its own rather than adding them all up.
+	 */
+	static void scan(Options options, long basems, boolean passthrough, WindowHandler handler) throws IOException
+	{
+		long windowms=(long)(options.windows*1000);
+		if ( (options.windows>0) && (windowms==0) )
+		{
+			throw new IOException("The window must be at least a millisecond");
+		}
+		long startms=basems+(long)(options.starts*1000);
+		long endms=options.ends==Double.MAX_VALUE ? Long.MAX_VALUE : basems+(long)(options.ends*1000);
+
+		List<IntervalLogReader> pending=new ArrayList<IntervalLogReader>();
+		try
+		{
+			for (File log : options.logs)
+			{
+				IntervalLogReader reader=new IntervalLogReader(log);
+				if (reader.next())
+				{
+					pending.add(reader);
+				}
+				else
+				{
+					reader.close();
+				}
+			}
+
+			long window=-1;
+			long windowstartms=Long.MAX_VALUE;
+			long windowendms=Long.MIN_VALUE;
+			Map<String,LogLinearHistogram> latencies=new TreeMap<String,LogLinearHistogram>();
+
+			while (!pending.isEmpty())
+			{
+				IntervalLogReader earliest=pending.get(0);
+				for (IntervalLogReader reader : pending)
+				{
+					if (reader.intervalstartms<earliest.intervalstartms)
+					{
+						earliest=reader;
+					}
+				}
+
+				if ( (earliest.intervalstartms>=startms) && (earliest.intervalstartms<endms) && ( (options.name==null) || options.name.equals(earliest.name) ) )
+				{
+					if (windowms>0)
+					{
+						long w=(earliest.intervalstartms-basems)/windowms;
+						if ( (w!=window) && !latencies.isEmpty() )
+						{
+							handler.window(windowstartms,windowendms,latencies);
+							latencies=new TreeMap<String,LogLinearHistogram>();
+						}
+						window=w;
+						windowstartms=basems+w*windowms;
+						windowendms=windowstartms+windowms;
+						add(latencies,earliest);
+					}
+					else if (passthrough)
+					{
+						Map<String,LogLinearHistogram> interval=new TreeMap<String,LogLinearHistogram>();
+						interval.put(earliest.name,earliest.latencies);
+						handler.window(earliest.intervalstartms,earliest.intervalendms,interval);
+					}
+					else
+					{
+						windowstartms=Math.min(windowstartms,earliest.intervalstartms);
+						windowendms=Math.max(windowendms,earliest.intervalendms);
+						add(latencies,earliest);
+					}
+				}
+
+				if (!earliest.next())
+				{
+					pending.remove(earliest);
+					earliest.close();
+				}
+			}
+			if (!latencies.isEmpty())
+			{
+				handler.window(windowstartms,windowendms,latencies);
+			}
+		}
+		finally
+		{
+			for (IntervalLogReader reader : pending)
+			{
+				reader.close();
+			}
+		}
+	}
+
+	static void add(Map<String,LogLinearHistogram> latencies, IntervalLogReader reader) throws IOException
+	{
+		LogLinearHistogram total=latencies.get(reader.name);
+		if (total==null)
+		{
+			latencies.put(reader.name,reader.latencies);
+			return;
+		}
+		try
+		{
+			total.add(reader.latencies);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Cannot add up the "+reader.name+" intervals: "+e.getMessage());
+		}
+	}
+
+	/**
+	 * Print a CSV line per measurement per window.
+	 */
+	static void percentiles(Options options, final PrintStream out) throws IOException
+	{
+		final String[] percentiles=options.percentiles.split(",");
+		StringBuilder header=new StringBuilder("start(s),end(s),measurement,operations,average(us)");
+		for (String p : percentiles)
+		{
+			header.append(",p").append(p.trim()).append("(us)");
+		}
+		header.append(",max(us)");
+		out.println(header);
+
+		final long basems=start(options.logs);
+		scan(options,basems,false,new WindowHandler()
+		{
+			public void window(long startms, long endms, Map<String,LogLinearHistogram> latencies)
+			{
+				for (Map.Entry<String,LogLinearHistogram> e : latencies.entrySet())
+				{
+					LogLinearHistogram h=e.getValue();
+					StringBuilder line=new StringBuilder();
+					line.append(seconds(startms-basems)).append(",").append(seconds(endms-basems));
+					line.append(",").append(e.getKey()).append(",").append(h.getTotalCount());
+					line.append(",").append(String.format("%.2f",h.getMean()));
+					for (String p : percentiles)
+					{
+						line.append(",").append(h.getValueAtPercentile(Double.parseDouble(p.trim())));
+					}
+					line.append(",").append(h.getMax());
+					out.println(line);
+				}
+			}
+		});
+	}
+
+	static String seconds(long ms)
+	{
+		return String.format("%.3f",ms/1000.0);
+	}
+
+	/**
+	 * Write the selected intervals, added up by window, to a new log.
+	 */
+	static void merge(Options options, File output) throws IOException
+	{
+		long basems=start(options.logs);
+		final DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output),1<<16));
+		try
+		{
+			IntervalLog.writeHeader(out,basems);
+			scan(options,basems,true,new WindowHandler()
+			{
+				public void window(long startms, long endms, Map<String,LogLinearHistogram> latencies) throws IOException
+				{
+					for (Map.Entry<String,LogLinearHistogram> e : latencies.entrySet())
+					{
+						IntervalLog.writeRecord(out,e.getKey(),startms,endms,e.getValue());
+					}
+				}
+			});
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Writes the latencies of every "intervallog" measurement to an interval log at the end of every interval.
+ *
+ * Each interval's histogram is the measurement's merged histogram minus the one from the end of the previous
+ * interval, so the recording threads are never stopped or reset, and memory stays constant however long the run.
+ */
+class IntervalLogWriter
+{
+	static class Entry
+	{
+		final OneMeasurementHdrHistogram measurement;
+
+		/**
+		 * The measurement's histogram at the end of the last interval, or null before then.
+		 */
+		LogLinearHistogram last;
+
+		Entry(OneMeasurementHdrHistogram measurement)
+		{
+			this.measurement=measurement;
+		}
+	}
+
+	final DataOutputStream _out;
+	final long _intervalms;
+	final List<Entry> _entries=new CopyOnWriteArrayList<Entry>();
+	final Thread _thread;
+
+	//guarded by this
+	long _intervalstartms;
+	boolean _closed;
+
+	IntervalLogWriter(String file, long intervalms) throws IOException
+	{
+		_out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1<<16));
+		_intervalms=intervalms;
+		_intervalstartms=System.currentTimeMillis();
+		IntervalLog.writeHeader(_out,_intervalstartms);
+
+		_thread=new Thread("interval log writer")
+		{
+			public void run()
+			{
+				writeIntervals();
+			}
+		};
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	void add(OneMeasurementHdrHistogram measurement)
+	{
+		_entries.add(new Entry(measurement));
+	}
+
+	/**
+	 * Write an interval every intervalms, keeping to the schedule rather than drifting by the time it takes to write.
+	 */
+	void writeIntervals()
+	{
+		long start=System.currentTimeMillis();
+		for (long interval=1; ; interval++)
+		{
+			long sleepms=start+interval*_intervalms-System.currentTimeMillis();
+			if (sleepms>0)
+			{
+				try
+				{
+					Thread.sleep(sleepms);
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+			}
+			try
+			{
+				if (!writeInterval())
+				{
+					return;
+				}
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not write the interval log, giving up on it: "+e);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Write the latencies of every measurement since the last interval.
+	 * 
+	 * @return false if the log is closed.
+	 */
+	synchronized boolean writeInterval() throws IOException
+	{
+		if (_closed)
+		{
+			return false;
+		}
+		long endms=System.currentTimeMillis();
+		for (Entry e : _entries)
+		{
+			LogLinearHistogram total=e.measurement.histogram();
+			LogLinearHistogram interval=total.copyLayout();
+			interval.add(total);
+			if (e.last!=null)
+			{
+				interval.subtract(e.last);
+			}
+			e.last=total;
+			if (interval.getTotalCount()>0)
+			{
+				IntervalLog.writeRecord(_out,e.measurement.getName(),_intervalstartms,endms,interval);
+			}
+		}
+		_out.flush();
+		_intervalstartms=endms;
+		return true;
+	}
+
+	/**
+	 * Write the last, partial interval and close the log.
+	 */
+	void close() throws IOException
+	{
+		_thread.interrupt();
+		try
+		{
+			writeInterval();
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				if (!_closed)
+				{
+					_closed=true;
+					_out.close();
+				}
+			}
+		}
+	}
+}
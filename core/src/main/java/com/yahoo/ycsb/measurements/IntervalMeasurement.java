@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Map;
+
+/**
+ * What one measurement, such as READ, recorded during one status interval.
+ */
+public class IntervalMeasurement
+{
+	public final String name;
+
+	/**
+	 * Operations measured during the interval.
+	 */
+	public final long operations;
+
+	/**
+	 * Operations measured since the start of the run.
+	 */
+	public final long totaloperations;
+
+	/**
+	 * The average latency during the interval, in microseconds, or 0 if there were no operations.
+	 */
+	public final double averagelatency;
+
+	/**
+	 * The latencies measured during the interval, or null if they are not kept.
+	 */
+	public final LogLinearHistogram latencies;
+
+	/**
+	 * The number of times each return code was seen since the start of the run.
+	 */
+	public final Map<Integer,Long> returncodes;
+
+	public IntervalMeasurement(String name, long operations, long totaloperations, double averagelatency, LogLinearHistogram latencies, Map<Integer,Long> returncodes)
+	{
+		this.name=name;
+		this.operations=operations;
+		this.totaloperations=totaloperations;
+		this.averagelatency=averagelatency;
+		this.latencies=latencies;
+		this.returncodes=returncodes;
+	}
+
+	/**
+	 * The latency at a percentile of the interval, in microseconds, or -1 if latencies are not kept.
+	 * 
+	 * @param percentile The percentile, between 0 and 100.
+	 */
+	public long percentile(double percentile)
+	{
+		return latencies==null ? -1 : latencies.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * The number of operations since the start of the run that returned a non-zero code.
+	 */
+	public long errors()
+	{
+		long ret=0;
+		for (Map.Entry<Integer,Long> e : returncodes.entrySet())
+		{
+			if (e.getKey()!=0)
+			{
+				ret+=e.getValue();
+			}
+		}
+		return ret;
+	}
+}
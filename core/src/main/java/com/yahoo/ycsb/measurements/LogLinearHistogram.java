@@ -0,0 +1,458 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A histogram of non-negative values with log-linear buckets, in the style of Gil Tene's
+ * HdrHistogram. Values are kept to a fixed number of significant decimal digits over the whole
+ * range from 1 up to the highest trackable value, so memory use is constant and independent of
+ * the number of values recorded.
+ * 
+ * The range is split into buckets that each cover twice the range of the previous one; each bucket
+ * is split into the same number of linear sub-buckets. For example, with 3 significant digits a
+ * latency of 150us is recorded exactly, and a latency of 1,500,000us is recorded to within 1ms.
+ * 
+ * One thread may record into a histogram while others read it (e.g. to merge it into a total);
+ * readers see a recent, if not perfectly up to date, set of counts. Recording from more than one
+ * thread at a time is not supported; give each thread its own histogram and add() them together.
+ */
+public class LogLinearHistogram
+{
+	final long highesttrackablevalue;
+	final int significantdigits;
+
+	final int subbucketcountmagnitude;
+	final int subbuckethalfcountmagnitude;
+	final int subbucketcount;
+	final int subbuckethalfcount;
+	final long subbucketmask;
+	final int bucketcount;
+
+	static final int TOTALCOUNT=0;
+	static final int TOTALVALUE=1;
+	static final int MIN=2;
+	static final int MAX=3;
+
+	final AtomicLongArray counts;
+	final AtomicLongArray stats;
+
+	/**
+	 * @param highesttrackablevalue The largest value that can be recorded; larger values are recorded as this value.
+	 * @param significantdigits The number of significant decimal digits to keep for each value (0 to 5).
+	 */
+	public LogLinearHistogram(long highesttrackablevalue, int significantdigits)
+	{
+		if ( (significantdigits<0) || (significantdigits>5) )
+		{
+			throw new IllegalArgumentException("significant digits must be between 0 and 5");
+		}
+		if (highesttrackablevalue<2)
+		{
+			throw new IllegalArgumentException("highest trackable value must be at least 2");
+		}
+		this.highesttrackablevalue=highesttrackablevalue;
+		this.significantdigits=significantdigits;
+
+		long largestsinglevalue=2*(long)Math.pow(10,significantdigits);
+		subbucketcountmagnitude=(int)Math.ceil(Math.log(largestsinglevalue)/Math.log(2));
+		subbuckethalfcountmagnitude=Math.max(subbucketcountmagnitude,1)-1;
+		subbucketcount=1<<subbucketcountmagnitude;
+		subbuckethalfcount=subbucketcount/2;
+		subbucketmask=subbucketcount-1;
+
+		//number of buckets needed for the sub-buckets of the top bucket to reach the highest value
+		long trackable=subbucketcount;
+		int buckets=1;
+		while (trackable<=highesttrackablevalue)
+		{
+			if (trackable>Long.MAX_VALUE/2)
+			{
+				buckets++;
+				break;
+			}
+			trackable<<=1;
+			buckets++;
+		}
+		bucketcount=buckets;
+
+		counts=new AtomicLongArray((bucketcount+1)*subbuckethalfcount);
+		stats=new AtomicLongArray(4);
+		stats.set(MIN,-1);
+		stats.set(MAX,-1);
+	}
+
+	/**
+	 * Create an empty histogram with the same range and precision as this one.
+	 */
+	public LogLinearHistogram copyLayout()
+	{
+		return new LogLinearHistogram(highesttrackablevalue,significantdigits);
+	}
+
+	int bucketIndex(long value)
+	{
+		return (64-subbucketcountmagnitude)-Long.numberOfLeadingZeros(value|subbucketmask);
+	}
+
+	int countsIndex(long value)
+	{
+		int bucket=bucketIndex(value);
+		int subbucket=(int)(value>>>bucket);
+		return ((bucket+1)<<subbuckethalfcountmagnitude)+(subbucket-subbuckethalfcount);
+	}
+
+	/**
+	 * The smallest value that is recorded in the given counts slot.
+	 */
+	long valueFromIndex(int index)
+	{
+		int bucket=(index>>subbuckethalfcountmagnitude)-1;
+		int subbucket=(index&(subbuckethalfcount-1))+subbuckethalfcount;
+		if (bucket<0)
+		{
+			subbucket-=subbuckethalfcount;
+			bucket=0;
+		}
+		return ((long)subbucket)<<bucket;
+	}
+
+	/**
+	 * The largest value that is recorded in the given counts slot.
+	 */
+	long highestEquivalentValue(int index)
+	{
+		int bucket=Math.max((index>>subbuckethalfcountmagnitude)-1,0);
+		return valueFromIndex(index)+(1L<<bucket)-1;
+	}
+
+	/**
+	 * Record one value. Negative values are recorded as zero, and values above the highest
+	 * trackable value as the highest trackable value.
+	 */
+	public void recordValue(long value)
+	{
+		recordValues(value,1);
+	}
+
+	/**
+	 * Record the same value a number of times.
+	 */
+	public void recordValues(long value, long count)
+	{
+		if (value<0)
+		{
+			value=0;
+		}
+		else if (value>highesttrackablevalue)
+		{
+			value=highesttrackablevalue;
+		}
+		int index=countsIndex(value);
+		counts.lazySet(index,counts.get(index)+count);
+		stats.lazySet(TOTALCOUNT,stats.get(TOTALCOUNT)+count);
+		stats.lazySet(TOTALVALUE,stats.get(TOTALVALUE)+value*count);
+		long min=stats.get(MIN);
+		if ( (min<0) || (value<min) )
+		{
+			stats.lazySet(MIN,value);
+		}
+		if (value>stats.get(MAX))
+		{
+			stats.lazySet(MAX,value);
+		}
+	}
+
+	/**
+	 * Add the counts of another histogram with the same range and precision to this one.
+	 */
+	public void add(LogLinearHistogram other)
+	{
+		if ( (other.significantdigits!=significantdigits) || (other.highesttrackablevalue!=highesttrackablevalue) )
+		{
+			throw new IllegalArgumentException("cannot add histograms with different ranges or precision");
+		}
+		for (int i=0; i<counts.length(); i++)
+		{
+			long c=other.counts.get(i);
+			if (c!=0)
+			{
+				counts.lazySet(i,counts.get(i)+c);
+			}
+		}
+		stats.lazySet(TOTALCOUNT,stats.get(TOTALCOUNT)+other.stats.get(TOTALCOUNT));
+		stats.lazySet(TOTALVALUE,stats.get(TOTALVALUE)+other.stats.get(TOTALVALUE));
+		long othermin=other.stats.get(MIN);
+		long min=stats.get(MIN);
+		if ( (othermin>=0) && ((min<0) || (othermin<min)) )
+		{
+			stats.lazySet(MIN,othermin);
+		}
+		if (other.stats.get(MAX)>stats.get(MAX))
+		{
+			stats.lazySet(MAX,other.stats.get(MAX));
+		}
+	}
+
+	/**
+	 * Subtract the counts of an earlier copy of this histogram, leaving only the values recorded since then. The
+	 * minimum and maximum become those of the counts that are left, to within the histogram's precision.
+	 */
+	public void subtract(LogLinearHistogram earlier)
+	{
+		if ( (earlier.significantdigits!=significantdigits) || (earlier.highesttrackablevalue!=highesttrackablevalue) )
+		{
+			throw new IllegalArgumentException("cannot subtract histograms with different ranges or precision");
+		}
+		long min=-1;
+		long max=-1;
+		for (int i=0; i<counts.length(); i++)
+		{
+			long c=counts.get(i)-earlier.counts.get(i);
+			counts.lazySet(i,c);
+			if (c>0)
+			{
+				if (min<0)
+				{
+					min=valueFromIndex(i);
+				}
+				max=highestEquivalentValue(i);
+			}
+		}
+		stats.lazySet(TOTALCOUNT,stats.get(TOTALCOUNT)-earlier.stats.get(TOTALCOUNT));
+		stats.lazySet(TOTALVALUE,stats.get(TOTALVALUE)-earlier.stats.get(TOTALVALUE));
+		stats.lazySet(MIN,min);
+		stats.lazySet(MAX,max);
+	}
+
+	/**
+	 * Encode the histogram compactly, so that it can be written to a log and merged with others later. The layout
+	 * and stats are followed by the counts as zigzag varints, where each run of empty slots is written as one
+	 * negative number, and the whole is deflated.
+	 */
+	public byte[] encode()
+	{
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		DataOutputStream out=new DataOutputStream(new DeflaterOutputStream(bytes));
+		try
+		{
+			out.writeByte(significantdigits);
+			writeVarLong(out,highesttrackablevalue);
+			writeVarLong(out,stats.get(TOTALCOUNT));
+			writeVarLong(out,stats.get(TOTALVALUE));
+			writeVarLong(out,stats.get(MIN));
+			writeVarLong(out,stats.get(MAX));
+
+			int length=counts.length();
+			while ( (length>0) && (counts.get(length-1)==0) )
+			{
+				length--;
+			}
+			writeVarLong(out,length);
+			int zeros=0;
+			for (int i=0; i<length; i++)
+			{
+				long c=counts.get(i);
+				if (c==0)
+				{
+					zeros++;
+					continue;
+				}
+				if (zeros>0)
+				{
+					writeVarLong(out,-zeros);
+					zeros=0;
+				}
+				writeVarLong(out,c);
+			}
+			out.close();
+		}
+		catch (IOException e)
+		{
+			//a ByteArrayOutputStream doesn't throw
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a histogram written by encode().
+	 * 
+	 * @throws IOException If the bytes are not an encoded histogram.
+	 */
+	public static LogLinearHistogram decode(byte[] encoded) throws IOException
+	{
+		DataInputStream in=new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(encoded)));
+		try
+		{
+			int significantdigits=in.readByte();
+			long highesttrackablevalue=readVarLong(in);
+			LogLinearHistogram ret;
+			try
+			{
+				ret=new LogLinearHistogram(highesttrackablevalue,significantdigits);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new IOException("Not an encoded histogram: "+e.getMessage());
+			}
+			ret.stats.set(TOTALCOUNT,readVarLong(in));
+			ret.stats.set(TOTALVALUE,readVarLong(in));
+			ret.stats.set(MIN,readVarLong(in));
+			ret.stats.set(MAX,readVarLong(in));
+
+			long length=readVarLong(in);
+			if ( (length<0) || (length>ret.counts.length()) )
+			{
+				throw new IOException("Not an encoded histogram: "+length+" counts");
+			}
+			int i=0;
+			while (i<length)
+			{
+				long c=readVarLong(in);
+				if (c<0)
+				{
+					i+=(int)-c;
+				}
+				else
+				{
+					ret.counts.set(i++,c);
+				}
+			}
+			return ret;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	static void writeVarLong(DataOutputStream out, long value) throws IOException
+	{
+		long v=(value<<1)^(value>>63);
+		while ((v&~0x7FL)!=0)
+		{
+			out.writeByte((int)((v&0x7F)|0x80));
+			v>>>=7;
+		}
+		out.writeByte((int)v);
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException
+	{
+		long v=0;
+		for (int shift=0; shift<64; shift+=7)
+		{
+			int b=in.readUnsignedByte();
+			v|=(long)(b&0x7F)<<shift;
+			if ((b&0x80)==0)
+			{
+				return (v>>>1)^-(v&1);
+			}
+		}
+		throw new IOException("Varint is too long");
+	}
+
+	/**
+	 * Clear all the counts.
+	 */
+	public void reset()
+	{
+		for (int i=0; i<counts.length(); i++)
+		{
+			counts.lazySet(i,0);
+		}
+		stats.lazySet(TOTALCOUNT,0);
+		stats.lazySet(TOTALVALUE,0);
+		stats.lazySet(MIN,-1);
+		stats.lazySet(MAX,-1);
+	}
+
+	public long getTotalCount()
+	{
+		return stats.get(TOTALCOUNT);
+	}
+
+	/**
+	 * @return the smallest value recorded, or -1 if the histogram is empty.
+	 */
+	public long getMin()
+	{
+		return stats.get(MIN);
+	}
+
+	/**
+	 * @return the largest value recorded, or -1 if the histogram is empty.
+	 */
+	public long getMax()
+	{
+		return stats.get(MAX);
+	}
+
+	public double getMean()
+	{
+		long totalcount=stats.get(TOTALCOUNT);
+		if (totalcount==0)
+		{
+			return 0;
+		}
+		return ((double)stats.get(TOTALVALUE))/((double)totalcount);
+	}
+
+	/**
+	 * Return the value below which the given percentage of the recorded values fall. The result is
+	 * the highest value that is equivalent (within the histogram's precision) to the true percentile.
+	 * 
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The value at the percentile, or 0 if the histogram is empty.
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long total=0;
+		for (int i=0; i<counts.length(); i++)
+		{
+			total+=counts.get(i);
+		}
+		if (total==0)
+		{
+			return 0;
+		}
+		double fraction=Math.min(Math.max(percentile,0.0),100.0)/100.0;
+		long countatpercentile=Math.max((long)Math.ceil(fraction*total),1);
+
+		long max=Math.max(stats.get(MAX),0);
+		long seen=0;
+		for (int i=0; i<counts.length(); i++)
+		{
+			seen+=counts.get(i);
+			if (seen>=countatpercentile)
+			{
+				return Math.min(highestEquivalentValue(i),max);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The part of a measurement that is recorded by a single thread.
+ * 
+ * Only the owning thread ever writes to a shard, so updates are plain read-then-lazySet
+ * sequences rather than locks or CAS loops. Other threads (status reporting, export) may
+ * read a shard at any time and will see a recent, if not perfectly up to date, value.
+ * 
+ * Shared shards are written by several threads, which must hold the shard's lock to do so.
+ */
+class MeasurementShard
+{
+	static final int OPERATIONS=0;
+	static final int TOTALLATENCY=1;
+	static final int MIN=2;
+	static final int MAX=3;
+
+	final AtomicLongArray stats;
+	final Map<Integer,AtomicLong> returncodes;
+
+	/**
+	 * Every latency recorded, for the percentiles of each status interval, or null if they are not kept. Set before
+	 * the shard is published.
+	 */
+	LogLinearHistogram latencies;
+
+	/**
+	 * True if several threads record into this shard; set before the shard is published.
+	 */
+	boolean shared;
+
+	MeasurementShard()
+	{
+		stats=new AtomicLongArray(4);
+		stats.set(MIN,-1);
+		stats.set(MAX,-1);
+		returncodes=new ConcurrentHashMap<Integer,AtomicLong>();
+	}
+
+	/**
+	 * Record one latency. Must only be called by the thread that owns this shard, or with its lock held if it is shared.
+	 */
+	void measure(int latency)
+	{
+		stats.lazySet(OPERATIONS,stats.get(OPERATIONS)+1);
+		stats.lazySet(TOTALLATENCY,stats.get(TOTALLATENCY)+latency);
+		if (latencies!=null)
+		{
+			latencies.recordValue(latency);
+		}
+
+		long min=stats.get(MIN);
+		if ( (min<0) || (latency<min) )
+		{
+			stats.lazySet(MIN,latency);
+		}
+
+		long max=stats.get(MAX);
+		if ( (max<0) || (latency>max) )
+		{
+			stats.lazySet(MAX,latency);
+		}
+	}
+
+	/**
+	 * Record one return code. Must only be called by the thread that owns this shard, or with its lock held if it is shared.
+	 */
+	void reportReturnCode(int code)
+	{
+		Integer Icode=code;
+		AtomicLong count=returncodes.get(Icode);
+		if (count==null)
+		{
+			count=new AtomicLong();
+			returncodes.put(Icode,count);
+		}
+		count.lazySet(count.get()+1);
+	}
+}
@@ -18,14 +18,22 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * Collects latency measurements, and reports them when requested.
  * 
+ * Recording does not take any locks: each OneMeasurement keeps a separate shard per
+ * client thread, and the shards are only merged for the status summary and the export.
+ * (Virtual client threads share a few striped shards, which they lock while recording.)
+ * 
  * @author cooperb
  *
  */
@@ -35,6 +43,22 @@ public class Measurements
 
 	private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
 
+	/**
+	 * Whether to keep a histogram of every measurement's latencies, so that the live metrics can report
+	 * percentiles for each status interval. The client turns this on when it reports live metrics.
+	 */
+	public static final String INTERVAL_PERCENTILES_PROPERTY="status.percentiles";
+
+	public static final String INTERVAL_PERCENTILES_PROPERTY_DEFAULT="false";
+
+	/**
+	 * Whether to export the whole latency histogram of every measurement, encoded, so that the results of several
+	 * clients can be merged with MergeMeasurements. Only exporters that implement HistogramExporter write them.
+	 */
+	public static final String EXPORT_HISTOGRAMS_PROPERTY="exporthistograms";
+
+	public static final String EXPORT_HISTOGRAMS_PROPERTY_DEFAULT="false";
+
 	static Measurements singleton=null;
 	
 	static Properties measurementproperties=null;
@@ -56,60 +80,130 @@ public class Measurements
 		return singleton;
 	}
 
-	HashMap<String,OneMeasurement> data;
-	boolean histogram=true;
+	ConcurrentMap<String,OneMeasurement> data;
+	String measurementtype;
+
+	/**
+	 * The names of the warm-up measurements start with this, e.g. WARMUP-READ.
+	 */
+	public static final String WARMUP_PREFIX="WARMUP-";
+
+	/**
+	 * The measurements taken during the warm-up, kept apart from the steady state ones in data.
+	 */
+	ConcurrentMap<String,OneMeasurement> warmupdata;
+
+	/**
+	 * Whether the run is still warming up, between startWarmup() and endWarmup().
+	 */
+	private volatile boolean _warmingup=false;
+
+	/**
+	 * Returned by getIntendedStartTimeNs() for threads that are not throttled. (System.nanoTime() may be
+	 * negative, so 0 would not do.)
+	 */
+	public static final long NO_INTENDED_START=Long.MIN_VALUE;
+
+	/**
+	 * The time (System.nanoTime()) at which each client thread's current operation was meant to start.
+	 * One entry per thread, so there is nothing to synchronize.
+	 */
+	private final ThreadLocal<long[]> _intendedstartns=new ThreadLocal<long[]>()
+	{
+		protected long[] initialValue()
+		{
+			return new long[] {NO_INTENDED_START};
+		}
+	};
 
 	private Properties _props;
+
+	/**
+	 * Writes the interval log of the "intervallog" measurements, created with the first of them.
+	 */
+	private IntervalLogWriter _intervallog;
 	
       /**
        * Create a new object with the specified properties.
        */
 	public Measurements(Properties props)
 	{
-		data=new HashMap<String,OneMeasurement>();
+		data=new ConcurrentHashMap<String,OneMeasurement>();
+		warmupdata=new ConcurrentHashMap<String,OneMeasurement>();
 		
 		_props=props;
 		
-		if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("histogram")==0)
-		{
-			histogram=true;
-		}
-		else
-		{
-			histogram=false;
-		}
+		measurementtype=_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT);
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
 	{
-		if (histogram)
+		if (measurementtype.compareTo("histogram")==0)
 		{
 			return new OneMeasurementHistogram(name,_props);
 		}
+		else if (measurementtype.compareTo("hdrhistogram")==0)
+		{
+			return new OneMeasurementHdrHistogram(name,_props);
+		}
+		else if (measurementtype.compareTo("intervallog")==0)
+		{
+			OneMeasurementIntervalLog ret=new OneMeasurementIntervalLog(name,_props);
+			intervalLog().add(ret);
+			return ret;
+		}
 		else
 		{
 			return new OneMeasurementTimeSeries(name,_props);
 		}
 	}
 
-      /**
-       * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
-       */
-	public synchronized void measure(String operation, int latency)
+	synchronized IntervalLogWriter intervalLog()
+	{
+		if (_intervallog==null)
+		{
+			String file=_props.getProperty(OneMeasurementIntervalLog.FILE,OneMeasurementIntervalLog.FILE_DEFAULT);
+			long intervalms=Long.parseLong(_props.getProperty(OneMeasurementIntervalLog.INTERVAL,OneMeasurementIntervalLog.INTERVAL_DEFAULT));
+			try
+			{
+				_intervallog=new IntervalLogWriter(file,intervalms);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalArgumentException("Could not create the interval log "+file+": "+e.getMessage(),e);
+			}
+		}
+		return _intervallog;
+	}
+
+	/**
+	 * Return the measurement for the given operation, creating it the first time it is seen.
+	 */
+	OneMeasurement getOneMeasurement(String operation)
 	{
-		if (!data.containsKey(operation))
+		boolean warmingup=_warmingup;
+		ConcurrentMap<String,OneMeasurement> measurements=warmingup ? warmupdata : data;
+		OneMeasurement m=measurements.get(operation);
+		if (m==null)
 		{
-			synchronized(this)
+			m=constructOneMeasurement(warmingup ? WARMUP_PREFIX+operation : operation);
+			OneMeasurement existing=measurements.putIfAbsent(operation,m);
+			if (existing!=null)
 			{
-				if (!data.containsKey(operation))
-				{
-					data.put(operation,constructOneMeasurement(operation));
-				}
+				m=existing;
 			}
 		}
+		return m;
+	}
+
+      /**
+       * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
+       */
+	public void measure(String operation, int latency)
+	{
 		try
 		{
-			data.get(operation).measure(latency);
+			getOneMeasurement(operation).measure(latency);
 		}
 		catch (java.lang.ArrayIndexOutOfBoundsException e)
 		{
@@ -119,22 +213,46 @@ public class Measurements
 		}
 	}
 
+	/**
+	 * Send the measurements to a separate set, named with WARMUP_PREFIX, until endWarmup() is called.
+	 */
+	public void startWarmup()
+	{
+		_warmingup=true;
+	}
+
+	/**
+	 * End the warm-up: from now on, the measurements go to the steady state set. An operation that was under way
+	 * may still be recorded in the warm-up set.
+	 */
+	public void endWarmup()
+	{
+		_warmingup=false;
+	}
+
+	/**
+	 * Tell the measurements when the calling thread's next operation was meant to start, according to the
+	 * target throughput. Until this is called, a thread's operations are assumed to start when they are issued.
+	 */
+	public void setIntendedStartTimeNs(long time)
+	{
+		_intendedstartns.get()[0]=time;
+	}
+
+	/**
+	 * @return the time the calling thread's current operation was meant to start, or NO_INTENDED_START if the thread is not throttled.
+	 */
+	public long getIntendedStartTimeNs()
+	{
+		return _intendedstartns.get()[0];
+	}
+
       /**
        * Report a return code for a single DB operaiton.
        */
 	public void reportReturnCode(String operation, int code)
 	{
-		if (!data.containsKey(operation))
-		{
-			synchronized(this)
-			{
-				if (!data.containsKey(operation))
-				{
-					data.put(operation,constructOneMeasurement(operation));
-				}
-			}
-		}
-		data.get(operation).reportReturnCode(code);
+		getOneMeasurement(operation).reportReturnCode(code);
 	}
 	
   /**
@@ -145,12 +263,39 @@ public class Measurements
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
+    synchronized (this)
+    {
+      //the run is over, so write the last interval
+      if (_intervallog!=null)
+      {
+        _intervallog.close();
+      }
+    }
+    for (OneMeasurement measurement : warmupdata.values())
+    {
+      measurement.exportMeasurements(exporter);
+    }
     for (OneMeasurement measurement : data.values())
     {
       measurement.exportMeasurements(exporter);
     }
   }
 	
+	/**
+	 * Return what each measurement recorded since the last call, sorted by name. Only the thread that reports
+	 * the live metrics should call this, as each call starts a new interval. During the warm-up, these are the
+	 * warm-up measurements.
+	 */
+	public List<IntervalMeasurement> getIntervals()
+	{
+		List<IntervalMeasurement> ret=new ArrayList<IntervalMeasurement>();
+		for (OneMeasurement m : new TreeMap<String,OneMeasurement>(_warmingup ? warmupdata : data).values())
+		{
+			ret.add(m.getInterval());
+		}
+		return ret;
+	}
+
       /**
        * Return a one line summary of the measurements.
        */
@@ -19,6 +19,7 @@ package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
 
+import com.yahoo.ycsb.measurements.exporter.HistogramExporter;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
@@ -45,6 +46,12 @@ public abstract class OneMeasurement {
 
 	public abstract String getSummary();
 
+	/**
+	 * Return what was measured since the last call, for the live metrics. Only one thread should call this, as each
+	 * call starts a new interval.
+	 */
+	public abstract IntervalMeasurement getInterval();
+
   /**
    * Export the current measurements to a suitable format.
    * 
@@ -52,4 +59,24 @@ public abstract class OneMeasurement {
    * @throws IOException Thrown if the export failed.
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
+
+	/**
+	 * Write a count, which may not fit in an int: as a long if the exporter is a HistogramExporter, otherwise as an
+	 * int if it fits, or else as a double.
+	 */
+	public static void write(MeasurementsExporter exporter, String metric, String measurement, long l) throws IOException
+	{
+		if (exporter instanceof HistogramExporter)
+		{
+			((HistogramExporter)exporter).write(metric, measurement, l);
+		}
+		else if ( (l>=Integer.MIN_VALUE) && (l<=Integer.MAX_VALUE) )
+		{
+			exporter.write(metric, measurement, (int)l);
+		}
+		else
+		{
+			exporter.write(metric, measurement, (double)l);
+		}
+	}
 }
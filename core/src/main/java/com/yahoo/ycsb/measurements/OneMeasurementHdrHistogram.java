@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * One thread's log-linear histogram for a OneMeasurementHdrHistogram. The histogram is the shard's latencies, so
+ * the status intervals use it too, instead of keeping a second one.
+ */
+class HdrHistogramShard extends MeasurementShard
+{
+	HdrHistogramShard(LogLinearHistogram histogram)
+	{
+		latencies=histogram;
+	}
+}
+
+/**
+ * Take measurements and maintain a high resolution, log-linear histogram of a given metric, such as READ LATENCY.
+ * Unlike OneMeasurementHistogram, whose buckets are 1ms wide, this keeps every latency to a fixed number of
+ * significant digits from 1us up to the highest trackable latency, in constant memory, and can report any
+ * percentile with microsecond precision.
+ * 
+ * Properties to control the measurement:
+ * <UL>
+ * <LI><b>hdrhistogram.significantdigits</b>: the number of significant decimal digits to keep for each latency, 0 to 5 (default: 3)
+ * <LI><b>hdrhistogram.highestlatency</b>: the largest latency that can be told apart from larger ones, in microseconds (default: 3600000000, one hour)
+ * <LI><b>hdrhistogram.percentiles</b>: a comma separated list of the percentiles to report (default: 50,90,95,99,99.9,99.99)
+ * </ul>
+ */
+public class OneMeasurementHdrHistogram extends ShardedMeasurement<HdrHistogramShard>
+{
+	public static final String SIGNIFICANT_DIGITS="hdrhistogram.significantdigits";
+	public static final String SIGNIFICANT_DIGITS_DEFAULT="3";
+
+	public static final String HIGHEST_LATENCY="hdrhistogram.highestlatency";
+	public static final String HIGHEST_LATENCY_DEFAULT="3600000000";
+
+	public static final String PERCENTILES="hdrhistogram.percentiles";
+	public static final String PERCENTILES_DEFAULT="50,90,95,99,99.9,99.99";
+
+	final LogLinearHistogram _layout;
+	final String[] _percentiles;
+
+	public OneMeasurementHdrHistogram(String name, Properties props)
+	{
+		super(name,props);
+		int significantdigits=Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS,SIGNIFICANT_DIGITS_DEFAULT));
+		long highestlatency=Long.parseLong(props.getProperty(HIGHEST_LATENCY,HIGHEST_LATENCY_DEFAULT));
+		_layout=new LogLinearHistogram(highestlatency,significantdigits);
+		_percentiles=props.getProperty(PERCENTILES,PERCENTILES_DEFAULT).split(",");
+	}
+
+	@Override
+	HdrHistogramShard newShard()
+	{
+		return new HdrHistogramShard(_layout.copyLayout());
+	}
+
+	/**
+	 * Merge the histograms of all the shards.
+	 */
+	LogLinearHistogram histogram()
+	{
+		LogLinearHistogram ret=_layout.copyLayout();
+		for (HdrHistogramShard s : shards())
+		{
+			ret.add(s.latencies);
+		}
+		return ret;
+	}
+
+	@Override
+	public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		LogLinearHistogram histogram=histogram();
+
+		exportStats(exporter);
+
+		for (String p : _percentiles)
+		{
+			p=p.trim();
+			exporter.write(getName(), p+"thPercentileLatency(us)", (int)histogram.getValueAtPercentile(Double.parseDouble(p)));
+		}
+
+		exportReturnCodes(exporter);
+		exportHistogram(exporter);
+	}
+}
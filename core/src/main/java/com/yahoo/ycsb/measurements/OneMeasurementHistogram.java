@@ -18,12 +18,31 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+/**
+ * One thread's buckets for a OneMeasurementHistogram. The last bucket counts the overflow.
+ */
+class HistogramShard extends MeasurementShard
+{
+	final AtomicLongArray histogram;
+
+	HistogramShard(int buckets)
+	{
+		histogram=new AtomicLongArray(buckets+1);
+	}
+
+	@Override
+	void measure(int latency)
+	{
+		super.measure(latency);
+		int bucket=Math.min(latency/1000,histogram.length()-1);
+		histogram.lazySet(bucket,histogram.get(bucket)+1);
+	}
+}
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
@@ -31,95 +50,50 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
  * @author cooperb
  *
  */
-public class OneMeasurementHistogram extends OneMeasurement
+public class OneMeasurementHistogram extends ShardedMeasurement<HistogramShard>
 {
 	public static final String BUCKETS="histogram.buckets";
 	public static final String BUCKETS_DEFAULT="1000";
 
 	int _buckets;
-	int[] histogram;
-	int histogramoverflow;
-	int operations;
-	long totallatency;
-	
-	//keep a windowed version of these stats for printing status
-	int windowoperations;
-	long windowtotallatency;
-	
-	int min;
-	int max;
-	HashMap<Integer,int[]> returncodes;
 
 	public OneMeasurementHistogram(String name, Properties props)
 	{
-		super(name);
+		super(name,props);
 		_buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
-		histogram=new int[_buckets];
-		histogramoverflow=0;
-		operations=0;
-		totallatency=0;
-		windowoperations=0;
-		windowtotallatency=0;
-		min=-1;
-		max=-1;
-		returncodes=new HashMap<Integer,int[]>();
 	}
 
-	/* (non-Javadoc)
-	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
-	 */
-	public synchronized void reportReturnCode(int code)
+	@Override
+	HistogramShard newShard()
 	{
-		Integer Icode=code;
-		if (!returncodes.containsKey(Icode))
-		{
-			int[] val=new int[1];
-			val[0]=0;
-			returncodes.put(Icode,val);
-		}
-		returncodes.get(Icode)[0]++;
+		return new HistogramShard(_buckets);
 	}
 
-
-	/* (non-Javadoc)
-	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+	/**
+	 * Merge the buckets of all the shards. The last entry is the overflow count.
 	 */
-	public synchronized void measure(int latency)
+	long[] histogram()
 	{
-		if (latency/1000>=_buckets)
+		long[] ret=new long[_buckets+1];
+		for (HistogramShard s : shards())
 		{
-			histogramoverflow++;
-		}
-		else
-		{
-			histogram[latency/1000]++;
-		}
-		operations++;
-		totallatency+=latency;
-		windowoperations++;
-		windowtotallatency+=latency;
-
-		if ( (min<0) || (latency<min) )
-		{
-			min=latency;
-		}
-
-		if ( (max<0) || (latency>max) )
-		{
-			max=latency;
+			for (int i=0; i<ret.length; i++)
+			{
+				ret[i]+=s.histogram.get(i);
+			}
 		}
+		return ret;
 	}
 
-
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double)totallatency)/((double)operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    long[] histogram=histogram();
+    long operations=operations();
+
+    exportStats(exporter);
     
-    int opcounter=0;
+    long opcounter=0;
     boolean done95th=false;
     for (int i=0; i<_buckets; i++)
     {
@@ -136,30 +110,14 @@ public class OneMeasurementHistogram extends OneMeasurement
       }
     }
 
-    for (Integer I : returncodes.keySet())
-    {
-      int[] val=returncodes.get(I);
-      exporter.write(getName(), "Return="+I, val[0]);
-    }     
+    exportReturnCodes(exporter);
+    exportHistogram(exporter);
 
     for (int i=0; i<_buckets; i++)
     {
-      exporter.write(getName(), Integer.toString(i), histogram[i]);
+      write(exporter, getName(), Integer.toString(i), histogram[i]);
     }
-    exporter.write(getName(), ">"+_buckets, histogramoverflow);
+    write(exporter, getName(), ">"+_buckets, histogram[_buckets]);
   }
 
-	@Override
-	public String getSummary() {
-		if (windowoperations==0)
-		{
-			return "";
-		}
-		DecimalFormat d = new DecimalFormat("#.##");
-		double report=((double)windowtotallatency)/((double)windowoperations);
-		windowtotallatency=0;
-		windowoperations=0;
-		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
-	}
-
 }
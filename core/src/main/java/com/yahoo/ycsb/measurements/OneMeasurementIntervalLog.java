@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+
+/**
+ * Take measurements like OneMeasurementHdrHistogram, and also write the latencies of every interval to an interval
+ * log as the run proceeds, in constant memory. IntervalLogTool turns the log into percentiles over time, for any
+ * window, and merges the logs of several clients.
+ * 
+ * Properties to control the measurement, in addition to those of OneMeasurementHdrHistogram:
+ * <UL>
+ * <LI><b>intervallog.file</b>: the file to write the interval log to (default: intervals.log)
+ * <LI><b>intervallog.interval</b>: the length of each interval, in milliseconds (default: 1000)
+ * </ul>
+ */
+public class OneMeasurementIntervalLog extends OneMeasurementHdrHistogram
+{
+	public static final String FILE="intervallog.file";
+	public static final String FILE_DEFAULT="intervals.log";
+
+	public static final String INTERVAL="intervallog.interval";
+	public static final String INTERVAL_DEFAULT="1000";
+
+	public OneMeasurementIntervalLog(String name, Properties props)
+	{
+		super(name,props);
+	}
+}
@@ -18,10 +18,11 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -29,151 +30,148 @@ class SeriesUnit
 {
 	/**
 	 * @param time
-	 * @param average
+	 * @param sum
+	 * @param count
 	 */
-	public SeriesUnit(long time, double average) {
+	public SeriesUnit(long time, long sum, int count) {
 		this.time = time;
-		this.average = average;
+		this.sum = sum;
+		this.count = count;
 	}
 	public long time;
-	public double average; 
+	public long sum;
+	public int count;
 }
 
 /**
- * A time series measurement of a metric, such as READ LATENCY.
+ * One thread's time series for a OneMeasurementTimeSeries. Units are aligned on the start
+ * time shared by all the shards, so they can be merged at export.
  */
-public class OneMeasurementTimeSeries extends OneMeasurement 
+class TimeSeriesShard extends MeasurementShard
 {
-	/**
-	 * Granularity for time series; measurements will be averaged in chunks of this granularity. Units are milliseconds.
-	 */
-	public static final String GRANULARITY="timeseries.granularity";
-	
-	public static final String GRANULARITY_DEFAULT="1000";
-	
-	int _granularity;
-	Vector<SeriesUnit> _measurements;
-	
-	long start=-1;
+	final OneMeasurementTimeSeries _owner;
+	final Vector<SeriesUnit> _measurements;
+
 	long currentunit=-1;
 	int count=0;
-	int sum=0;
-	int operations=0;
-	long totallatency=0;
-	
-	//keep a windowed version of these stats for printing status
-	int windowoperations=0;
-	long windowtotallatency=0;
-	
-	int min=-1;
-	int max=-1;
+	long sum=0;
 
-	private HashMap<Integer, int[]> returncodes;
-	
-	public OneMeasurementTimeSeries(String name, Properties props)
+	TimeSeriesShard(OneMeasurementTimeSeries owner)
 	{
-		super(name);
-		_granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
+		_owner=owner;
 		_measurements=new Vector<SeriesUnit>();
-		returncodes=new HashMap<Integer,int[]>();
 	}
-	
+
 	void checkEndOfUnit(boolean forceend)
 	{
-		long now=System.currentTimeMillis();
-		
-		if (start<0)
+		long unit=_owner.currentUnit();
+
+		if (currentunit<0)
 		{
-			currentunit=0;
-			start=now;
+			currentunit=unit;
 		}
-		
-		long unit=((now-start)/_granularity)*_granularity;
-		
+
 		if ( (unit>currentunit) || (forceend) )
 		{
-			double avg=((double)sum)/((double)count);
-			_measurements.add(new SeriesUnit(currentunit,avg));
-			
+			if (count>0)
+			{
+				_measurements.add(new SeriesUnit(currentunit,sum,count));
+			}
+
 			currentunit=unit;
-			
+
 			count=0;
 			sum=0;
 		}
 	}
-	
+
 	@Override
-	public void measure(int latency) 
+	void measure(int latency)
 	{
 		checkEndOfUnit(false);
-		
+
 		count++;
 		sum+=latency;
-		totallatency+=latency;
-		operations++;
-		windowoperations++;
-		windowtotallatency+=latency;
+
+		super.measure(latency);
+	}
+}
+
+/**
+ * A time series measurement of a metric, such as READ LATENCY.
+ */
+public class OneMeasurementTimeSeries extends ShardedMeasurement<TimeSeriesShard>
+{
+	/**
+	 * Granularity for time series; measurements will be averaged in chunks of this granularity. Units are milliseconds.
+	 */
+	public static final String GRANULARITY="timeseries.granularity";
+	
+	public static final String GRANULARITY_DEFAULT="1000";
+	
+	int _granularity;
+
+	final AtomicLong start=new AtomicLong(-1);
+	
+	public OneMeasurementTimeSeries(String name, Properties props)
+	{
+		super(name,props);
+		_granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
+	}
+
+	@Override
+	TimeSeriesShard newShard()
+	{
+		return new TimeSeriesShard(this);
+	}
+
+	/**
+	 * The start of the unit the current time falls in, relative to the first measurement of any thread.
+	 */
+	long currentUnit()
+	{
+		long now=System.currentTimeMillis();
 		
-		if (latency>max)
+		if (start.get()<0)
 		{
-			max=latency;
+			start.compareAndSet(-1,now);
 		}
 		
-		if ( (latency<min) || (min<0) )
-		{
-			min=latency;
-		}
+		return ((now-start.get())/_granularity)*_granularity;
 	}
 
-
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-    checkEndOfUnit(true);
+    //the client threads have finished by the time we export, so it is safe to close off their last units
+    TreeMap<Long,long[]> series=new TreeMap<Long,long[]>();
+    for (TimeSeriesShard s : shards())
+    {
+      s.checkEndOfUnit(true);
+      for (SeriesUnit unit : s._measurements)
+      {
+        long[] total=series.get(unit.time);
+        if (total==null)
+        {
+          total=new long[2];
+          series.put(unit.time,total);
+        }
+        total[0]+=unit.sum;
+        total[1]+=unit.count;
+      }
+    }
 
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double)totallatency)/((double)operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exportStats(exporter);
 
     //TODO: 95th and 99th percentile latency
 
-    for (Integer I : returncodes.keySet())
-    {
-      int[] val=returncodes.get(I);
-      exporter.write(getName(), "Return="+I, val[0]);
-    }     
+    exportReturnCodes(exporter);
+    exportHistogram(exporter);
 
-    for (SeriesUnit unit : _measurements)
+    for (Map.Entry<Long,long[]> unit : series.entrySet())
     {
-      exporter.write(getName(), Long.toString(unit.time), unit.average);
+      exporter.write(getName(), Long.toString(unit.getKey()), ((double)unit.getValue()[0])/((double)unit.getValue()[1]));
     }
   }
-	
-	@Override
-	public void reportReturnCode(int code) {
-		Integer Icode=code;
-		if (!returncodes.containsKey(Icode))
-		{
-			int[] val=new int[1];
-			val[0]=0;
-			returncodes.put(Icode,val);
-		}
-		returncodes.get(Icode)[0]++;
-
-	}
-
-	@Override
-	public String getSummary() {
-		if (windowoperations==0)
-		{
-			return "";
-		}
-		DecimalFormat d = new DecimalFormat("#.##");
-		double report=((double)windowtotallatency)/((double)windowoperations);
-		windowtotallatency=0;
-		windowoperations=0;
-		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
-	}
 
 }
@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.ThreadModel;
+import com.yahoo.ycsb.measurements.exporter.HistogramExporter;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * A measurement that gives every recording thread its own shard, so client threads never
+ * wait on each other (or on the status thread) to record a latency. Shards are only merged
+ * when a summary or an export is requested.
+ * 
+ * Virtual threads can number in the hundreds of thousands, so they do not get a shard each.
+ * Instead they share a fixed set of striped shards, a few per CPU, and lock the shard while
+ * recording into it. Recording never blocks otherwise, so the lock is only held briefly.
+ * 
+ * If the "status.percentiles" property is true, each shard also keeps a log-linear histogram of
+ * its latencies, so that the live metrics can report percentiles for every status interval. So it
+ * does if "exporthistograms" is true, and the histogram is then exported as well.
+ */
+abstract class ShardedMeasurement<S extends MeasurementShard> extends OneMeasurement
+{
+	/**
+	 * Precision and range of the interval histograms: 1% up to an hour.
+	 */
+	static final int INTERVAL_SIGNIFICANT_DIGITS=2;
+	static final long INTERVAL_HIGHEST_LATENCY=3600L*1000*1000;
+
+	private final ThreadLocal<S> _localshard;
+	private final List<S> _shards;
+
+	//shards shared by virtual threads, created on first use
+	private S[] _stripes;
+
+	//totals as of the last call to getSummary(), for the windowed status output
+	private long _lastoperations;
+	private long _lasttotallatency;
+
+	//an empty histogram to copy for each shard's latencies, or null if they are not kept
+	private final LogLinearHistogram _intervallayout;
+
+	private final boolean _exporthistograms;
+
+	//totals as of the last call to getInterval(), for the live metrics
+	private long _intervaloperations;
+	private long _intervaltotallatency;
+	private LogLinearHistogram _intervallatencies;
+
+	ShardedMeasurement(String name, Properties props)
+	{
+		super(name);
+		_localshard=new ThreadLocal<S>();
+		_shards=new CopyOnWriteArrayList<S>();
+		_exporthistograms=Boolean.parseBoolean(props.getProperty(Measurements.EXPORT_HISTOGRAMS_PROPERTY,Measurements.EXPORT_HISTOGRAMS_PROPERTY_DEFAULT));
+		if (_exporthistograms || Boolean.parseBoolean(props.getProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY,Measurements.INTERVAL_PERCENTILES_PROPERTY_DEFAULT)))
+		{
+			_intervallayout=new LogLinearHistogram(INTERVAL_HIGHEST_LATENCY,INTERVAL_SIGNIFICANT_DIGITS);
+		}
+		else
+		{
+			_intervallayout=null;
+		}
+	}
+
+	/**
+	 * Create a shard, with a latency histogram if they are kept and the shard doesn't have one of its own.
+	 */
+	private S createShard()
+	{
+		S s=newShard();
+		if ( (s.latencies==null) && (_intervallayout!=null) )
+		{
+			s.latencies=_intervallayout.copyLayout();
+		}
+		return s;
+	}
+
+	/**
+	 * Create an empty shard for a thread that is recording into this measurement for the first time.
+	 */
+	abstract S newShard();
+
+	/**
+	 * Return the calling thread's shard, creating it if necessary.
+	 */
+	S shard()
+	{
+		S s=_localshard.get();
+		if (s==null)
+		{
+			Thread t=Thread.currentThread();
+			if (ThreadModel.isVirtual(t))
+			{
+				S[] stripes=stripes();
+				s=stripes[(int)(t.getId()%stripes.length)];
+			}
+			else
+			{
+				s=createShard();
+				_shards.add(s);
+			}
+			_localshard.set(s);
+		}
+		return s;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized S[] stripes()
+	{
+		if (_stripes==null)
+		{
+			S[] stripes=(S[])new MeasurementShard[Runtime.getRuntime().availableProcessors()*4];
+			for (int i=0; i<stripes.length; i++)
+			{
+				stripes[i]=createShard();
+				stripes[i].shared=true;
+				_shards.add(stripes[i]);
+			}
+			_stripes=stripes;
+		}
+		return _stripes;
+	}
+
+	/**
+	 * All the shards created so far, one per recording thread.
+	 */
+	List<S> shards()
+	{
+		return _shards;
+	}
+
+	@Override
+	public void reportReturnCode(int code)
+	{
+		S s=shard();
+		if (s.shared)
+		{
+			synchronized (s)
+			{
+				s.reportReturnCode(code);
+			}
+		}
+		else
+		{
+			s.reportReturnCode(code);
+		}
+	}
+
+	@Override
+	public void measure(int latency)
+	{
+		S s=shard();
+		if (s.shared)
+		{
+			synchronized (s)
+			{
+				s.measure(latency);
+			}
+		}
+		else
+		{
+			s.measure(latency);
+		}
+	}
+
+	long operations()
+	{
+		return sum(MeasurementShard.OPERATIONS);
+	}
+
+	long totalLatency()
+	{
+		return sum(MeasurementShard.TOTALLATENCY);
+	}
+
+	private long sum(int stat)
+	{
+		long ret=0;
+		for (S s : _shards)
+		{
+			ret+=s.stats.get(stat);
+		}
+		return ret;
+	}
+
+	int min()
+	{
+		long ret=-1;
+		for (S s : _shards)
+		{
+			long min=s.stats.get(MeasurementShard.MIN);
+			if ( (min>=0) && ((ret<0) || (min<ret)) )
+			{
+				ret=min;
+			}
+		}
+		return (int)ret;
+	}
+
+	int max()
+	{
+		long ret=-1;
+		for (S s : _shards)
+		{
+			long max=s.stats.get(MeasurementShard.MAX);
+			if (max>ret)
+			{
+				ret=max;
+			}
+		}
+		return (int)ret;
+	}
+
+	/**
+	 * Merge the return code counts of all the shards.
+	 */
+	Map<Integer,Long> returnCodes()
+	{
+		Map<Integer,Long> ret=new TreeMap<Integer,Long>();
+		for (S s : _shards)
+		{
+			for (Map.Entry<Integer,AtomicLong> e : s.returncodes.entrySet())
+			{
+				Long count=ret.get(e.getKey());
+				ret.put(e.getKey(),(count==null?0:count)+e.getValue().get());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Export the operation count, average, min and max latency.
+	 */
+	void exportStats(MeasurementsExporter exporter) throws IOException
+	{
+		long operations=operations();
+		write(exporter, getName(), "Operations", operations);
+		exporter.write(getName(), "AverageLatency(us)", (((double)totalLatency())/((double)operations)));
+		exporter.write(getName(), "MinLatency(us)", min());
+		exporter.write(getName(), "MaxLatency(us)", max());
+	}
+
+	/**
+	 * Export the number of times each return code was seen.
+	 */
+	void exportReturnCodes(MeasurementsExporter exporter) throws IOException
+	{
+		for (Map.Entry<Integer,Long> e : returnCodes().entrySet())
+		{
+			write(exporter, getName(), "Return="+e.getKey(), e.getValue().longValue());
+		}
+	}
+
+	/**
+	 * Merge the latencies of the shards.
+	 * 
+	 * @return null if the shards do not keep their latencies, or nothing was recorded yet.
+	 */
+	LogLinearHistogram latencies()
+	{
+		if (_shards.isEmpty() || (_shards.get(0).latencies==null))
+		{
+			return null;
+		}
+		LogLinearHistogram ret=_shards.get(0).latencies.copyLayout();
+		for (S s : _shards)
+		{
+			ret.add(s.latencies);
+		}
+		return ret;
+	}
+
+	/**
+	 * Export the whole latency histogram, if asked to and the exporter can write it.
+	 */
+	void exportHistogram(MeasurementsExporter exporter) throws IOException
+	{
+		if (_exporthistograms && (exporter instanceof HistogramExporter))
+		{
+			LogLinearHistogram latencies=latencies();
+			if (latencies!=null)
+			{
+				((HistogramExporter)exporter).write(getName(), "Histogram", latencies);
+			}
+		}
+	}
+
+	/**
+	 * Report the operations, average latency and, if the shards keep them, the latencies since the last call.
+	 * Like getSummary(), the interval is tracked on the reader's side.
+	 */
+	@Override
+	public synchronized IntervalMeasurement getInterval()
+	{
+		long operations=operations();
+		long totallatency=totalLatency();
+		long windowoperations=operations-_intervaloperations;
+		long windowtotallatency=totallatency-_intervaltotallatency;
+		_intervaloperations=operations;
+		_intervaltotallatency=totallatency;
+
+		LogLinearHistogram window=null;
+		LogLinearHistogram latencies=latencies();
+		if (latencies!=null)
+		{
+			window=latencies.copyLayout();
+			window.add(latencies);
+			if (_intervallatencies!=null)
+			{
+				window.subtract(_intervallatencies);
+			}
+			_intervallatencies=latencies;
+		}
+
+		double average=windowoperations>0 ? ((double)windowtotallatency)/((double)windowoperations) : 0;
+		return new IntervalMeasurement(getName(),windowoperations,operations,average,window,returnCodes());
+	}
+
+	/**
+	 * Report the average latency since the last call. The window is tracked here, on the reader's
+	 * side, so the recording threads never have their counters reset underneath them.
+	 */
+	@Override
+	public synchronized String getSummary()
+	{
+		long operations=operations();
+		long totallatency=totalLatency();
+		long windowoperations=operations-_lastoperations;
+		long windowtotallatency=totallatency-_lasttotallatency;
+		_lastoperations=operations;
+		_lasttotallatency=totallatency;
+
+		if (windowoperations<=0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.##");
+		double report=((double)windowtotallatency)/((double)windowoperations);
+		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+	}
+}
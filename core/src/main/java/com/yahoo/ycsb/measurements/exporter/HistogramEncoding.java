@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+
+/**
+ * The text form of a histogram in exported results: the format VERSION followed by LogLinearHistogram.encode(),
+ * in base64. A histogram of a few thousand distinct latencies takes a few kilobytes.
+ */
+public class HistogramEncoding
+{
+  public static final int VERSION=1;
+
+  private static final char[] ALPHABET="ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private static final int[] VALUES=new int[128];
+  static
+  {
+    Arrays.fill(VALUES,-1);
+    for (int i=0; i<ALPHABET.length; i++)
+    {
+      VALUES[ALPHABET[i]]=i;
+    }
+  }
+
+  public static String encode(LogLinearHistogram histogram)
+  {
+    byte[] encoded=histogram.encode();
+    byte[] versioned=new byte[encoded.length+1];
+    versioned[0]=(byte)VERSION;
+    System.arraycopy(encoded,0,versioned,1,encoded.length);
+    return base64(versioned);
+  }
+
+  /**
+   * @throws IOException if the text is not an encoded histogram of a version this code can read.
+   */
+  public static LogLinearHistogram decode(String text) throws IOException
+  {
+    byte[] versioned=unbase64(text.trim());
+    if ( (versioned.length==0) || (versioned[0]!=VERSION) )
+    {
+      throw new IOException("Not a version "+VERSION+" histogram");
+    }
+    byte[] encoded=new byte[versioned.length-1];
+    System.arraycopy(versioned,1,encoded,0,encoded.length);
+    return LogLinearHistogram.decode(encoded);
+  }
+
+  static String base64(byte[] bytes)
+  {
+    StringBuilder ret=new StringBuilder((bytes.length+2)/3*4);
+    for (int i=0; i<bytes.length; i+=3)
+    {
+      int b=(bytes[i]&0xff)<<16;
+      if (i+1<bytes.length)
+      {
+        b|=(bytes[i+1]&0xff)<<8;
+      }
+      if (i+2<bytes.length)
+      {
+        b|=bytes[i+2]&0xff;
+      }
+      ret.append(ALPHABET[(b>>18)&63]);
+      ret.append(ALPHABET[(b>>12)&63]);
+      ret.append(i+1<bytes.length ? ALPHABET[(b>>6)&63] : '=');
+      ret.append(i+2<bytes.length ? ALPHABET[b&63] : '=');
+    }
+    return ret.toString();
+  }
+
+  static byte[] unbase64(String text) throws IOException
+  {
+    if (text.length()%4!=0)
+    {
+      throw new IOException("Invalid base64 length "+text.length());
+    }
+    ByteArrayOutputStream ret=new ByteArrayOutputStream(text.length()/4*3);
+    for (int i=0; i<text.length(); i+=4)
+    {
+      int b=0;
+      int padding=0;
+      for (int j=0; j<4; j++)
+      {
+        char c=text.charAt(i+j);
+        int v;
+        if (c=='=')
+        {
+          padding++;
+          v=0;
+        }
+        else if ( (c>=128) || ((v=VALUES[c])<0) || (padding>0) )
+        {
+          throw new IOException("Invalid base64 character '"+c+"'");
+        }
+        b=(b<<6)|v;
+      }
+      ret.write(b>>16);
+      if (padding<2)
+      {
+        ret.write(b>>8);
+      }
+      if (padding<1)
+      {
+        ret.write(b);
+      }
+    }
+    return ret.toByteArray();
+  }
+}
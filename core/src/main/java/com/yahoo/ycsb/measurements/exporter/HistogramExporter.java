@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.IOException;
+
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+
+/**
+ * An exporter that can also write a measurement's whole latency histogram, so that the results of several clients
+ * can be merged into accurate overall percentiles later, with MergeMeasurements, and counts too large for an int.
+ * Other exporters are given such counts as doubles, see OneMeasurement.write().
+ */
+public interface HistogramExporter extends MeasurementsExporter
+{
+  /**
+   * Write a measurement to the exported format.
+   * 
+   * @param metric Metric name, for example "READ".
+   * @param measurement Measurement name, for example "Operations".
+   * @param l Measurement to write.
+   * @throws IOException if writing failed
+   */
+  public void write(String metric, String measurement, long l) throws IOException;
+
+  /**
+   * Write a histogram to the exported format, as encoded by HistogramEncoding.
+   * 
+   * @param metric Metric name, for example "READ".
+   * @param measurement Measurement name, for example "Histogram".
+   * @param histogram The histogram to write.
+   * @throws IOException if writing failed
+   */
+  public void write(String metric, String measurement, LogLinearHistogram histogram) throws IOException;
+}
@@ -25,10 +25,12 @@ import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.impl.DefaultPrettyPrinter;
 
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+
 /**
  * Export measurements into a machine readable JSON file.
  */
-public class JSONMeasurementsExporter implements MeasurementsExporter
+public class JSONMeasurementsExporter implements HistogramExporter
 {
 
   private JsonFactory factory = new JsonFactory();
@@ -51,6 +53,15 @@ public class JSONMeasurementsExporter implements MeasurementsExporter
     g.writeEndObject();
   }
 
+  public void write(String metric, String measurement, long l) throws IOException
+  {
+    g.writeStartObject();
+    g.writeStringField("metric", metric);
+    g.writeStringField("measurement", measurement);
+    g.writeNumberField("value", l);
+    g.writeEndObject();
+  }
+
   public void write(String metric, String measurement, double d) throws IOException
   {
     g.writeStartObject();
@@ -60,6 +71,15 @@ public class JSONMeasurementsExporter implements MeasurementsExporter
     g.writeEndObject();
   }
 
+  public void write(String metric, String measurement, LogLinearHistogram histogram) throws IOException
+  {
+    g.writeStartObject();
+    g.writeStringField("metric", metric);
+    g.writeStringField("measurement", measurement);
+    g.writeStringField("value", HistogramEncoding.encode(histogram));
+    g.writeEndObject();
+  }
+
   public void close() throws IOException
   {
     if (g != null)
@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+
+/**
+ * Merge the results of several clients that ran at the same time into overall results: the run time is the
+ * longest, the throughput the sum, and the latencies of each measurement are merged from the histograms that the
+ * clients exported with "exporthistograms" turned on, so the percentiles are those of all the operations. Reads
+ * the output of the text and the JSON exporters, including earlier merges.
+ * 
+ * Measurements without a histogram in every file only get their operations and return codes added up.
+ */
+public class MergeMeasurements
+{
+  /**
+   * What the files say about one measurement.
+   */
+  static class Metric
+  {
+    long operations;
+    LogLinearHistogram histogram;
+    int files;
+    int histograms;
+    Map<Integer,Long> returncodes=new TreeMap<Integer,Long>();
+  }
+
+  double _runtime;
+  double _throughput;
+  final Map<String,Metric> _metrics=new LinkedHashMap<String,Metric>();
+
+  //the measurements seen in the file being read
+  private final Set<String> _seen=new HashSet<String>();
+
+  public static void usageMessage()
+  {
+    System.out.println("Usage: java com.yahoo.ycsb.measurements.exporter.MergeMeasurements [options] results...");
+    System.out.println("Merges the exported results of clients that ran at the same time, written with -p exporthistograms=true");
+    System.out.println("Options:");
+    System.out.println("  -exporter classname: the exporter to write the merged results with (default: TextMeasurementsExporter)");
+    System.out.println("  -percentiles list: the percentiles to report (default: "+OneMeasurementHdrHistogram.PERCENTILES_DEFAULT+")");
+  }
+
+  public static void main(String[] args)
+  {
+    String exporterclass=TextMeasurementsExporter.class.getName();
+    String percentiles=OneMeasurementHdrHistogram.PERCENTILES_DEFAULT;
+    int argindex=0;
+    while ( (argindex+1<args.length) && args[argindex].startsWith("-") )
+    {
+      if (args[argindex].equals("-exporter"))
+      {
+        exporterclass=args[argindex+1];
+      }
+      else if (args[argindex].equals("-percentiles"))
+      {
+        percentiles=args[argindex+1];
+      }
+      else
+      {
+        usageMessage();
+        System.exit(1);
+      }
+      argindex+=2;
+    }
+    if (argindex>=args.length)
+    {
+      usageMessage();
+      System.exit(1);
+    }
+
+    MergeMeasurements merge=new MergeMeasurements();
+    try
+    {
+      for (int i=argindex; i<args.length; i++)
+      {
+        merge.read(new File(args[i]));
+      }
+      MeasurementsExporter exporter=(MeasurementsExporter)Class.forName(exporterclass).getConstructor(OutputStream.class).newInstance(System.out);
+      try
+      {
+        merge.export(exporter,percentiles.split(","));
+      }
+      finally
+      {
+        exporter.close();
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+    catch (Exception e)
+    {
+      System.err.println("Could not create the exporter "+exporterclass+": "+e);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Read a file written by the text or the JSON exporter.
+   */
+  public void read(File file) throws IOException
+  {
+    _seen.clear();
+    BufferedReader in=new BufferedReader(new FileReader(file));
+    try
+    {
+      in.mark(1);
+      int c;
+      while ( ((c=in.read())!=-1) && Character.isWhitespace(c) )
+      {
+        in.mark(1);
+      }
+      in.reset();
+      if (c=='{')
+      {
+        readJSON(in);
+      }
+      else
+      {
+        readText(in);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new IOException(file+": "+e.getMessage());
+    }
+    finally
+    {
+      in.close();
+    }
+    for (String name : _seen)
+    {
+      _metrics.get(name).files++;
+    }
+  }
+
+  /**
+   * Read "[metric], measurement, value" lines, skipping the others, such as the command line the client prints.
+   */
+  void readText(BufferedReader in) throws IOException
+  {
+    String line;
+    while ((line=in.readLine())!=null)
+    {
+      int metricend=line.indexOf("], ");
+      if ( !line.startsWith("[") || (metricend<0) )
+      {
+        continue;
+      }
+      int measurementend=line.indexOf(", ",metricend+3);
+      if (measurementend<0)
+      {
+        continue;
+      }
+      add(line.substring(1,metricend),line.substring(metricend+3,measurementend),line.substring(measurementend+2).trim());
+    }
+  }
+
+  /**
+   * Read the {"metric": ..., "measurement": ..., "value": ...} objects.
+   */
+  void readJSON(BufferedReader in) throws IOException
+  {
+    JsonParser p=new JsonFactory().createJsonParser(in);
+    JsonToken token;
+    while ((token=p.nextToken())!=null)
+    {
+      if (token!=JsonToken.START_OBJECT)
+      {
+        continue;
+      }
+      String metric=null;
+      String measurement=null;
+      String value=null;
+      while (p.nextToken()==JsonToken.FIELD_NAME)
+      {
+        String field=p.getCurrentName();
+        p.nextToken();
+        if (field.equals("metric"))
+        {
+          metric=p.getText();
+        }
+        else if (field.equals("measurement"))
+        {
+          measurement=p.getText();
+        }
+        else if (field.equals("value"))
+        {
+          value=p.getText();
+        }
+      }
+      if ( (metric!=null) && (measurement!=null) && (value!=null) )
+      {
+        add(metric,measurement,value);
+      }
+    }
+  }
+
+  void add(String metric, String measurement, String value) throws IOException
+  {
+    try
+    {
+      if (metric.equals("OVERALL"))
+      {
+        if (measurement.equals("RunTime(ms)"))
+        {
+          _runtime=Math.max(_runtime,Double.parseDouble(value));
+        }
+        else if (measurement.equals("Throughput(ops/sec)"))
+        {
+          _throughput+=Double.parseDouble(value);
+        }
+        return;
+      }
+
+      Metric m=_metrics.get(metric);
+      if (m==null)
+      {
+        m=new Metric();
+        _metrics.put(metric,m);
+      }
+      _seen.add(metric);
+      if (measurement.equals("Operations"))
+      {
+        m.operations+=(long)Double.parseDouble(value);
+      }
+      else if (measurement.equals("Histogram"))
+      {
+        LogLinearHistogram h=HistogramEncoding.decode(value);
+        if (m.histogram==null)
+        {
+          m.histogram=h;
+        }
+        else
+        {
+          m.histogram.add(h);
+        }
+        m.histograms++;
+      }
+      else if (measurement.startsWith("Return="))
+      {
+        int code=Integer.parseInt(measurement.substring("Return=".length()));
+        Long count=m.returncodes.get(code);
+        m.returncodes.put(code,(count==null ? 0 : count)+(long)Double.parseDouble(value));
+      }
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IOException("Invalid value for "+metric+" "+measurement+": "+value);
+    }
+    catch (IllegalArgumentException e)
+    {
+      throw new IOException("Cannot merge the "+metric+" histograms: "+e.getMessage()+"; use the same measurementtype and precision for every client");
+    }
+  }
+
+  /**
+   * Write the merged results.
+   */
+  public void export(MeasurementsExporter exporter, String[] percentiles) throws IOException
+  {
+    exporter.write("OVERALL", "RunTime(ms)", _runtime);
+    exporter.write("OVERALL", "Throughput(ops/sec)", _throughput);
+    for (Map.Entry<String,Metric> e : _metrics.entrySet())
+    {
+      String name=e.getKey();
+      Metric m=e.getValue();
+      LogLinearHistogram h=m.histograms==m.files ? m.histogram : null;
+      if (h==null)
+      {
+        System.err.println("Not every file has the histogram of "+name+", so only its operations are merged; export them with -p exporthistograms=true");
+        OneMeasurement.write(exporter, name, "Operations", m.operations);
+      }
+      else
+      {
+        OneMeasurement.write(exporter, name, "Operations", h.getTotalCount());
+        exporter.write(name, "AverageLatency(us)", h.getMean());
+        OneMeasurement.write(exporter, name, "MinLatency(us)", h.getMin());
+        OneMeasurement.write(exporter, name, "MaxLatency(us)", h.getMax());
+        for (String p : percentiles)
+        {
+          p=p.trim();
+          OneMeasurement.write(exporter, name, p+"thPercentileLatency(us)", h.getValueAtPercentile(Double.parseDouble(p)));
+        }
+      }
+      for (Map.Entry<Integer,Long> c : m.returncodes.entrySet())
+      {
+        OneMeasurement.write(exporter, name, "Return="+c.getKey(), c.getValue().longValue());
+      }
+      if ( (h!=null) && (exporter instanceof HistogramExporter) )
+      {
+        ((HistogramExporter)exporter).write(name, "Histogram", h);
+      }
+    }
+  }
+}
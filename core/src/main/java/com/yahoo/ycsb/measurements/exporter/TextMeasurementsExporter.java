@@ -21,10 +21,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+
 /**
  * Write human readable text. Tries to emulate the previous print report method.
  */
-public class TextMeasurementsExporter implements MeasurementsExporter
+public class TextMeasurementsExporter implements HistogramExporter
 {
 
   private BufferedWriter bw;
@@ -40,12 +42,24 @@ public class TextMeasurementsExporter implements MeasurementsExporter
     bw.newLine();
   }
 
+  public void write(String metric, String measurement, long l) throws IOException
+  {
+    bw.write("[" + metric + "], " + measurement + ", " + l);
+    bw.newLine();
+  }
+
   public void write(String metric, String measurement, double d) throws IOException
   {
     bw.write("[" + metric + "], " + measurement + ", " + d);
     bw.newLine();
   }
 
+  public void write(String metric, String measurement, LogLinearHistogram histogram) throws IOException
+  {
+    bw.write("[" + metric + "], " + measurement + ", " + HistogramEncoding.encode(histogram));
+    bw.newLine();
+  }
+
   public void close() throws IOException
   {
     this.bw.close();
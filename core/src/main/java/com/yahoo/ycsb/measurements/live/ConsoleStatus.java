@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.live;
+
+import java.text.DecimalFormat;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+
+/**
+ * Prints one status line per interval to stderr, and to stdout as well if asked to (as for the timeseries
+ * measurement, so that the status lines end up next to the series).
+ */
+public class ConsoleStatus implements LiveMetricsListener
+{
+	String _label;
+	boolean _standardstatus;
+
+	public ConsoleStatus(String label, boolean standardstatus)
+	{
+		_label=label;
+		_standardstatus=standardstatus;
+	}
+
+	public void init(Properties props)
+	{
+	}
+
+	public void update(StatusSnapshot snapshot)
+	{
+		String line=format(_label,snapshot);
+		System.err.println(line);
+		if (_standardstatus)
+		{
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Format a status line: the total operations, the current throughput, then the throughput, average latency and
+	 * (if they are kept) percentiles of each measurement during the interval.
+	 */
+	static String format(String label, StatusSnapshot snapshot)
+	{
+		DecimalFormat d=new DecimalFormat("#.##");
+		StringBuilder line=new StringBuilder();
+		line.append(label).append(" ").append(snapshot.elapsedms/1000).append(" sec: ").append(snapshot.totaloperations).append(" operations; ");
+		if (snapshot.totaloperations>0)
+		{
+			line.append(d.format(snapshot.throughput())).append(" current ops/sec; ");
+		}
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			if (m.operations<=0)
+			{
+				continue;
+			}
+			line.append("[").append(m.name);
+			line.append(" Throughput(ops/sec)=").append(d.format(snapshot.throughput(m)));
+			line.append(" AverageLatency(us)=").append(d.format(m.averagelatency));
+			if (m.latencies!=null)
+			{
+				line.append(" 50thPercentileLatency(us)=").append(m.percentile(50));
+				line.append(" 99thPercentileLatency(us)=").append(m.percentile(99));
+				line.append(" 99.9thPercentileLatency(us)=").append(m.percentile(99.9));
+			}
+			line.append("] ");
+		}
+		return line.toString();
+	}
+
+	public void close()
+	{
+	}
+}
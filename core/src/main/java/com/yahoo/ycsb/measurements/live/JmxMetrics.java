@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.live;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+
+/**
+ * Publishes the live metrics of the last status interval as MBeans on the platform MBean server:
+ * com.yahoo.ycsb:type=Client for the whole client, and com.yahoo.ycsb:type=Operation,name=READ (and so on) for
+ * each measurement, registered the first time it is seen. Latency percentiles are -1 if they are not kept.
+ */
+public class JmxMetrics implements LiveMetricsListener
+{
+	public static final String DOMAIN="com.yahoo.ycsb";
+
+	/**
+	 * The whole client during the last status interval.
+	 */
+	public interface ClientMetricsMBean
+	{
+		public long getElapsedSeconds();
+
+		public long getTotalOperations();
+
+		public double getThroughput();
+	}
+
+	/**
+	 * One measurement, such as READ, during the last status interval.
+	 */
+	public interface OperationMetricsMBean
+	{
+		public long getTotalOperations();
+
+		public long getErrors();
+
+		public double getThroughput();
+
+		public double getAverageLatencyUs();
+
+		public long getP50LatencyUs();
+
+		public long getP99LatencyUs();
+
+		public long getP999LatencyUs();
+	}
+
+	public static class ClientMetrics implements ClientMetricsMBean
+	{
+		volatile StatusSnapshot snapshot;
+
+		public long getElapsedSeconds()
+		{
+			return snapshot==null ? 0 : snapshot.elapsedms/1000;
+		}
+
+		public long getTotalOperations()
+		{
+			return snapshot==null ? 0 : snapshot.totaloperations;
+		}
+
+		public double getThroughput()
+		{
+			return snapshot==null ? 0 : snapshot.throughput();
+		}
+	}
+
+	public static class OperationMetrics implements OperationMetricsMBean
+	{
+		volatile long totaloperations;
+		volatile long errors;
+		volatile double throughput;
+		volatile double averagelatency;
+		volatile long p50;
+		volatile long p99;
+		volatile long p999;
+
+		void update(StatusSnapshot snapshot, IntervalMeasurement m)
+		{
+			totaloperations=m.totaloperations;
+			errors=m.errors();
+			throughput=snapshot.throughput(m);
+			averagelatency=m.averagelatency;
+			p50=m.percentile(50);
+			p99=m.percentile(99);
+			p999=m.percentile(99.9);
+		}
+
+		public long getTotalOperations()
+		{
+			return totaloperations;
+		}
+
+		public long getErrors()
+		{
+			return errors;
+		}
+
+		public double getThroughput()
+		{
+			return throughput;
+		}
+
+		public double getAverageLatencyUs()
+		{
+			return averagelatency;
+		}
+
+		public long getP50LatencyUs()
+		{
+			return p50;
+		}
+
+		public long getP99LatencyUs()
+		{
+			return p99;
+		}
+
+		public long getP999LatencyUs()
+		{
+			return p999;
+		}
+	}
+
+	MBeanServer _server;
+	ClientMetrics _client=new ClientMetrics();
+	Map<String,OperationMetrics> _operations=new HashMap<String,OperationMetrics>();
+
+	public void init(Properties props) throws IOException
+	{
+		_server=ManagementFactory.getPlatformMBeanServer();
+		register(clientName(),_client);
+	}
+
+	public void update(StatusSnapshot snapshot)
+	{
+		_client.snapshot=snapshot;
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			OperationMetrics metrics=_operations.get(m.name);
+			if (metrics==null)
+			{
+				metrics=new OperationMetrics();
+				_operations.put(m.name,metrics);
+				try
+				{
+					register(operationName(m.name),metrics);
+				}
+				catch (IOException e)
+				{
+					System.err.println(e.getMessage());
+				}
+			}
+			metrics.update(snapshot,m);
+		}
+	}
+
+	static ObjectName clientName() throws IOException
+	{
+		return objectName(DOMAIN+":type=Client");
+	}
+
+	static ObjectName operationName(String name) throws IOException
+	{
+		return objectName(DOMAIN+":type=Operation,name="+ObjectName.quote(name));
+	}
+
+	static ObjectName objectName(String name) throws IOException
+	{
+		try
+		{
+			return new ObjectName(name);
+		}
+		catch (JMException e)
+		{
+			throw new IOException("Invalid MBean name "+name+": "+e);
+		}
+	}
+
+	void register(ObjectName name, Object mbean) throws IOException
+	{
+		try
+		{
+			if (_server.isRegistered(name))
+			{
+				_server.unregisterMBean(name);
+			}
+			_server.registerMBean(mbean,name);
+		}
+		catch (JMException e)
+		{
+			throw new IOException("Could not register "+name+": "+e);
+		}
+	}
+
+	public void close()
+	{
+		try
+		{
+			_server.unregisterMBean(clientName());
+			for (String name : _operations.keySet())
+			{
+				_server.unregisterMBean(operationName(name));
+			}
+		}
+		catch (Exception e)
+		{
+			//the process is exiting anyway
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.live;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Receives the live metrics at the end of every status interval, for example to print them or to serve them to a
+ * dashboard. Listeners named in the "metrics.listeners" property are created with their no-argument constructor.
+ * 
+ * update() is always called from the same thread, but a listener that serves its metrics to other threads must make
+ * the latest snapshot safely visible to them.
+ */
+public interface LiveMetricsListener extends Closeable
+{
+	/**
+	 * Called once, before the first update.
+	 * 
+	 * @throws IOException If the listener cannot start, e.g. because its port is taken.
+	 */
+	public void init(Properties props) throws IOException;
+
+	/**
+	 * Called at the end of every status interval, and once more when the run is over.
+	 */
+	public void update(StatusSnapshot snapshot);
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.live;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Properties;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+
+/**
+ * Serves the live metrics of the last status interval over HTTP, in the Prometheus text format, at /metrics.
+ * Scraping does not start a new interval, so any number of scrapers may poll it at any rate.
+ * 
+ * Properties to control the endpoint:
+ * <UL>
+ * <LI><b>metrics.httpport</b>: the port to listen on (required)
+ * <LI><b>metrics.httphost</b>: the address to listen on (default: localhost; use 0.0.0.0 to allow remote scrapers)
+ * </ul>
+ */
+public class PrometheusEndpoint implements LiveMetricsListener, HttpHandler
+{
+	public static final String PORT_PROPERTY="metrics.httpport";
+
+	public static final String HOST_PROPERTY="metrics.httphost";
+	public static final String HOST_PROPERTY_DEFAULT="localhost";
+
+	static final String CONTENT_TYPE="text/plain; version=0.0.4; charset=utf-8";
+	static final Charset UTF8=Charset.forName("UTF-8");
+
+	HttpServer _server;
+
+	/**
+	 * The page to serve, rendered once per interval rather than once per scrape.
+	 */
+	volatile byte[] _page=new byte[0];
+
+	public void init(Properties props) throws IOException
+	{
+		int port=Integer.parseInt(props.getProperty(PORT_PROPERTY));
+		String host=props.getProperty(HOST_PROPERTY,HOST_PROPERTY_DEFAULT);
+		_server=HttpServer.create(new InetSocketAddress(host,port),0);
+		_server.createContext("/metrics",this);
+		_server.start();
+	}
+
+	/**
+	 * The port the endpoint listens on, which is only known after init() if the port property was 0.
+	 */
+	public int getPort()
+	{
+		return _server.getAddress().getPort();
+	}
+
+	public void update(StatusSnapshot snapshot)
+	{
+		_page=format(snapshot).getBytes(UTF8);
+	}
+
+	public void handle(HttpExchange exchange) throws IOException
+	{
+		byte[] page=_page;
+		exchange.getResponseHeaders().set("Content-Type",CONTENT_TYPE);
+		exchange.sendResponseHeaders(200,page.length);
+		OutputStream out=exchange.getResponseBody();
+		out.write(page);
+		out.close();
+	}
+
+	public void close()
+	{
+		if (_server!=null)
+		{
+			_server.stop(0);
+		}
+	}
+
+	/**
+	 * Render a snapshot in the Prometheus text format. Counters are totals since the start of the run, and gauges
+	 * are for the last interval. Latencies are in microseconds.
+	 */
+	static String format(StatusSnapshot snapshot)
+	{
+		StringBuilder page=new StringBuilder();
+
+		header(page,"ycsb_elapsed_seconds","gauge","Time since the start of the run.");
+		page.append("ycsb_elapsed_seconds ").append(snapshot.elapsedms/1000.0).append('\n');
+		header(page,"ycsb_client_operations_total","counter","Operations done by the client threads.");
+		page.append("ycsb_client_operations_total ").append(snapshot.totaloperations).append('\n');
+		header(page,"ycsb_client_throughput","gauge","Operations per second done by the client threads during the last interval.");
+		page.append("ycsb_client_throughput ").append(snapshot.throughput()).append('\n');
+
+		header(page,"ycsb_operations_total","counter","Operations measured, by operation.");
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			page.append("ycsb_operations_total{operation=\"").append(m.name).append("\"} ").append(m.totaloperations).append('\n');
+		}
+		header(page,"ycsb_return_codes_total","counter","Return codes seen, by operation and code.");
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			for (Map.Entry<Integer,Long> e : m.returncodes.entrySet())
+			{
+				page.append("ycsb_return_codes_total{operation=\"").append(m.name).append("\",code=\"").append(e.getKey()).append("\"} ").append(e.getValue()).append('\n');
+			}
+		}
+		header(page,"ycsb_throughput","gauge","Operations per second during the last interval, by operation.");
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			page.append("ycsb_throughput{operation=\"").append(m.name).append("\"} ").append(snapshot.throughput(m)).append('\n');
+		}
+		header(page,"ycsb_latency_average_us","gauge","Average latency during the last interval, by operation.");
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			page.append("ycsb_latency_average_us{operation=\"").append(m.name).append("\"} ").append(m.averagelatency).append('\n');
+		}
+		header(page,"ycsb_latency_us","gauge","Latency percentiles during the last interval, by operation.");
+		for (IntervalMeasurement m : snapshot.measurements)
+		{
+			if (m.latencies==null)
+			{
+				continue;
+			}
+			quantile(page,m,"0.5",50);
+			quantile(page,m,"0.99",99);
+			quantile(page,m,"0.999",99.9);
+		}
+		return page.toString();
+	}
+
+	static void header(StringBuilder page, String metric, String type, String help)
+	{
+		page.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+		page.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+	}
+
+	static void quantile(StringBuilder page, IntervalMeasurement m, String quantile, double percentile)
+	{
+		page.append("ycsb_latency_us{operation=\"").append(m.name).append("\",quantile=\"").append(quantile).append("\"} ").append(m.percentile(percentile)).append('\n');
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.measurements.live;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+
+/**
+ * The state of a run at the end of one status interval.
+ */
+public class StatusSnapshot
+{
+	/**
+	 * Time since the start of the run, in milliseconds.
+	 */
+	public final long elapsedms;
+
+	/**
+	 * Length of the interval, in milliseconds.
+	 */
+	public final long intervalms;
+
+	/**
+	 * Operations done by the client threads since the start of the run.
+	 */
+	public final long totaloperations;
+
+	/**
+	 * Operations done by the client threads during the interval.
+	 */
+	public final long operations;
+
+	/**
+	 * What each measurement recorded during the interval, sorted by name.
+	 */
+	public final List<IntervalMeasurement> measurements;
+
+	public StatusSnapshot(long elapsedms, long intervalms, long totaloperations, long operations, List<IntervalMeasurement> measurements)
+	{
+		this.elapsedms=elapsedms;
+		this.intervalms=intervalms;
+		this.totaloperations=totaloperations;
+		this.operations=operations;
+		this.measurements=Collections.unmodifiableList(measurements);
+	}
+
+	/**
+	 * Operations per second during the interval.
+	 */
+	public double throughput()
+	{
+		return throughput(operations);
+	}
+
+	/**
+	 * Operations per second during the interval, for one measurement.
+	 */
+	public double throughput(IntervalMeasurement measurement)
+	{
+		return throughput(measurement.operations);
+	}
+
+	double throughput(long operations)
+	{
+		return intervalms>0 ? 1000.0*operations/intervalms : 0;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+/**
+ * The binary capture format written by CaptureRecorder and read by CaptureReader.
+ *
+ * Unlike a trace, a capture keeps everything DBWrapper saw, so records vary in length. A capture is a 20 byte header
+ * followed by records. The header is the MAGIC number, the format VERSION, and the wall clock time in milliseconds when
+ * the capture started, as a long, an int and a long. Each record is:
+ *
+ * <ul>
+ * <li>the operation, one of the operation constants in Trace (byte)
+ * <li>the start of the operation, in nanoseconds since the start of the capture (varint)
+ * <li>the latency in nanoseconds (varint)
+ * <li>the return code (signed varint)
+ * <li>the table and the key (strings)
+ * <li>for a read or a scan, the number of fields plus one, then the name of each field (varint, strings). Zero
+ * means all fields.
+ * <li>for a scan, the number of records to scan (varint)
+ * <li>for an update or an insert, the number of values, then the name and the length of each value (varint, string
+ * and varint pairs)
+ * </ul>
+ *
+ * Varints are unsigned LEB128: seven bits per byte, least significant first, with the top bit set on every byte but
+ * the last. Signed varints are zigzag encoded first. Strings are a varint length followed by that many bytes of UTF-8.
+ * The header is big endian.
+ *
+ * The records of a capture are in the order they were flushed, which is only roughly the order of their start times.
+ */
+public class Capture
+{
+	/**
+	 * "YCSBCAP1" in ASCII.
+	 */
+	public static final long MAGIC=0x5943534243415031L;
+
+	public static final int VERSION=1;
+
+	public static final int HEADER_SIZE=20;
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a capture written by CaptureRecorder, one record at a time. Not thread safe.
+ *
+ * The fields of the current record are public, and are overwritten by the next call to next().
+ */
+public class CaptureReader
+{
+	final DataInputStream in;
+
+	/**
+	 * The wall clock time in milliseconds when the capture started.
+	 */
+	public final long starttimems;
+
+	public byte op;
+
+	/**
+	 * The start of the operation, in nanoseconds since the start of the capture.
+	 */
+	public long startns;
+
+	public long latencyns;
+
+	public int returncode;
+
+	public String table;
+
+	public String key;
+
+	/**
+	 * The fields read, unless allfields is set. For an update or an insert, the fields written.
+	 */
+	public final List<String> fields=new ArrayList<String>();
+
+	/**
+	 * Whether the operation read all fields. If so, fields is empty.
+	 */
+	public boolean allfields;
+
+	/**
+	 * For an update or an insert, the length of the value of each field, in the same order as fields.
+	 */
+	public int[] valuelengths=new int[16];
+
+	/**
+	 * For a scan, the number of records to scan.
+	 */
+	public int recordcount;
+
+	byte[] chars=new byte[64];
+
+	/**
+	 * The offset in the file of the next record.
+	 */
+	long position;
+
+	public CaptureReader(File file) throws IOException
+	{
+		in=new DataInputStream(new BufferedInputStream(new FileInputStream(file),1<<16));
+		position=Capture.HEADER_SIZE;
+		try
+		{
+			long magic=in.readLong();
+			int version=in.readInt();
+			if (magic!=Capture.MAGIC || version!=Capture.VERSION)
+			{
+				throw new IOException(file+" is not a version "+Capture.VERSION+" capture");
+			}
+			starttimems=in.readLong();
+		}
+		catch (IOException e)
+		{
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the records of a capture from a stream that starts at the record at the given offset, rather than at the
+	 * header.
+	 */
+	CaptureReader(InputStream in, long starttimems, long position)
+	{
+		this.in=new DataInputStream(in);
+		this.starttimems=starttimems;
+		this.position=position;
+	}
+
+	/**
+	 * Read the next record.
+	 * 
+	 * @return false at the end of the capture.
+	 */
+	public boolean next() throws IOException
+	{
+		int b=in.read();
+		if (b<0)
+		{
+			return false;
+		}
+		position++;
+		op=(byte)b;
+		startns=varint();
+		latencyns=varint();
+		long zigzag=varint();
+		returncode=(int)((zigzag>>>1)^-(zigzag&1));
+		table=string();
+		key=string();
+		fields.clear();
+		allfields=false;
+		recordcount=0;
+
+		switch (op)
+		{
+		case Trace.READ:
+		case Trace.SCAN:
+			int count=(int)varint();
+			allfields=count==0;
+			for (int i=1; i<count; i++)
+			{
+				fields.add(string());
+			}
+			if (op==Trace.SCAN)
+			{
+				recordcount=(int)varint();
+			}
+			break;
+		case Trace.UPDATE:
+		case Trace.INSERT:
+			int values=(int)varint();
+			if (valuelengths.length<values)
+			{
+				valuelengths=new int[values];
+			}
+			for (int i=0; i<values; i++)
+			{
+				fields.add(string());
+				valuelengths[i]=(int)varint();
+			}
+			break;
+		case Trace.DELETE:
+			break;
+		default:
+			throw new IOException("Unknown operation "+op);
+		}
+		return true;
+	}
+
+	long varint() throws IOException
+	{
+		long v=0;
+		for (int shift=0; ; shift+=7)
+		{
+			int b=in.read();
+			if (b<0)
+			{
+				throw new EOFException("Capture ends in the middle of a record");
+			}
+			position++;
+			v|=(long)(b&0x7F)<<shift;
+			if ((b&0x80)==0)
+			{
+				return v;
+			}
+		}
+	}
+
+	String string() throws IOException
+	{
+		int len=(int)varint();
+		if (chars.length<len)
+		{
+			chars=new byte[len];
+		}
+		in.readFully(chars,0,len);
+		position+=len;
+		return new String(chars,0,len,CaptureRecorder.UTF8);
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
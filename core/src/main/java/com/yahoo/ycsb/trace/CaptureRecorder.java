@@ -0,0 +1,512 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.yahoo.ycsb.ByteIterator;
+
+/**
+ * Appends every operation a client runs to a capture, in the format described in Capture.
+ *
+ * Each client thread encodes its records into a Log of its own, so recording takes no locks. When a Log's buffer is
+ * full it is queued for a background thread that writes it to the file, and the Log carries on with a recycled
+ * buffer. The client threads of one process share the recorder of a file: open() it once per thread, and release()
+ * it when the thread is done. The file is closed when the last thread releases it.
+ */
+public class CaptureRecorder
+{
+	public static final int DEFAULT_BUFFER_SIZE=1<<16;
+
+	/**
+	 * How many full buffers may wait for the writer before the client threads have to wait for it.
+	 */
+	static final int QUEUED_BUFFERS=64;
+
+	static final Charset UTF8=Charset.forName("UTF-8");
+
+	/**
+	 * How many table and field names each Log keeps encoded.
+	 */
+	static final int CACHED_NAMES=64;
+
+	/**
+	 * Tells the writer thread to stop.
+	 */
+	static final ByteBuffer STOP=ByteBuffer.allocate(0);
+
+	/**
+	 * The open recorders by canonical path, guarded by itself.
+	 */
+	static final HashMap<String,CaptureRecorder> recorders=new HashMap<String,CaptureRecorder>();
+
+	final String path;
+	final int buffersize;
+	final long basens;
+	final FileChannel channel;
+	final BlockingQueue<ByteBuffer> full=new ArrayBlockingQueue<ByteBuffer>(QUEUED_BUFFERS);
+	final ConcurrentLinkedQueue<byte[]> free=new ConcurrentLinkedQueue<byte[]>();
+	final Thread writer;
+
+	/**
+	 * The number of threads that have opened the recorder and not released it, guarded by recorders.
+	 */
+	int users;
+
+	/**
+	 * The first error writing the file, reported when the recorder is closed.
+	 */
+	volatile IOException failure;
+
+	/**
+	 * Open the recorder of a file for one client thread, creating the file if this is the first thread to open it.
+	 * 
+	 * @param buffersize The size of each thread's buffer, in bytes. Only the first thread's size is used.
+	 */
+	public static CaptureRecorder open(File file, int buffersize) throws IOException
+	{
+		String path=file.getCanonicalPath();
+		synchronized(recorders)
+		{
+			CaptureRecorder recorder=recorders.get(path);
+			if (recorder==null)
+			{
+				recorder=new CaptureRecorder(path,buffersize);
+				recorders.put(path,recorder);
+			}
+			recorder.users++;
+			return recorder;
+		}
+	}
+
+	CaptureRecorder(String path, int buffersize) throws IOException
+	{
+		this.path=path;
+		this.buffersize=buffersize;
+		basens=System.nanoTime();
+		channel=new FileOutputStream(path).getChannel();
+
+		ByteBuffer header=ByteBuffer.allocate(Capture.HEADER_SIZE);
+		header.putLong(Capture.MAGIC);
+		header.putInt(Capture.VERSION);
+		header.putLong(System.currentTimeMillis());
+		header.flip();
+		write(header);
+
+		writer=new Thread("capture writer "+path)
+		{
+			public void run()
+			{
+				drain();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Create a log for the calling thread. Records are written when its buffer fills up, or when it is flushed.
+	 */
+	public Log log()
+	{
+		return new Log();
+	}
+
+	/**
+	 * Release the recorder for one client thread, after flushing its log. When the last thread releases it, wait
+	 * for the queued buffers to be written and close the file.
+	 * 
+	 * @throws IOException If writing the file failed at any point.
+	 */
+	public void release() throws IOException
+	{
+		synchronized(recorders)
+		{
+			if (--users>0)
+			{
+				return;
+			}
+			recorders.remove(path);
+		}
+
+		enqueue(STOP);
+		try
+		{
+			writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if (failure!=null)
+		{
+			throw failure;
+		}
+	}
+
+	void write(ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Write the queued buffers until told to stop. After an error the buffers are still taken off the queue, so that
+	 * the client threads never wait for a writer that has given up.
+	 */
+	void drain()
+	{
+		while (true)
+		{
+			ByteBuffer buffer;
+			try
+			{
+				buffer=full.take();
+			}
+			catch (InterruptedException e)
+			{
+				continue;
+			}
+			if (buffer==STOP)
+			{
+				return;
+			}
+			if (failure==null)
+			{
+				try
+				{
+					write(buffer);
+				}
+				catch (IOException e)
+				{
+					failure=e;
+				}
+			}
+			recycle(buffer.array());
+		}
+	}
+
+	void enqueue(ByteBuffer buffer)
+	{
+		boolean interrupted=false;
+		while (true)
+		{
+			try
+			{
+				full.put(buffer);
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted=true;
+			}
+		}
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	byte[] buffer(int size)
+	{
+		if (size<=buffersize)
+		{
+			byte[] buf=free.poll();
+			if (buf!=null)
+			{
+				return buf;
+			}
+			size=buffersize;
+		}
+		return new byte[size];
+	}
+
+	/**
+	 * Keep a written buffer for reuse, unless it is one of the larger buffers made for a record that didn't fit.
+	 */
+	void recycle(byte[] buf)
+	{
+		if (buf.length==buffersize)
+		{
+			free.offer(buf);
+		}
+	}
+
+	/**
+	 * One thread's records. Not thread safe.
+	 * 
+	 * Updates and inserts need the length of each value, which is only known before the database consumes the
+	 * values, while the rest of the record is only known after the operation. So the caller first passes the values
+	 * to lengths(), before it starts timing the operation, and then records the operation as usual.
+	 */
+	public class Log
+	{
+		byte[] buf=buffer(buffersize);
+		int pos;
+
+		/**
+		 * Where the record being encoded starts in buf.
+		 */
+		int mark;
+
+		/**
+		 * Encoded table and field names, by identity hash code. Workloads reuse the same name strings for every
+		 * operation, so this saves encoding them again.
+		 */
+		final String[] names=new String[CACHED_NAMES];
+		final byte[][] encodednames=new byte[CACHED_NAMES][];
+
+		/**
+		 * The characters of the string being written. Copying them out in bulk is much faster than charAt().
+		 */
+		char[] chars=new char[64];
+
+		/**
+		 * The fields and value lengths passed to lengths(), and how many of them have been written.
+		 */
+		String[] fields=new String[16];
+		int[] lengths=new int[16];
+		int lengthcount;
+		int lengthsread;
+
+		/**
+		 * Remember the field and the length of each value, for the next update or insert.
+		 */
+		public void lengths(HashMap<String,ByteIterator> values)
+		{
+			if (lengthcount+values.size()>lengths.length)
+			{
+				int size=Math.max(lengths.length*2,lengthcount+values.size());
+				String[] grownfields=new String[size];
+				int[] grownlengths=new int[size];
+				System.arraycopy(fields,0,grownfields,0,lengthcount);
+				System.arraycopy(lengths,0,grownlengths,0,lengthcount);
+				fields=grownfields;
+				lengths=grownlengths;
+			}
+			for (Map.Entry<String,ByteIterator> value : values.entrySet())
+			{
+				fields[lengthcount]=value.getKey();
+				lengths[lengthcount++]=(int)Math.min(value.getValue().bytesLeft(),Integer.MAX_VALUE);
+			}
+		}
+
+		public void read(long st, long en, int res, String table, String key, Set<String> fields)
+		{
+			start(Trace.READ,st,en,res,table,key);
+			fields(fields);
+		}
+
+		public void scan(long st, long en, int res, String table, String startkey, int recordcount, Set<String> fields)
+		{
+			start(Trace.SCAN,st,en,res,table,startkey);
+			fields(fields);
+			ensure(5);
+			varint(recordcount);
+		}
+
+		public void update(long st, long en, int res, String table, String key, HashMap<String,ByteIterator> values)
+		{
+			start(Trace.UPDATE,st,en,res,table,key);
+			values(values);
+		}
+
+		public void insert(long st, long en, int res, String table, String key, HashMap<String,ByteIterator> values)
+		{
+			start(Trace.INSERT,st,en,res,table,key);
+			values(values);
+		}
+
+		public void delete(long st, long en, int res, String table, String key)
+		{
+			start(Trace.DELETE,st,en,res,table,key);
+		}
+
+		/**
+		 * Queue the records so far to be written.
+		 */
+		public void flush()
+		{
+			if (pos>0)
+			{
+				enqueue(ByteBuffer.wrap(buf,0,pos));
+				buf=buffer(buffersize);
+				pos=0;
+			}
+		}
+
+		void start(byte op, long st, long en, int res, String table, String key)
+		{
+			mark=pos;
+			ensure(1+10+10+5);
+			buf[pos++]=op;
+			varint(Math.max(st-basens,0));
+			varint(en-st);
+			//zigzag, as an unsigned int so that it takes at most 5 bytes
+			varint(((res<<1)^(res>>31))&0xFFFFFFFFL);
+			name(table);
+			string(key);
+		}
+
+		void fields(Set<String> fields)
+		{
+			ensure(5);
+			if (fields==null)
+			{
+				varint(0);
+				return;
+			}
+			varint(fields.size()+1);
+			for (String field : fields)
+			{
+				name(field);
+			}
+		}
+
+		void values(HashMap<String,ByteIterator> values)
+		{
+			ensure(5);
+			if (lengthsread+values.size()>lengthcount)
+			{
+				//the caller didn't pass these values to lengths()
+				varint(values.size());
+				for (String field : values.keySet())
+				{
+					name(field);
+					ensure(1);
+					varint(0);
+				}
+				return;
+			}
+			varint(values.size());
+			for (int i=values.size(); i>0; i--)
+			{
+				name(fields[lengthsread]);
+				ensure(5);
+				varint(lengths[lengthsread++]);
+			}
+			if (lengthsread==lengthcount)
+			{
+				lengthsread=lengthcount=0;
+			}
+		}
+
+		void varint(long v)
+		{
+			while ((v&~0x7FL)!=0)
+			{
+				buf[pos++]=(byte)((v&0x7F)|0x80);
+				v>>>=7;
+			}
+			buf[pos++]=(byte)v;
+		}
+
+		void name(String s)
+		{
+			int slot=System.identityHashCode(s)&(CACHED_NAMES-1);
+			byte[] encoded=encodednames[slot];
+			if (names[slot]!=s)
+			{
+				//relative to the start of the record, which string() may move to a new buffer
+				int offset=pos-mark;
+				string(s);
+				encoded=new byte[pos-mark-offset];
+				System.arraycopy(buf,mark+offset,encoded,0,encoded.length);
+				names[slot]=s;
+				encodednames[slot]=encoded;
+				return;
+			}
+			ensure(encoded.length);
+			System.arraycopy(encoded,0,buf,pos,encoded.length);
+			pos+=encoded.length;
+		}
+
+		/**
+		 * Write a string, copying its characters directly when they are all ASCII, which keys and field names
+		 * usually are.
+		 */
+		void string(String s)
+		{
+			int len=s.length();
+			ensure(5+len);
+			int start=pos;
+			varint(len);
+			if (chars.length<len)
+			{
+				chars=new char[len];
+			}
+			s.getChars(0,len,chars,0);
+			for (int i=0; i<len; i++)
+			{
+				char c=chars[i];
+				if (c>=0x80)
+				{
+					pos=start;
+					byte[] utf8=s.getBytes(UTF8);
+					ensure(5+utf8.length);
+					varint(utf8.length);
+					System.arraycopy(utf8,0,buf,pos,utf8.length);
+					pos+=utf8.length;
+					return;
+				}
+				buf[pos++]=(byte)c;
+			}
+		}
+
+		/**
+		 * Make room for n more bytes. If the buffer is too full, queue the records before the current one and move
+		 * the start of the current one to a new buffer.
+		 */
+		void ensure(int n)
+		{
+			if (buf.length-pos>=n)
+			{
+				return;
+			}
+			int partial=pos-mark;
+			byte[] next=buffer(partial+n);
+			System.arraycopy(buf,mark,next,0,partial);
+			if (mark>0)
+			{
+				enqueue(ByteBuffer.wrap(buf,0,mark));
+			}
+			else
+			{
+				recycle(buf);
+			}
+			buf=next;
+			pos=partial;
+			mark=0;
+		}
+	}
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+
+/**
+ * Command line tool for captures written with the "capturefile" property.
+ *
+ * <ul>
+ * <li>summary: the count, errors and latency percentiles of each operation in a capture
+ * <li>diff: the summaries of two captures side by side, with the change in each latency
+ * <li>trace: convert a capture into a trace for the TraceReplayWorkload
+ * <li>histogram: the lengths of the values written, as a file for the HistogramGenerator ("fieldlengthdistribution=histogram")
+ * </ul>
+ */
+public class CaptureTool
+{
+	static final String[] OPS={"READ","UPDATE","INSERT","SCAN","DELETE"};
+
+	static final double[] PERCENTILES={50,95,99,99.9};
+
+	/**
+	 * Latencies up to an hour, in microseconds.
+	 */
+	static final long HIGHEST_LATENCY_US=3600L*1000*1000;
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.trace.CaptureTool command args");
+		System.out.println("Commands:");
+		System.out.println("  summary capturefile - Count and latency percentiles of each operation");
+		System.out.println("  diff capturefile1 capturefile2 - Compare the summaries of two captures");
+		System.out.println("  trace capturefile tracefile - Convert a capture into a trace for the TraceReplayWorkload");
+		System.out.println("  histogram capturefile blocksize histogramfile - Write the lengths of the values written as a");
+		System.out.println("      histogram for the HistogramGenerator, in buckets of blocksize bytes");
+	}
+
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length==2 && args[0].equals("summary"))
+			{
+				summary(new File(args[1])).print(System.out,null);
+			}
+			else if (args.length==3 && args[0].equals("diff"))
+			{
+				Summary before=summary(new File(args[1]));
+				summary(new File(args[2])).print(System.out,before);
+			}
+			else if (args.length==3 && args[0].equals("trace"))
+			{
+				System.out.println(trace(new File(args[1]),new File(args[2]))+" records written");
+			}
+			else if (args.length==4 && args[0].equals("histogram"))
+			{
+				histogram(new File(args[1]),Integer.parseInt(args[2]),new File(args[3]));
+			}
+			else
+			{
+				usageMessage();
+				System.exit(1);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Count and latency histogram of each operation in a capture.
+	 */
+	static class Summary
+	{
+		final long[] counts=new long[OPS.length];
+		final long[] errors=new long[OPS.length];
+		final LogLinearHistogram[] latencies=new LogLinearHistogram[OPS.length];
+
+		Summary()
+		{
+			for (int i=0; i<OPS.length; i++)
+			{
+				latencies[i]=new LogLinearHistogram(HIGHEST_LATENCY_US,3);
+			}
+		}
+
+		/**
+		 * Print one line per operation, and if before is given, the change in each latency since before.
+		 */
+		void print(PrintStream out, Summary before)
+		{
+			for (int i=0; i<OPS.length; i++)
+			{
+				if (counts[i]==0 && (before==null || before.counts[i]==0))
+				{
+					continue;
+				}
+				StringBuilder line=new StringBuilder(OPS[i]);
+				line.append(" count=").append(counts[i]).append(" errors=").append(errors[i]);
+				line.append(" avg=").append(String.format("%.1f",latencies[i].getMean())).append("us");
+				if (before!=null)
+				{
+					line.append(change(before.latencies[i].getMean(),latencies[i].getMean()));
+				}
+				for (double p : PERCENTILES)
+				{
+					long value=latencies[i].getValueAtPercentile(p);
+					line.append(" p").append(p==(long)p ? ""+(long)p : ""+p).append("=").append(value).append("us");
+					if (before!=null)
+					{
+						line.append(change(before.latencies[i].getValueAtPercentile(p),value));
+					}
+				}
+				if (before!=null)
+				{
+					line.append(" (before: count=").append(before.counts[i]).append(" errors=").append(before.errors[i]).append(")");
+				}
+				out.println(line);
+			}
+		}
+
+		static String change(double before, double after)
+		{
+			if (before==0)
+			{
+				return "";
+			}
+			return String.format("(%+.1f%%)",100*(after-before)/before);
+		}
+	}
+
+	static Summary summary(File capture) throws IOException
+	{
+		Summary summary=new Summary();
+		CaptureReader reader=new CaptureReader(capture);
+		try
+		{
+			while (reader.next())
+			{
+				summary.counts[reader.op]++;
+				if (reader.returncode!=0)
+				{
+					summary.errors[reader.op]++;
+				}
+				summary.latencies[reader.op].recordValue(reader.latencyns/1000);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return summary;
+	}
+
+	/**
+	 * Convert a capture into a trace. The key number is the number at the end of the key, which gives back the same
+	 * key when the TraceReplayWorkload adds the "user" prefix to it; other keys are hashed. Fields named "field"
+	 * followed by a number below 32 set that bit of the field mask, and the value length is that of the longest value.
+	 * 
+	 * The records of a capture are in runs of increasing start times, one or more per buffer a client thread flushed,
+	 * and the buffers were flushed in any order. The trace is written in start time order by merging the runs: a first
+	 * pass finds where each run starts, and the second reads all of them at once, through small buffers over one file.
+	 * 
+	 * @return The number of records written.
+	 */
+	static long trace(File capture, File trace) throws IOException
+	{
+		List<long[]> runs=new ArrayList<long[]>();
+		long starttimems;
+		CaptureReader reader=new CaptureReader(capture);
+		try
+		{
+			starttimems=reader.starttimems;
+			long[] run=null;
+			long laststartns=0;
+			long position=reader.position;
+			while (reader.next())
+			{
+				if (run==null || reader.startns<laststartns)
+				{
+					run=new long[] {position,0};
+					runs.add(run);
+				}
+				run[1]++;
+				laststartns=reader.startns;
+				position=reader.position;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		FileInputStream in=new FileInputStream(capture);
+		TraceWriter writer=null;
+		long records=0;
+		try
+		{
+			FileChannel channel=in.getChannel();
+			PriorityQueue<Run> merge=new PriorityQueue<Run>(Math.max(runs.size(),1));
+			for (long[] run : runs)
+			{
+				Run r=new Run(new CaptureReader(new BufferedInputStream(new ChannelInputStream(channel,run[0]),RUN_BUFFER_SIZE),starttimems,run[0]),run[1]);
+				r.next();
+				merge.add(r);
+			}
+
+			writer=new TraceWriter(trace);
+			Run r;
+			while ((r=merge.poll())!=null)
+			{
+				CaptureReader record=r.reader;
+				int valuelength=record.recordcount;
+				if (record.op==Trace.UPDATE || record.op==Trace.INSERT)
+				{
+					for (int i=0; i<record.fields.size(); i++)
+					{
+						valuelength=Math.max(valuelength,record.valuelengths[i]);
+					}
+				}
+				writer.write(record.startns,record.op,keyNumber(record.key),fieldMask(record.fields),valuelength);
+				records++;
+				if (r.next())
+				{
+					merge.add(r);
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+			if (writer!=null)
+			{
+				writer.close();
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * The buffer size of each run while merging them, small since a capture may have many runs.
+	 */
+	static final int RUN_BUFFER_SIZE=4096;
+
+	/**
+	 * A run of records in start time order, positioned at its current record.
+	 */
+	static class Run implements Comparable<Run>
+	{
+		final CaptureReader reader;
+		long remaining;
+
+		Run(CaptureReader reader, long records)
+		{
+			this.reader=reader;
+			remaining=records;
+		}
+
+		/**
+		 * Read the next record of the run.
+		 * 
+		 * @return false at the end of the run.
+		 */
+		boolean next() throws IOException
+		{
+			if (remaining==0)
+			{
+				return false;
+			}
+			remaining--;
+			return reader.next();
+		}
+
+		public int compareTo(Run other)
+		{
+			return reader.startns<other.reader.startns ? -1 : (reader.startns==other.reader.startns ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Reads a file from an offset with positional reads, so that any number of these can share one channel.
+	 */
+	static class ChannelInputStream extends InputStream
+	{
+		final FileChannel channel;
+		long position;
+
+		ChannelInputStream(FileChannel channel, long position)
+		{
+			this.channel=channel;
+			this.position=position;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			byte[] b=new byte[1];
+			return read(b,0,1)<0 ? -1 : b[0]&0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n=channel.read(ByteBuffer.wrap(b,off,len),position);
+			if (n>0)
+			{
+				position+=n;
+			}
+			return n;
+		}
+	}
+
+	static long keyNumber(String key)
+	{
+		int start=key.length();
+		while (start>0 && Character.isDigit(key.charAt(start-1)))
+		{
+			start--;
+		}
+		if (start<key.length() && key.length()-start<=18)
+		{
+			return Long.parseLong(key.substring(start));
+		}
+		return Utils.FNVhash64(key.hashCode());
+	}
+
+	static int fieldMask(List<String> fields)
+	{
+		int mask=0;
+		for (String field : fields)
+		{
+			if (field.startsWith("field"))
+			{
+				try
+				{
+					int i=Integer.parseInt(field.substring(5));
+					if (i>=0 && i<32)
+					{
+						mask|=1<<i;
+					}
+				}
+				catch (NumberFormatException e)
+				{
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Write the lengths of the values of every update and insert in a capture as a histogram file, with one bucket
+	 * per blocksize bytes.
+	 */
+	static void histogram(File capture, int blocksize, File histogram) throws IOException
+	{
+		ArrayList<Long> buckets=new ArrayList<Long>();
+		CaptureReader reader=new CaptureReader(capture);
+		try
+		{
+			while (reader.next())
+			{
+				if (reader.op!=Trace.UPDATE && reader.op!=Trace.INSERT)
+				{
+					continue;
+				}
+				for (int i=0; i<reader.fields.size(); i++)
+				{
+					//the generator returns (bucket+1)*blocksize for a value drawn from a bucket
+					int bucket=Math.max((reader.valuelengths[i]+blocksize-1)/blocksize-1,0);
+					while (buckets.size()<=bucket)
+					{
+						buckets.add(0L);
+					}
+					buckets.set(bucket,buckets.get(bucket)+1);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		PrintWriter out=new PrintWriter(new FileWriter(histogram));
+		out.println("BlockSize\t"+blocksize);
+		for (int i=0; i<buckets.size(); i++)
+		{
+			out.println(i+"\t"+buckets.get(i));
+		}
+		out.close();
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+/**
+ * The binary trace format shared by TraceWriter, TraceReader and the TraceReplayWorkload.
+ *
+ * A trace is a 16 byte header followed by fixed size records, so that any record can be found without reading the ones
+ * before it. The header is the MAGIC number, the format VERSION and the RECORD_SIZE, as a long and two ints. Each record is:
+ *
+ * <ul>
+ * <li>the time of the operation, in nanoseconds since the start of the trace (long)
+ * <li>the key number; the key is KEY_PREFIX followed by the number, as in CoreWorkload (long)
+ * <li>the field mask: bit i is set if field i was read or written, and 0 means all fields (int)
+ * <li>the operation in the top byte, and the value length in the low 24 bits (int). For a scan the value length is the
+ * number of records scanned.
+ * </ul>
+ *
+ * Records are in the order of their times, so the first record is the earliest. All values are big endian, as written
+ * by DataOutputStream.
+ */
+public class Trace
+{
+	/**
+	 * "YCSBTRC1" in ASCII.
+	 */
+	public static final long MAGIC=0x5943534254524331L;
+
+	public static final int VERSION=1;
+
+	public static final int HEADER_SIZE=16;
+
+	public static final int RECORD_SIZE=24;
+
+	/**
+	 * Largest value length a record can hold.
+	 */
+	public static final int MAX_VALUE_LENGTH=(1<<24)-1;
+
+	public static final String KEY_PREFIX="user";
+
+	public static final byte READ=0;
+	public static final byte UPDATE=1;
+	public static final byte INSERT=2;
+	public static final byte SCAN=3;
+	public static final byte DELETE=4;
+
+	/**
+	 * Pack an operation and a value length into the last int of a record.
+	 */
+	public static int opAndLength(byte op, int valuelength)
+	{
+		return (op<<24)|Math.min(Math.max(valuelength,0),MAX_VALUE_LENGTH);
+	}
+
+	public static byte op(int opandlength)
+	{
+		return (byte)(opandlength>>>24);
+	}
+
+	public static int valueLength(int opandlength)
+	{
+		return opandlength&MAX_VALUE_LENGTH;
+	}
+}
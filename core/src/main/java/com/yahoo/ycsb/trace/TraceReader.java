@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a trace in the format described in Trace by memory mapping it. Any number of threads can read the same trace
+ * at once without locking: each one gets its own Cursor, which maps the file on its own and only visits its share of
+ * the records.
+ */
+public class TraceReader
+{
+	/**
+	 * How many records a cursor maps at a time. Mapping the file in windows keeps traces larger than 2 GB, the limit of one
+	 * mapping, readable, and doesn't use up the address space when many threads read a huge trace.
+	 */
+	static final int WINDOW_RECORDS=1<<22;
+
+	final File file;
+	final RandomAccessFile raf;
+	final FileChannel channel;
+	final long records;
+
+	/**
+	 * Open a trace and check its header.
+	 */
+	public TraceReader(File file) throws IOException
+	{
+		this.file=file;
+		raf=new RandomAccessFile(file,"r");
+		channel=raf.getChannel();
+		try
+		{
+			if (raf.length()<Trace.HEADER_SIZE)
+			{
+				throw new IOException(file+" is too short to be a trace");
+			}
+			long magic=raf.readLong();
+			int version=raf.readInt();
+			int recordsize=raf.readInt();
+			if ( (magic!=Trace.MAGIC) || (version!=Trace.VERSION) || (recordsize!=Trace.RECORD_SIZE) )
+			{
+				throw new IOException(file+" is not a version "+Trace.VERSION+" trace");
+			}
+			records=(raf.length()-Trace.HEADER_SIZE)/Trace.RECORD_SIZE;
+		}
+		catch (IOException e)
+		{
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * The number of complete records in the trace.
+	 */
+	public long records()
+	{
+		return records;
+	}
+
+	/**
+	 * Return a cursor over the records part, part+parts, part+2*parts, and so on. The cursors for part 0 to parts-1
+	 * together visit every record exactly once, and since each takes every parts-th record, they all move through the
+	 * trace's timeline together.
+	 */
+	public Cursor cursor(int part, int parts)
+	{
+		return new Cursor(part,parts);
+	}
+
+	public void close() throws IOException
+	{
+		raf.close();
+	}
+
+	/**
+	 * One reader's position in the trace. The fields hold the record last returned by next().
+	 */
+	public class Cursor
+	{
+		final int parts;
+		long index;
+		MappedByteBuffer window;
+		long windowstart;
+		long windowend;
+
+		public long timestampns;
+		public long key;
+		public int fieldmask;
+		public byte op;
+		public int valuelength;
+
+		Cursor(int part, int parts)
+		{
+			this.parts=parts;
+			index=part;
+		}
+
+		/**
+		 * Move to the next record of this cursor.
+		 * @return false if there are no more records.
+		 */
+		public boolean next() throws IOException
+		{
+			if (index>=records)
+			{
+				return false;
+			}
+			if ( (window==null) || (index>=windowend) )
+			{
+				windowstart=index;
+				windowend=Math.min(index+WINDOW_RECORDS,records);
+				window=channel.map(FileChannel.MapMode.READ_ONLY,Trace.HEADER_SIZE+windowstart*Trace.RECORD_SIZE,(windowend-windowstart)*Trace.RECORD_SIZE);
+			}
+			int offset=(int)(index-windowstart)*Trace.RECORD_SIZE;
+			timestampns=window.getLong(offset);
+			key=window.getLong(offset+8);
+			fieldmask=window.getInt(offset+16);
+			int opandlength=window.getInt(offset+20);
+			op=Trace.op(opandlength);
+			valuelength=Trace.valueLength(opandlength);
+			index+=parts;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes a trace in the format described in Trace. Not thread safe.
+ */
+public class TraceWriter
+{
+	final DataOutputStream out;
+
+	long lasttimestampns=Long.MIN_VALUE;
+
+	/**
+	 * Create the trace file, replacing any file of that name, and write its header.
+	 */
+	public TraceWriter(File file) throws IOException
+	{
+		out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1<<16));
+		out.writeLong(Trace.MAGIC);
+		out.writeInt(Trace.VERSION);
+		out.writeInt(Trace.RECORD_SIZE);
+	}
+
+	/**
+	 * Append one operation. Operations must be appended in the order of their times.
+	 * @param timestampns When the operation happened, in nanoseconds since the start of the trace.
+	 * @param op One of the operation constants in Trace.
+	 * @param key The key number.
+	 * @param fieldmask The fields read or written, or 0 for all of them.
+	 * @param valuelength The length of each value written, or the number of records scanned.
+	 */
+	public void write(long timestampns, byte op, long key, int fieldmask, int valuelength) throws IOException
+	{
+		if (timestampns<lasttimestampns)
+		{
+			throw new IllegalArgumentException("Trace records must be in time order: "+timestampns+" comes after "+lasttimestampns);
+		}
+		lasttimestampns=timestampns;
+		out.writeLong(timestampns);
+		out.writeLong(key);
+		out.writeInt(fieldmask);
+		out.writeInt(Trace.opAndLength(op,valuelength));
+	}
+
+	public void close() throws IOException
+	{
+		out.close();
+	}
+}
@@ -19,23 +19,27 @@ package com.yahoo.ycsb.workloads;
 
 import java.util.Properties;
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
-import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.GrowingScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.ZetaCache;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -54,10 +58,15 @@ import java.util.Vector;
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
+ * <LI><b>multireadproportion</b>: what proportion of operations should read several records in one multiRead() call (default: 0)
+ * <LI><b>multireadsize</b>: for multi-reads, how many distinct records to read (default: 10)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
+ * <LI><b>zetacachedir</b>: where to keep the zeta constants of large zipfian distributions between runs, or empty to compute them every run (default: ycsb-zeta in the temporary directory)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>insertstart</b>: the first key of the load phase. In the transaction phase, if it is past recordcount, the keys inserted by transactions start there rather than at recordcount, so that several clients can insert disjoint ranges of keys (default: 0)
+ * <LI><b>batchsize</b>: in the load phase, how many records to send to the database in one batchInsert() call (default: 1, no batching)
  * </ul> 
  */
 public class CoreWorkload extends Workload
@@ -197,6 +206,26 @@ public class CoreWorkload extends Workload
 	 * The default proportion of transactions that are scans.
 	 */
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that are multi-reads.
+	 */
+	public static final String MULTIREAD_PROPORTION_PROPERTY="multireadproportion";
+
+	/**
+	 * The default proportion of transactions that are multi-reads.
+	 */
+	public static final String MULTIREAD_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the number of records read by each multi-read.
+	 */
+	public static final String MULTIREAD_SIZE_PROPERTY="multireadsize";
+
+	/**
+	 * The default number of records read by each multi-read.
+	 */
+	public static final String MULTIREAD_SIZE_PROPERTY_DEFAULT="10";
 	
 	/**
 	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
@@ -208,6 +237,16 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 
+	/**
+	 * The name of the property for the directory that caches the zeta constants of large zipfian distributions. Empty turns the cache off.
+	 */
+	public static final String ZETA_CACHE_DIRECTORY_PROPERTY="zetacachedir";
+
+	/**
+	 * The default directory for the zeta cache.
+	 */
+	public static final String ZETA_CACHE_DIRECTORY_PROPERTY_DEFAULT=new File(System.getProperty("java.io.tmpdir"),"ycsb-zeta").getPath();
+
 	/**
 	 * The name of the property for the max scan length (number of records)
 	 */
@@ -238,6 +277,16 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String INSERT_ORDER_PROPERTY_DEFAULT="hashed";
 	
+	/**
+	 * The name of the property for the number of records to insert per call to the database in the load phase.
+	 */
+	public static final String BATCH_SIZE_PROPERTY="batchsize";
+
+	/**
+	 * Default batch size: insert records one at a time.
+	 */
+	public static final String BATCH_SIZE_PROPERTY_DEFAULT="1";
+
 	/**
    * Percentage data items that constitute the hot set.
    */
@@ -260,19 +309,123 @@ public class CoreWorkload extends Workload
 	
 	IntegerGenerator keysequence;
 
+	/**
+	 * The kinds of transaction operations.
+	 */
+	enum Operation
+	{
+		READ, UPDATE, INSERT, SCAN, READMODIFYWRITE, MULTIREAD
+	}
+
 	DiscreteGenerator operationchooser;
 
+	/**
+	 * The operation for each value of operationchooser, by index.
+	 */
+	Operation[] operations;
+
 	IntegerGenerator keychooser;
 
-	Generator fieldchooser;
+	IntegerGenerator fieldchooser;
 
-	CounterGenerator transactioninsertkeysequence;
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
 	
 	IntegerGenerator scanlength;
 	
 	boolean orderedinserts;
 
-	int recordcount;
+	long recordcount;
+
+	/**
+	 * How far past recordcount the keys inserted by transactions are moved, when insertstart is past recordcount.
+	 */
+	long transactioninsertoffset;
+
+	int batchsize;
+
+	int multireadsize;
+
+	/**
+	 * The field names, "field0" to "field"+(fieldcount-1), built once.
+	 */
+	String[] fieldnames;
+
+	/**
+	 * For each field, the set of fields to read when reading just that field.
+	 */
+	ArrayList<Set<String>> singlefields;
+
+	/**
+	 * The records a client thread has generated in the load phase but not yet sent to the database.
+	 */
+	static class InsertBatch
+	{
+		final ArrayList<String> keys;
+		final ArrayList<HashMap<String,ByteIterator>> values;
+
+		InsertBatch(int batchsize)
+		{
+			keys=new ArrayList<String>(batchsize);
+			values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		}
+	}
+
+	/**
+	 * The objects a client thread reuses from one operation to the next, so that a transaction allocates little
+	 * more than its key. This relies on DB calls not keeping their arguments once they return.
+	 */
+	public static class OperationContext
+	{
+		/**
+		 * The key prefix, followed by room for the digits of any long.
+		 */
+		final char[] keybuf=new char[KEY_PREFIX.length()+20];
+
+		/**
+		 * One value generator per field.
+		 */
+		final RandomByteIterator[] data;
+
+		/**
+		 * Every field, with its value generator.
+		 */
+		final HashMap<String,ByteIterator> allvalues;
+
+		/**
+		 * For each field, a map of just that field to its value generator.
+		 */
+		final ArrayList<HashMap<String,ByteIterator>> singlevalues;
+
+		final HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+		final Vector<HashMap<String,ByteIterator>> scanresult=new Vector<HashMap<String,ByteIterator>>();
+		final HashMap<String,HashMap<String,ByteIterator>> multireadresults=new HashMap<String,HashMap<String,ByteIterator>>();
+		final ArrayList<String> multireadkeys;
+
+		/**
+		 * The load phase batch, or null if records are inserted one at a time.
+		 */
+		final InsertBatch batch;
+
+		OperationContext(String[] fieldnames, int multireadsize, int batchsize)
+		{
+			KEY_PREFIX.getChars(0,KEY_PREFIX.length(),keybuf,0);
+			data=new RandomByteIterator[fieldnames.length];
+			allvalues=new HashMap<String,ByteIterator>();
+			singlevalues=new ArrayList<HashMap<String,ByteIterator>>(fieldnames.length);
+			for (int i=0; i<fieldnames.length; i++)
+			{
+				data[i]=new RandomByteIterator(0);
+				allvalues.put(fieldnames[i],data[i]);
+				HashMap<String,ByteIterator> single=new HashMap<String,ByteIterator>();
+				single.put(fieldnames[i],data[i]);
+				singlevalues.add(single);
+			}
+			multireadkeys=new ArrayList<String>(multireadsize);
+			batch=batchsize>1 ? new InsertBatch(batchsize) : null;
+		}
+	}
+
+	static final String KEY_PREFIX="user";
 	
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
 		IntegerGenerator fieldlengthgenerator;
@@ -313,15 +466,19 @@ public class CoreWorkload extends Workload
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
 		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
 		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY));
+		double multireadproportion=Double.parseDouble(p.getProperty(MULTIREAD_PROPORTION_PROPERTY,MULTIREAD_PROPORTION_PROPERTY_DEFAULT));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY));
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
 		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
+		batchsize=Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY,BATCH_SIZE_PROPERTY_DEFAULT));
+		//a multi-read can't ask for more distinct records than there are
+		multireadsize=(int)Math.min(Integer.parseInt(p.getProperty(MULTIREAD_SIZE_PROPERTY,MULTIREAD_SIZE_PROPERTY_DEFAULT)),recordcount);
 		
 		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
 		{
@@ -341,50 +498,30 @@ public class CoreWorkload extends Workload
 		}
 
 		keysequence=new CounterGenerator(insertstart);
+		transactioninsertoffset=Math.max(insertstart-recordcount,0);
 		operationchooser=new DiscreteGenerator();
-		if (readproportion>0)
-		{
-			operationchooser.addValue(readproportion,"READ");
-		}
-
-		if (updateproportion>0)
-		{
-			operationchooser.addValue(updateproportion,"UPDATE");
-		}
-
-		if (insertproportion>0)
-		{
-			operationchooser.addValue(insertproportion,"INSERT");
-		}
-		
-		if (scanproportion>0)
-		{
-			operationchooser.addValue(scanproportion,"SCAN");
-		}
-		
-		if (readmodifywriteproportion>0)
-		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
-		}
-
-		transactioninsertkeysequence=new CounterGenerator(recordcount);
+		ArrayList<Operation> ops=new ArrayList<Operation>();
+		addOperation(ops,readproportion,Operation.READ);
+		addOperation(ops,updateproportion,Operation.UPDATE);
+		addOperation(ops,insertproportion,Operation.INSERT);
+		addOperation(ops,scanproportion,Operation.SCAN);
+		addOperation(ops,readmodifywriteproportion,Operation.READMODIFYWRITE);
+		addOperation(ops,multireadproportion,Operation.MULTIREAD);
+		operations=ops.toArray(new Operation[ops.size()]);
+
+		String zetacachedir=p.getProperty(ZETA_CACHE_DIRECTORY_PROPERTY,ZETA_CACHE_DIRECTORY_PROPERTY_DEFAULT);
+		ZetaCache.setDirectory(zetacachedir.length()>0 ? new File(zetacachedir) : null);
+
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
 		if (requestdistrib.compareTo("uniform")==0)
 		{
 			keychooser=new UniformIntegerGenerator(0,recordcount-1);
 		}
 		else if (requestdistrib.compareTo("zipfian")==0)
 		{
-			//it does this by generating a random "next key" in part by taking the modulus over the number of keys
-			//if the number of keys changes, this would shift the modulus, and we don't want that to change which keys are popular
-			//so we'll actually construct the scrambled zipfian generator with a keyspace that is larger than exists at the beginning
-			//of the test. that is, we'll predict the number of inserts, and tell the scrambled zipfian generator the number of existing keys
-			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
-			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
-			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
-			
-			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
+			//the keyspace grows as records are inserted. the generator draws over the keys that exist at the time of each draw, and a key's
+			//popularity doesn't change as new keys are added, so there is no need to predict the number of inserts or to redraw keys
+			keychooser=new GrowingScrambledZipfianGenerator(transactioninsertkeysequence,recordcount);
 		}
 		else if (requestdistrib.compareTo("latest")==0)
 		{
@@ -405,6 +542,13 @@ public class CoreWorkload extends Workload
 		}
 
 		fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
+		fieldnames=new String[fieldcount];
+		singlefields=new ArrayList<Set<String>>(fieldcount);
+		for (int i=0; i<fieldcount; i++)
+		{
+			fieldnames[i]="field"+i;
+			singlefields.add(Collections.singleton(fieldnames[i]));
+		}
 		
 		if (scanlengthdistrib.compareTo("uniform")==0)
 		{
@@ -425,26 +569,100 @@ public class CoreWorkload extends Workload
  		{
  			keynum=Utils.hash(keynum);
  		}
-		return "user"+keynum;
+		return KEY_PREFIX+keynum;
 	}
+
+	/**
+	 * Build the same key name as buildKeyName(keynum), but format the number in the context's buffer instead
+	 * of in a StringBuilder, so that the only allocation is the String itself.
+	 */
+	String buildKeyName(long keynum, OperationContext ctx) {
+		if (!orderedinserts)
+		{
+			keynum=Utils.hash(keynum);
+		}
+		char[] buf=ctx.keybuf;
+		//format the digits backwards from the end of the buffer, working with a non-positive number so that
+		//Long.MIN_VALUE can't overflow
+		int pos=buf.length;
+		long n=keynum<0 ? keynum : -keynum;
+		do
+		{
+			buf[--pos]=(char)('0'-(n%10));
+			n/=10;
+		}
+		while (n!=0);
+		if (keynum<0)
+		{
+			buf[--pos]='-';
+		}
+		int prefixlen=KEY_PREFIX.length();
+		System.arraycopy(buf,pos,buf,prefixlen,buf.length-pos);
+		return new String(buf,0,prefixlen+buf.length-pos);
+	}
+
 	HashMap<String, ByteIterator> buildValues() {
  		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
 
  		for (int i=0; i<fieldcount; i++)
  		{
- 			String fieldkey="field"+i;
  			ByteIterator data= new RandomByteIterator(fieldlengthgenerator.nextInt());
- 			values.put(fieldkey,data);
+ 			values.put(fieldnames[i],data);
  		}
 		return values;
 	}
-	HashMap<String, ByteIterator> buildUpdate() {
-		//update a random field
-		HashMap<String, ByteIterator> values=new HashMap<String,ByteIterator>();
-		String fieldname="field"+fieldchooser.nextString();
-		ByteIterator data = new RandomByteIterator(fieldlengthgenerator.nextInt());
-		values.put(fieldname,data);
-		return values;
+
+	/**
+	 * Restart the context's value generators for every field, and return the map of all of them.
+	 */
+	HashMap<String, ByteIterator> buildValues(OperationContext ctx) {
+		for (int i=0; i<fieldcount; i++)
+		{
+			ctx.data[i].reset(fieldlengthgenerator.nextInt());
+		}
+		return ctx.allvalues;
+	}
+
+	/**
+	 * Restart the context's value generator for a random field, and return the map of just that field.
+	 */
+	HashMap<String, ByteIterator> buildUpdate(OperationContext ctx) {
+		int field=fieldchooser.nextInt();
+		ctx.data[field].reset(fieldlengthgenerator.nextInt());
+		return ctx.singlevalues.get(field);
+	}
+
+	/**
+	 * The fields to read: null for all of them, or a random one.
+	 */
+	Set<String> chooseFields() {
+		if (readallfields)
+		{
+			return null;
+		}
+		return singlefields.get(fieldchooser.nextInt());
+	}
+
+	/**
+	 * Add the operation to the mix, unless its proportion is 0.
+	 */
+	void addOperation(ArrayList<Operation> ops, double proportion, Operation op) {
+		if (proportion>0)
+		{
+			operationchooser.addValue(proportion,op.name());
+			ops.add(op);
+		}
+	}
+
+	/**
+	 * The threadstate as an operation context, or a new context if the caller has none.
+	 */
+	OperationContext context(Object threadstate) {
+		if (threadstate instanceof OperationContext)
+		{
+			return (OperationContext)threadstate;
+		}
+		return new OperationContext(fieldnames,multireadsize,1);
 	}
 
 	/**
@@ -455,15 +673,68 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
-		int keynum=keysequence.nextInt();
-		String dbkey = buildKeyName(keynum);
-		HashMap<String, ByteIterator> values = buildValues();
+		OperationContext ctx=context(threadstate);
+		long keynum=keysequence.nextLong();
+		String dbkey = buildKeyName(keynum,ctx);
+
+		if (ctx.batch!=null)
+		{
+			//hold the record back until the batch is full. it keeps its values, so they can't be reused
+			InsertBatch batch=ctx.batch;
+			batch.keys.add(dbkey);
+			batch.values.add(buildValues());
+			if (batch.keys.size()<batchsize)
+			{
+				return true;
+			}
+			return flush(db,batch);
+		}
+
+		HashMap<String, ByteIterator> values = buildValues(ctx);
 		if (db.insert(table,dbkey,values) == 0)
 			return true;
 		else
 			return false;
 	}
 
+	/**
+	 * Insert the records held back in the batch, and empty it.
+	 */
+	boolean flush(DB db, InsertBatch batch)
+	{
+		int res=db.batchInsert(table,batch.keys,batch.values);
+		batch.keys.clear();
+		batch.values.clear();
+		return res==0;
+	}
+
+	/**
+	 * Create the objects the thread reuses from one operation to the next, including the batch that holds back
+	 * inserted records if the load phase inserts in batches.
+	 */
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new OperationContext(fieldnames,multireadsize,batchsize);
+	}
+
+	/**
+	 * Insert the last, partial, batch of the thread, and hand the thread's unused insert keys to the threads that are still running.
+	 */
+	@Override
+	public void cleanupThread(DB db, Object threadstate) throws WorkloadException
+	{
+		transactioninsertkeysequence.release();
+		if (threadstate instanceof OperationContext)
+		{
+			InsertBatch batch=((OperationContext)threadstate).batch;
+			if ( (batch!=null) && (!batch.keys.isEmpty()) && (!flush(db,batch)) )
+			{
+				throw new WorkloadException("Could not insert the last batch of records");
+			}
+		}
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -472,107 +743,116 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doTransaction(DB db, Object threadstate)
 	{
-		String op=operationchooser.nextString();
-
-		if (op.compareTo("READ")==0)
-		{
-			doTransactionRead(db);
-		}
-		else if (op.compareTo("UPDATE")==0)
-		{
-			doTransactionUpdate(db);
-		}
-		else if (op.compareTo("INSERT")==0)
+		OperationContext ctx=context(threadstate);
+		switch (operations[operationchooser.nextIndex()])
 		{
-			doTransactionInsert(db);
+		case READ:
+			doTransactionRead(db,ctx);
+			break;
+		case UPDATE:
+			doTransactionUpdate(db,ctx);
+			break;
+		case INSERT:
+			doTransactionInsert(db,ctx);
+			break;
+		case SCAN:
+			doTransactionScan(db,ctx);
+			break;
+		case MULTIREAD:
+			doTransactionMultiRead(db,ctx);
+			break;
+		case READMODIFYWRITE:
+			doTransactionReadModifyWrite(db,ctx);
+			break;
 		}
-		else if (op.compareTo("SCAN")==0)
-		{
-			doTransactionScan(db);
-		}
-		else
-		{
-			doTransactionReadModifyWrite(db);
-		}
-		
+
 		return true;
 	}
 
-    int nextKeynum() {
-        int keynum;
+    long nextKeynum() {
+        long keynum;
         if(keychooser instanceof ExponentialGenerator) {
             do
                 {
-                    keynum=transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                    keynum=transactioninsertkeysequence.lastLong() - keychooser.nextLong();
                 }
             while(keynum < 0);
         } else {
-            do
-                {
-                    keynum=keychooser.nextInt();
-                }
-            while (keynum > transactioninsertkeysequence.lastInt());
+            keynum=keychooser.nextLong();
         }
-        return keynum;
+        return transactionKeynum(keynum);
     }
 
-	public void doTransactionRead(DB db)
+	/**
+	 * The key of a number drawn from the keyspace: the loaded records keep their numbers, and the ones inserted by
+	 * transactions are moved past insertstart.
+	 */
+	long transactionKeynum(long keynum)
+	{
+		return keynum<recordcount ? keynum : keynum+transactioninsertoffset;
+	}
+
+	public void doTransactionRead(DB db, OperationContext ctx)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 		
-		String keyname = buildKeyName(keynum);
+		String keyname = buildKeyName(keynum,ctx);
 		
-		HashSet<String> fields=null;
+		Set<String> fields=chooseFields();
 
-		if (!readallfields)
+		ctx.result.clear();
+		db.read(table,keyname,fields,ctx.result);
+	}
+	
+	public void doTransactionMultiRead(DB db, OperationContext ctx)
+	{
+		//choose multireadsize distinct random keys. the list is short, so searching it is cheaper than hashing
+		ArrayList<String> keynames=ctx.multireadkeys;
+		keynames.clear();
+		while (keynames.size()<multireadsize)
 		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
+			String keyname=buildKeyName(nextKeynum(),ctx);
+			if (!keynames.contains(keyname))
+			{
+				keynames.add(keyname);
+			}
 		}
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		Set<String> fields=chooseFields();
+
+		ctx.multireadresults.clear();
+		db.multiRead(table,keynames,fields,ctx.multireadresults);
 	}
-	
-	public void doTransactionReadModifyWrite(DB db)
+
+	public void doTransactionReadModifyWrite(DB db, OperationContext ctx)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 
-		String keyname = buildKeyName(keynum);
+		String keyname = buildKeyName(keynum,ctx);
 
-		HashSet<String> fields=null;
-
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		Set<String> fields=chooseFields();
 		
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(ctx);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(ctx);
 		}
 
 		//do the transaction
 		
 		long st=System.currentTimeMillis();
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		ctx.result.clear();
+		db.read(table,keyname,fields,ctx.result);
 		
 		db.update(table,keyname,values);
 
@@ -581,61 +861,80 @@ public class CoreWorkload extends Workload
 		Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int)(en-st));
 	}
 	
-	public void doTransactionScan(DB db)
+	public void doTransactionScan(DB db, OperationContext ctx)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 
-		String startkeyname = buildKeyName(keynum);
+		String startkeyname = buildKeyName(keynum,ctx);
 		
 		//choose a random scan length
 		int len=scanlength.nextInt();
 
-		HashSet<String> fields=null;
-
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		Set<String> fields=chooseFields();
 
-		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+		ctx.scanresult.clear();
+		db.scan(table,startkeyname,len,fields,ctx.scanresult);
 	}
 
-	public void doTransactionUpdate(DB db)
+	public void doTransactionUpdate(DB db, OperationContext ctx)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 
-		String keyname=buildKeyName(keynum);
+		String keyname=buildKeyName(keynum,ctx);
 
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = buildValues(ctx);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = buildUpdate(ctx);
 		}
 
 		db.update(table,keyname,values);
 	}
 
-	public void doTransactionInsert(DB db)
+	public void doTransactionInsert(DB db, OperationContext ctx)
 	{
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		final long keynum=transactioninsertkeysequence.nextLong();
+		boolean started=false;
 
-		String dbkey = buildKeyName(keynum);
-
-		HashMap<String, ByteIterator> values = buildValues();
-		db.insert(table,dbkey,values);
+		try
+		{
+			String dbkey = buildKeyName(transactionKeynum(keynum),ctx);
+
+			HashMap<String, ByteIterator> values = buildValues(ctx);
+			if (db instanceof AsyncDBWrapper)
+			{
+				//the insert is still in flight when the call returns, so acknowledge the key once it completes
+				((AsyncDBWrapper)db).insert(table,dbkey,values,new Runnable()
+				{
+					public void run()
+					{
+						transactioninsertkeysequence.acknowledge(keynum);
+					}
+				});
+				started=true;
+			}
+			else
+			{
+				db.insert(table,dbkey,values);
+			}
+		}
+		finally
+		{
+			//only now may other operations choose this key
+			if (!started)
+			{
+				transactioninsertkeysequence.acknowledge(keynum);
+			}
+		}
 	}
 }
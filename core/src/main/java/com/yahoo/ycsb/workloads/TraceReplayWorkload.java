@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2012 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.trace.Trace;
+import com.yahoo.ycsb.trace.TraceReader;
+
+/**
+ * Replays a binary trace of operations (see Trace) against the database. The trace is memory mapped, and each client
+ * thread replays its own share of the records: with n threads, thread i takes records i, i+n, i+2n and so on, so the
+ * threads never share a record and all move through the trace's timeline together.
+ *
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>tracefile</b>: the trace to replay (required)
+ * <LI><b>tracetiming</b>: "original" to issue each operation at its time in the trace, or "asfastaspossible" to ignore the
+ * timestamps (default: original)
+ * <LI><b>tracespeedup</b>: with original timing, how many times faster than the trace to replay, e.g. 2 to replay an hour
+ * of traffic in half an hour (default: 1)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * <LI><b>fieldcount</b>: the number of fields in a record; field mask bits past this are ignored (default: 10)
+ * </ul>
+ *
+ * Set operationcount to 0 to replay the whole trace; each thread stops when it runs out of records. With original timing,
+ * latencies are measured from the time each operation was due, as with a target throughput, so a slow database shows up
+ * in every operation that should have started while it stalled. Don't also set a target, or the two will throttle each other.
+ */
+public class TraceReplayWorkload extends Workload
+{
+	public static final String TRACE_FILE_PROPERTY="tracefile";
+
+	public static final String TRACE_TIMING_PROPERTY="tracetiming";
+
+	public static final String TRACE_TIMING_PROPERTY_DEFAULT="original";
+
+	public static final String TRACE_SPEEDUP_PROPERTY="tracespeedup";
+
+	public static final String TRACE_SPEEDUP_PROPERTY_DEFAULT="1";
+
+	TraceReader reader;
+	String table;
+	String[] fieldnames;
+	boolean originaltiming;
+	double speedup;
+
+	/**
+	 * The timestamp of the first record, which is replayed at the start time.
+	 */
+	long firsttimestampns;
+
+	/**
+	 * When the first thread started replaying, or 0 before then.
+	 */
+	final AtomicLong starttimens=new AtomicLong();
+
+	/**
+	 * The fields named by one field mask, and a map of them to the thread's value generators.
+	 */
+	static class FieldMask
+	{
+		final Set<String> fields;
+		final HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		final RandomByteIterator[] data;
+
+		FieldMask(int fieldmask, String[] fieldnames, RandomByteIterator[] alldata)
+		{
+			fields=fieldmask==0 ? null : new HashSet<String>();
+			for (int i=0; i<fieldnames.length; i++)
+			{
+				if ( (fieldmask==0) || ((fieldmask&(1<<i))!=0) )
+				{
+					if (fields!=null)
+					{
+						fields.add(fieldnames[i]);
+					}
+					values.put(fieldnames[i],alldata[i]);
+				}
+			}
+			data=values.values().toArray(new RandomByteIterator[values.size()]);
+		}
+	}
+
+	/**
+	 * The state of one client thread. Traces use few distinct field masks, so the fields and values of each are
+	 * built once, and the values only get new lengths, as CoreWorkload's OperationContext does.
+	 */
+	static class ReplayState
+	{
+		final TraceReader.Cursor cursor;
+		final HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+		final Vector<HashMap<String,ByteIterator>> scanresult=new Vector<HashMap<String,ByteIterator>>();
+		final String[] fieldnames;
+
+		/**
+		 * One value generator per field.
+		 */
+		final RandomByteIterator[] data;
+
+		final HashMap<Integer,FieldMask> masks=new HashMap<Integer,FieldMask>();
+
+		ReplayState(TraceReader.Cursor cursor, String[] fieldnames)
+		{
+			this.cursor=cursor;
+			this.fieldnames=fieldnames;
+			data=new RandomByteIterator[fieldnames.length];
+			for (int i=0; i<fieldnames.length; i++)
+			{
+				data[i]=new RandomByteIterator(0);
+			}
+		}
+
+		FieldMask mask(int fieldmask)
+		{
+			FieldMask ret=masks.get(fieldmask);
+			if (ret==null)
+			{
+				ret=new FieldMask(fieldmask,fieldnames,data);
+				masks.put(fieldmask,ret);
+			}
+			return ret;
+		}
+
+		/**
+		 * The fields named by a field mask, or null (all fields) for an empty mask.
+		 */
+		Set<String> fields(int fieldmask)
+		{
+			return mask(fieldmask).fields;
+		}
+
+		/**
+		 * Random values of the given length for the fields in a field mask, or for every field for an empty mask.
+		 */
+		HashMap<String,ByteIterator> values(int fieldmask, int valuelength)
+		{
+			FieldMask mask=mask(fieldmask);
+			for (RandomByteIterator value : mask.data)
+			{
+				value.reset(valuelength);
+			}
+			return mask.values;
+		}
+	}
+
+	@Override
+	public void init(Properties p) throws WorkloadException
+	{
+		String tracefile=p.getProperty(TRACE_FILE_PROPERTY);
+		if (tracefile==null)
+		{
+			throw new WorkloadException("Missing property \""+TRACE_FILE_PROPERTY+"\"");
+		}
+		String timing=p.getProperty(TRACE_TIMING_PROPERTY,TRACE_TIMING_PROPERTY_DEFAULT);
+		if (timing.equals("original"))
+		{
+			originaltiming=true;
+		}
+		else if (timing.equals("asfastaspossible"))
+		{
+			originaltiming=false;
+		}
+		else
+		{
+			throw new WorkloadException("Unknown trace timing \""+timing+"\"");
+		}
+		speedup=Double.parseDouble(p.getProperty(TRACE_SPEEDUP_PROPERTY,TRACE_SPEEDUP_PROPERTY_DEFAULT));
+		if (speedup<=0)
+		{
+			throw new WorkloadException(TRACE_SPEEDUP_PROPERTY+" must be positive");
+		}
+		table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+		int fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+		fieldnames=new String[Math.min(fieldcount,32)];
+		for (int i=0; i<fieldnames.length; i++)
+		{
+			fieldnames[i]="field"+i;
+		}
+
+		try
+		{
+			reader=new TraceReader(new File(tracefile));
+			//records are in time order, so the first is the earliest
+			TraceReader.Cursor first=reader.cursor(0,1);
+			if (first.next())
+			{
+				firsttimestampns=first.timestampns;
+			}
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException(e);
+		}
+	}
+
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new ReplayState(reader.cursor(mythreadid,threadcount),fieldnames);
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		try
+		{
+			reader.close();
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException(e);
+		}
+	}
+
+	/**
+	 * Replay the thread's next record. The load phase replays the trace the same way as the transaction phase.
+	 */
+	@Override
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		return doTransaction(db,threadstate);
+	}
+
+	/**
+	 * Replay the thread's next record, waiting until it is due if the trace is replayed with its original timing.
+	 * @return false when the thread has replayed all of its records.
+	 */
+	@Override
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ReplayState state=(ReplayState)threadstate;
+		TraceReader.Cursor record=state.cursor;
+		try
+		{
+			if (!record.next())
+			{
+				return false;
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return false;
+		}
+
+		if (originaltiming)
+		{
+			waitUntilDue(record.timestampns);
+		}
+
+		String key=Trace.KEY_PREFIX+record.key;
+		switch (record.op)
+		{
+		case Trace.READ:
+			state.result.clear();
+			db.read(table,key,state.fields(record.fieldmask),state.result);
+			break;
+		case Trace.UPDATE:
+			db.update(table,key,state.values(record.fieldmask,record.valuelength));
+			break;
+		case Trace.INSERT:
+			db.insert(table,key,state.values(record.fieldmask,record.valuelength));
+			break;
+		case Trace.SCAN:
+			state.scanresult.clear();
+			db.scan(table,key,record.valuelength,state.fields(record.fieldmask),state.scanresult);
+			break;
+		case Trace.DELETE:
+			db.delete(table,key);
+			break;
+		default:
+			System.err.println("Skipping unknown trace operation "+record.op);
+		}
+		return true;
+	}
+
+	/**
+	 * Wait until the record with the given timestamp is due, and tell Measurements when that was.
+	 */
+	void waitUntilDue(long timestampns)
+	{
+		long start=starttimens.get();
+		if (start==0)
+		{
+			starttimens.compareAndSet(0,System.nanoTime());
+			start=starttimens.get();
+		}
+		long intendedstartns=start+(long)((timestampns-firsttimestampns)/speedup);
+		long waitns;
+		while (((waitns=intendedstartns-System.nanoTime())>0) && !isStopRequested())
+		{
+			LockSupport.parkNanos(waitns);
+		}
+		Measurements.getMeasurements().setIntendedStartTimeNs(intendedstartns);
+	}
+}
@@ -0,0 +1,140 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestAsyncDBWrapper {
+  /** A blocking binding that records how many of its instances are busy at once. */
+  public static class SlowDB extends DB {
+    static final AtomicInteger inflight = new AtomicInteger();
+    static final AtomicInteger maxinflight = new AtomicInteger();
+    static final AtomicInteger completed = new AtomicInteger();
+    static final AtomicInteger instances = new AtomicInteger();
+
+    public void init() {
+      instances.incrementAndGet();
+    }
+
+    int op() {
+      int now = inflight.incrementAndGet();
+      int max;
+      while ((max = maxinflight.get()) < now && !maxinflight.compareAndSet(max, now)) {
+      }
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+      }
+      inflight.decrementAndGet();
+      completed.incrementAndGet();
+      return 0;
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      result.put("field0", new StringByteIterator(key));
+      return op();
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return op();
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return op();
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return op();
+    }
+
+    public int delete(String table, String key) {
+      return op();
+    }
+  }
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testBlockingBindingKeepsOutstandingOperationsInFlight() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY, "4");
+    DB db = DBFactory.newDB(SlowDB.class.getName(), p);
+    assertTrue(db instanceof AsyncDBWrapper);
+
+    db.init();
+    assertEquals(4, SlowDB.instances.get());
+
+    long st = System.nanoTime();
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, db.update("usertable", "user" + i, new HashMap<String, ByteIterator>()));
+    }
+    db.read("usertable", "user0", null, result);
+    db.cleanup();
+    long elapsedms = (System.nanoTime() - st) / 1000000;
+
+    // cleanup waits for every operation, never more than 4 ran at once, and they overlapped
+    assertEquals(101, SlowDB.completed.get());
+    assertEquals(4, SlowDB.maxinflight.get());
+    assertTrue("took " + elapsedms + " ms", elapsedms < 101 * 5);
+    // the caller may reuse its result map as soon as the call returns, so the binding fills one of its own
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  public void testInsertRunsItsTaskOnceCompleted() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY, "4");
+    AsyncDBWrapper db = (AsyncDBWrapper) DBFactory.newDB(SlowDB.class.getName(), p);
+    db.init();
+    final AtomicInteger done = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      db.insert("usertable", "user" + i, new HashMap<String, ByteIterator>(), new Runnable() {
+        public void run() {
+          done.incrementAndGet();
+        }
+      });
+    }
+    // the first inserts are still sleeping in the binding
+    assertTrue(done.get() < 10);
+    db.cleanup();
+    assertEquals(10, done.get());
+  }
+
+  @Test(timeOut = 10000)
+  public void testThrowingTaskDoesNotStopTheWorkers() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY, "2");
+    AsyncDBWrapper db = (AsyncDBWrapper) DBFactory.newDB(SlowDB.class.getName(), p);
+    db.init();
+    final AtomicInteger done = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      db.insert("usertable", "user" + i, new HashMap<String, ByteIterator>(), new Runnable() {
+        public void run() {
+          done.incrementAndGet();
+          throw new IllegalStateException("test");
+        }
+      });
+    }
+    // every insert still completes, so cleanup does not wait forever
+    db.cleanup();
+    assertEquals(10, done.get());
+  }
+
+  @Test
+  public void testBlockingBindingWithoutOutstandingIsWrapped() throws Exception {
+    DB db = DBFactory.newDB(SlowDB.class.getName(), new Properties());
+    assertTrue(db instanceof DBWrapper);
+  }
+}
@@ -0,0 +1,232 @@
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.IntervalLogReader;
+
+public class TestCoordinator {
+  /** Writes the keys it inserted to keylog.n, for worker n. */
+  public static class KeyLogDB extends DB {
+    List<String> keys = new ArrayList<String>();
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      keys.add(key);
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+
+    public void cleanup() throws DBException {
+      if (getProperties().getProperty("keylog") == null) {
+        return;
+      }
+      try {
+        PrintWriter out = new PrintWriter(new FileWriter(getProperties().getProperty("keylog") + "." + getProperties().getProperty(Coordinator.WORKER_PROPERTY), true));
+        for (String key : keys) {
+          out.println(key);
+        }
+        out.close();
+      } catch (IOException e) {
+        throw new DBException(e);
+      }
+    }
+  }
+
+  static Map<String, String> run(File dir, boolean load, String... properties) throws Exception {
+    File export = new File(dir, "export.txt");
+    Properties props = new Properties();
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "3");
+    props.setProperty("exportfile", export.getPath());
+    List<String> args = new ArrayList<String>(Arrays.asList("-db", KeyLogDB.class.getName(), load ? "-load" : "-t"));
+    for (String p : properties) {
+      args.add("-p");
+      args.add(p);
+      props.setProperty(p.substring(0, p.indexOf('=')), p.substring(p.indexOf('=') + 1));
+    }
+    assertTrue(new Coordinator(props).run(args, !load));
+
+    Map<String, String> ret = new HashMap<String, String>();
+    BufferedReader in = new BufferedReader(new FileReader(export));
+    String line;
+    while ((line = in.readLine()) != null) {
+      String[] parts = line.split(", ");
+      ret.put(parts[0] + " " + parts[1], parts[2]);
+    }
+    in.close();
+    return ret;
+  }
+
+  static File tempDir() throws IOException {
+    File dir = File.createTempFile("coordinator", "");
+    dir.delete();
+    dir.mkdir();
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  @Test
+  public void testLoadSplitsTheKeys() throws Exception {
+    File dir = tempDir();
+    Map<String, String> export = run(dir, true, "workload=com.yahoo.ycsb.workloads.CoreWorkload", "recordcount=1000", "insertstart=100", "insertcount=700",
+        "keylog=" + new File(dir, "keys").getPath());
+
+    // each worker inserted its own slice of the keys, and together all of them
+    Set<String> keys = new HashSet<String>();
+    int total = 0;
+    for (int i = 0; i < 3; i++) {
+      File keylog = new File(dir, "keys." + i);
+      keylog.deleteOnExit();
+      BufferedReader in = new BufferedReader(new FileReader(keylog));
+      String line;
+      while ((line = in.readLine()) != null) {
+        keys.add(line);
+        total++;
+      }
+      in.close();
+    }
+    assertEquals(700, total);
+    assertEquals(700, keys.size());
+    assertEquals("700", export.get("[INSERT] Operations"));
+    assertEquals("700", export.get("[INSERT] Return=0"));
+  }
+
+  @Test
+  public void testTransactionsInsertDisjointKeys() throws Exception {
+    File dir = tempDir();
+    Map<String, String> export = run(dir, false, "workload=com.yahoo.ycsb.workloads.CoreWorkload", "recordcount=1000", "operationcount=600",
+        "readproportion=0", "updateproportion=0", "insertproportion=1", "insertorder=ordered", "keylog=" + new File(dir, "keys").getPath());
+
+    // no two workers inserted the same key, and none of them a loaded record
+    Set<String> keys = new HashSet<String>();
+    int total = 0;
+    for (int i = 0; i < 3; i++) {
+      File keylog = new File(dir, "keys." + i);
+      keylog.deleteOnExit();
+      BufferedReader in = new BufferedReader(new FileReader(keylog));
+      String line;
+      while ((line = in.readLine()) != null) {
+        assertTrue(line, Long.parseLong(line.substring(4)) >= 1000);
+        keys.add(line);
+        total++;
+      }
+      in.close();
+    }
+    assertEquals(600, total);
+    assertEquals(600, keys.size());
+    assertEquals("600", export.get("[INSERT] Return=0"));
+  }
+
+  @Test
+  public void testRunMergesTheWorkersIntervals() throws Exception {
+    File dir = tempDir();
+    String intervallog = new File(dir, "intervals").getPath();
+    Map<String, String> export = run(dir, false, "workload=com.yahoo.ycsb.workloads.CoreWorkload", "recordcount=1000", "operationcount=1000",
+        "readproportion=1", "updateproportion=0", "status.interval=0.1", "target=5000", Coordinator.INTERVAL_LOG_PROPERTY + "=" + intervallog);
+    assertEquals("1000", export.get("[READ] Operations"));
+    assertEquals("1000", export.get("[READ] Return=0"));
+    assertNotNull(export.get("[READ] 99thPercentileLatency(us)"));
+    double throughput = Double.parseDouble(export.get("[OVERALL] Throughput(ops/sec)"));
+    assertTrue("throughput " + throughput, throughput > 2000 && throughput < 6000);
+
+    // the workers' intervals add up to the same operations
+    long operations = 0;
+    for (int i = 0; i < 3; i++) {
+      File log = new File(intervallog + "." + i);
+      log.deleteOnExit();
+      IntervalLogReader reader = new IntervalLogReader(log);
+      while (reader.next()) {
+        if (reader.name.equals("READ")) {
+          operations += reader.latencies.getTotalCount();
+        }
+      }
+      reader.close();
+    }
+    assertEquals(1000, operations);
+  }
+
+  @Test(timeOut = 120000)
+  public void testStrayConnectionsDoNotHoldUpTheWorkers() throws Exception {
+    ServerSocket free = new ServerSocket(0);
+    final int port = free.getLocalPort();
+    free.close();
+
+    // one connection that never says anything, and one that says something else, before the workers connect
+    final List<Socket> strays = new ArrayList<Socket>();
+    Thread connect = new Thread() {
+      public void run() {
+        while (strays.size() < 2) {
+          try {
+            Socket socket = new Socket("localhost", port);
+            if (strays.size() == 1) {
+              socket.getOutputStream().write(new byte[] {42, 0, 0, 0, 0});
+            }
+            strays.add(socket);
+          } catch (IOException e) {
+            try {
+              Thread.sleep(10);
+            } catch (InterruptedException ie) {
+              return;
+            }
+          }
+        }
+      }
+    };
+    connect.start();
+    Map<String, String> export = run(tempDir(), false, "workload=com.yahoo.ycsb.workloads.CoreWorkload", "recordcount=100", "operationcount=300",
+        "readproportion=1", "updateproportion=0", Coordinator.PORT_PROPERTY + "=" + port);
+    assertEquals("300", export.get("[READ] Operations"));
+    connect.join();
+    for (Socket socket : strays) {
+      socket.close();
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    Properties props = new Properties();
+    props.setProperty("target", "100");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    List<List<String>> shares = new Coordinator(props).split(Arrays.asList("-t"), 3, true);
+    assertEquals(Arrays.asList("-t", "-p", "status.interval=1", "-p", "target=33", "-p", "insertstart=10", "-p", "operationcount=3"), shares.get(0));
+    assertEquals(Arrays.asList("-t", "-p", "status.interval=1", "-p", "target=34", "-p", "insertstart=16", "-p", "operationcount=4"), shares.get(2));
+
+    props.remove("target");
+    shares = new Coordinator(props).split(Arrays.asList("-load"), 3, false);
+    assertEquals(Arrays.asList("-load", "-p", "status.interval=1", "-p", "insertstart=3", "-p", "insertcount=3"), shares.get(1));
+    assertEquals(Arrays.asList("-load", "-p", "status.interval=1", "-p", "insertstart=6", "-p", "insertcount=4"), shares.get(2));
+  }
+}
@@ -0,0 +1,87 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+public class TestMultiRead {
+  /** Finds every key except "missing", and remembers the keys of each multi-read. */
+  static class KeyDB extends DB {
+    final List<List<String>> multireads = new ArrayList<List<String>>();
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      if (key.equals("missing")) {
+        return 1;
+      }
+      result.put("field0", new StringByteIterator(key));
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  static class RecordingDB extends KeyDB {
+    public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String, HashMap<String, ByteIterator>> results) {
+      multireads.add(keys);
+      return super.multiRead(table, keys, fields, results);
+    }
+  }
+
+  @Test
+  public void testDefaultMultiReadReadsEachKey() {
+    HashMap<String, HashMap<String, ByteIterator>> results = new HashMap<String, HashMap<String, ByteIterator>>();
+    assertEquals(0, new KeyDB().multiRead("t", Arrays.asList("a", "b"), null, results));
+    assertEquals(2, results.size());
+    assertEquals("b", results.get("b").get("field0").toString());
+
+    results.clear();
+    assertEquals(1, new KeyDB().multiRead("t", Arrays.asList("a", "missing", "c"), null, results));
+    assertEquals(new HashSet<String>(Arrays.asList("a", "c")), results.keySet());
+  }
+
+  @Test
+  public void testWorkloadReadsDistinctKeys() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("recordcount", "20");
+    p.setProperty("operationcount", "100");
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0");
+    p.setProperty(CoreWorkload.MULTIREAD_PROPORTION_PROPERTY, "1");
+    p.setProperty(CoreWorkload.MULTIREAD_SIZE_PROPERTY, "15");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(workload.doTransaction(db, null));
+    }
+    assertEquals(100, db.multireads.size());
+    for (List<String> keys : db.multireads) {
+      assertEquals(15, keys.size());
+      assertEquals(15, new HashSet<String>(keys).size());
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestPooledDB {
+  /** A blocking binding that records how many of its instances exist and are busy at once. */
+  public static class CountingDB extends DB {
+    static final AtomicInteger instances = new AtomicInteger();
+    static final AtomicInteger cleanedup = new AtomicInteger();
+    static final AtomicInteger inflight = new AtomicInteger();
+    static final AtomicInteger maxinflight = new AtomicInteger();
+    static final AtomicInteger completed = new AtomicInteger();
+
+    boolean busy;
+
+    public void init() {
+      instances.incrementAndGet();
+    }
+
+    public void cleanup() {
+      cleanedup.incrementAndGet();
+    }
+
+    synchronized int op() {
+      // an instance is never used by two threads at once
+      assertFalse(busy);
+      busy = true;
+      int now = inflight.incrementAndGet();
+      int max;
+      while ((max = maxinflight.get()) < now && !maxinflight.compareAndSet(max, now)) {
+      }
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+      }
+      inflight.decrementAndGet();
+      completed.incrementAndGet();
+      busy = false;
+      return 0;
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return op();
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return op();
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return op();
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return op();
+    }
+
+    public int delete(String table, String key) {
+      return op();
+    }
+  }
+
+  /** A binding whose third instance fails to initialize, and which counts its open instances. */
+  public static class FailingDB extends DB {
+    static final AtomicInteger inits = new AtomicInteger();
+    static final AtomicInteger open = new AtomicInteger();
+
+    public void init() throws DBException {
+      if (inits.incrementAndGet() % 3 == 0) {
+        throw new DBException("cannot connect");
+      }
+      open.incrementAndGet();
+    }
+
+    public void cleanup() {
+      open.decrementAndGet();
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testClientThreadsShareABoundedPool() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(PooledDB.LIFECYCLE_PROPERTY, PooledDB.LIFECYCLE_POOLED);
+    p.setProperty(PooledDB.POOL_SIZE_PROPERTY, "3");
+    final DB[] dbs = new DB[8];
+    for (int i = 0; i < dbs.length; i++) {
+      dbs[i] = DBFactory.newDB(CountingDB.class.getName(), p);
+      assertTrue(dbs[i] instanceof DBWrapper);
+      dbs[i].init();
+    }
+    // the first thread created the whole pool, the others share it
+    assertEquals(3, CountingDB.instances.get());
+
+    Thread[] threads = new Thread[dbs.length];
+    for (int i = 0; i < threads.length; i++) {
+      final DB db = dbs[i];
+      threads[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < 50; j++) {
+            assertEquals(0, db.update("usertable", "user" + j, new HashMap<String, ByteIterator>()));
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(400, CountingDB.completed.get());
+    assertEquals(3, CountingDB.maxinflight.get());
+
+    // the instances are cleaned up by the last thread to clean up
+    for (int i = 0; i < dbs.length - 1; i++) {
+      dbs[i].cleanup();
+    }
+    assertEquals(0, CountingDB.cleanedup.get());
+    dbs[dbs.length - 1].cleanup();
+    assertEquals(3, CountingDB.cleanedup.get());
+  }
+
+  @Test
+  public void testFailedPoolClosesItsInstances() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(PooledDB.LIFECYCLE_PROPERTY, PooledDB.LIFECYCLE_POOLED);
+    p.setProperty(PooledDB.POOL_SIZE_PROPERTY, "4");
+    for (int i = 0; i < 2; i++) {
+      DB db = DBFactory.newDB(FailingDB.class.getName(), p);
+      try {
+        db.init();
+        fail();
+      } catch (DBException e) {
+      }
+      // the instances initialized before the failure were cleaned up
+      assertEquals(0, FailingDB.open.get());
+    }
+    assertEquals(6, FailingDB.inits.get());
+  }
+
+  @Test
+  public void testPooledCannotBeCombinedWithOutstanding() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(PooledDB.LIFECYCLE_PROPERTY, PooledDB.LIFECYCLE_POOLED);
+    p.setProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY, "4");
+    assertNull(DBFactory.newDB(CountingDB.class.getName(), p));
+  }
+
+  @Test
+  public void testUnknownLifecycleIsRejected() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(PooledDB.LIFECYCLE_PROPERTY, "shared");
+    assertNull(DBFactory.newDB(CountingDB.class.getName(), p));
+  }
+}
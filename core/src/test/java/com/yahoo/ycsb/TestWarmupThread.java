@@ -0,0 +1,55 @@
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.IntervalMeasurement;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestWarmupThread {
+  @Test
+  public void testParse() {
+    assertEquals(30000, WarmupThread.newWarmupThread("30", null)._warmupms);
+    assertEquals(1500, WarmupThread.newWarmupThread("1.5s", null)._warmupms);
+    WarmupThread ops = WarmupThread.newWarmupThread(" 100000ops ", null);
+    assertEquals(0, ops._warmupms);
+    assertEquals(100000, ops._warmupops);
+    try {
+      WarmupThread.newWarmupThread("ten", null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("ten"));
+    }
+  }
+
+  @Test
+  public void testEndsAfterOperations() throws Exception {
+    Measurements.setProperties(new Properties());
+    Vector<ClientThread> clients = new Vector<ClientThread>();
+    for (int i = 0; i < 2; i++) {
+      clients.add(new ClientThread(null, true, null, i, 2, new Properties(), 0, null));
+    }
+    WarmupThread warmup = WarmupThread.newWarmupThread("100ops", clients);
+    Measurements.getMeasurements().startWarmup();
+    warmup.start();
+
+    clients.get(0)._opsdone = 60;
+    Thread.sleep(20);
+    assertFalse(warmup.isDone());
+    clients.get(1)._opsdone = 50;
+    warmup.join(5000);
+    assertTrue(warmup.isDone());
+    assertEquals(110, warmup._opsdone);
+
+    // other tests may have measured into the singleton too
+    Measurements.getMeasurements().measure("READ", 1);
+    boolean found = false;
+    for (IntervalMeasurement m : Measurements.getMeasurements().getIntervals()) {
+      found |= m.name.equals("READ");
+    }
+    assertTrue(found);
+  }
+}
@@ -0,0 +1,64 @@
+package com.yahoo.ycsb.arrival;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestArrivalProcess {
+  private static final long SECOND = 1000000000L;
+
+  /** Count the arrivals in the first n nanoseconds of the run. */
+  private static int arrivalsWithin(ArrivalProcess arrivals, long ns) {
+    arrivals.start(0);
+    int count = 0;
+    while (arrivals.nextIntendedStartNs() < ns) {
+      count++;
+    }
+    return count;
+  }
+
+  private static ArrivalProcess newArrivalProcess(String process, String schedule, double target, int threads) {
+    Properties p = new Properties();
+    p.setProperty(ArrivalProcess.ARRIVAL_PROCESS_PROPERTY, process);
+    if (schedule != null) {
+      p.setProperty(ArrivalProcess.SCHEDULE_PROPERTY, schedule);
+    }
+    return ArrivalProcess.newArrivalProcess(p, target, threads);
+  }
+
+  @Test
+  public void testConstantHoldsTargetWithoutDrift() {
+    assertNull(newArrivalProcess("constant", null, 0, 4));
+    // 500k ops/s over 8 threads is a 16us interval, which a millisecond sleep cannot do
+    ArrivalProcess arrivals = newArrivalProcess("constant", null, 500000, 8);
+    assertEquals(62500 * 60, arrivalsWithin(arrivals, 60 * SECOND), 1);
+  }
+
+  @Test
+  public void testPoissonAveragesTarget() {
+    ArrivalProcess arrivals = newArrivalProcess("poisson", null, 500000, 8);
+    assertEquals(62500 * 10, arrivalsWithin(arrivals, 10 * SECOND), 62500 * 10 / 100);
+  }
+
+  @Test
+  public void testStepAndRamp() {
+    // 1000/s for 10s, then 3000/s for 10s, then stop
+    ArrivalProcess step = newArrivalProcess("step", "0:2000, 10:6000, 20:0", 0, 2);
+    assertEquals(1000 * 10 + 3000 * 10, arrivalsWithin(step, Long.MAX_VALUE - 1), 1);
+
+    // linearly from 0/s to 1000/s over 10s, then 1000/s: 5000 in the first 10s
+    ArrivalProcess ramp = newArrivalProcess("ramp", "0:0,10:1000", 0, 1);
+    assertEquals(5000, arrivalsWithin(ramp, 10 * SECOND), 1);
+    assertEquals(5000 + 10000, arrivalsWithin(ramp, 20 * SECOND), 1);
+
+    // the first throughput is held until the first point
+    ArrivalProcess late = newArrivalProcess("ramp", "5:100,10:100", 0, 1);
+    assertEquals(2000, arrivalsWithin(late, 20 * SECOND), 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadSchedule() {
+    newArrivalProcess("ramp", "10:100,5:100", 0, 1);
+  }
+}
@@ -0,0 +1,139 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestAcknowledgedCounterGenerator {
+  @Test
+  public void testLimitWaitsForEveryEarlierKey() {
+    AcknowledgedCounterGenerator g = new AcknowledgedCounterGenerator(100, 4);
+    assertEquals(99, g.lastLong());
+    long a = g.nextLong();
+    long b = g.nextLong();
+    long c = g.nextLong();
+    assertEquals(100, a);
+    assertEquals(102, c);
+
+    g.acknowledge(b);
+    g.acknowledge(c);
+    assertEquals(99, g.lastLong());
+    g.acknowledge(a);
+    assertEquals(102, g.lastLong());
+    assertEquals(102, g.lastInt());
+  }
+
+  @Test
+  public void testReleasedKeysGoToTheNextThread() throws Exception {
+    final AcknowledgedCounterGenerator g = new AcknowledgedCounterGenerator(0, 16);
+    Thread t = new Thread() {
+      public void run() {
+        g.acknowledge(g.nextLong());
+        g.release();
+      }
+    };
+    t.start();
+    t.join();
+    assertEquals(0, g.lastLong());
+    // the rest of the first thread's block comes before a fresh one
+    for (long i = 1; i < 16; i++) {
+      assertEquals(i, g.nextLong());
+    }
+    assertEquals(16, g.nextLong());
+  }
+
+  @Test
+  public void testMoreThreadsThanTheWindowHolds() throws Exception {
+    // each thread holds a block of 4 keys, so the unacknowledged keys reach far past a window of 64
+    final AcknowledgedCounterGenerator g = new AcknowledgedCounterGenerator(0, 4, 64);
+    final Thread[] threads = new Thread[200];
+    final CountDownLatch taken = new CountDownLatch(threads.length);
+    final Set<Long> keys = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          long key = g.nextLong();
+          keys.add(key);
+          taken.countDown();
+          try {
+            taken.await();
+          } catch (InterruptedException e) {
+          }
+          g.acknowledge(key);
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertTrue(g.window.length() > 64);
+    for (long key = 0; key <= g.lastLong(); key++) {
+      assertTrue(keys.contains(key));
+    }
+  }
+
+  @Test
+  public void testIdleThreadsDoNotHoldBackTheLimit() throws Exception {
+    // threads that insert once and never again, without releasing their blocks
+    final AcknowledgedCounterGenerator g = new AcknowledgedCounterGenerator(0, 4, 64);
+    Thread[] threads = new Thread[100];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          g.acknowledge(g.nextLong());
+        }
+      };
+      threads[t].start();
+      threads[t].join();
+    }
+
+    // an active inserter takes over the rest of their blocks, until the limit reaches its own keys
+    long last = 0;
+    for (int i = 0; i < 2000; i++) {
+      long key = g.nextLong();
+      last = Math.max(last, key);
+      g.acknowledge(key);
+    }
+    assertEquals(last, g.lastLong());
+  }
+
+  @Test
+  public void testConcurrentInsertersNeverExposeUnacknowledgedKeys() throws Exception {
+    final int start = 1000;
+    final int perthread = 20000;
+    final AcknowledgedCounterGenerator g = new AcknowledgedCounterGenerator(start);
+    final Set<Long> acked = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    final AtomicInteger problems = new AtomicInteger();
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < perthread; i++) {
+            long key = g.nextLong();
+            if (!acked.add(key)) {
+              problems.incrementAndGet();
+            }
+            g.acknowledge(key);
+            long limit = g.lastLong();
+            if (limit >= start && !acked.contains(limit)) {
+              problems.incrementAndGet();
+            }
+          }
+          g.release();
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, problems.get());
+    assertEquals(start + threads.length * perthread - 1, g.lastLong());
+  }
+}
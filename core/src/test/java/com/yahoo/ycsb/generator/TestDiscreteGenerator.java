@@ -0,0 +1,68 @@
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDiscreteGenerator {
+  private static int[] draw(DiscreteGenerator g, int values, int n) {
+    int[] counts = new int[values];
+    for (int i = 0; i < n; i++) {
+      counts[g.nextIndex()]++;
+    }
+    return counts;
+  }
+
+  @Test
+  public void testFrequenciesFollowTheWeights() {
+    DiscreteGenerator g = new DiscreteGenerator();
+    double[] weights = { 0.5, 0.25, 0.125, 0.0625, 0.0625 };
+    for (int i = 0; i < weights.length; i++) {
+      g.addValue(weights[i], "v" + i);
+    }
+    int n = 1000000;
+    int[] counts = draw(g, weights.length, n);
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals("v" + i, weights[i], (double) counts[i] / n, 0.005);
+    }
+  }
+
+  @Test
+  public void testWeightsNeedNotAddUpToOne() {
+    DiscreteGenerator g = new DiscreteGenerator();
+    g.addValue(3, "a");
+    g.addValue(1, "b");
+    int n = 100000;
+    int a = 0;
+    for (int i = 0; i < n; i++) {
+      if (g.nextString().equals("a")) {
+        a++;
+      }
+    }
+    assertEquals(0.75, (double) a / n, 0.01);
+  }
+
+  @Test
+  public void testZeroWeightIsNeverDrawn() {
+    DiscreteGenerator g = new DiscreteGenerator();
+    g.addValue(0.95, "READ");
+    g.addValue(0, "SCAN");
+    g.addValue(0.05, "UPDATE");
+    int[] counts = draw(g, 3, 100000);
+    assertEquals(0, counts[1]);
+    assertTrue(counts[2] > 0);
+  }
+
+  @Test
+  public void testSingleValue() {
+    DiscreteGenerator g = new DiscreteGenerator();
+    g.addValue(1, "READ");
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("READ", g.nextString());
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testNoValues() {
+    new DiscreteGenerator().nextString();
+  }
+}
@@ -0,0 +1,104 @@
+package com.yahoo.ycsb.generator;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestGrowingScrambledZipfianGenerator {
+  @Test
+  public void testNeverReturnsAKeyThatWasNotInserted() {
+    CounterGenerator keys = new CounterGenerator(100);
+    GrowingScrambledZipfianGenerator g = new GrowingScrambledZipfianGenerator(keys, 100);
+    for (int i = 0; i < 100000; i++) {
+      if (i % 10 == 0) {
+        keys.nextInt();
+      }
+      int key = g.nextInt();
+      assertTrue(key >= 0);
+      assertTrue(key + " > " + keys.lastInt(), key <= keys.lastInt());
+    }
+  }
+
+  @Test
+  public void testLoadedKeysAreAPermutation() {
+    long[] sizes = { 1, 2, 3, 10, 97, 100, 1024, 1000000 };
+    for (long n : sizes) {
+      GrowingScrambledZipfianGenerator g = new GrowingScrambledZipfianGenerator(new CounterGenerator((int) n), n);
+      Set<Long> seen = new HashSet<Long>();
+      for (long r = 0; r < n; r++) {
+        long key = g.keyForRank(r);
+        assertTrue(key >= 0 && key < n);
+        assertTrue(seen.add(key));
+      }
+      // inserted keys join at the tail, in insertion order
+      assertEquals(n, g.keyForRank(n));
+      assertEquals(n + 5, g.keyForRank(n + 5));
+    }
+  }
+
+  @Test
+  public void testHottestKeysAreScatteredAndStayHotAsKeysAreInserted() {
+    int n = 1000;
+    CounterGenerator keys = new CounterGenerator(n);
+    GrowingScrambledZipfianGenerator g = new GrowingScrambledZipfianGenerator(keys, n);
+    long hottest = g.keyForRank(0);
+    long second = g.keyForRank(1);
+    assertTrue(Math.abs(hottest - second) > n / 10);
+
+    for (int i = 0; i < 5000; i++) {
+      keys.nextInt();
+    }
+    int[] counts = new int[keys.lastInt() + 1];
+    for (int i = 0; i < 200000; i++) {
+      counts[g.nextInt()]++;
+    }
+    for (int i = 0; i < counts.length; i++) {
+      if (i != hottest) {
+        assertTrue(counts[(int) hottest] > counts[i]);
+      }
+    }
+    assertTrue(counts[(int) second] > counts[n]);
+  }
+
+  @Test
+  public void testMulmodDoesNotOverflow() {
+    long m = Long.MAX_VALUE - 24;
+    long a = m - 1;
+    long b = m / 3;
+    BigInteger expected = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(m));
+    assertEquals(expected.longValue(), GrowingScrambledZipfianGenerator.mulmod(a, b, m));
+    assertEquals(6, GrowingScrambledZipfianGenerator.mulmod(3, 2, 7));
+  }
+
+  @Test
+  public void testConcurrentGrowthPublishesTheLargestZeta() throws Exception {
+    final ZipfianGenerator z = new ZipfianGenerator(10);
+    final AtomicInteger outofrange = new AtomicInteger();
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int count = 10 + offset; count <= 20000; count += threads.length) {
+            long ret = z.nextLong(count);
+            if (ret < 0 || ret >= count) {
+              outofrange.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, outofrange.get());
+    ZipfianGenerator.ZetaState state = z.zeta.get();
+    assertTrue(state.count >= 20000 - threads.length);
+    assertEquals(ZipfianGenerator.zetastatic(state.count, z.theta), state.zetan, 1e-9);
+  }
+}
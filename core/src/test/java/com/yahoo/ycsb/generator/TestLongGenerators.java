@@ -0,0 +1,88 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.Utils;
+
+public class TestLongGenerators {
+  private static final long BIG = 20000000000L;
+
+  @Test
+  public void testRandomLongStaysInBounds() {
+    Random random = new Random(1);
+    boolean aboveint = false;
+    for (int i = 0; i < 10000; i++) {
+      long v = Utils.random(random, BIG);
+      assertTrue(v >= 0 && v < BIG);
+      aboveint |= v > Integer.MAX_VALUE;
+      assertTrue(Utils.random(random, 10) < 10);
+    }
+    assertTrue(aboveint);
+  }
+
+  @Test
+  public void testUniformCoversALongRange() {
+    UniformIntegerGenerator g = new UniformIntegerGenerator(BIG, 2 * BIG - 1);
+    for (int i = 0; i < 10000; i++) {
+      long v = g.nextLong();
+      assertTrue(v >= BIG && v < 2 * BIG);
+      assertEquals(v, g.lastLong());
+    }
+    assertEquals(1.5 * BIG - 0.5, g.mean(), 1);
+  }
+
+  @Test
+  public void testHotspotCoversALongRange() {
+    HotspotIntegerGenerator g = new HotspotIntegerGenerator(0, BIG - 1, 0.2, 0.8);
+    int hot = 0;
+    for (int i = 0; i < 10000; i++) {
+      long v = g.nextLong();
+      assertTrue(v >= 0 && v < BIG);
+      if (v < BIG / 5) {
+        hot++;
+      }
+    }
+    assertEquals(0.8, hot / 10000.0, 0.03);
+  }
+
+  @Test
+  public void testZipfianSamplesBeyondIntRange() {
+    // the precomputed zeta of ScrambledZipfianGenerator saves summing ten billion terms
+    ZipfianGenerator g = new ZipfianGenerator(0, ScrambledZipfianGenerator.ITEM_COUNT - 1,
+        ScrambledZipfianGenerator.USED_ZIPFIAN_CONSTANT, ScrambledZipfianGenerator.ZETAN);
+    int zero = 0;
+    int aboveint = 0;
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      long v = g.nextLong();
+      assertTrue(v >= 0 && v < ScrambledZipfianGenerator.ITEM_COUNT);
+      if (v == 0) {
+        zero++;
+      }
+      if (v > Integer.MAX_VALUE) {
+        aboveint++;
+      }
+    }
+    // item 0 has probability 1/zeta(n), and about 6% of the mass lies past 2^31
+    assertEquals(1 / ScrambledZipfianGenerator.ZETAN, (double) zero / n, 0.005);
+    assertEquals(0.06, (double) aboveint / n, 0.02);
+  }
+
+  @Test
+  public void testExponentialOverALongRange() {
+    ExponentialGenerator g = new ExponentialGenerator(95, BIG);
+    int within = 0;
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      long v = g.nextLong();
+      assertTrue(v >= 0 && v < Long.MAX_VALUE);
+      if (v < BIG) {
+        within++;
+      }
+    }
+    assertEquals(0.95, (double) within / n, 0.01);
+  }
+}
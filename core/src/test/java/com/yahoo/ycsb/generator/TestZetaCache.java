@@ -0,0 +1,60 @@
+package com.yahoo.ycsb.generator;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestZetaCache {
+  private static final double THETA = ZipfianGenerator.ZIPFIAN_CONSTANT;
+
+  private static File tempFile() throws Exception {
+    File file = File.createTempFile("zeta", ".cache");
+    file.delete();
+    file.deleteOnExit();
+    return file;
+  }
+
+  @Test
+  public void testParallelSumMatchesSerialSum() {
+    long n = 3000000;
+    double serial = ZipfianGenerator.zetaterms(0, n, THETA);
+    double parallel = ZipfianGenerator.zetaparallel(0, n, THETA, 4);
+    assertEquals(serial, parallel, serial * 1e-12);
+    assertEquals(serial + ZipfianGenerator.zetaterms(n, n + 10, THETA),
+        ZipfianGenerator.zetaparallel(0, n + 10, THETA, 3), serial * 1e-12);
+  }
+
+  @Test
+  public void testCachedValueIsReusedAndExtended() throws Exception {
+    File file = tempFile();
+    long n = 2000000;
+    double zetan = ZetaCache.zeta(file, n, THETA);
+    assertEquals(ZipfianGenerator.zetastatic(n, THETA), zetan, zetan * 1e-12);
+    assertEquals(1, ZetaCache.load(file, THETA).size());
+
+    // the same value comes back without being appended again
+    assertEquals(zetan, ZetaCache.zeta(file, n, THETA));
+    assertEquals(1, ZetaCache.load(file, THETA).size());
+
+    // nearby item counts start from the cached value, in either direction
+    assertEquals(ZipfianGenerator.zetastatic(n + 1000, THETA), ZetaCache.zeta(file, n + 1000, THETA), zetan * 1e-12);
+    assertEquals(ZipfianGenerator.zetastatic(n - 1000, THETA), ZetaCache.zeta(file, n - 1000, THETA), zetan * 1e-12);
+    assertEquals(3, ZetaCache.load(file, THETA).size());
+  }
+
+  @Test
+  public void testOtherConstantsAndBrokenLinesAreIgnored() throws Exception {
+    File file = tempFile();
+    FileWriter out = new FileWriter(file);
+    out.write("0.5 1000 12.5\n");
+    out.write("0.99 1000\n");
+    out.write("0.99 10x0 3.0\n");
+    out.write("0.99 2000 9.0\n");
+    out.close();
+    assertEquals(1, ZetaCache.load(file, THETA).size());
+    assertEquals(9.0, ZetaCache.zeta(file, 2000, THETA));
+    assertEquals(12.5, ZetaCache.zeta(file, 1000, 0.5));
+  }
+}
@@ -0,0 +1,157 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestIntervalLog {
+  static LogLinearHistogram histogram(long value, long count) {
+    LogLinearHistogram h = new LogLinearHistogram(3600L * 1000 * 1000, 2);
+    h.recordValues(value, count);
+    return h;
+  }
+
+  /** A log with a READ and an UPDATE interval every second. */
+  static File log(long startms, int intervals, long latency) throws Exception {
+    File file = File.createTempFile("intervals", ".log");
+    file.deleteOnExit();
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    IntervalLog.writeHeader(out, startms);
+    for (int i = 0; i < intervals; i++) {
+      long st = startms + i * 1000;
+      IntervalLog.writeRecord(out, "READ", st, st + 1000, histogram(latency, 10));
+      IntervalLog.writeRecord(out, "UPDATE", st, st + 1000, histogram(latency * 2, 5));
+    }
+    out.close();
+    return file;
+  }
+
+  @Test
+  public void testMeasurementWritesIntervals() throws Exception {
+    File file = File.createTempFile("intervals", ".log");
+    file.deleteOnExit();
+    Properties p = new Properties();
+    p.setProperty("measurementtype", "intervallog");
+    p.setProperty(OneMeasurementIntervalLog.FILE, file.getPath());
+    p.setProperty(OneMeasurementIntervalLog.INTERVAL, "20");
+    Measurements measurements = new Measurements(p);
+    for (int i = 1; i <= 50; i++) {
+      measurements.measure("READ", i);
+      Thread.sleep(2);
+    }
+    measurements.measure("INSERT", 7);
+    measurements.exportMeasurements(new TextMeasurementsExporter(new ByteArrayOutputStream()));
+
+    // the intervals add up to the whole run, the last one written on export
+    IntervalLogReader reader = new IntervalLogReader(file);
+    LogLinearHistogram read = null;
+    int intervals = 0;
+    long lastendms = 0;
+    boolean insert = false;
+    while (reader.next()) {
+      assertTrue(reader.intervalendms >= reader.intervalstartms);
+      assertTrue(reader.intervalstartms >= reader.startms);
+      if (reader.name.equals("READ")) {
+        assertTrue(reader.intervalstartms >= lastendms);
+        lastendms = reader.intervalendms;
+        if (read == null) {
+          read = reader.latencies;
+        } else {
+          read.add(reader.latencies);
+        }
+        intervals++;
+      } else {
+        assertEquals("INSERT", reader.name);
+        assertEquals(1, reader.latencies.getTotalCount());
+        insert = true;
+      }
+    }
+    reader.close();
+    assertTrue(insert);
+    assertTrue("only " + intervals + " intervals", intervals > 1);
+    assertEquals(50, read.getTotalCount());
+    assertEquals(1, read.getMin());
+    assertEquals(50, read.getMax());
+  }
+
+  @Test
+  public void testMergeAddsUpWindows() throws Exception {
+    IntervalLogTool.Options options = new IntervalLogTool.Options();
+    options.logs.add(log(10000, 10, 100));
+    options.logs.add(log(10500, 10, 300));
+    options.windows = 4;
+    File merged = File.createTempFile("merged", ".log");
+    merged.deleteOnExit();
+    IntervalLogTool.merge(options, merged);
+
+    IntervalLogReader reader = new IntervalLogReader(merged);
+    assertEquals(10000, reader.startms);
+    // windows start at 0s, 4s and 8s, and the last one only holds two intervals of each log
+    long[] reads = {80, 80, 40};
+    for (int w = 0; w < 3; w++) {
+      assertTrue(reader.next());
+      assertEquals("READ", reader.name);
+      assertEquals(10000 + w * 4000, reader.intervalstartms);
+      assertEquals(14000 + w * 4000, reader.intervalendms);
+      assertEquals(reads[w], reader.latencies.getTotalCount());
+      assertTrue(reader.next());
+      assertEquals("UPDATE", reader.name);
+      assertEquals(reads[w] / 2, reader.latencies.getTotalCount());
+    }
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void testSliceOneLog() throws Exception {
+    IntervalLogTool.Options options = new IntervalLogTool.Options();
+    options.logs.add(log(10000, 10, 100));
+    options.starts = 2;
+    options.ends = 4;
+    options.name = "UPDATE";
+    File slice = File.createTempFile("slice", ".log");
+    slice.deleteOnExit();
+    IntervalLogTool.merge(options, slice);
+
+    IntervalLogReader reader = new IntervalLogReader(slice);
+    for (int i = 2; i < 4; i++) {
+      assertTrue(reader.next());
+      assertEquals("UPDATE", reader.name);
+      assertEquals(10000 + i * 1000, reader.intervalstartms);
+      assertEquals(5, reader.latencies.getTotalCount());
+    }
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void testPercentiles() throws Exception {
+    IntervalLogTool.Options options = new IntervalLogTool.Options();
+    options.logs.add(log(10000, 4, 100));
+    options.logs.add(log(10000, 4, 1000));
+    options.name = "READ";
+    options.percentiles = "25,75";
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    IntervalLogTool.percentiles(options, new PrintStream(bytes));
+
+    String[] lines = bytes.toString().trim().split("\n");
+    assertEquals(2, lines.length);
+    assertEquals("start(s),end(s),measurement,operations,average(us),p25(us),p75(us),max(us)", lines[0].trim());
+    String[] total = lines[1].trim().split(",");
+    assertEquals("0.000", total[0]);
+    assertEquals("4.000", total[1]);
+    assertEquals("READ", total[2]);
+    assertEquals("80", total[3]);
+    assertEquals(550.0, Double.parseDouble(total[4]), 10);
+    assertEquals(100, Long.parseLong(total[5]), 1);
+    assertEquals(1000, Long.parseLong(total[6]), 10);
+  }
+}
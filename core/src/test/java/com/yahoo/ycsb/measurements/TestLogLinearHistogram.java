@@ -0,0 +1,75 @@
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestLogLinearHistogram {
+  @Test
+  public void testPercentilesKeepSignificantDigits() {
+    LogLinearHistogram h = new LogLinearHistogram(3600L * 1000 * 1000, 3);
+    for (int i = 1; i <= 100000; i++) {
+      h.recordValue(i);
+    }
+    assertEquals(100000, h.getTotalCount());
+    assertEquals(1, h.getMin());
+    assertEquals(100000, h.getMax());
+    assertEquals(50000.5, h.getMean(), 0.001);
+
+    // 3 significant digits: within 0.1% of the exact value
+    assertEquals(50000, h.getValueAtPercentile(50), 50);
+    assertEquals(99000, h.getValueAtPercentile(99), 99);
+    assertEquals(99900, h.getValueAtPercentile(99.9), 100);
+    assertEquals(100000, h.getValueAtPercentile(100));
+
+    // small values are exact
+    LogLinearHistogram small = h.copyLayout();
+    small.recordValue(57);
+    small.recordValue(183);
+    assertEquals(57, small.getValueAtPercentile(50));
+    assertEquals(183, small.getValueAtPercentile(99));
+  }
+
+  @Test
+  public void testAddAndOutOfRange() {
+    LogLinearHistogram a = new LogLinearHistogram(1000000, 2);
+    LogLinearHistogram b = a.copyLayout();
+    a.recordValues(100, 9);
+    b.recordValue(5000000);
+    b.recordValue(-3);
+    a.add(b);
+    assertEquals(11, a.getTotalCount());
+    assertEquals(0, a.getMin());
+    assertEquals(1000000, a.getMax());
+    assertEquals(100, a.getValueAtPercentile(90));
+    assertEquals(1000000, a.getValueAtPercentile(100));
+
+    a.reset();
+    assertEquals(0, a.getTotalCount());
+    assertEquals(0, a.getValueAtPercentile(99));
+  }
+
+  @Test
+  public void testEncodeRoundTrip() throws Exception {
+    LogLinearHistogram h = new LogLinearHistogram(3600L * 1000 * 1000, 3);
+    for (int i = 1; i <= 10000; i++) {
+      h.recordValue(i * 37L);
+    }
+    h.recordValues(2000000000L, 3);
+    byte[] encoded = h.encode();
+    LogLinearHistogram d = LogLinearHistogram.decode(encoded);
+    assertEquals(h.getTotalCount(), d.getTotalCount());
+    assertEquals(h.getMin(), d.getMin());
+    assertEquals(h.getMax(), d.getMax());
+    assertEquals(h.getMean(), d.getMean(), 0.001);
+    for (double p : new double[] {0, 50, 99, 99.9, 100}) {
+      assertEquals(h.getValueAtPercentile(p), d.getValueAtPercentile(p));
+    }
+    // the decoded histogram has the same layout, so it can be added to the original
+    d.add(h);
+    assertEquals(2 * h.getTotalCount(), d.getTotalCount());
+
+    // empty slots cost next to nothing
+    assertTrue(encoded.length + " bytes", encoded.length < 16 * 1024);
+    assertTrue(h.copyLayout().encode().length < 64);
+  }
+}
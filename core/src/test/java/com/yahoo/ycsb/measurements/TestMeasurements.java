@@ -0,0 +1,156 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+public class TestMeasurements {
+  static class MapExporter implements MeasurementsExporter {
+    HashMap<String, Double> values = new HashMap<String, Double>();
+
+    public void write(String metric, String measurement, int i) {
+      values.put(metric + " " + measurement, (double) i);
+    }
+
+    public void write(String metric, String measurement, double d) {
+      values.put(metric + " " + measurement, d);
+    }
+
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testShardsAreMergedOnExport() throws Exception {
+    final Measurements measurements = new Measurements(new Properties());
+    final int threads = 8;
+    final int perthread = 10000;
+
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int latency = (t + 1) * 1000;
+      workers[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < perthread; i++) {
+            measurements.measure("READ", latency);
+            measurements.reportReturnCode("READ", 0);
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread t : workers) {
+      t.join();
+    }
+
+    MapExporter exporter = new MapExporter();
+    measurements.exportMeasurements(exporter);
+
+    assertEquals((double) threads * perthread, exporter.values.get("READ Operations"));
+    assertEquals((double) threads * perthread, exporter.values.get("READ Return=0"));
+    assertEquals(1000.0, exporter.values.get("READ MinLatency(us)"));
+    assertEquals(8000.0, exporter.values.get("READ MaxLatency(us)"));
+    assertEquals(4500.0, exporter.values.get("READ AverageLatency(us)"));
+    assertEquals((double) perthread, exporter.values.get("READ 3"));
+  }
+
+  @Test
+  public void testSummaryIsWindowed() throws IOException {
+    Measurements measurements = new Measurements(new Properties());
+    measurements.measure("UPDATE", 100);
+    assertEquals("[UPDATE AverageLatency(us)=100] ", measurements.getSummary());
+    assertEquals(" ", measurements.getSummary());
+    measurements.measure("UPDATE", 300);
+    assertEquals("[UPDATE AverageLatency(us)=300] ", measurements.getSummary());
+  }
+
+  @Test
+  public void testIntervalsHavePercentilesOfTheirOwnLatencies() {
+    Properties p = new Properties();
+    p.setProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY, "true");
+    for (String type : new String[] {"histogram", "hdrhistogram", "timeseries"}) {
+      p.setProperty("measurementtype", type);
+      Measurements measurements = new Measurements(p);
+      for (int i = 1; i <= 1000; i++) {
+        measurements.measure("READ", i);
+      }
+      measurements.reportReturnCode("READ", -1);
+
+      IntervalMeasurement first = measurements.getIntervals().get(0);
+      assertEquals(1000, first.operations);
+      assertEquals(500.5, first.averagelatency, 0.001);
+      assertEquals(500, first.percentile(50), 5);
+      assertEquals(990, first.percentile(99), 10);
+      assertEquals(1, first.errors());
+
+      // the next interval only sees what was measured since
+      for (int i = 0; i < 100; i++) {
+        measurements.measure("READ", 5000);
+      }
+      IntervalMeasurement second = measurements.getIntervals().get(0);
+      assertEquals(100, second.operations);
+      assertEquals(1100, second.totaloperations);
+      assertEquals(5000, second.percentile(50), 50);
+      assertEquals(5000, second.percentile(0), 50);
+
+      assertEquals(0, measurements.getIntervals().get(0).operations);
+    }
+  }
+
+  @Test
+  public void testIntervalsWithoutPercentiles() {
+    Measurements measurements = new Measurements(new Properties());
+    measurements.measure("READ", 10);
+    IntervalMeasurement interval = measurements.getIntervals().get(0);
+    assertEquals(1, interval.operations);
+    assertNull(interval.latencies);
+    assertEquals(-1, interval.percentile(99));
+  }
+
+  @Test
+  public void testWarmupIsMeasuredSeparately() throws IOException {
+    Measurements measurements = new Measurements(new Properties());
+    measurements.startWarmup();
+    measurements.measure("READ", 10000);
+    measurements.reportReturnCode("READ", -1);
+    assertEquals("WARMUP-READ", measurements.getIntervals().get(0).name);
+    measurements.endWarmup();
+    measurements.measure("READ", 100);
+    measurements.reportReturnCode("READ", 0);
+    assertEquals("READ", measurements.getIntervals().get(0).name);
+
+    MapExporter exporter = new MapExporter();
+    measurements.exportMeasurements(exporter);
+    assertEquals(1.0, exporter.values.get("WARMUP-READ Operations"));
+    assertEquals(1.0, exporter.values.get("WARMUP-READ Return=-1"));
+    assertEquals(1.0, exporter.values.get("READ Operations"));
+    assertEquals(100.0, exporter.values.get("READ MaxLatency(us)"));
+    assertNull(exporter.values.get("READ Return=-1"));
+  }
+
+  @Test
+  public void testCountsPastIntegerRangeAreExported() throws IOException {
+    OneMeasurementHistogram measurement = new OneMeasurementHistogram("READ", new Properties());
+    measurement.measure(10);
+    measurement.reportReturnCode(0);
+    // as if this thread had run for long enough, without taking that long
+    long count = 3L * Integer.MAX_VALUE;
+    for (int i = 0; i < measurement.shards().size(); i++) {
+      measurement.shards().get(i).stats.set(MeasurementShard.OPERATIONS, count);
+      measurement.shards().get(i).returncodes.get(0).set(count);
+      measurement.shards().get(i).histogram.set(0, count);
+    }
+
+    // an exporter without the long overload is given them as doubles
+    MapExporter exporter = new MapExporter();
+    measurement.exportMeasurements(exporter);
+    assertEquals((double) count, exporter.values.get("READ Operations"));
+    assertEquals((double) count, exporter.values.get("READ Return=0"));
+    assertEquals((double) count, exporter.values.get("READ 0"));
+  }
+}
@@ -0,0 +1,141 @@
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.LogLinearHistogram;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestMergeMeasurements {
+  @Test
+  public void testBase64() throws IOException {
+    Random random = new Random(1);
+    for (int length = 0; length < 20; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      String text = HistogramEncoding.base64(bytes);
+      assertEquals((length + 2) / 3 * 4, text.length());
+      assertTrue(Arrays.equals(bytes, HistogramEncoding.unbase64(text)));
+    }
+    assertEquals("Zm9vYmE=", HistogramEncoding.base64("fooba".getBytes("US-ASCII")));
+    try {
+      HistogramEncoding.unbase64("Zm9*");
+      fail();
+    } catch (IOException e) {
+    }
+  }
+
+  @Test
+  public void testEncodingIsVersioned() throws IOException {
+    LogLinearHistogram h = new LogLinearHistogram(1000000, 2);
+    h.recordValues(123, 4);
+    assertEquals(4, HistogramEncoding.decode(HistogramEncoding.encode(h)).getTotalCount());
+
+    // a later version
+    String other = "E" + HistogramEncoding.encode(h).substring(1);
+    try {
+      HistogramEncoding.decode(other);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("version"));
+    }
+  }
+
+  /** Run a client's worth of measurements with the given latencies and export them. */
+  static File export(int from, int to, boolean histograms, boolean json) throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Measurements.EXPORT_HISTOGRAMS_PROPERTY, Boolean.toString(histograms));
+    Measurements measurements = new Measurements(p);
+    for (int i = from; i < to; i++) {
+      measurements.measure("READ", i);
+      measurements.reportReturnCode("READ", i % 10 == 0 ? -1 : 0);
+    }
+    File file = File.createTempFile("results", json ? ".json" : ".txt");
+    file.deleteOnExit();
+    OutputStream out = new FileOutputStream(file);
+    if (!json) {
+      // the client's banner, in its stdout along with the results
+      out.write("YCSB Client 0.1\n".getBytes());
+    }
+    MeasurementsExporter exporter = json ? new JSONMeasurementsExporter(out) : new TextMeasurementsExporter(out);
+    exporter.write("OVERALL", "RunTime(ms)", to / 10.0);
+    exporter.write("OVERALL", "Throughput(ops/sec)", 100.0);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return file;
+  }
+
+  static Map<String, String> merge(File... files) throws IOException {
+    MergeMeasurements merge = new MergeMeasurements();
+    for (File file : files) {
+      merge.read(file);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    MeasurementsExporter exporter = new TextMeasurementsExporter(bytes);
+    merge.export(exporter, new String[] {"50", "99"});
+    exporter.close();
+
+    Map<String, String> ret = new HashMap<String, String>();
+    for (String line : bytes.toString().split("\n")) {
+      String[] parts = line.split(", ");
+      ret.put(parts[0] + " " + parts[1], parts[2]);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testMergedPercentilesAreThoseOfAllOperations() throws Exception {
+    // a fast client and a slow one: the merged median is neither client's median
+    Map<String, String> merged = merge(export(1, 9001, true, false), export(9001, 10001, true, true));
+    assertEquals("1000.1", merged.get("[OVERALL] RunTime(ms)"));
+    assertEquals("200.0", merged.get("[OVERALL] Throughput(ops/sec)"));
+    assertEquals("10000", merged.get("[READ] Operations"));
+    assertEquals("1", merged.get("[READ] MinLatency(us)"));
+    assertEquals("10000", merged.get("[READ] MaxLatency(us)"));
+    assertEquals(5000.5, Double.parseDouble(merged.get("[READ] AverageLatency(us)")), 0.001);
+    assertEquals(5000, Integer.parseInt(merged.get("[READ] 50thPercentileLatency(us)")), 5000 / 100);
+    assertEquals(9900, Integer.parseInt(merged.get("[READ] 99thPercentileLatency(us)")), 9900 / 100);
+    assertEquals("1000", merged.get("[READ] Return=-1"));
+    assertEquals("9000", merged.get("[READ] Return=0"));
+
+    // the merged results can be merged again
+    LogLinearHistogram h = HistogramEncoding.decode(merged.get("[READ] Histogram"));
+    assertEquals(10000, h.getTotalCount());
+  }
+
+  @Test
+  public void testWithoutHistogramsOnlyOperationsAreMerged() throws Exception {
+    Map<String, String> merged = merge(export(1, 101, true, false), export(1, 101, false, false));
+    assertEquals("200", merged.get("[READ] Operations"));
+    assertEquals("20", merged.get("[READ] Return=-1"));
+    assertNull(merged.get("[READ] 99thPercentileLatency(us)"));
+    assertNull(merged.get("[READ] Histogram"));
+  }
+
+  @Test
+  public void testCountsPastIntegerRangeAreMerged() throws Exception {
+    File[] files = new File[2];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = File.createTempFile("results", ".txt");
+      files[i].deleteOnExit();
+      HistogramExporter exporter = new TextMeasurementsExporter(new FileOutputStream(files[i]));
+      exporter.write("READ", "Operations", 3000000000L);
+      exporter.write("READ", "Return=0", 3000000000L);
+      exporter.close();
+    }
+    Map<String, String> merged = merge(files);
+    assertEquals("6000000000", merged.get("[READ] Operations"));
+    assertEquals("6000000000", merged.get("[READ] Return=0"));
+  }
+}
@@ -0,0 +1,70 @@
+package com.yahoo.ycsb.measurements.live;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestPrometheusEndpoint {
+  static String scrape(int port) throws Exception {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertTrue(connection.getContentType().startsWith("text/plain"));
+    BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+    StringBuilder page = new StringBuilder();
+    String line;
+    while ((line = in.readLine()) != null) {
+      page.append(line).append('\n');
+    }
+    in.close();
+    return page.toString();
+  }
+
+  @Test
+  public void testServesTheLastInterval() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY, "true");
+    p.setProperty(PrometheusEndpoint.PORT_PROPERTY, "0");
+    Measurements measurements = new Measurements(p);
+    PrometheusEndpoint endpoint = new PrometheusEndpoint();
+    endpoint.init(p);
+    try {
+      for (int i = 0; i < 2000; i++) {
+        measurements.measure("UPDATE", 250);
+        measurements.reportReturnCode("UPDATE", 0);
+      }
+      endpoint.update(new StatusSnapshot(10000, 2000, 2000, 2000, measurements.getIntervals()));
+
+      // scraping doesn't start a new interval
+      for (int i = 0; i < 2; i++) {
+        String page = scrape(endpoint.getPort());
+        assertTrue(page, page.contains("ycsb_client_operations_total 2000\n"));
+        assertTrue(page, page.contains("ycsb_client_throughput 1000.0\n"));
+        assertTrue(page, page.contains("ycsb_operations_total{operation=\"UPDATE\"} 2000\n"));
+        assertTrue(page, page.contains("ycsb_return_codes_total{operation=\"UPDATE\",code=\"0\"} 2000\n"));
+        assertTrue(page, page.contains("ycsb_throughput{operation=\"UPDATE\"} 1000.0\n"));
+        assertTrue(page, page.contains("ycsb_latency_us{operation=\"UPDATE\",quantile=\"0.99\"} 250\n"));
+        assertTrue(page, page.contains("# TYPE ycsb_latency_us gauge\n"));
+      }
+    } finally {
+      endpoint.close();
+    }
+  }
+
+  @Test
+  public void testConsoleStatusLine() {
+    Properties p = new Properties();
+    p.setProperty(Measurements.INTERVAL_PERCENTILES_PROPERTY, "true");
+    Measurements measurements = new Measurements(p);
+    measurements.measure("READ", 100);
+    String line = ConsoleStatus.format("run", new StatusSnapshot(20000, 10000, 50, 10, measurements.getIntervals()));
+    assertEquals("run 20 sec: 50 operations; 1 current ops/sec; [READ Throughput(ops/sec)=0.1 AverageLatency(us)=100"
+        + " 50thPercentileLatency(us)=100 99thPercentileLatency(us)=100 99.9thPercentileLatency(us)=100] ", line);
+  }
+}
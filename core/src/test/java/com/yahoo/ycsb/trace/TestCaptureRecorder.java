@@ -0,0 +1,247 @@
+package com.yahoo.ycsb.trace;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.AsyncDBWrapper;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBFactory;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.generator.HistogramGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCaptureRecorder {
+  /** Consumes the values it is given, like a real binding, and fails every delete. */
+  public static class ConsumingDB extends DB {
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      for (ByteIterator value : values.values()) {
+        value.toArray();
+      }
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return update(table, key, values);
+    }
+
+    public int delete(String table, String key) {
+      return -1;
+    }
+  }
+
+  static final int THREADS = 4;
+  static final int ROUNDS = 500;
+
+  File capture;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    Measurements.setProperties(new Properties());
+
+    capture = File.createTempFile("capture", ".bin");
+    capture.deleteOnExit();
+    final Properties p = new Properties();
+    p.setProperty(DBWrapper.CAPTURE_FILE_PROPERTY, capture.getPath());
+    // small enough that records are split across buffers, and some don't fit in one at all
+    p.setProperty(DBWrapper.CAPTURE_BUFFER_SIZE_PROPERTY, "200");
+
+    final AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            DB db = DBFactory.newDB(ConsumingDB.class.getName(), p);
+            db.init();
+            for (int i = 0; i < ROUNDS; i++) {
+              String key = "user" + (thread * ROUNDS + i);
+              db.read("usertable", key, null, new HashMap<String, ByteIterator>());
+              db.read("usertable", key, new HashSet<String>(Arrays.asList("field3")), new HashMap<String, ByteIterator>());
+              db.scan("usertable", key, 7, null, new Vector<HashMap<String, ByteIterator>>());
+              HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+              values.put("field0", new RandomByteIterator(100));
+              values.put("field1", new RandomByteIterator(250));
+              db.update("usertable", key, values);
+              values = new HashMap<String, ByteIterator>();
+              for (int f = 0; f < 10; f++) {
+                values.put("field" + f, new RandomByteIterator(50));
+              }
+              db.insert("usertable", key, values);
+              db.delete("usertable", key);
+            }
+            db.cleanup();
+          } catch (Exception e) {
+            e.printStackTrace();
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.get());
+  }
+
+  @Test
+  public void testEveryOperationIsCaptured() throws Exception {
+    int[] counts = new int[5];
+    Set<String> deleted = new HashSet<String>();
+    CaptureReader reader = new CaptureReader(capture);
+    while (reader.next()) {
+      counts[reader.op]++;
+      assertEquals("usertable", reader.table);
+      assertTrue(reader.latencyns >= 0);
+      switch (reader.op) {
+      case Trace.READ:
+        assertTrue(reader.allfields || reader.fields.equals(Arrays.asList("field3")));
+        break;
+      case Trace.SCAN:
+        assertTrue(reader.allfields);
+        assertEquals(7, reader.recordcount);
+        break;
+      case Trace.UPDATE:
+        assertEquals(2, reader.fields.size());
+        int field1 = reader.fields.indexOf("field1");
+        assertEquals(250, reader.valuelengths[field1]);
+        assertEquals(100, reader.valuelengths[1 - field1]);
+        break;
+      case Trace.INSERT:
+        assertEquals(10, reader.fields.size());
+        for (int i = 0; i < 10; i++) {
+          assertEquals(50, reader.valuelengths[i]);
+        }
+        break;
+      case Trace.DELETE:
+        assertEquals(-1, reader.returncode);
+        deleted.add(reader.key);
+        break;
+      }
+      if (reader.op != Trace.DELETE) {
+        assertEquals(0, reader.returncode);
+      }
+    }
+    reader.close();
+
+    assertEquals(2 * THREADS * ROUNDS, counts[Trace.READ]);
+    for (int op = Trace.UPDATE; op <= Trace.DELETE; op++) {
+      assertEquals(THREADS * ROUNDS, counts[op]);
+    }
+    assertEquals(THREADS * ROUNDS, deleted.size());
+  }
+
+  @Test
+  public void testCaptureConvertsToATrace() throws Exception {
+    File trace = File.createTempFile("trace", ".bin");
+    trace.deleteOnExit();
+    assertEquals(6 * THREADS * ROUNDS, CaptureTool.trace(capture, trace));
+
+    TraceReader reader = new TraceReader(trace);
+    TraceReader.Cursor cursor = reader.cursor(0, 1);
+    Set<Long> inserted = new HashSet<Long>();
+    while (cursor.next()) {
+      if (cursor.op == Trace.INSERT) {
+        assertEquals(50, cursor.valuelength);
+        assertEquals(1023, cursor.fieldmask);
+        inserted.add(cursor.key);
+      } else if (cursor.op == Trace.UPDATE) {
+        assertEquals(250, cursor.valuelength);
+        assertEquals(3, cursor.fieldmask);
+      }
+    }
+    reader.close();
+    assertEquals(THREADS * ROUNDS, inserted.size());
+    assertTrue(inserted.contains(0L));
+    assertTrue(inserted.contains((long) (THREADS * ROUNDS - 1)));
+  }
+
+  @Test
+  public void testTraceIsInTimeOrder() throws Exception {
+    File unsorted = File.createTempFile("capture", ".bin");
+    unsorted.deleteOnExit();
+    List<Integer> order = new ArrayList<Integer>();
+    for (int i = 0; i < 3000; i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(17));
+    CaptureRecorder recorder = CaptureRecorder.open(unsorted, 200);
+    CaptureRecorder.Log log = recorder.log();
+    for (int i : order) {
+      long st = recorder.basens + i * 1000L;
+      log.read(st, st + 5, i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE, "usertable", "user" + i, null);
+    }
+    log.flush();
+    recorder.release();
+
+    CaptureReader capture = new CaptureReader(unsorted);
+    while (capture.next()) {
+      int i = Integer.parseInt(capture.key.substring(4));
+      assertEquals(i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE, capture.returncode);
+      assertEquals(i * 1000L, capture.startns);
+    }
+    capture.close();
+
+    File trace = File.createTempFile("trace", ".bin");
+    trace.deleteOnExit();
+    assertEquals(3000, CaptureTool.trace(unsorted, trace));
+    TraceReader reader = new TraceReader(trace);
+    TraceReader.Cursor cursor = reader.cursor(0, 1);
+    long key = 0;
+    while (cursor.next()) {
+      assertEquals(key, cursor.key);
+      assertEquals(key * 1000L, cursor.timestampns);
+      key++;
+    }
+    reader.close();
+    assertEquals(3000, key);
+  }
+
+  @Test
+  public void testAsyncBindingsCannotBeCaptured() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(DBWrapper.CAPTURE_FILE_PROPERTY, capture.getPath() + ".async");
+    p.setProperty(AsyncDBWrapper.OUTSTANDING_PROPERTY, "4");
+    assertNull(DBFactory.newDB(ConsumingDB.class.getName(), p));
+  }
+
+  @Test
+  public void testValueLengthsMakeAHistogram() throws Exception {
+    File histogram = File.createTempFile("histogram", ".txt");
+    histogram.deleteOnExit();
+    CaptureTool.histogram(capture, 50, histogram);
+
+    HistogramGenerator generator = new HistogramGenerator(histogram.getPath());
+    Set<Long> lengths = new HashSet<Long>();
+    for (int i = 0; i < 10000; i++) {
+      lengths.add(generator.nextLong());
+    }
+    // 100 and 250 byte values from the updates, 50 byte values from the inserts
+    assertEquals(new HashSet<Long>(Arrays.asList(50L, 100L, 250L)), lengths);
+  }
+}
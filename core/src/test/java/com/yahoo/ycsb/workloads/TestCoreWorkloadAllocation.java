@@ -0,0 +1,108 @@
+package com.yahoo.ycsb.workloads;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestCoreWorkloadAllocation {
+  /** Consumes the values it is given, like a binding that sends them, and keeps nothing. */
+  static class NullDB extends DB {
+    long bytes;
+
+    void consume(HashMap<String, ByteIterator> values) {
+      for (ByteIterator value : values.values()) {
+        while (value.hasNext()) {
+          bytes += value.nextByte();
+        }
+      }
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      consume(values);
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      consume(values);
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      throw new SkipException("this JVM does not count allocated bytes");
+    }
+    return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static double bytesPerOperation(Properties p) throws Exception {
+    Measurements.setProperties(new Properties());
+    p.setProperty("recordcount", "100000");
+    p.setProperty("operationcount", "1000000");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    Object state = workload.initThread(p, 0, 1);
+    DB db = new DBWrapper(new NullDB());
+    int ops = 200000;
+    for (int i = 0; i < ops; i++) {
+      workload.doTransaction(db, state);
+    }
+    long st = allocatedBytes();
+    for (int i = 0; i < ops; i++) {
+      workload.doTransaction(db, state);
+    }
+    return (double) (allocatedBytes() - st) / ops;
+  }
+
+  @Test
+  public void testTransactionsAllocateLittleMoreThanTheKey() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.5");
+    p.setProperty(CoreWorkload.READ_ALL_FIELDS_PROPERTY, "false");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "zipfian");
+    double bytes = bytesPerOperation(p);
+    // the key String and its characters are the only objects a transaction needs
+    assertTrue("allocated " + bytes + " bytes per operation", bytes < 128);
+  }
+
+  @Test
+  public void testKeyEncoderMatchesStringConcatenation() throws Exception {
+    for (String order : new String[] { "hashed", "ordered" }) {
+      Properties p = new Properties();
+      p.setProperty("recordcount", "10");
+      p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, order);
+      CoreWorkload workload = new CoreWorkload();
+      workload.init(p);
+      CoreWorkload.OperationContext ctx = (CoreWorkload.OperationContext) workload.initThread(p, 0, 1);
+      long[] keynums = { 0, 1, 9, 10, 12345, -1, -10, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+      for (long keynum : keynums) {
+        assertEquals(workload.buildKeyName(keynum), workload.buildKeyName(keynum, ctx));
+      }
+    }
+  }
+}
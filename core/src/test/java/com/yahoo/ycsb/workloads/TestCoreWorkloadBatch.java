@@ -0,0 +1,86 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+
+public class TestCoreWorkloadBatch {
+  /** Records the size of every batch and every single-record insert it gets. */
+  static class RecordingDB extends DB {
+    final List<Integer> batches = new ArrayList<Integer>();
+    final List<String> keys = new ArrayList<String>();
+    int singles;
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      singles++;
+      return 0;
+    }
+
+    public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+      assertEquals(keys.size(), values.size());
+      batches.add(keys.size());
+      this.keys.addAll(keys);
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+
+  private static CoreWorkload load(RecordingDB db, String batchsize, int records) throws Exception {
+    Properties p = new Properties();
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, batchsize);
+    p.setProperty("recordcount", Integer.toString(records));
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < records; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    workload.cleanupThread(db, state);
+    return workload;
+  }
+
+  @Test
+  public void testBatchesAreFlushedWhenFullAndAtCleanup() throws Exception {
+    RecordingDB db = new RecordingDB();
+    load(db, "4", 10);
+    assertEquals(0, db.singles);
+    assertEquals(3, db.batches.size());
+    assertEquals(4, db.batches.get(0).intValue());
+    assertEquals(4, db.batches.get(1).intValue());
+    assertEquals(2, db.batches.get(2).intValue());
+    assertEquals(10, new HashSet<String>(db.keys).size());
+  }
+
+  @Test
+  public void testBatchSizeOneInsertsSingly() throws Exception {
+    RecordingDB db = new RecordingDB();
+    load(db, "1", 5);
+    assertEquals(5, db.singles);
+    assertTrue(db.batches.isEmpty());
+  }
+}
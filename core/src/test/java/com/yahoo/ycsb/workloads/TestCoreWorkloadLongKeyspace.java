@@ -0,0 +1,43 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkloadLongKeyspace {
+  private static final long RECORDS = 3000000000L;
+
+  private static CoreWorkload init(String distribution) throws Exception {
+    Properties p = new Properties();
+    p.setProperty("recordcount", Long.toString(RECORDS));
+    p.setProperty("insertstart", Long.toString(RECORDS - 2));
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, distribution);
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    return workload;
+  }
+
+  @Test
+  public void testKeysBeyondIntRangeAreChosen() throws Exception {
+    for (String distribution : new String[] { "uniform", "hotspot" }) {
+      CoreWorkload workload = init(distribution);
+      long max = 0;
+      for (int i = 0; i < 10000; i++) {
+        long keynum = workload.nextKeynum();
+        assertTrue(distribution, keynum >= 0 && keynum < RECORDS);
+        max = Math.max(max, keynum);
+      }
+      assertTrue(distribution, max > Integer.MAX_VALUE);
+    }
+  }
+
+  @Test
+  public void testInsertKeysContinuePastIntRange() throws Exception {
+    CoreWorkload workload = init("uniform");
+    assertEquals(RECORDS - 2, workload.keysequence.nextLong());
+    assertEquals(RECORDS, workload.transactioninsertkeysequence.nextLong());
+    assertEquals("user" + RECORDS, workload.buildKeyName(RECORDS));
+  }
+}
@@ -0,0 +1,181 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.trace.Trace;
+import com.yahoo.ycsb.trace.TraceReader;
+import com.yahoo.ycsb.trace.TraceWriter;
+
+public class TestTraceReplayWorkload {
+  /** Records every operation it gets as "op key detail". */
+  static class RecordingDB extends DB {
+    final List<String> ops = Collections.synchronizedList(new ArrayList<String>());
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      ops.add("read " + key + " " + (fields == null ? "all" : fields.size()));
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("scan " + startkey + " " + recordcount);
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      ops.add("update " + key + " " + values.size() + "x" + values.values().iterator().next().bytesLeft());
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      ops.add("insert " + key + " " + values.size() + "x" + values.values().iterator().next().bytesLeft());
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      ops.add("delete " + key);
+      return 0;
+    }
+  }
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  private static File trace(int records, long spacingns) throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    TraceWriter writer = new TraceWriter(file);
+    byte[] ops = { Trace.READ, Trace.UPDATE, Trace.INSERT, Trace.SCAN, Trace.DELETE };
+    for (int i = 0; i < records; i++) {
+      writer.write(1000 + i * spacingns, ops[i % ops.length], 5000000000L + i, i % 2 == 0 ? 0 : 6, 20);
+    }
+    writer.close();
+    return file;
+  }
+
+  private static Replay replay(File file, int threads, String timing, String speedup) throws Exception {
+    Properties p = new Properties();
+    p.setProperty(TraceReplayWorkload.TRACE_FILE_PROPERTY, file.getPath());
+    p.setProperty(TraceReplayWorkload.TRACE_TIMING_PROPERTY, timing);
+    p.setProperty(TraceReplayWorkload.TRACE_SPEEDUP_PROPERTY, speedup);
+    final TraceReplayWorkload workload = new TraceReplayWorkload();
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+    Thread[] t = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final Object state = workload.initThread(p, i, threads);
+      t[i] = new Thread() {
+        public void run() {
+          while (workload.doTransaction(db, state)) {
+          }
+        }
+      };
+    }
+    long st = System.nanoTime();
+    for (Thread thread : t) {
+      thread.start();
+    }
+    for (Thread thread : t) {
+      thread.join();
+    }
+    workload.cleanup();
+    return new Replay(db.ops, (System.nanoTime() - st) / 1000000);
+  }
+
+  static class Replay {
+    final List<String> ops;
+    final long elapsedms;
+
+    Replay(List<String> ops, long elapsedms) {
+      this.ops = ops;
+      this.elapsedms = elapsedms;
+    }
+  }
+
+  @Test
+  public void testEveryRecordIsReplayedOnceAcrossThreads() throws Exception {
+    Replay r = replay(trace(1000, 0), 3, "asfastaspossible", "1");
+    assertEquals(1000, r.ops.size());
+    assertTrue(r.ops.contains("read user5000000000 all"));
+    assertTrue(r.ops.contains("update user5000000001 2x20"));
+    assertTrue(r.ops.contains("insert user5000000002 10x20"));
+    assertTrue(r.ops.contains("scan user5000000003 20"));
+    assertTrue(r.ops.contains("delete user5000000004"));
+    assertEquals(1000, new HashSet<String>(r.ops).size());
+  }
+
+  @Test
+  public void testOriginalTimingIsScaled() throws Exception {
+    // 100 records 2 ms apart is about 200 ms of traffic, replayed four times faster
+    Replay r = replay(trace(100, 2000000), 2, "original", "4");
+    assertEquals(100, r.ops.size());
+    assertTrue("took " + r.elapsedms + " ms", r.elapsedms >= 45);
+    assertTrue("took " + r.elapsedms + " ms", r.elapsedms < 190);
+  }
+
+  @Test
+  public void testCursorsSplitTheRecords() throws Exception {
+    TraceReader reader = new TraceReader(trace(10, 1));
+    assertEquals(10, reader.records());
+    int total = 0;
+    for (int part = 0; part < 3; part++) {
+      TraceReader.Cursor c = reader.cursor(part, 3);
+      long expected = part;
+      while (c.next()) {
+        assertEquals(5000000000L + expected, c.key);
+        expected += 3;
+        total++;
+      }
+    }
+    assertEquals(10, total);
+    reader.close();
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void testNotATraceIsRejected() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[64]);
+    out.close();
+    Properties p = new Properties();
+    p.setProperty(TraceReplayWorkload.TRACE_FILE_PROPERTY, file.getPath());
+    new TraceReplayWorkload().init(p);
+  }
+
+  @Test
+  public void testFieldsAndValuesAreReusedPerMask() throws Exception {
+    TraceReplayWorkload.ReplayState state = new TraceReplayWorkload.ReplayState(null, new String[] {"field0", "field1", "field2"});
+    assertNull(state.fields(0));
+    assertEquals(new HashSet<String>(Arrays.asList("field0", "field2")), state.fields(5));
+    assertSame(state.fields(5), state.fields(5));
+
+    HashMap<String, ByteIterator> values = state.values(6, 10);
+    assertEquals(new HashSet<String>(Arrays.asList("field1", "field2")), values.keySet());
+    values.get("field1").toArray();
+    // the same map again, with fresh values of the new length
+    assertSame(values, state.values(6, 30));
+    assertEquals(30, values.get("field1").bytesLeft());
+    assertEquals(30, values.get("field2").bytesLeft());
+    assertEquals(3, state.values(0, 1).size());
+  }
+}
@@ -184,6 +184,82 @@ public class HBaseClient extends com.yahoo.ycsb.DB
     return Ok;
     }
 
+    /**
+     * Read several records from the database with one batched get. Each field/value pair from the results will be
+     * stored in a HashMap under the record's key.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results A HashMap from record key to the field/value pairs of that record
+     * @return Zero if every record was found, NoMatchingRecord if one was not, a non-zero error code on error
+     */
+    public int multiRead(String table, List<String> keys, Set<String> fields, HashMap<String,HashMap<String,ByteIterator>> results)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        Result[] rs = null;
+        try
+        {
+            if (_debug) {
+                System.out.println("Doing multi-read from HBase columnfamily "+_columnFamily);
+                System.out.println("Doing multi-read for keys: "+keys);
+            }
+            List<Get> gets = new ArrayList<Get>(keys.size());
+            for (String key : keys) {
+                Get g = new Get(Bytes.toBytes(key));
+                if (fields == null) {
+                    g.addFamily(_columnFamilyBytes);
+                } else {
+                    for (String field : fields) {
+                        g.addColumn(_columnFamilyBytes, Bytes.toBytes(field));
+                    }
+                }
+                gets.add(g);
+            }
+            rs = _hTable.get(gets);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error doing multi-get: "+e);
+            return ServerError;
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...need to understand HBase concurrency model better
+            return ServerError;
+        }
+
+        int ret = Ok;
+        for (int i = 0; i < rs.length; i++) {
+            if (rs[i] == null || rs[i].isEmpty()) {
+                ret = NoMatchingRecord;
+                continue;
+            }
+            HashMap<String,ByteIterator> result = new HashMap<String,ByteIterator>();
+            for (KeyValue kv : rs[i].raw()) {
+                result.put(
+                    Bytes.toString(kv.getQualifier()),
+                    new ByteArrayByteIterator(kv.getValue()));
+            }
+            results.put(keys.get(i), result);
+        }
+        return ret;
+    }
+
     /**
      * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
      *
@@ -24,15 +24,14 @@ import com.yahoo.ycsb.StringByteIterator;
 
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * A class that wraps a JDBC compliant database to allow it to be interfaced with YCSB.
  * This class extends {@link DB} and implements the database interface used by YCSB client.
  * 
  * <br> Each client will have its own instance of this class. This client is
- * not thread safe.
+ * not thread safe. To share a bounded number of instances, and so of connections, among
+ * the client threads, use db.lifecycle=pooled and db.poolsize (see {@link com.yahoo.ycsb.PooledDB}).
  * 
  * <br> This interface expects a schema <key> <field1> <field2> <field3> ...
  * All attributes are of type VARCHAR. All accesses are through the primary key. Therefore, 
@@ -46,119 +45,131 @@ import java.util.concurrent.ConcurrentMap;
  * <li><b>db.user</b> User name for the connection.</li>
  * <li><b>db.passwd</b> Password for the connection.</li>
  * </ul>
+ * 
+ * <p> The following options are optional.
+ * 
+ * <ul>
+ * <li><b>jdbc.batchupdatesize</b> Send inserts, updates and deletes as JDBC batches of this many
+ * statements (default 1, no batching). A batched write is reported as successful when it is
+ * added to the batch, and is not seen by reads until its batch is sent. The writes of a batch run
+ * in the order they were made.</li>
+ * <li><b>jdbc.fetchsize</b> The number of rows a scan fetches at once (default: the driver's).</li>
+ * <li><b>jdbc.dialect</b> The SQL dialect of the database, one of h2, derby, mysql, postgresql
+ * or other (default: picked from the URL of each shard).</li>
+ * <li><b>jdbc.commitevery</b> Turn auto commit off and commit once every this many operations on
+ * each shard (default 0, auto commit). An error rolls back the operations not yet committed.</li>
+ * </ul>
+ * 
+ * <p> Statements are prepared once per shard and table. Reads, inserts and updates of a subset of
+ * the fields get a statement for each set of fields, which names the columns it reads or writes,
+ * and values are accessed by column index. Reads of all the fields return the columns in lower case,
+ * as the workloads name their fields.
+ * 
+ * <p> A scan reads the requested fields of the rows from the start key on, in key order, and has
+ * the database return no more than the requested number of rows, with the row limit clause of
+ * the dialect, or Statement.setMaxRows() for other databases. Scans do not span shards.
+ * 
+ * <p> batchInsert() and batchUpdate() send the records for each shard as one JDBC batch
+ * (addBatch/executeBatch). Some drivers need to be told to send a batch in one round trip,
+ * e.g. rewriteBatchedStatements=true in the MySQL connection URL. multiRead() sends one
+ * SELECT ... WHERE key IN (...) per shard.
  *  
  * @author sudipto
  *
  */
 public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	
-  private ArrayList<Connection> conns;
+  private Shard[] shards;
   private boolean initialized = false;
   private Properties props;
+  private int batchUpdateSize;
+  private int fetchSize;
+  private int commitEvery;
   private static final String DEFAULT_PROP = "";
-  private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
-  
+
   /**
-   * The statement type for the prepared statements.
+   * A prepared statement, and the fields of its parameters or of its result columns, in order.
    */
-  private static class StatementType {
-    
-    enum Type {
-      INSERT(1),
-      DELETE(2),
-      READ(3),
-      UPDATE(4),
-      SCAN(5),
-      ;
-      int internalType;
-      private Type(int type) {
-        internalType = type;
-      }
-      
-      int getHashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + internalType;
-        return result;
-      }
-    }
-    
-    Type type;
-    int shardIndex;
-    int numFields;
-    String tableName;
-    
-    StatementType(Type type, String tableName, int numFields, int _shardIndex) {
-      this.type = type;
-      this.tableName = tableName;
-      this.numFields = numFields;
-      this.shardIndex = _shardIndex;
-    }
-
-    @Override
-    public int hashCode() {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + numFields + 100 * shardIndex;
-      result = prime * result
-          + ((tableName == null) ? 0 : tableName.hashCode());
-      result = prime * result + ((type == null) ? 0 : type.getHashCode());
-      return result;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-      if (this == obj)
-        return true;
-      if (obj == null)
-        return false;
-      if (getClass() != obj.getClass())
-        return false;
-      StatementType other = (StatementType) obj;
-      if (numFields != other.numFields)
-        return false;
-      if (shardIndex != other.shardIndex)
-        return false;
-      if (tableName == null) {
-        if (other.tableName != null)
-          return false;
-      } else if (!tableName.equals(other.tableName))
-        return false;
-      if (type != other.type)
-        return false;
-      return true;
+  private static class CachedStatement {
+    final PreparedStatement statement;
+
+    /**
+     * The fields, or null for a SELECT * until it is first executed. The primary key column of a
+     * SELECT * has no field.
+     */
+    String[] fields;
+
+    /** The index of the primary key column of a SELECT *. */
+    int keyIndex = -1;
+
+    CachedStatement(PreparedStatement statement, String[] fields) {
+      this.statement = statement;
+      this.fields = fields;
     }
   }
 
+  /**
+   * The statements prepared for one table on one shard. Statements that name some of the fields
+   * are cached by their set of fields, statements for multi-reads by their number of keys.
+   */
+  private static class TableStatements {
+    CachedStatement readAll;
+    CachedStatement scanAll;
+    CachedStatement delete;
+    final HashMap<Set<String>, CachedStatement> reads = new HashMap<Set<String>, CachedStatement>();
+    final HashMap<Set<String>, CachedStatement> scans = new HashMap<Set<String>, CachedStatement>();
+    final HashMap<Set<String>, CachedStatement> inserts = new HashMap<Set<String>, CachedStatement>();
+    final HashMap<Set<String>, CachedStatement> updates = new HashMap<Set<String>, CachedStatement>();
+    final HashMap<Integer, CachedStatement> multiReads = new HashMap<Integer, CachedStatement>();
+  }
+
+  /**
+   * The connection to one shard, its statements, and its writes not yet sent or committed.
+   */
+  private static class Shard {
+    final Connection conn;
+    final JdbcDBDialect dialect;
+    final HashMap<String, TableStatements> tables = new HashMap<String, TableStatements>();
+
     /**
-     * For the given key, returns what shard contains data for this key
-     *
-     * @param key Data key to do operation on
-     * @return Shard index
+     * The statements with batched writes, in the order they were first used since the last
+     * flush, and the number of writes. A statement is only in the list once, so its writes are
+     * all after those of the statements before it.
      */
-    private int getShardIndexByKey(String key) {
-       int ret = Math.abs(key.hashCode()) % conns.size();
-       //System.out.println(conns.size() + ": Shard instance for "+ key + " (hash  " + key.hashCode()+ " ) " + " is " + ret);
-       return ret;
+    final List<PreparedStatement> pending = new ArrayList<PreparedStatement>();
+    int pendingCount;
+
+    /** The result of the writes sent early to keep the next one in order, SUCCESS if none were. */
+    int sentEarly = SUCCESS;
+
+    /** The number of operations since the last commit. */
+    int uncommitted;
+
+    Shard(Connection conn, JdbcDBDialect dialect) {
+      this.conn = conn;
+      this.dialect = dialect;
     }
 
+    TableStatements table(String tableName) {
+      TableStatements table = tables.get(tableName);
+      if (table == null) {
+        table = new TableStatements();
+        tables.put(tableName, table);
+      }
+      return table;
+    }
+  }
+
     /**
-     * For the given key, returns Connection object that holds connection
-     * to the shard that contains this key
+     * For the given key, returns the shard that contains data for this key
      *
-     * @param key Data key to get information for
-     * @return Connection object
+     * @param key Data key to do operation on
+     * @return Shard
      */
-    private Connection getShardConnectionByKey(String key) {
-        return conns.get(getShardIndexByKey(key));
+    private Shard getShardByKey(String key) {
+       return shards[Math.abs(key.hashCode()) % shards.length];
     }
 
-    private void cleanupAllConnections() throws SQLException {
-       for(Connection conn: conns) {
-           conn.close();
-       }
-    }
-  
   /**
    * Initialize the database connection and set it up for sending requests to the database.
    * This must be called once per client.
@@ -175,26 +186,27 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 		String user = props.getProperty(CONNECTION_USER, DEFAULT_PROP);
 		String passwd = props.getProperty(CONNECTION_PASSWD, DEFAULT_PROP);
 		String driver = props.getProperty(DRIVER_CLASS);
+		String dialect = props.getProperty(JDBC_DIALECT);
 
       try {
+        batchUpdateSize = Integer.parseInt(props.getProperty(JDBC_BATCH_UPDATE_SIZE, JDBC_BATCH_UPDATE_SIZE_DEFAULT));
+        fetchSize = Integer.parseInt(props.getProperty(JDBC_FETCH_SIZE, JDBC_FETCH_SIZE_DEFAULT));
+        commitEvery = Integer.parseInt(props.getProperty(JDBC_COMMIT_EVERY, JDBC_COMMIT_EVERY_DEFAULT));
 		  if (driver != null) {
 	      Class.forName(driver);
 	    }
-          int shardCount = 0;
-          conns = new ArrayList<Connection>(3);
+          List<Shard> list = new ArrayList<Shard>(3);
           for (String url: urls.split(",")) {
               System.out.println("Adding shard node URL: " + url);
             Connection conn = DriverManager.getConnection(url, user, passwd);
 		    // Since there is no explicit commit method in the DB interface, all
-		    // operations should auto commit.
-		    conn.setAutoCommit(true);
-            shardCount++;
-            conns.add(conn);
+		    // operations auto commit, unless the client commits every N operations.
+		    conn.setAutoCommit(commitEvery <= 0);
+            list.add(new Shard(conn, dialect != null ? JdbcDBDialect.forName(dialect) : JdbcDBDialect.forUrl(url)));
           }
+          shards = list.toArray(new Shard[list.size()]);
 
-          System.out.println("Using " + shardCount + " shards");
-
-		  cachedStatements = new ConcurrentHashMap<StatementType, PreparedStatement>();
+          System.out.println("Using " + shards.length + " shards");
 		} catch (ClassNotFoundException e) {
 		  System.err.println("Error in initializing the JDBS driver: " + e);
 		  throw new DBException(e);
@@ -202,96 +214,365 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 		  System.err.println("Error in database operation: " + e);
       throw new DBException(e);
     } catch (NumberFormatException e) {
-      System.err.println("Invalid value for fieldcount property. " + e);
+      System.err.println("Invalid value for a numeric property. " + e);
+      throw new DBException(e);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Invalid value for " + JDBC_DIALECT + ": " + dialect);
       throw new DBException(e);
     }
 		initialized = true;
 	}
 	
+  /**
+   * Send the batched writes and commit, then close the connections.
+   */
   @Override
 	public void cleanup() throws DBException {
-	  try {
-      cleanupAllConnections();
-    } catch (SQLException e) {
-      System.err.println("Error in closing the connection. " + e);
-      throw new DBException(e);
+    SQLException error = null;
+    for (Shard shard : shards) {
+      try {
+        flush(shard);
+        if (commitEvery > 0) {
+          shard.conn.commit();
+        }
+      } catch (SQLException e) {
+        error = e;
+      }
+      try {
+        shard.conn.close();
+      } catch (SQLException e) {
+        error = e;
+      }
+    }
+    if (error != null) {
+      System.err.println("Error in closing the connection. " + error);
+      throw new DBException(error);
     }
 	}
-	
-	private PreparedStatement createAndCacheInsertStatement(StatementType insertType, String key)
-	throws SQLException {
-	  StringBuilder insert = new StringBuilder("INSERT INTO ");
-	  insert.append(insertType.tableName);
-	  insert.append(" VALUES(?");
-    for (int i = 0; i < insertType.numFields; i++) {
-      insert.append(",?");
-    }
-    insert.append(");");
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(insert.toString());
-    PreparedStatement stmt = cachedStatements.putIfAbsent(insertType, insertStatement);
-    if (stmt == null) return insertStatement;
-    else return stmt;
-	}
-	
-	private PreparedStatement createAndCacheReadStatement(StatementType readType, String key)
-	throws SQLException {
-    StringBuilder read = new StringBuilder("SELECT * FROM ");
-    read.append(readType.tableName);
-    read.append(" WHERE ");
-    read.append(PRIMARY_KEY);
-    read.append(" = ");
-    read.append("?;");
-    PreparedStatement readStatement = getShardConnectionByKey(key).prepareStatement(read.toString());
-    PreparedStatement stmt = cachedStatements.putIfAbsent(readType, readStatement);
-    if (stmt == null) return readStatement;
-    else return stmt;
+
+  private CachedStatement prepare(Shard shard, StringBuilder sql, String[] fields) throws SQLException {
+    return new CachedStatement(shard.conn.prepareStatement(sql.toString()), fields);
   }
-	
-	private PreparedStatement createAndCacheDeleteStatement(StatementType deleteType, String key)
-	throws SQLException {
-    StringBuilder delete = new StringBuilder("DELETE FROM ");
-    delete.append(deleteType.tableName);
-    delete.append(" WHERE ");
-    delete.append(PRIMARY_KEY);
-    delete.append(" = ?;");
-    PreparedStatement deleteStatement = getShardConnectionByKey(key).prepareStatement(delete.toString());
-    PreparedStatement stmt = cachedStatements.putIfAbsent(deleteType, deleteStatement);
-    if (stmt == null) return deleteStatement;
-    else return stmt;
+
+  private static String[] toArray(Set<String> fields) {
+    return fields.toArray(new String[fields.size()]);
   }
-	
-	private PreparedStatement createAndCacheUpdateStatement(StatementType updateType, String key)
-	throws SQLException {
-    StringBuilder update = new StringBuilder("UPDATE ");
-    update.append(updateType.tableName);
-    update.append(" SET ");
-    for (int i = 1; i <= updateType.numFields; i++) {
-      update.append(COLUMN_PREFIX);
-      update.append(i);
-      update.append("=?");
-      if (i < updateType.numFields) update.append(", ");
-    }
-    update.append(" WHERE ");
-    update.append(PRIMARY_KEY);
-    update.append(" = ?;");
-    PreparedStatement insertStatement = getShardConnectionByKey(key).prepareStatement(update.toString());
-    PreparedStatement stmt = cachedStatements.putIfAbsent(updateType, insertStatement);
-    if (stmt == null) return insertStatement;
-    else return stmt;
+
+  /**
+   * Append the fields, separated by commas, each followed by the suffix.
+   */
+  private static void appendFields(StringBuilder sql, String[] fields, String suffix) {
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) sql.append(", ");
+      sql.append(fields[i]);
+      sql.append(suffix);
+    }
   }
-	
-	private PreparedStatement createAndCacheScanStatement(StatementType scanType, String key)
-	throws SQLException {
-	  StringBuilder select = new StringBuilder("SELECT * FROM ");
-    select.append(scanType.tableName);
-    select.append(" WHERE ");
-    select.append(PRIMARY_KEY);
-    select.append(" >= ");
-    select.append("?;");
-    PreparedStatement scanStatement = getShardConnectionByKey(key).prepareStatement(select.toString());
-    PreparedStatement stmt = cachedStatements.putIfAbsent(scanType, scanStatement);
-    if (stmt == null) return scanStatement;
-    else return stmt;
+
+  /**
+   * Start a SELECT of the columns, or of * if they are null.
+   */
+  private static StringBuilder select(String tableName, String[] columns) {
+    StringBuilder sql = new StringBuilder("SELECT ");
+    if (columns == null) {
+      sql.append("*");
+    } else {
+      appendFields(sql, columns, "");
+    }
+    sql.append(" FROM ");
+    sql.append(tableName);
+    return sql;
+  }
+
+  private CachedStatement getReadStatement(Shard shard, String tableName, Set<String> fields) throws SQLException {
+    TableStatements table = shard.table(tableName);
+    CachedStatement read = fields == null ? table.readAll : table.reads.get(fields);
+    if (read != null) {
+      return read;
+    }
+    String[] columns = fields == null ? null : toArray(fields);
+    StringBuilder sql = select(tableName, columns);
+    sql.append(" WHERE ");
+    sql.append(PRIMARY_KEY);
+    sql.append(" = ?");
+    read = prepare(shard, sql, columns);
+    if (fields == null) {
+      table.readAll = read;
+    } else {
+      table.reads.put(new HashSet<String>(fields), read);
+    }
+    return read;
+  }
+
+  /**
+   * Return the scan statement for the fields: a query for the rows from the start key on, in key
+   * order, with the row limit as its second parameter if the dialect has a limit clause.
+   */
+  private CachedStatement getScanStatement(Shard shard, String tableName, Set<String> fields) throws SQLException {
+    TableStatements table = shard.table(tableName);
+    CachedStatement scan = fields == null ? table.scanAll : table.scans.get(fields);
+    if (scan != null) {
+      return scan;
+    }
+    String[] columns = fields == null ? null : toArray(fields);
+    StringBuilder sql = select(tableName, columns);
+    sql.append(" WHERE ");
+    sql.append(PRIMARY_KEY);
+    sql.append(" >= ? ORDER BY ");
+    sql.append(PRIMARY_KEY);
+    if (shard.dialect.hasLimit()) {
+      shard.dialect.appendLimit(sql);
+    }
+    scan = prepare(shard, sql, columns);
+    if (fetchSize > 0) {
+      scan.statement.setFetchSize(fetchSize);
+    }
+    if (fields == null) {
+      table.scanAll = scan;
+    } else {
+      table.scans.put(new HashSet<String>(fields), scan);
+    }
+    return scan;
+  }
+
+  private CachedStatement getMultiReadStatement(Shard shard, String tableName, int numKeys) throws SQLException {
+    TableStatements table = shard.table(tableName);
+    CachedStatement read = table.multiReads.get(numKeys);
+    if (read == null) {
+      StringBuilder sql = new StringBuilder("SELECT * FROM ");
+      sql.append(tableName);
+      sql.append(" WHERE ");
+      sql.append(PRIMARY_KEY);
+      sql.append(" IN (?");
+      for (int i = 1; i < numKeys; i++) {
+        sql.append(", ?");
+      }
+      sql.append(")");
+      read = prepare(shard, sql, null);
+      table.multiReads.put(numKeys, read);
+    }
+    return read;
+  }
+
+  /**
+   * Return the cached insert statement for the key's shard and fields, with its parameters set.
+   */
+  private PreparedStatement prepareInsert(Shard shard, String tableName, String key, HashMap<String, ByteIterator> values)
+  throws SQLException {
+    TableStatements table = shard.table(tableName);
+    CachedStatement insert = table.inserts.get(values.keySet());
+    if (insert == null) {
+      String[] fields = toArray(values.keySet());
+      StringBuilder sql = new StringBuilder("INSERT INTO ");
+      sql.append(tableName);
+      sql.append(" (");
+      sql.append(PRIMARY_KEY);
+      for (String field : fields) {
+        sql.append(", ");
+        sql.append(field);
+      }
+      sql.append(") VALUES (?");
+      for (int i = 0; i < fields.length; i++) {
+        sql.append(", ?");
+      }
+      sql.append(")");
+      insert = prepare(shard, sql, fields);
+      table.inserts.put(new HashSet<String>(values.keySet()), insert);
+    }
+    keepOrder(shard, insert.statement);
+    insert.statement.setString(1, key);
+    for (int i = 0; i < insert.fields.length; i++) {
+      insert.statement.setString(i + 2, values.get(insert.fields[i]).toString());
+    }
+    return insert.statement;
+  }
+
+  /**
+   * Return the cached update statement for the key's shard and fields, with its parameters set.
+   */
+  private PreparedStatement prepareUpdate(Shard shard, String tableName, String key, HashMap<String, ByteIterator> values)
+  throws SQLException {
+    TableStatements table = shard.table(tableName);
+    CachedStatement update = table.updates.get(values.keySet());
+    if (update == null) {
+      String[] fields = toArray(values.keySet());
+      StringBuilder sql = new StringBuilder("UPDATE ");
+      sql.append(tableName);
+      sql.append(" SET ");
+      appendFields(sql, fields, " = ?");
+      sql.append(" WHERE ");
+      sql.append(PRIMARY_KEY);
+      sql.append(" = ?");
+      update = prepare(shard, sql, fields);
+      table.updates.put(new HashSet<String>(values.keySet()), update);
+    }
+    keepOrder(shard, update.statement);
+    for (int i = 0; i < update.fields.length; i++) {
+      update.statement.setString(i + 1, values.get(update.fields[i]).toString());
+    }
+    update.statement.setString(update.fields.length + 1, key);
+    return update.statement;
+  }
+
+  /**
+   * Return the cached delete statement for the key's shard, with its parameter set.
+   */
+  private PreparedStatement prepareDelete(Shard shard, String tableName, String key) throws SQLException {
+    TableStatements table = shard.table(tableName);
+    if (table.delete == null) {
+      StringBuilder sql = new StringBuilder("DELETE FROM ");
+      sql.append(tableName);
+      sql.append(" WHERE ");
+      sql.append(PRIMARY_KEY);
+      sql.append(" = ?");
+      table.delete = prepare(shard, sql, null);
+    }
+    keepOrder(shard, table.delete.statement);
+    table.delete.statement.setString(1, key);
+    return table.delete.statement;
+  }
+
+  /**
+   * Learn the fields of the columns of a SELECT * from its first result.
+   */
+  private static void describe(CachedStatement read, ResultSet resultSet) throws SQLException {
+    ResultSetMetaData metaData = resultSet.getMetaData();
+    String[] fields = new String[metaData.getColumnCount()];
+    for (int i = 0; i < fields.length; i++) {
+      String column = metaData.getColumnName(i + 1);
+      if (column.equalsIgnoreCase(PRIMARY_KEY)) {
+        read.keyIndex = i;
+      } else {
+        fields[i] = column.toLowerCase();
+      }
+    }
+    read.fields = fields;
+  }
+
+  /**
+   * Put the requested fields of the current row in the result, or all of them if fields is null.
+   */
+  private static void getFields(CachedStatement read, ResultSet resultSet, Set<String> fields,
+      HashMap<String, ByteIterator> result) throws SQLException {
+    if (read.fields == null) {
+      describe(read, resultSet);
+    }
+    String[] columns = read.fields;
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i] != null && (fields == null || fields.contains(columns[i]))) {
+        result.put(columns[i], new StringByteIterator(resultSet.getString(i + 1)));
+      }
+    }
+  }
+
+  /**
+   * Send a write, or add it to the shard's batch.
+   *
+   * @return SUCCESS if the write changed one row or was batched, 1 if it did not change one row or
+   * if a write of the batch it completed did not.
+   */
+  private int write(Shard shard, PreparedStatement statement) throws SQLException {
+    int ret;
+    if (batchUpdateSize > 1) {
+      ret = batch(shard, statement);
+      if (shard.pendingCount >= batchUpdateSize && flush(shard) != SUCCESS) {
+        ret = 1;
+      }
+    } else {
+      ret = statement.executeUpdate() == 1 ? SUCCESS : 1;
+    }
+    int committed = completed(shard);
+    return ret != SUCCESS ? ret : committed;
+  }
+
+  /**
+   * Called before the parameters of a write are set. The batches are sent statement by statement,
+   * so if the statement already has writes batched before those of another statement, they are
+   * sent now, to keep the writes in the order they were made: an update of a record inserted in
+   * the same batch must not run before the insert.
+   */
+  private void keepOrder(Shard shard, PreparedStatement statement) throws SQLException {
+    List<PreparedStatement> pending = shard.pending;
+    shard.sentEarly = SUCCESS;
+    if (!pending.isEmpty() && pending.get(pending.size() - 1) != statement && pending.contains(statement)) {
+      shard.sentEarly = flush(shard);
+    }
+  }
+
+  /**
+   * Add a write to the shard's batch.
+   *
+   * @return the result of the writes keepOrder() sent for it, SUCCESS if there were none.
+   */
+  private int batch(Shard shard, PreparedStatement statement) throws SQLException {
+    List<PreparedStatement> pending = shard.pending;
+    statement.addBatch();
+    if (pending.isEmpty() || pending.get(pending.size() - 1) != statement) {
+      pending.add(statement);
+    }
+    shard.pendingCount++;
+    int ret = shard.sentEarly;
+    shard.sentEarly = SUCCESS;
+    return ret;
+  }
+
+  /**
+   * Send the shard's batched writes.
+   *
+   * @return SUCCESS if every write changed exactly one row, 1 if one did not.
+   */
+  private int flush(Shard shard) throws SQLException {
+    int ret = SUCCESS;
+    try {
+      for (PreparedStatement statement : shard.pending) {
+        for (int result : statement.executeBatch()) {
+          if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+            ret = 1;
+          }
+        }
+      }
+    } catch (SQLException e) {
+      for (PreparedStatement statement : shard.pending) {
+        try {
+          statement.clearBatch();
+        } catch (SQLException ignored) {
+        }
+      }
+      throw e;
+    } finally {
+      shard.pending.clear();
+      shard.pendingCount = 0;
+    }
+    return ret;
+  }
+
+  /**
+   * Count an operation on the shard, and commit if it is the Nth since the last commit.
+   *
+   * @return the result of sending the batched writes before committing, SUCCESS if there were none.
+   */
+  private int completed(Shard shard) throws SQLException {
+    if (commitEvery <= 0 || ++shard.uncommitted < commitEvery) {
+      return SUCCESS;
+    }
+    int ret = flush(shard);
+    shard.conn.commit();
+    shard.uncommitted = 0;
+    return ret;
+  }
+
+  /**
+   * After an error, roll back the operations on the shard not yet committed, as some databases
+   * refuse any statement in a transaction that had an error.
+   */
+  private void failed(Shard shard) {
+    if (commitEvery > 0) {
+      try {
+        shard.conn.rollback();
+      } catch (SQLException ignored) {
+      }
+      shard.uncommitted = 0;
+    }
   }
 
 	@Override
@@ -303,28 +584,24 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     if (key == null) {
       return -1;
     }
+    Shard shard = getShardByKey(key);
     try {
-      StatementType type = new StatementType(StatementType.Type.READ, tableName, 1, getShardIndexByKey(key));
-      PreparedStatement readStatement = cachedStatements.get(type);
-      if (readStatement == null) {
-        readStatement = createAndCacheReadStatement(type, key);
-      }
-      readStatement.setString(1, key);
-      ResultSet resultSet = readStatement.executeQuery();
-      if (!resultSet.next()) {
-        resultSet.close();
-        return 1;
-      }
-      if (result != null && fields != null) {
-        for (String field : fields) {
-          String value = resultSet.getString(field);
-          result.put(field, new StringByteIterator(value));
+      CachedStatement read = getReadStatement(shard, tableName, fields);
+      read.statement.setString(1, key);
+      ResultSet resultSet = read.statement.executeQuery();
+      int ret = 1;
+      if (resultSet.next()) {
+        if (result != null) {
+          getFields(read, resultSet, fields, result);
         }
+        ret = SUCCESS;
       }
       resultSet.close();
-      return SUCCESS;
+      int committed = completed(shard);
+      return ret != SUCCESS ? ret : committed;
     } catch (SQLException e) {
         System.err.println("Error in processing read of table " + tableName + ": "+e);
+      failed(shard);
       return -2;
     }
 	}
@@ -338,32 +615,139 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     if (startKey == null) {
       return -1;
     }
+    Shard shard = getShardByKey(startKey);
     try {
-      StatementType type = new StatementType(StatementType.Type.SCAN, tableName, 1, getShardIndexByKey(startKey));
-      PreparedStatement scanStatement = cachedStatements.get(type);
-      if (scanStatement == null) {
-        scanStatement = createAndCacheScanStatement(type, startKey);
+      CachedStatement scan = getScanStatement(shard, tableName, fields);
+      scan.statement.setString(1, startKey);
+      if (shard.dialect.hasLimit()) {
+        scan.statement.setInt(2, recordcount);
+      } else {
+        scan.statement.setMaxRows(recordcount);
       }
-      scanStatement.setString(1, startKey);
-      ResultSet resultSet = scanStatement.executeQuery();
+      ResultSet resultSet = scan.statement.executeQuery();
       for (int i = 0; i < recordcount && resultSet.next(); i++) {
-        if (result != null && fields != null) {
+        if (result != null) {
           HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-          for (String field : fields) {
-            String value = resultSet.getString(field);
-            values.put(field, new StringByteIterator(value));
-          }
+          getFields(scan, resultSet, fields, values);
           result.add(values);
         }
       }
       resultSet.close();
-      return SUCCESS;
+      return completed(shard);
     } catch (SQLException e) {
       System.err.println("Error in processing scan of table: " + tableName + e);
+      failed(shard);
       return -2;
     }
 	}
 
+  /**
+   * Read the keys of each shard with one query. The cached statements are keyed by the
+   * number of keys in the IN list, which is the same for every multi-read of a workload
+   * unless the keys are spread over several shards.
+   */
+  @Override
+  public int multiRead(String tableName, List<String> keys, Set<String> fields,
+      HashMap<String, HashMap<String, ByteIterator>> results) {
+    if (tableName == null) {
+      return -1;
+    }
+    Map<Shard, List<String>> shardKeys = new LinkedHashMap<Shard, List<String>>();
+    for (String key : keys) {
+      if (key == null) {
+        return -1;
+      }
+      Shard shard = getShardByKey(key);
+      List<String> list = shardKeys.get(shard);
+      if (list == null) {
+        list = new ArrayList<String>();
+        shardKeys.put(shard, list);
+      }
+      list.add(key);
+    }
+    Shard shard = null;
+    try {
+      int found = 0;
+      int ret = SUCCESS;
+      for (Map.Entry<Shard, List<String>> entry : shardKeys.entrySet()) {
+        shard = entry.getKey();
+        List<String> list = entry.getValue();
+        CachedStatement read = getMultiReadStatement(shard, tableName, list.size());
+        for (int i = 0; i < list.size(); i++) {
+          read.statement.setString(i + 1, list.get(i));
+        }
+        ResultSet resultSet = read.statement.executeQuery();
+        while (resultSet.next()) {
+          found++;
+          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+          getFields(read, resultSet, fields, values);
+          results.put(resultSet.getString(read.keyIndex + 1), values);
+        }
+        resultSet.close();
+        int committed = completed(shard);
+        if (committed != SUCCESS) {
+          ret = committed;
+        }
+      }
+      return found == keys.size() ? ret : 1;
+    } catch (SQLException e) {
+      System.err.println("Error in processing multi-read of table " + tableName + ": " + e);
+      failed(shard);
+      return -2;
+    }
+  }
+
+  /**
+   * Add each record to the JDBC batch of its statement, then send the batches of each shard,
+   * unless they are smaller than jdbc.batchupdatesize.
+   *
+   * @return SUCCESS if every statement changed exactly one row, 1 if one did not, -1 on error.
+   */
+  private int executeBatches(boolean insert, String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    if (tableName == null) {
+      return -1;
+    }
+    Set<Shard> batches = new LinkedHashSet<Shard>();
+    try {
+      int ret = SUCCESS;
+      for (int i = 0; i < keys.size(); i++) {
+        String key = keys.get(i);
+        if (key == null) {
+          return -1;
+        }
+        Shard shard = getShardByKey(key);
+        PreparedStatement statement = insert ? prepareInsert(shard, tableName, key, values.get(i)) : prepareUpdate(shard, tableName, key, values.get(i));
+        if (batch(shard, statement) != SUCCESS) {
+          ret = 1;
+        }
+        batches.add(shard);
+        if (completed(shard) != SUCCESS) {
+          ret = 1;
+        }
+      }
+      for (Shard shard : batches) {
+        if ((batchUpdateSize <= 1 || shard.pendingCount >= batchUpdateSize) && flush(shard) != SUCCESS) {
+          ret = 1;
+        }
+      }
+      return ret;
+    } catch (SQLException e) {
+      System.err.println("Error in processing batch " + (insert ? "insert" : "update") + " to table: " + tableName + e);
+      for (Shard shard : batches) {
+        for (PreparedStatement statement : shard.pending) {
+          try {
+            statement.clearBatch();
+          } catch (SQLException ignored) {
+          }
+        }
+        shard.pending.clear();
+        shard.pendingCount = 0;
+        failed(shard);
+      }
+      return -1;
+    }
+  }
+
 	@Override
 	public int update(String tableName, String key, HashMap<String, ByteIterator> values) {
 	  if (tableName == null) {
@@ -372,23 +756,12 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     if (key == null) {
       return -1;
     }
+    Shard shard = getShardByKey(key);
     try {
-      int numFields = values.size();
-      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName, numFields, getShardIndexByKey(key));
-      PreparedStatement updateStatement = cachedStatements.get(type);
-      if (updateStatement == null) {
-        updateStatement = createAndCacheUpdateStatement(type, key);
-      }
-      int index = 1;
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        updateStatement.setString(index++, entry.getValue().toString());
-      }
-      updateStatement.setString(index, key);
-      int result = updateStatement.executeUpdate();
-      if (result == 1) return SUCCESS;
-      else return 1;
+      return write(shard, prepareUpdate(shard, tableName, key, values));
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
+      failed(shard);
       return -1;
     }
 	}
@@ -401,24 +774,12 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	  if (key == null) {
 	    return -1;
 	  }
+    Shard shard = getShardByKey(key);
 	  try {
-	    int numFields = values.size();
-	    StatementType type = new StatementType(StatementType.Type.INSERT, tableName, numFields, getShardIndexByKey(key));
-	    PreparedStatement insertStatement = cachedStatements.get(type);
-	    if (insertStatement == null) {
-	      insertStatement = createAndCacheInsertStatement(type, key);
-	    }
-      insertStatement.setString(1, key);
-      int index = 2;
-      for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
-        String field = entry.getValue().toString();
-        insertStatement.setString(index++, field);
-      }
-      int result = insertStatement.executeUpdate();
-      if (result == 1) return SUCCESS;
-      else return 1;
+      return write(shard, prepareInsert(shard, tableName, key, values));
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
+      failed(shard);
       return -1;
     }
 	}
@@ -431,19 +792,23 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     if (key == null) {
       return -1;
     }
+    Shard shard = getShardByKey(key);
     try {
-      StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, getShardIndexByKey(key));
-      PreparedStatement deleteStatement = cachedStatements.get(type);
-      if (deleteStatement == null) {
-        deleteStatement = createAndCacheDeleteStatement(type, key);
-      }
-      deleteStatement.setString(1, key);
-      int result = deleteStatement.executeUpdate();
-      if (result == 1) return SUCCESS;
-      else return 1;
+      return write(shard, prepareDelete(shard, tableName, key));
     } catch (SQLException e) {
       System.err.println("Error in processing delete to table: " + tableName + e);
+      failed(shard);
       return -1;
     }
 	}
+
+  @Override
+  public int batchInsert(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatches(true, tableName, keys, values);
+  }
+
+  @Override
+  public int batchUpdate(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+    return executeBatches(false, tableName, keys, values);
+  }
 }
@@ -36,6 +36,36 @@ public interface JdbcDBClientConstants {
   /** The password to use for establishing the connection. */
   public static final String CONNECTION_PASSWD = "db.passwd";
   
+  /**
+   * The number of insert, update and delete statements to send to the database as one JDBC
+   * batch. 1 sends each statement as soon as it is issued.
+   */
+  public static final String JDBC_BATCH_UPDATE_SIZE = "jdbc.batchupdatesize";
+
+  /** Default batch size: no batching. */
+  public static final String JDBC_BATCH_UPDATE_SIZE_DEFAULT = "1";
+
+  /** The number of rows a scan fetches from the database at once, 0 for the driver's default. */
+  public static final String JDBC_FETCH_SIZE = "jdbc.fetchsize";
+
+  /** Default fetch size: the driver's. */
+  public static final String JDBC_FETCH_SIZE_DEFAULT = "0";
+
+  /**
+   * The SQL dialect of the database: h2, derby, mysql, postgresql or other. By default, it is
+   * picked from the connection URL.
+   */
+  public static final String JDBC_DIALECT = "jdbc.dialect";
+
+  /**
+   * Commit once every this many operations on a shard instead of auto committing each one,
+   * 0 to auto commit.
+   */
+  public static final String JDBC_COMMIT_EVERY = "jdbc.commitevery";
+
+  /** Default: auto commit. */
+  public static final String JDBC_COMMIT_EVERY_DEFAULT = "0";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY="fieldcount";
   
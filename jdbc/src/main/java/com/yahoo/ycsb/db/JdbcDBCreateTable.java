@@ -70,7 +70,9 @@ public class JdbcDBCreateTable implements JdbcDBClientConstants {
       
       sql = new StringBuilder("CREATE TABLE ");
       sql.append(tablename);
-      sql.append(" (KEY VARCHAR PRIMARY KEY");
+      sql.append(" (");
+      sql.append(PRIMARY_KEY);
+      sql.append(" VARCHAR PRIMARY KEY");
       
       for (int idx = 0; idx < fieldcount; idx++) {
         sql.append(", FIELD");
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file. 
+ */
+package com.yahoo.ycsb.db;
+
+/**
+ * The SQL dialects the JDBC client knows, for the clauses that databases spell differently.
+ * The dialect is picked from the connection URL, or set with the jdbc.dialect property.
+ */
+public enum JdbcDBDialect {
+  H2("jdbc:h2:", " LIMIT ?"),
+  DERBY("jdbc:derby:", " FETCH FIRST ? ROWS ONLY"),
+  MYSQL("jdbc:mysql:", " LIMIT ?"),
+  POSTGRESQL("jdbc:postgresql:", " LIMIT ?"),
+  /** A database without a known row limit clause: the limit is set with Statement.setMaxRows(). */
+  OTHER(null, null),
+  ;
+
+  private final String urlPrefix;
+  private final String limit;
+
+  private JdbcDBDialect(String urlPrefix, String limit) {
+    this.urlPrefix = urlPrefix;
+    this.limit = limit;
+  }
+
+  /**
+   * Return the dialect of the database at the URL, OTHER if it is not known.
+   */
+  public static JdbcDBDialect forUrl(String url) {
+    for (JdbcDBDialect dialect : values()) {
+      if (dialect.urlPrefix != null && url.startsWith(dialect.urlPrefix)) {
+        return dialect;
+      }
+    }
+    return OTHER;
+  }
+
+  /**
+   * Return the dialect with the name, in any case.
+   *
+   * @throws IllegalArgumentException if there is no such dialect.
+   */
+  public static JdbcDBDialect forName(String name) {
+    return valueOf(name.toUpperCase());
+  }
+
+  /**
+   * Whether the dialect has a clause to limit the number of rows of a query.
+   */
+  public boolean hasLimit() {
+    return limit != null;
+  }
+
+  /**
+   * Append the clause that limits a query to the number of rows of its last parameter.
+   */
+  public void appendLimit(StringBuilder sql) {
+    sql.append(limit);
+  }
+}
@@ -0,0 +1,296 @@
+package com.yahoo.ycsb.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Vector;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBFactory;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+public class TestJdbcDBClient {
+  static int databases;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    File log = File.createTempFile("derby", ".log");
+    log.deleteOnExit();
+    System.setProperty("derby.stream.error.file", log.getPath());
+    Measurements.setProperties(new Properties());
+  }
+
+  @DataProvider(name = "databases")
+  public Object[][] databases() {
+    return new Object[][] { { "h2" }, { "derby" } };
+  }
+
+  /** The properties to connect to a new, empty, in-memory database with a usertable of 3 fields. */
+  static Properties newDatabase(String type) throws Exception {
+    Properties p = new Properties();
+    String name = "ycsb" + (++databases);
+    if (type.equals("h2")) {
+      p.setProperty(JdbcDBClientConstants.DRIVER_CLASS, "org.h2.Driver");
+      p.setProperty(JdbcDBClientConstants.CONNECTION_URL, "jdbc:h2:mem:" + name + ";MVCC=TRUE;DB_CLOSE_DELAY=-1");
+    } else {
+      p.setProperty(JdbcDBClientConstants.DRIVER_CLASS, "org.apache.derby.jdbc.EmbeddedDriver");
+      p.setProperty(JdbcDBClientConstants.CONNECTION_URL, "jdbc:derby:memory:" + name + ";create=true");
+    }
+    p.setProperty(JdbcDBClientConstants.CONNECTION_USER, "sa");
+    Class.forName(p.getProperty(JdbcDBClientConstants.DRIVER_CLASS));
+    Connection conn = connect(p);
+    Statement stmt = conn.createStatement();
+    stmt.execute("CREATE TABLE usertable (YCSB_KEY VARCHAR(64) PRIMARY KEY, FIELD0 VARCHAR(100), FIELD1 VARCHAR(100), FIELD2 VARCHAR(100))");
+    stmt.close();
+    conn.close();
+    return p;
+  }
+
+  static Connection connect(Properties p) throws Exception {
+    return DriverManager.getConnection(p.getProperty(JdbcDBClientConstants.CONNECTION_URL), "sa", "");
+  }
+
+  /** Count the rows seen by another connection. */
+  static int count(Properties p) throws Exception {
+    Connection conn = connect(p);
+    Statement stmt = conn.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM usertable");
+    rs.next();
+    int ret = rs.getInt(1);
+    conn.close();
+    return ret;
+  }
+
+  static JdbcDBClient open(Properties p) throws Exception {
+    JdbcDBClient db = new JdbcDBClient();
+    db.setProperties(p);
+    db.init();
+    return db;
+  }
+
+  static HashMap<String, ByteIterator> values(String... fieldsAndValues) {
+    HashMap<String, ByteIterator> ret = new HashMap<String, ByteIterator>();
+    for (int i = 0; i < fieldsAndValues.length; i += 2) {
+      ret.put(fieldsAndValues[i], new StringByteIterator(fieldsAndValues[i + 1]));
+    }
+    return ret;
+  }
+
+  static HashMap<String, String> strings(HashMap<String, ByteIterator> values) {
+    HashMap<String, String> ret = new HashMap<String, String>();
+    StringByteIterator.putAllAsStrings(ret, values);
+    return ret;
+  }
+
+  @Test(dataProvider = "databases")
+  public void testWritesAndReadsByField(String type) throws Exception {
+    Properties p = newDatabase(type);
+    JdbcDBClient db = open(p);
+    assertEquals(0, db.insert("usertable", "user1", values("field0", "a0", "field1", "a1", "field2", "a2")));
+
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(0, db.read("usertable", "user1", new HashSet<String>(Arrays.asList("field1")), result));
+    assertEquals(strings(values("field1", "a1")), strings(result));
+
+    // an update of some of the fields writes just those columns
+    assertEquals(0, db.update("usertable", "user1", values("field2", "b2")));
+    assertEquals(0, db.update("usertable", "user1", values("field1", "b1", "field0", "b0")));
+    result.clear();
+    assertEquals(0, db.read("usertable", "user1", null, result));
+    assertEquals(strings(values("field0", "b0", "field1", "b1", "field2", "b2")), strings(result));
+
+    assertEquals(1, db.update("usertable", "user2", values("field2", "b2")));
+    assertEquals(0, db.delete("usertable", "user1"));
+    assertEquals(1, db.read("usertable", "user1", null, result));
+    db.cleanup();
+  }
+
+  @Test(dataProvider = "databases")
+  public void testScanAndMultiRead(String type) throws Exception {
+    Properties p = newDatabase(type);
+    p.setProperty(JdbcDBClientConstants.JDBC_FETCH_SIZE, "2");
+    JdbcDBClient db = open(p);
+    for (int i = 10; i < 30; i++) {
+      assertEquals(0, db.insert("usertable", "user" + i, values("field0", "a" + i, "field1", "b" + i, "field2", "c" + i)));
+    }
+
+    Vector<HashMap<String, ByteIterator>> rows = new Vector<HashMap<String, ByteIterator>>();
+    assertEquals(0, db.scan("usertable", "user15", 5, new HashSet<String>(Arrays.asList("field2")), rows));
+    assertEquals(5, rows.size());
+    for (HashMap<String, ByteIterator> row : rows) {
+      assertEquals(1, row.size());
+      assertTrue(row.get("field2").toString().startsWith("c"));
+    }
+
+    HashMap<String, HashMap<String, ByteIterator>> results = new HashMap<String, HashMap<String, ByteIterator>>();
+    assertEquals(0, db.multiRead("usertable", Arrays.asList("user11", "user12", "user13"), null, results));
+    assertEquals(3, results.size());
+    assertEquals(strings(values("field0", "a12", "field1", "b12", "field2", "c12")), strings(results.get("user12")));
+    assertEquals(1, db.multiRead("usertable", Arrays.asList("user11", "user99"), null, results));
+    db.cleanup();
+  }
+
+  @DataProvider(name = "dialects")
+  public Object[][] dialects() {
+    return new Object[][] { { "h2", null }, { "derby", null }, { "h2", "other" } };
+  }
+
+  @Test(dataProvider = "dialects")
+  public void testScanIsOrderedAndBounded(String type, String dialect) throws Exception {
+    Properties p = newDatabase(type);
+    if (dialect != null) {
+      p.setProperty(JdbcDBClientConstants.JDBC_DIALECT, dialect);
+    }
+    JdbcDBClient db = open(p);
+    for (int i : new int[] { 23, 11, 17, 29, 15, 10, 21, 16, 19, 27, 18, 12 }) {
+      assertEquals(0, db.insert("usertable", "user" + i, values("field0", "a" + i, "field1", "b" + i, "field2", "c" + i)));
+    }
+
+    Vector<HashMap<String, ByteIterator>> rows = new Vector<HashMap<String, ByteIterator>>();
+    assertEquals(0, db.scan("usertable", "user14", 4, new HashSet<String>(Arrays.asList("field0", "field2")), rows));
+    assertEquals(4, rows.size());
+    int[] expected = { 15, 16, 17, 18 };
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(strings(values("field0", "a" + expected[i], "field2", "c" + expected[i])), strings(rows.get(i)));
+    }
+
+    // fewer rows than requested from the start key on
+    rows.clear();
+    assertEquals(0, db.scan("usertable", "user20", 10, null, rows));
+    assertEquals(4, rows.size());
+    assertEquals(strings(values("field0", "a21", "field1", "b21", "field2", "c21")), strings(rows.get(0)));
+    assertEquals("a29", rows.get(3).get("field0").toString());
+    db.cleanup();
+  }
+
+  @Test
+  public void testDialectIsPickedFromTheUrl() {
+    assertEquals(JdbcDBDialect.H2, JdbcDBDialect.forUrl("jdbc:h2:mem:ycsb"));
+    assertEquals(JdbcDBDialect.DERBY, JdbcDBDialect.forUrl("jdbc:derby:memory:ycsb;create=true"));
+    assertEquals(JdbcDBDialect.MYSQL, JdbcDBDialect.forUrl("jdbc:mysql://localhost/ycsb"));
+    assertEquals(JdbcDBDialect.POSTGRESQL, JdbcDBDialect.forUrl("jdbc:postgresql://localhost/ycsb"));
+    assertEquals(JdbcDBDialect.OTHER, JdbcDBDialect.forUrl("jdbc:oracle:thin:@localhost:1521:ycsb"));
+    assertEquals(JdbcDBDialect.POSTGRESQL, JdbcDBDialect.forName("postgresql"));
+  }
+
+  @Test(dataProvider = "databases")
+  public void testWritesAreSentInBatches(String type) throws Exception {
+    Properties p = newDatabase(type);
+    p.setProperty(JdbcDBClientConstants.JDBC_BATCH_UPDATE_SIZE, "4");
+    JdbcDBClient db = open(p);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, db.insert("usertable", "user" + i, values("field0", "a", "field1", "b", "field2", "c")));
+    }
+    assertEquals(0, count(p));
+    assertEquals(0, db.insert("usertable", "user3", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(4, count(p));
+
+    // cleanup sends the rest
+    assertEquals(0, db.insert("usertable", "user4", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(0, db.update("usertable", "user0", values("field1", "x")));
+    assertEquals(4, count(p));
+    db.cleanup();
+    assertEquals(5, count(p));
+  }
+
+  @Test(dataProvider = "databases")
+  public void testBatchedWritesKeepTheirOrder(String type) throws Exception {
+    Properties p = newDatabase(type);
+    p.setProperty(JdbcDBClientConstants.JDBC_BATCH_UPDATE_SIZE, "6");
+    JdbcDBClient db = open(p);
+    assertEquals(0, db.insert("usertable", "user1", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(0, db.update("usertable", "user1", values("field1", "x")));
+    // the same insert statement again, after an update: the earlier insert must still come first
+    assertEquals(0, db.insert("usertable", "user2", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(0, db.update("usertable", "user2", values("field1", "y")));
+    assertEquals(0, db.delete("usertable", "user1"));
+    assertEquals(0, db.insert("usertable", "user1", values("field0", "d", "field1", "e", "field2", "f")));
+    db.cleanup();
+
+    db = open(p);
+    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+    assertEquals(0, db.read("usertable", "user1", null, result));
+    assertEquals(strings(values("field0", "d", "field1", "e", "field2", "f")), strings(result));
+    result.clear();
+    assertEquals(0, db.read("usertable", "user2", null, result));
+    assertEquals(strings(values("field0", "a", "field1", "y", "field2", "c")), strings(result));
+    db.cleanup();
+  }
+
+  @Test
+  public void testCommitsEveryNOperations() throws Exception {
+    // H2 with MVCC, so that another connection does not wait for the uncommitted rows
+    Properties p = newDatabase("h2");
+    p.setProperty(JdbcDBClientConstants.JDBC_COMMIT_EVERY, "3");
+    JdbcDBClient db = open(p);
+    assertEquals(0, db.insert("usertable", "user1", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(0, db.insert("usertable", "user2", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(0, count(p));
+    assertEquals(0, db.read("usertable", "user1", null, new HashMap<String, ByteIterator>()));
+    assertEquals(2, count(p));
+    assertEquals(0, db.insert("usertable", "user3", values("field0", "a", "field1", "b", "field2", "c")));
+    assertEquals(2, count(p));
+    db.cleanup();
+    assertEquals(3, count(p));
+  }
+
+  /**
+   * Load and run a workload through the client layer, as the benchmark does.
+   */
+  @Test(dataProvider = "databases")
+  public void testRunsCoreWorkload(String type) throws Exception {
+    Properties p = newDatabase(type);
+    p.setProperty("fieldcount", "3");
+    p.setProperty("recordcount", "200");
+    p.setProperty("batchsize", "10");
+    p.setProperty("readproportion", "0.4");
+    p.setProperty("updateproportion", "0.2");
+    p.setProperty("scanproportion", "0.1");
+    p.setProperty("insertproportion", "0.1");
+    p.setProperty("multireadproportion", "0.2");
+    p.setProperty("readallfields", "true");
+    p.setProperty(JdbcDBClientConstants.JDBC_FETCH_SIZE, "10");
+    p.setProperty(JdbcDBClientConstants.JDBC_COMMIT_EVERY, "10");
+    Measurements.setProperties(p);
+    Measurements measurements = Measurements.getMeasurements();
+
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    DB db = DBFactory.newDB(JdbcDBClient.class.getName(), p);
+    db.init();
+    Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < 200; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    for (int i = 0; i < 1000; i++) {
+      workload.doTransaction(db, state);
+    }
+    db.cleanup();
+    assertTrue(count(p) > 200);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    measurements.exportMeasurements(new TextMeasurementsExporter(out));
+    for (String line : out.toString().split("\n")) {
+      if (line.contains("Return=")) {
+        assertTrue(line, line.contains("Return=0"));
+      }
+    }
+    assertTrue(out.toString().contains("[MULTIREAD], Return=0"));
+  }
+}
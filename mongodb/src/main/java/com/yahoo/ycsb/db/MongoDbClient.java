@@ -9,8 +9,10 @@
 
 package com.yahoo.ycsb.db;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Map;
@@ -163,6 +165,45 @@ public class MongoDbClient extends DB {
         }
     }
 
+    @Override
+    /**
+     * Insert several records in the database with one multi-document insert. Updates are
+     * sent one at a time, since each record gets different values.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values A HashMap of field/value pairs to insert for each key, in the same order as the keys
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            List<DBObject> records = new ArrayList<DBObject>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                DBObject r = new BasicDBObject().append("_id", keys.get(i));
+                for (Map.Entry<String, ByteIterator> field : values.get(i).entrySet()) {
+                    r.put(field.getKey(), field.getValue().toArray());
+                }
+                records.add(r);
+            }
+            WriteResult res = collection.insert(records, writeConcern);
+            return res.getError() == null ? 0 : 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        } finally {
+            if (db!=null)
+            {
+                db.requestDone();
+            }
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     /**
@@ -213,6 +254,59 @@ public class MongoDbClient extends DB {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    /**
+     * Read several records from the database with one $in query on _id. Each field/value pair from the results will be
+     * stored in a HashMap under the record's key.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results A HashMap from record key to the field/value pairs of that record
+     * @return Zero if every record was found, a non-zero error code on error or if a record was not found.
+     */
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            HashMap<String, HashMap<String, ByteIterator>> results) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            DBObject q = new BasicDBObject().append("_id", new BasicDBObject().append("$in", keys));
+            DBCursor cursor;
+            if (fields != null) {
+                DBObject fieldsToReturn = new BasicDBObject();
+                for (String field : fields) {
+                    fieldsToReturn.put(field, 1);
+                }
+                cursor = collection.find(q, fieldsToReturn);
+            } else {
+                cursor = collection.find(q);
+            }
+
+            int found = 0;
+            while (cursor.hasNext()) {
+                DBObject record = cursor.next();
+                HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+                result.putAll(record.toMap());
+                results.put(record.get("_id").toString(), result);
+                found++;
+            }
+            return found == keys.size() ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println(e.toString());
+            return 1;
+        } finally {
+            if (db!=null)
+            {
+                db.requestDone();
+            }
+        }
+    }
+
 
     @Override
     /**
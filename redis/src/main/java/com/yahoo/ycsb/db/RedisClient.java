@@ -11,6 +11,7 @@ import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,7 +21,9 @@ import java.util.Set;
 import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
 
 public class RedisClient extends DB {
 
@@ -91,6 +94,56 @@ public class RedisClient extends DB {
         return result.isEmpty() ? 1 : 0;
     }
 
+    /* Like the batches below, a multi-read is pipelined.  A record counts as
+     * found if any of the requested fields exists.
+     */
+    @Override
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            HashMap<String, HashMap<String, ByteIterator>> results) {
+        Pipeline pipeline = jedis.pipelined();
+        int found = 0;
+        if (fields == null) {
+            List<Response<Map<String, String>>> replies = new ArrayList<Response<Map<String, String>>>(keys.size());
+            for (String key : keys) {
+                replies.add(pipeline.hgetAll(key));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < keys.size(); i++) {
+                Map<String, String> values = replies.get(i).get();
+                if (!values.isEmpty()) {
+                    HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+                    StringByteIterator.putAllAsByteIterators(result, values);
+                    results.put(keys.get(i), result);
+                    found++;
+                }
+            }
+        }
+        else {
+            String[] fieldArray = (String[])fields.toArray(new String[fields.size()]);
+            List<Response<List<String>>> replies = new ArrayList<Response<List<String>>>(keys.size());
+            for (String key : keys) {
+                replies.add(pipeline.hmget(key, fieldArray));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < keys.size(); i++) {
+                List<String> values = replies.get(i).get();
+                HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+                for (int f = 0; f < fieldArray.length; f++) {
+                    if (values.get(f) != null) {
+                        result.put(fieldArray[f], new StringByteIterator(values.get(f)));
+                    }
+                }
+                if (!result.isEmpty()) {
+                    results.put(keys.get(i), result);
+                    found++;
+                }
+            }
+        }
+        return found == keys.size() ? 0 : 1;
+    }
+
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
         if (jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK")) {
@@ -112,6 +165,42 @@ public class RedisClient extends DB {
         return jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK") ? 0 : 1;
     }
 
+    /* Batches are pipelined: all the commands are sent before any reply is read,
+     * so the whole batch costs one round trip.
+     */
+    @Override
+    public int batchInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> replies = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            replies.add(pipeline.hmset(key, StringByteIterator.getStringMap(values.get(i))));
+            pipeline.zadd(INDEX_KEY, hash(key), key);
+        }
+        pipeline.sync();
+        return allOK(replies);
+    }
+
+    @Override
+    public int batchUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> replies = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            replies.add(pipeline.hmset(keys.get(i), StringByteIterator.getStringMap(values.get(i))));
+        }
+        pipeline.sync();
+        return allOK(replies);
+    }
+
+    private int allOK(List<Response<String>> replies) {
+        for (Response<String> reply : replies) {
+            if (!"OK".equals(reply.get())) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
     @Override
     public int scan(String table, String startkey, int recordcount,
             Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {